@@ -9,8 +9,15 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteConstraintException;
+import android.database.sqlite.SQLiteCursor;
+import android.database.sqlite.SQLiteCursorDriver;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteProgram;
+import android.database.sqlite.SQLiteQuery;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Build;
+import android.support.v4.util.LruCache;
 
 import com.todoroo.andlib.data.Property.PropertyVisitor;
 import com.todoroo.andlib.service.ContextManager;
@@ -20,6 +27,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
 
 /**
  * AbstractDatabase is a database abstraction which wraps a SQLite database.
@@ -82,6 +95,16 @@ abstract public class AbstractDatabase {
      */
     protected SQLiteDatabase database = null;
 
+    /**
+     * Compiled statements for scalar queries, keyed by SQL with bind placeholders
+     */
+    private final StatementCache statementCache = new StatementCache();
+
+    /**
+     * Query statistics, collected while debug logging is enabled
+     */
+    private final QueryProfiler queryProfiler = new QueryProfiler();
+
     // --- listeners
 
     /**
@@ -101,11 +124,146 @@ abstract public class AbstractDatabase {
     }
 
     private void onDatabaseUpdated() {
+        if(transactionDepth > 0) {
+            updatedInTransaction = true;
+            return;
+        }
         for(DatabaseUpdateListener listener : listeners) {
             listener.onDatabaseUpdated();
         }
     }
 
+    // --- change generations
+
+    /** Incremented on every write */
+    private long generation = 0;
+
+    /** Generation of the last write to each table */
+    private final Map<String, Long> tableGenerations = new HashMap<>();
+
+    private void onTableUpdated(String table) {
+        tableGenerations.put(table, ++generation);
+        onDatabaseUpdated();
+    }
+
+    /** Patterns matching references to each table, built on first use */
+    private Map<String, Pattern> tablePatterns = null;
+
+    /**
+     * @return a value that changes whenever the given table is written to
+     */
+    public synchronized long getGeneration(String table) {
+        Long result = tableGenerations.get(table);
+        return result == null ? 0 : result;
+    }
+
+    /**
+     * @return a value that changes whenever a table referenced by the given
+     * query is written to
+     */
+    public synchronized long getGenerationForQuery(String sql) {
+        if(tablePatterns == null) {
+            tablePatterns = new HashMap<>();
+            for(Table table : getTables()) {
+                tablePatterns.put(table.name, Pattern.compile("\\b" + Pattern.quote(table.name) + "\\b",
+                        Pattern.CASE_INSENSITIVE));
+            }
+        }
+        long result = 0;
+        for(Map.Entry<String, Pattern> entry : tablePatterns.entrySet()) {
+            if(entry.getValue().matcher(sql).find()) {
+                result = Math.max(result, getGeneration(entry.getKey()));
+            }
+        }
+        return result;
+    }
+
+    // --- transactions
+
+    /** Depth of nested {@link #runInTransaction(Runnable)} calls */
+    private int transactionDepth = 0;
+
+    /** Whether a write happened in the current outermost transaction */
+    private boolean updatedInTransaction = false;
+
+    /** Listeners waiting for the outermost transaction to end */
+    private final LinkedHashSet<TransactionListener> transactionListeners = new LinkedHashSet<>();
+
+    /**
+     * Interface for work deferred until the end of a transaction
+     */
+    public interface TransactionListener {
+        /**
+         * Called after the outermost transaction commits
+         */
+        public void onTransactionCommitted();
+
+        /**
+         * Called after the outermost transaction is rolled back
+         */
+        public void onTransactionRolledBack();
+    }
+
+    /**
+     * Run all of the writes made by <code>runnable</code> in a single SQLite
+     * transaction. Database and model listeners are notified once after the
+     * outermost transaction commits instead of once per row. If the runnable
+     * throws, the transaction is rolled back and pending notifications are
+     * dropped.
+     */
+    public synchronized void runInTransaction(Runnable runnable) {
+        SQLiteDatabase db = getDatabase();
+        db.beginTransaction();
+        transactionDepth++;
+        boolean successful = false;
+        try {
+            runnable.run();
+            db.setTransactionSuccessful();
+            successful = true;
+        } finally {
+            db.endTransaction();
+            transactionDepth--;
+            if(transactionDepth == 0) {
+                finishTransaction(successful);
+            }
+        }
+    }
+
+    /**
+     * @return true if the calling code is inside {@link #runInTransaction(Runnable)}
+     */
+    public synchronized boolean inTransaction() {
+        return transactionDepth > 0;
+    }
+
+    /**
+     * Notify the given listener when the current transaction ends. Adding
+     * the same listener more than once per transaction notifies it once.
+     */
+    public synchronized void addTransactionListener(TransactionListener listener) {
+        if(transactionDepth == 0) {
+            throw new IllegalStateException("Not in a transaction"); //$NON-NLS-1$
+        }
+        transactionListeners.add(listener);
+    }
+
+    private void finishTransaction(boolean successful) {
+        ArrayList<TransactionListener> pending = new ArrayList<>(transactionListeners);
+        transactionListeners.clear();
+        boolean updated = updatedInTransaction;
+        updatedInTransaction = false;
+        for(TransactionListener listener : pending) {
+            if(successful) {
+                listener.onTransactionCommitted();
+            } else {
+                listener.onTransactionRolledBack();
+            }
+        }
+        if(successful && updated) {
+            onDatabaseUpdated();
+        }
+    }
+
     /**
      * Return the name of the table containing these models
      */
@@ -140,6 +298,9 @@ abstract public class AbstractDatabase {
 
         try {
             database = helper.getWritableDatabase();
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+                database.setMaxSqlCacheSize(SQLiteDatabase.MAX_SQL_CACHE_SIZE);
+            }
         } catch (NullPointerException e) {
             log.error(e.getMessage(), e);
             throw new IllegalStateException(e);
@@ -171,6 +332,7 @@ abstract public class AbstractDatabase {
      * Close the database if it has been opened previously
      */
     public synchronized final void close() {
+        statementCache.evictAll();
         if(database != null) {
             database.close();
         }
@@ -199,7 +361,132 @@ abstract public class AbstractDatabase {
     // --- database wrapper
 
     public synchronized Cursor rawQuery(String sql) {
-        return getDatabase().rawQuery(sql, null);
+        return rawQuery(sql, null);
+    }
+
+    /**
+     * Run a query with typed bind arguments. Unlike
+     * {@link SQLiteDatabase#rawQuery(String, String[])}, numeric arguments are
+     * bound as numbers so comparisons against expressions keep working.
+     */
+    public synchronized Cursor rawQuery(String sql, Object[] args) {
+        List<Object> bound = toList(args);
+        sql = bindQueryParameters(sql, bound);
+        args = bound.toArray();
+        statementCache.recordQuery(sql);
+        long start = System.nanoTime();
+        Cursor cursor = getDatabase().rawQueryWithFactory(new BindingCursorFactory(args), sql, null, null);
+        profile(sql, args, cursor, start);
+        return cursor;
+    }
+
+    /**
+     * Called before a query is run, so subclasses can replace placeholders
+     * in the statement text with bind arguments
+     *
+     * @param args bind arguments of the query, in placeholder order
+     * @return statement to run
+     */
+    protected String bindQueryParameters(String sql, List<Object> args) {
+        return sql;
+    }
+
+    private static List<Object> toList(Object[] args) {
+        List<Object> list = new ArrayList<>();
+        if(args != null) {
+            list.addAll(Arrays.asList(args));
+        }
+        return list;
+    }
+
+    /**
+     * Record how long a query took to produce its rows. Cursors run their
+     * query on first use, so this fills the first window up front, which is
+     * why it is limited to debugging.
+     */
+    private void profile(String sql, Object[] args, Cursor cursor, long start) {
+        if(!queryProfiler.isEnabled()) {
+            return;
+        }
+        int rows = cursor.getCount();
+        if(queryProfiler.record(sql, System.nanoTime() - start, rows)) {
+            queryProfiler.setPlan(sql, explainQueryPlan(sql, args));
+        }
+    }
+
+    private List<String> explainQueryPlan(String sql, Object[] args) {
+        List<String> plan = new ArrayList<>();
+        Cursor cursor = getDatabase().rawQueryWithFactory(new BindingCursorFactory(args),
+                "EXPLAIN QUERY PLAN " + sql, null, null); //$NON-NLS-1$
+        try {
+            int detail = cursor.getColumnIndex("detail"); //$NON-NLS-1$
+            for(cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                plan.add(cursor.getString(detail < 0 ? cursor.getColumnCount() - 1 : detail));
+            }
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        } finally {
+            cursor.close();
+        }
+        return plan;
+    }
+
+    /**
+     * Log latency, row counts and plans of the queries run since the last
+     * report, with suggested indexes for full table scans
+     */
+    public synchronized void logQueryReport() {
+        queryProfiler.logReport();
+    }
+
+    /**
+     * Run a query returning a single numeric value using a cached compiled statement
+     */
+    public synchronized long simpleQueryForLong(String sql, Object[] args) {
+        List<Object> bound = toList(args);
+        sql = bindQueryParameters(sql, bound);
+        args = bound.toArray();
+        SQLiteStatement statement = statementCache.get(sql);
+        try {
+            bindAll(statement, args);
+            return statement.simpleQueryForLong();
+        } finally {
+            statement.clearBindings();
+        }
+    }
+
+    /**
+     * Run a write statement with typed bind arguments using a cached compiled
+     * statement
+     *
+     * @param table table written by the statement
+     */
+    public synchronized void executeUpdate(String table, String sql, Object[] args) {
+        List<Object> bound = toList(args);
+        sql = bindQueryParameters(sql, bound);
+        args = bound.toArray();
+        SQLiteStatement statement = statementCache.get(sql);
+        try {
+            bindAll(statement, args);
+            statement.execute();
+        } finally {
+            statement.clearBindings();
+        }
+        onTableUpdated(table);
+    }
+
+    /**
+     * @return number of queries whose statement was found in the cache
+     */
+    public synchronized int getStatementCacheHits() {
+        return statementCache.hitCount() + statementCache.queryHits;
+    }
+
+    /**
+     * @return number of queries that had to be compiled
+     */
+    public synchronized int getStatementCacheMisses() {
+        return statementCache.missCount() + statementCache.queryMisses;
     }
 
     /*
@@ -215,7 +502,7 @@ abstract public class AbstractDatabase {
             log.error(e.getMessage(), e);
             result = -1;
         }
-        onDatabaseUpdated();
+        onTableUpdated(table);
         return result;
     }
 
@@ -224,18 +511,92 @@ abstract public class AbstractDatabase {
      */
     public synchronized int delete(String table, String whereClause, String[] whereArgs) {
         int result = getDatabase().delete(table, whereClause, whereArgs);
-        onDatabaseUpdated();
+        onTableUpdated(table);
         return result;
     }
 
     public synchronized int update(String  table, ContentValues  values, String whereClause) {
         int result = getDatabase().update(table, values, whereClause, null);
-        onDatabaseUpdated();
+        onTableUpdated(table);
         return result;
     }
 
+    private static void bindAll(SQLiteProgram program, Object[] args) {
+        if(args == null) {
+            return;
+        }
+        for(int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            if(arg == null) {
+                program.bindNull(i + 1);
+            } else if(arg instanceof Long || arg instanceof Integer) {
+                program.bindLong(i + 1, ((Number) arg).longValue());
+            } else if(arg instanceof Double || arg instanceof Float) {
+                program.bindDouble(i + 1, ((Number) arg).doubleValue());
+            } else {
+                program.bindString(i + 1, arg.toString());
+            }
+        }
+    }
+
     // --- helper classes
 
+    /**
+     * Binds typed arguments to a query before its cursor is created
+     */
+    private static class BindingCursorFactory implements SQLiteDatabase.CursorFactory {
+
+        private final Object[] args;
+
+        public BindingCursorFactory(Object[] args) {
+            this.args = args;
+        }
+
+        @Override
+        public Cursor newCursor(SQLiteDatabase db, SQLiteCursorDriver masterQuery, String editTable, SQLiteQuery query) {
+            bindAll(query, args);
+            return new SQLiteCursor(db, masterQuery, editTable, query);
+        }
+    }
+
+    /**
+     * LRU cache of compiled statements. Cursor queries can't be run from a
+     * {@link SQLiteStatement}, so for those we track the statement text with
+     * the same policy as SQLite's per-connection statement cache to report
+     * how often the compiled plan is reused.
+     */
+    private class StatementCache extends LruCache<String, SQLiteStatement> {
+
+        private final LruCache<String, String> queries = new LruCache<>(SQLiteDatabase.MAX_SQL_CACHE_SIZE);
+
+        private int queryHits = 0;
+
+        private int queryMisses = 0;
+
+        public StatementCache() {
+            super(SQLiteDatabase.MAX_SQL_CACHE_SIZE);
+        }
+
+        void recordQuery(String sql) {
+            if(queries.get(sql) == null) {
+                queries.put(sql, sql);
+                queryMisses++;
+            } else {
+                queryHits++;
+            }
+        }
+
+        @Override
+        protected SQLiteStatement create(String sql) {
+            return getDatabase().compileStatement(sql);
+        }
+
+        @Override
+        protected void entryRemoved(boolean evicted, String sql, SQLiteStatement oldValue, SQLiteStatement newValue) {
+            oldValue.close();
+        }
+    }
+
     /**
      * Default implementation of Astrid database helper
      */
@@ -179,14 +179,7 @@ public abstract class AbstractModel implements Parcelable, Cloneable {
         setValues = null;
         transitoryData = null;
 
-        for (Property<?> property : cursor.getProperties()) {
-            try {
-                saver.save(property, values, cursor.get(property));
-            } catch (IllegalArgumentException e) {
-                // underlying cursor may have changed, suppress
-                log.error(e.getMessage(), e);
-            }
-        }
+        cursor.readRow(values);
     }
 
     /**
@@ -8,6 +8,7 @@ package com.todoroo.andlib.data;
 import android.content.ContentValues;
 import android.database.Cursor;
 
+import com.todoroo.andlib.data.AbstractDatabase.TransactionListener;
 import com.todoroo.andlib.sql.Criterion;
 import com.todoroo.andlib.sql.Query;
 
@@ -17,6 +18,8 @@ import org.slf4j.LoggerFactory;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -56,6 +59,7 @@ public class DatabaseDao<TYPE extends AbstractModel> {
         }
         this.database = database;
         table = database.getTable(modelClass);
+        notifiedGeneration = database.getGeneration(table.name);
     }
 
     // --- listeners
@@ -71,10 +75,73 @@ public class DatabaseDao<TYPE extends AbstractModel> {
         listeners.add(listener);
     }
 
+    /** Models updated inside the current transaction, keyed by id */
+    private final LinkedHashMap<Long, TYPE> pendingUpdates = new LinkedHashMap<>();
+
+    private final TransactionListener notifyPendingUpdates = new TransactionListener() {
+        @Override
+        public void onTransactionCommitted() {
+            ArrayList<TYPE> models = new ArrayList<>(pendingUpdates.values());
+            pendingUpdates.clear();
+            for(TYPE model : models) {
+                notifyListeners(model);
+            }
+        }
+
+        @Override
+        public void onTransactionRolledBack() {
+            pendingUpdates.clear();
+        }
+    };
+
     protected void onModelUpdated(TYPE model) {
         TYPE modelCopy = (TYPE) model.clone();
+        if(database.inTransaction()) {
+            // coalesce repeated saves of a row into one notification carrying every changed value
+            TYPE previous = pendingUpdates.remove(modelCopy.getId());
+            if(previous != null && previous.setValues != null) {
+                ContentValues merged = new ContentValues(previous.setValues);
+                if(modelCopy.setValues != null) {
+                    merged.putAll(modelCopy.setValues);
+                }
+                modelCopy.setValues = merged;
+            }
+            pendingUpdates.put(modelCopy.getId(), modelCopy);
+            database.addTransactionListener(notifyPendingUpdates);
+        } else {
+            notifyListeners(modelCopy);
+        }
+    }
+
+    private void notifyListeners(TYPE model) {
         for(ModelUpdateListener<TYPE> listener : listeners) {
-            listener.onModelUpdated(modelCopy);
+            listener.onModelUpdated(model);
+        }
+    }
+
+    /** Generation of the table after the last write that notifies listeners */
+    private long notifiedGeneration = 0;
+
+    /** Incremented when the table was written to without notifying listeners */
+    private int untrackedWrites = 0;
+
+    /**
+     * @return a value that changes whenever the table is written to without
+     * notifying listeners, for instance by {@link #deleteWhere(Criterion)}
+     * or by raw SQL
+     */
+    public int getUntrackedWrites() {
+        synchronized(database) {
+            checkUntrackedWrites();
+            return untrackedWrites;
+        }
+    }
+
+    private void checkUntrackedWrites() {
+        long generation = database.getGeneration(table.name);
+        if(generation != notifiedGeneration) {
+            notifiedGeneration = generation;
+            untrackedWrites++;
         }
     }
 
@@ -85,7 +152,9 @@ public class DatabaseDao<TYPE extends AbstractModel> {
      */
     public TodorooCursor<TYPE> query(Query query) {
         query.from(table);
-        Cursor cursor = database.rawQuery(query.toString());
+        List<Object> args = new ArrayList<>();
+        String sql = query.toSql(args);
+        Cursor cursor = database.rawQuery(sql, args.toArray());
         return new TodorooCursor<>(cursor, query.getFields());
     }
 
@@ -195,7 +264,9 @@ public class DatabaseDao<TYPE extends AbstractModel> {
     private boolean insertOrUpdateAndRecordChanges(TYPE item, DatabaseChangeOp op) {
         final AtomicBoolean result = new AtomicBoolean(false);
         synchronized(database) {
+            checkUntrackedWrites();
             result.set(op.makeChange());
+            notifiedGeneration = database.getGeneration(table.name);
             if (result.get()) {
                 onModelUpdated(item);
                 item.markSaved();
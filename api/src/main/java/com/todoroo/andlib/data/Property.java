@@ -12,8 +12,11 @@ import com.todoroo.andlib.sql.Field;
 import com.todoroo.andlib.sql.Operator;
 import com.todoroo.andlib.sql.UnaryCriterion;
 
+import java.util.List;
+
 import static com.todoroo.andlib.sql.SqlConstants.COMMA;
 import static com.todoroo.andlib.sql.SqlConstants.LEFT_PARENTHESIS;
+import static com.todoroo.andlib.sql.SqlConstants.PLACEHOLDER;
 import static com.todoroo.andlib.sql.SqlConstants.RIGHT_PARENTHESIS;
 import static com.todoroo.andlib.sql.SqlConstants.SPACE;
 
@@ -216,6 +219,16 @@ public abstract class Property<TYPE> extends Field implements Cloneable {
                     }
                     sb.deleteCharAt(sb.length() - 1).append(RIGHT_PARENTHESIS);
                 }
+
+                @Override
+                protected void populate(StringBuilder sb, List<Object> args) {
+                    sb.append(field).append(SPACE).append(Operator.in).append(SPACE).append(LEFT_PARENTHESIS).append(SPACE);
+                    for (String s : value) {
+                        sb.append(PLACEHOLDER).append(COMMA);
+                        args.add(s);
+                    }
+                    sb.deleteCharAt(sb.length() - 1).append(RIGHT_PARENTHESIS);
+                }
             };
         }
     }
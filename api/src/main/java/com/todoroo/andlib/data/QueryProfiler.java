@@ -0,0 +1,197 @@
+/**
+ * Copyright (c) 2012 Todoroo Inc
+ *
+ * See the file "LICENSE" for the full license governing this code.
+ */
+package com.todoroo.andlib.data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Collects latency and row counts of cursor queries, grouped by statement
+ * shape, and the query plan of shapes that run slowly. Active while debug
+ * logging is enabled for this class.
+ */
+class QueryProfiler {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryProfiler.class);
+
+    /** Queries slower than this get their plan explained */
+    static final long SLOW_QUERY_MILLIS = 50;
+
+    /** Upper bounds of the latency histogram buckets, in milliseconds */
+    static final long[] BUCKETS = new long[] { 1, 4, 16, 64, 256, Long.MAX_VALUE };
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern TABLE_SCAN = Pattern.compile("SCAN (?:TABLE )?(\\w+)");
+
+    private final Map<String, Stats> stats = new HashMap<>();
+
+    boolean isEnabled() {
+        return log.isDebugEnabled();
+    }
+
+    /**
+     * Record one execution of a query
+     *
+     * @return true if the query was slow and the plan of its shape has not
+     * been explained yet
+     */
+    boolean record(String sql, long nanos, int rows) {
+        String shape = shapeOf(sql);
+        Stats entry = stats.get(shape);
+        if (entry == null) {
+            entry = new Stats(shape);
+            stats.put(shape, entry);
+        }
+        long millis = nanos / 1000000;
+        entry.count++;
+        entry.totalNanos += nanos;
+        entry.maxNanos = Math.max(entry.maxNanos, nanos);
+        entry.rows += rows;
+        for (int i = 0; i < BUCKETS.length; i++) {
+            if (millis < BUCKETS[i]) {
+                entry.histogram[i]++;
+                break;
+            }
+        }
+        return millis >= SLOW_QUERY_MILLIS && entry.plan == null;
+    }
+
+    /**
+     * Attach the output of EXPLAIN QUERY PLAN to the shape of a query
+     */
+    void setPlan(String sql, List<String> plan) {
+        Stats entry = stats.get(shapeOf(sql));
+        if (entry == null) {
+            return;
+        }
+        entry.plan = plan;
+        entry.suggestions = suggestIndexes(sql, plan);
+        log.debug("Slow query plan for {}: {}", entry.shape, plan);
+    }
+
+    /**
+     * Log every shape seen since the last report, slowest total first, then
+     * start over
+     */
+    void logReport() {
+        List<Stats> entries = new ArrayList<>(stats.values());
+        Collections.sort(entries, new Comparator<Stats>() {
+            @Override
+            public int compare(Stats lhs, Stats rhs) {
+                return lhs.totalNanos < rhs.totalNanos ? 1 : (lhs.totalNanos == rhs.totalNanos ? 0 : -1);
+            }
+        });
+        log.info("Query report, {} statement shapes", entries.size());
+        for (Stats entry : entries) {
+            log.info("{} runs, {}ms total, {}ms max, {} rows/run, histogram {}: {}",
+                    entry.count, entry.totalNanos / 1000000, entry.maxNanos / 1000000,
+                    entry.rows / entry.count, histogramString(entry.histogram), entry.shape);
+            if (entry.plan != null) {
+                log.info("  plan: {}", entry.plan);
+            }
+            if (entry.suggestions != null) {
+                for (String suggestion : entry.suggestions) {
+                    log.info("  suggest: {}", suggestion);
+                }
+            }
+        }
+        stats.clear();
+    }
+
+    int getShapeCount() {
+        return stats.size();
+    }
+
+    /**
+     * @return the query with literals replaced by placeholders, so queries
+     * differing only in their arguments are counted together
+     */
+    static String shapeOf(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        return IN_LIST.matcher(shape).replaceAll("(?)");
+    }
+
+    /**
+     * @return an index on the compared columns of each table the plan scans
+     * without an index
+     */
+    static List<String> suggestIndexes(String sql, List<String> plan) {
+        List<String> suggestions = new ArrayList<>();
+        for (String line : plan) {
+            if (line.contains(" INDEX ")) {
+                continue;
+            }
+            Matcher scan = TABLE_SCAN.matcher(line);
+            if (!scan.find()) {
+                continue;
+            }
+            String table = scan.group(1);
+            if ("SUBQUERY".equals(table) || "CONSTANT".equals(table)) {
+                continue;
+            }
+            Set<String> columns = new LinkedHashSet<>();
+            Matcher compared = Pattern.compile("\\b" + Pattern.quote(table) +
+                    "\\.(\\w+)\\s*(?:=|<|>|<=|>=|IN\\b|LIKE\\b)", Pattern.CASE_INSENSITIVE).matcher(sql);
+            while (compared.find()) {
+                columns.add(compared.group(1));
+            }
+            if (columns.isEmpty()) {
+                suggestions.add("full scan of " + table + " with no indexable comparison");
+            } else {
+                StringBuilder index = new StringBuilder("CREATE INDEX ON ").append(table).append('(');
+                for (String column : columns) {
+                    if (index.charAt(index.length() - 1) != '(') {
+                        index.append(',');
+                    }
+                    index.append(column);
+                }
+                suggestions.add(index.append(')').toString());
+            }
+        }
+        return suggestions;
+    }
+
+    private static String histogramString(int[] histogram) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < BUCKETS.length; i++) {
+            if (i > 0) {
+                result.append(' ');
+            }
+            result.append(i == BUCKETS.length - 1 ? ">=" + BUCKETS[i - 1] : "<" + BUCKETS[i])
+                    .append("ms:").append(histogram[i]);
+        }
+        return result.toString();
+    }
+
+    private static class Stats {
+        final String shape;
+        final int[] histogram = new int[BUCKETS.length];
+        int count;
+        long totalNanos;
+        long maxNanos;
+        long rows;
+        List<String> plan;
+        List<String> suggestions;
+
+        Stats(String shape) {
+            this.shape = shape;
+        }
+    }
+}
@@ -5,12 +5,18 @@
  */
 package com.todoroo.andlib.data;
 
+import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.CursorWrapper;
 
+import com.todoroo.andlib.data.Property.IntegerProperty;
+import com.todoroo.andlib.data.Property.LongProperty;
 import com.todoroo.andlib.data.Property.PropertyVisitor;
 
-import java.util.WeakHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
 
 /**
  * AstridCursor wraps a cursor and allows users to query for individual
@@ -23,16 +29,43 @@ import java.util.WeakHashMap;
  */
 public class TodorooCursor<TYPE extends AbstractModel> extends CursorWrapper {
 
+    private static final Logger log = LoggerFactory.getLogger(TodorooCursor.class);
+
+    private static final int TYPE_INTEGER = 0;
+    private static final int TYPE_LONG = 1;
+    private static final int TYPE_STRING = 2;
+
     /** Properties read by this cursor */
     private final Property<?>[] properties;
 
-    /** Weakly cache field name to column id references for this cursor.
-     * Because it's a weak hash map, entire keys can be discarded by GC */
-    private final WeakHashMap<String, Integer> columnIndexCache;
+    /** Cache field name to column id references for this cursor */
+    private final HashMap<String, Integer> columnIndexCache;
+
+    /** Column index and value type of each property, resolved on first row read */
+    private int[] columns;
+    private int[] types;
 
     /** Property reading visitor */
     private static final CursorReadingVisitor reader = new CursorReadingVisitor();
 
+    /** Resolves the value type of a property */
+    private static final PropertyVisitor<Integer, Void> typeVisitor = new PropertyVisitor<Integer, Void>() {
+        @Override
+        public Integer visitInteger(Property<Integer> property, Void data) {
+            return TYPE_INTEGER;
+        }
+
+        @Override
+        public Integer visitLong(Property<Long> property, Void data) {
+            return TYPE_LONG;
+        }
+
+        @Override
+        public Integer visitString(Property<String> property, Void data) {
+            return TYPE_STRING;
+        }
+    };
+
     /**
      * Create an <code>AstridCursor</code> from the supplied {@link Cursor}
      * object.
@@ -43,7 +76,7 @@ public class TodorooCursor<TYPE extends AbstractModel> extends CursorWrapper {
         super(cursor);
 
         this.properties = properties;
-        columnIndexCache = new WeakHashMap<>();
+        columnIndexCache = new HashMap<>();
     }
 
     /**
@@ -56,6 +89,62 @@ public class TodorooCursor<TYPE extends AbstractModel> extends CursorWrapper {
         return (PROPERTY_TYPE)property.accept(reader, this);
     }
 
+    /**
+     * Read a long property without boxing. Null values read as 0.
+     */
+    public long getLong(LongProperty property) {
+        return getLong(getColumnIndexFromCache(property.getColumnName()));
+    }
+
+    /**
+     * Read an integer property without boxing. Null values read as 0.
+     */
+    public int getInt(IntegerProperty property) {
+        return getInt(getColumnIndexFromCache(property.getColumnName()));
+    }
+
+    /**
+     * Copy every property of the current row into the given values. Columns
+     * are looked up once per cursor, so each row only reads by index.
+     */
+    void readRow(ContentValues values) {
+        if (columns == null) {
+            resolveColumns();
+        }
+        for (int i = 0; i < properties.length; i++) {
+            int column = columns[i];
+            if (column < 0 || (properties[i].checkFlag(Property.PROP_FLAG_NULLABLE) && isNull(column))) {
+                continue;
+            }
+            String name = properties[i].getColumnName();
+            switch (types[i]) {
+                case TYPE_INTEGER:
+                    values.put(name, getInt(column));
+                    break;
+                case TYPE_LONG:
+                    values.put(name, getLong(column));
+                    break;
+                default:
+                    String value = getString(column);
+                    if (value != null) {
+                        values.put(name, value);
+                    }
+            }
+        }
+    }
+
+    private void resolveColumns() {
+        columns = new int[properties.length];
+        types = new int[properties.length];
+        for (int i = 0; i < properties.length; i++) {
+            columns[i] = getColumnIndex(properties[i].getColumnName());
+            if (columns[i] < 0) {
+                log.error("Column not found: {}", properties[i].getColumnName());
+            }
+            types[i] = properties[i].accept(typeVisitor, null);
+        }
+    }
+
     /**
      * Gets entire property list
      */
@@ -66,7 +155,7 @@ public class TodorooCursor<TYPE extends AbstractModel> extends CursorWrapper {
     /**
      * Use cache to get the column index for the given field name
      */
-    public synchronized int getColumnIndexFromCache(String field) {
+    public int getColumnIndexFromCache(String field) {
         Integer index = columnIndexCache.get(field);
         if(index == null) {
             index = getColumnIndexOrThrow(field);
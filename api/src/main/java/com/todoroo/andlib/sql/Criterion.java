@@ -5,6 +5,8 @@
  */
 package com.todoroo.andlib.sql;
 
+import java.util.List;
+
 import static com.todoroo.andlib.sql.SqlConstants.AND;
 import static com.todoroo.andlib.sql.SqlConstants.LEFT_PARENTHESIS;
 import static com.todoroo.andlib.sql.SqlConstants.NOT;
@@ -36,6 +38,14 @@ public abstract class Criterion {
                     sb.append(SPACE).append(AND).append(SPACE).append(c);
                 }
             }
+
+            @Override
+            protected void populate(StringBuilder sb, List<Object> args) {
+                sb.append(criterion.toSql(args));
+                for (Criterion c : criterions) {
+                    sb.append(SPACE).append(AND).append(SPACE).append(c.toSql(args));
+                }
+            }
         };
     }
 
@@ -49,6 +59,14 @@ public abstract class Criterion {
                     sb.append(SPACE).append(OR).append(SPACE).append(c.toString());
                 }
             }
+
+            @Override
+            protected void populate(StringBuilder sb, List<Object> args) {
+                sb.append(criterion.toSql(args));
+                for (Criterion c : criterions) {
+                    sb.append(SPACE).append(OR).append(SPACE).append(c.toSql(args));
+                }
+            }
         };
     }
 
@@ -60,11 +78,37 @@ public abstract class Criterion {
                 sb.append(NOT).append(SPACE);
                 criterion.populate(sb);
             }
+
+            @Override
+            protected void populate(StringBuilder sb, List<Object> args) {
+                sb.append(NOT).append(SPACE);
+                criterion.populate(sb, args);
+            }
         };
     }
 
     protected abstract void populate(StringBuilder sb);
 
+    /**
+     * Populate this criterion using '?' placeholders for literal values,
+     * appending the values to <code>args</code> in order. Criteria that
+     * don't know how to bind their values fall back to inlining them.
+     */
+    protected void populate(StringBuilder sb, List<Object> args) {
+        populate(sb);
+    }
+
+    /**
+     * @return SQL for this criterion with bind placeholders. Bind values are
+     * appended to <code>args</code>
+     */
+    public String toSql(List<Object> args) {
+        StringBuilder builder = new StringBuilder(LEFT_PARENTHESIS);
+        populate(builder, args);
+        builder.append(RIGHT_PARENTHESIS);
+        return builder.toString();
+    }
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder(LEFT_PARENTHESIS);
@@ -5,6 +5,8 @@
  */
 package com.todoroo.andlib.sql;
 
+import java.util.List;
+
 import static com.todoroo.andlib.sql.SqlConstants.COMMA;
 import static com.todoroo.andlib.sql.SqlConstants.LEFT_PARENTHESIS;
 import static com.todoroo.andlib.sql.SqlConstants.RIGHT_PARENTHESIS;
@@ -102,6 +104,12 @@ public class Field extends DBObject<Field> {
                 sb.append(field).append(SPACE).append(Operator.in).append(SPACE).append(LEFT_PARENTHESIS).append(query)
                         .append(RIGHT_PARENTHESIS);
             }
+
+            @Override
+            protected void populate(StringBuilder sb, List<Object> args) {
+                sb.append(field).append(SPACE).append(Operator.in).append(SPACE).append(LEFT_PARENTHESIS).append(query.toSql(args))
+                        .append(RIGHT_PARENTHESIS);
+            }
         };
     }
 }
@@ -5,6 +5,8 @@
  */
 package com.todoroo.andlib.sql;
 
+import java.util.List;
+
 import static com.todoroo.andlib.sql.SqlConstants.AND;
 import static com.todoroo.andlib.sql.SqlConstants.JOIN;
 import static com.todoroo.andlib.sql.SqlConstants.ON;
@@ -31,10 +33,17 @@ public class Join {
 
     @Override
     public String toString() {
+        return toSql(null);
+    }
+
+    /**
+     * @param args bind arguments for criteria values, or null to inline them
+     */
+    public String toSql(List<Object> args) {
         StringBuilder sb = new StringBuilder();
         sb.append(joinType).append(SPACE).append(JOIN).append(SPACE).append(joinTable).append(SPACE).append(ON).append(SPACE).append("(");
         for (int i = 0; i < criterions.length; i++) {
-            sb.append(criterions[i]);
+            sb.append(args == null ? criterions[i].toString() : criterions[i].toSql(args));
             if (i < criterions.length - 1) {
                 sb.append(SPACE).append(AND).append(SPACE);
             }
@@ -58,4 +58,16 @@ public class Order {
             return new Order(expression, OrderType.ASC);
         }
     }
+
+    /**
+     * @return this order with the direction of every expression flipped,
+     * including secondary expressions
+     */
+    public Order reverseAll() {
+        Order reversed = reverse();
+        for (Order secondary : secondaryExpressions) {
+            reversed.addSecondaryExpression(secondary.reverseAll());
+        }
+        return reversed;
+    }
 }
@@ -24,4 +24,5 @@ public final class SqlConstants {
     public static final String WHERE = "WHERE";
     public static final String NOT = "NOT";
     public static final String LIMIT = "LIMIT";
+    public static final String PLACEHOLDER = "?";
 }
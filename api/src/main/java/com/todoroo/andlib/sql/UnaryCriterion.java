@@ -5,6 +5,9 @@
  */
 package com.todoroo.andlib.sql;
 
+import java.util.List;
+
+import static com.todoroo.andlib.sql.SqlConstants.PLACEHOLDER;
 import static com.todoroo.andlib.sql.SqlConstants.SPACE;
 
 public class UnaryCriterion extends Criterion {
@@ -24,6 +27,13 @@ public class UnaryCriterion extends Criterion {
         afterPopulateOperator(sb);
     }
 
+    @Override
+    protected void populate(StringBuilder sb, List<Object> args) {
+        beforePopulateOperator(sb);
+        populateOperator(sb);
+        afterPopulateOperator(sb, args);
+    }
+
     public static Criterion eq(Field expression, Object value) {
         return new UnaryCriterion(expression, Operator.eq, value);
     }
@@ -37,6 +47,19 @@ public class UnaryCriterion extends Criterion {
     }
 
     protected void afterPopulateOperator(StringBuilder sb) {
+        appendValue(sb);
+    }
+
+    protected void afterPopulateOperator(StringBuilder sb, List<Object> args) {
+        if(isBindable(value)) {
+            sb.append(PLACEHOLDER);
+            args.add(value);
+        } else {
+            appendValue(sb);
+        }
+    }
+
+    private void appendValue(StringBuilder sb) {
         if(value == null) {
             return;
         }
@@ -48,6 +71,14 @@ public class UnaryCriterion extends Criterion {
         }
     }
 
+    /**
+     * @return true if value can be passed as a bind argument instead of
+     * being inlined into the statement text
+     */
+    static boolean isBindable(Object value) {
+        return value instanceof String || value instanceof Long || value instanceof Integer;
+    }
+
     /**
      * Sanitize the given input for SQL
      */
@@ -109,6 +140,11 @@ public class UnaryCriterion extends Criterion {
                 super.afterPopulateOperator(sb);
                 sb.append(SPACE).append("ESCAPE").append(" '").append(sanitize(escape)).append("'");
             }
+            @Override
+            protected void afterPopulateOperator(StringBuilder sb, List<Object> args) {
+                super.afterPopulateOperator(sb, args);
+                sb.append(SPACE).append("ESCAPE").append(" '").append(sanitize(escape)).append("'");
+            }
         };
     }
 }
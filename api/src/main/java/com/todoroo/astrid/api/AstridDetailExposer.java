@@ -0,0 +1,20 @@
+/**
+ * Copyright (c) 2012 Todoroo Inc
+ *
+ * See the file "LICENSE" for the full license governing this code.
+ */
+package com.todoroo.astrid.api;
+
+import android.content.Context;
+
+/**
+ * Common interface for Astrids detail-exposers, so task details can be
+ * computed in-process instead of through a broadcast per task.
+ */
+public interface AstridDetailExposer {
+
+    /**
+     * @return detail line for the task, or null if there is nothing to show
+     */
+    public String getTaskDetails(Context context, long id);
+}
@@ -5,9 +5,13 @@
  */
 package com.todoroo.astrid.api;
 
+import com.todoroo.andlib.sql.Functions;
 import com.todoroo.andlib.utility.DateUtilities;
 
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static org.tasks.date.DateTimeUtils.newDate;
 
@@ -62,52 +66,163 @@ public final class PermaSql {
     /** value to be replaced by approximate noon next month as long */
     public static final String VALUE_NOON_NEXT_MONTH = "NOONM()"; //$NON-NLS-1$
 
+    /**
+     * SQLite expression for the current time. Criteria use it rather than
+     * {@link #VALUE_NOW} so they also work on paths that don't bind
+     * placeholders, and it is bound like {@link #VALUE_NOW} where they are.
+     */
+    public static final String SQL_NOW = Functions.now().toString();
+
+    /** Placeholders that are replaced by a time */
+    private static final String[] PLACEHOLDERS = new String[] {
+            VALUE_NOW,
+            VALUE_EOD, VALUE_EOD_YESTERDAY, VALUE_EOD_TOMORROW, VALUE_EOD_DAY_AFTER,
+            VALUE_EOD_NEXT_WEEK, VALUE_EOD_NEXT_MONTH,
+            VALUE_NOON, VALUE_NOON_YESTERDAY, VALUE_NOON_TOMORROW, VALUE_NOON_DAY_AFTER,
+            VALUE_NOON_NEXT_WEEK, VALUE_NOON_NEXT_MONTH
+    };
+
     /** Replace placeholder strings with actual */
     public static String replacePlaceholders(String value) {
-        if(value.contains(VALUE_NOW)) {
-            value = value.replace(VALUE_NOW, Long.toString(DateUtilities.now()));
+        Map<String, Long> values = null;
+        for(String placeholder : PLACEHOLDERS) {
+            if(value.contains(placeholder)) {
+                if(values == null) {
+                    values = placeholderValues(DateUtilities.now());
+                }
+                value = value.replace(placeholder, Long.toString(values.get(placeholder)));
+            }
         }
-        if(value.contains(VALUE_EOD) || value.contains(VALUE_EOD_DAY_AFTER) ||
-                value.contains(VALUE_EOD_NEXT_WEEK) || value.contains(VALUE_EOD_TOMORROW) ||
-                value.contains(VALUE_EOD_YESTERDAY) || value.contains(VALUE_EOD_NEXT_MONTH)) {
-            value = replaceEodValues(value);
+        return value;
+    }
+
+    /**
+     * Replace placeholders in a query with '?', inserting their values into
+     * the bind arguments at the matching position. The statement text stays
+     * the same from one call to the next and SQLite sees a constant instead
+     * of evaluating the time for every row.
+     *
+     * @param args bind arguments for the '?' already in the query, in order
+     */
+    public static String bindPlaceholders(String sql, List<Object> args) {
+        if(!sql.contains("()") && !sql.contains(SQL_NOW)) { //$NON-NLS-1$
+            return sql;
         }
-        if(value.contains(VALUE_NOON) || value.contains(VALUE_NOON_DAY_AFTER) ||
-                value.contains(VALUE_NOON_NEXT_WEEK) || value.contains(VALUE_NOON_TOMORROW) ||
-                value.contains(VALUE_NOON_YESTERDAY) || value.contains(VALUE_NOON_NEXT_MONTH)) {
-            value = replaceNoonValues(value);
+        Map<String, Long> values = null;
+        StringBuilder result = new StringBuilder(sql.length());
+        int argIndex = 0;
+        int i = 0;
+        while(i < sql.length()) {
+            char c = sql.charAt(i);
+            if(c == '\'') {
+                int end = endOfLiteral(sql, i);
+                String placeholder = placeholderAt(sql, i + 1);
+                if(placeholder != null && i + 1 + placeholder.length() == end) {
+                    if(values == null) {
+                        values = placeholderValues(DateUtilities.now());
+                    }
+                    result.append('?');
+                    args.add(argIndex++, values.get(placeholder));
+                } else {
+                    result.append(sql, i, Math.min(end + 1, sql.length()));
+                }
+                i = end + 1;
+                continue;
+            }
+            String placeholder = i > 0 && isIdentifierPart(sql.charAt(i - 1)) ? null : placeholderAt(sql, i);
+            if(placeholder != null) {
+                if(values == null) {
+                    values = placeholderValues(DateUtilities.now());
+                }
+                result.append('?');
+                args.add(argIndex++, values.get(placeholder));
+                i += placeholder.length();
+                continue;
+            }
+            if(c == '?') {
+                argIndex++;
+            }
+            result.append(c);
+            i++;
         }
-        return value;
+        return result.toString();
+    }
+
+    private static String placeholderAt(String sql, int index) {
+        for(String placeholder : PLACEHOLDERS) {
+            if(sql.startsWith(placeholder, index)) {
+                return placeholder;
+            }
+        }
+        if(sql.startsWith(SQL_NOW, index)) {
+            return SQL_NOW;
+        }
+        return null;
+    }
+
+    /**
+     * @return true if the query compares against the current time, rather
+     * than only against the day
+     */
+    public static boolean dependsOnNow(String sql) {
+        return sql.contains(VALUE_NOW) || sql.contains(SQL_NOW);
     }
 
-    private static String replaceEodValues(String value) {
-        Date date = newDate();
+    /**
+     * @return index of the quote closing the string literal starting at
+     * <code>start</code>, or the end of the query if it is not closed
+     */
+    private static int endOfLiteral(String sql, int start) {
+        int i = start + 1;
+        while(i < sql.length()) {
+            if(sql.charAt(i) == '\'') {
+                if(i + 1 < sql.length() && sql.charAt(i + 1) == '\'') {
+                    i += 2;
+                    continue;
+                }
+                return i;
+            }
+            i++;
+        }
+        return sql.length();
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    /**
+     * @return value of every placeholder at the given time
+     */
+    static Map<String, Long> placeholderValues(long now) {
+        Map<String, Long> values = new HashMap<>();
+        values.put(VALUE_NOW, now);
+        values.put(SQL_NOW, now);
+
+        Date date = newDate(now);
         date.setHours(23);
         date.setMinutes(59);
         date.setSeconds(59);
         long time = date.getTime() / 1000l * 1000l; // chop milliseconds off
-        value = value.replace(VALUE_EOD_YESTERDAY, Long.toString(time - DateUtilities.ONE_DAY));
-        value = value.replace(VALUE_EOD, Long.toString(time));
-        value = value.replace(VALUE_EOD_TOMORROW, Long.toString(time + DateUtilities.ONE_DAY));
-        value = value.replace(VALUE_EOD_DAY_AFTER, Long.toString(time + 2 * DateUtilities.ONE_DAY));
-        value = value.replace(VALUE_EOD_NEXT_WEEK, Long.toString(time + 7 * DateUtilities.ONE_DAY));
-        value = value.replace(VALUE_EOD_NEXT_MONTH, Long.toString(time + 30 * DateUtilities.ONE_DAY));
-        return value;
-    }
-
-    private static String replaceNoonValues(String value) {
-        Date date = newDate();
+        values.put(VALUE_EOD_YESTERDAY, time - DateUtilities.ONE_DAY);
+        values.put(VALUE_EOD, time);
+        values.put(VALUE_EOD_TOMORROW, time + DateUtilities.ONE_DAY);
+        values.put(VALUE_EOD_DAY_AFTER, time + 2 * DateUtilities.ONE_DAY);
+        values.put(VALUE_EOD_NEXT_WEEK, time + 7 * DateUtilities.ONE_DAY);
+        values.put(VALUE_EOD_NEXT_MONTH, time + 30 * DateUtilities.ONE_DAY);
+
+        date = newDate(now);
         date.setHours(12);
         date.setMinutes(0);
         date.setSeconds(0);
-        long time = date.getTime() / 1000l * 1000l; // chop milliseconds off
-        value = value.replace(VALUE_NOON_YESTERDAY, Long.toString(time - DateUtilities.ONE_DAY));
-        value = value.replace(VALUE_NOON, Long.toString(time));
-        value = value.replace(VALUE_NOON_TOMORROW, Long.toString(time + DateUtilities.ONE_DAY));
-        value = value.replace(VALUE_NOON_DAY_AFTER, Long.toString(time + 2 * DateUtilities.ONE_DAY));
-        value = value.replace(VALUE_NOON_NEXT_WEEK, Long.toString(time + 7 * DateUtilities.ONE_DAY));
-        value = value.replace(VALUE_NOON_NEXT_MONTH, Long.toString(time + 30 * DateUtilities.ONE_DAY));
-        return value;
+        time = date.getTime() / 1000l * 1000l; // chop milliseconds off
+        values.put(VALUE_NOON_YESTERDAY, time - DateUtilities.ONE_DAY);
+        values.put(VALUE_NOON, time);
+        values.put(VALUE_NOON_TOMORROW, time + DateUtilities.ONE_DAY);
+        values.put(VALUE_NOON_DAY_AFTER, time + 2 * DateUtilities.ONE_DAY);
+        values.put(VALUE_NOON_NEXT_WEEK, time + 7 * DateUtilities.ONE_DAY);
+        values.put(VALUE_NOON_NEXT_MONTH, time + 30 * DateUtilities.ONE_DAY);
+        return values;
     }
 
 }
@@ -6,6 +6,7 @@
 package com.todoroo.astrid.core;
 
 import com.todoroo.andlib.sql.Criterion;
+import com.todoroo.andlib.sql.Field;
 import com.todoroo.andlib.sql.Functions;
 import com.todoroo.andlib.sql.Order;
 import com.todoroo.andlib.utility.DateUtilities;
@@ -34,6 +35,12 @@ public class SortHelper {
     public static final int SORT_MODIFIED = 4;
     public static final int SORT_WIDGET = 5;
 
+    /** Sort key due date of tasks without one */
+    static final long NO_DUE_DATE_SORT_KEY = Long.MAX_VALUE / 2;
+
+    /** Added to due dates without a time, which are stored as noon */
+    private static final long END_OF_DAY_OFFSET = DateUtilities.ONE_HOUR * 11 + DateUtilities.ONE_MINUTE * 59;
+
     /**
      * Takes a SQL query, and if there isn't already an order, creates an order.
      */
@@ -46,19 +53,26 @@ public class SortHelper {
             Order order = orderForSortType(sort);
 
             if((flags & FLAG_REVERSE_SORT) > 0) {
-                order = order.reverse();
+                order = order.reverseAll();
             }
             originalSql += " ORDER BY " + order;
         }
 
-        // flags
+        return adjustQueryForFlags(originalSql, flags);
+    }
+
+    /**
+     * Takes a SQL query, and widens it to the tasks the flags show
+     */
+    public static String adjustQueryForFlags(String originalSql, int flags) {
         if((flags & FLAG_SHOW_COMPLETED) > 0) {
             originalSql = originalSql.replace(Task.COMPLETION_DATE.eq(0).toString(),
                     Criterion.all.toString());
         }
         if ((flags & FLAG_SHOW_RECENTLY_COMPLETED) > 0) {
             originalSql = originalSql.replace(Task.COMPLETION_DATE.eq(0).toString(),
-                    Criterion.or(Task.COMPLETION_DATE.lte(0), Task.COMPLETION_DATE.gt(DateUtilities.now() - 60000)).toString());
+                    Criterion.or(Task.COMPLETION_DATE.lte(0), Task.COMPLETION_DATE.gt(
+                            Field.field("(" + Functions.now() + " - 60000)"))).toString());
         }
         if((flags & FLAG_SHOW_HIDDEN) > 0) {
             originalSql = originalSql.replace(TaskCriteria.isVisible().toString(),
@@ -84,6 +98,11 @@ public class SortHelper {
         return flags;
     }
 
+    /**
+     * Orders lead with the completion date, so the active tasks of most
+     * lists are ordered by the remaining expression alone. The default
+     * order reads the precomputed {@link Task#SORT_KEY}.
+     */
     public static Order orderForSortType(int sortType) {
         Order order;
         switch(sortType) {
@@ -91,15 +110,14 @@ public class SortHelper {
             order = Order.asc(Functions.upper(Task.TITLE));
             break;
         case SORT_DUE:
-            order = Order.asc(Functions.caseStatement(Task.DUE_DATE.eq(0),
-                    Functions.now()  + "*2", adjustedDueDateFunction()) + "+" + Task.IMPORTANCE +
-                    "+3*" + Task.COMPLETION_DATE);
+            order = Order.asc(Task.COMPLETION_DATE);
+            order.addSecondaryExpression(Order.asc(dueDateOrNever() + "+" + Task.IMPORTANCE));
             break;
         case SORT_IMPORTANCE:
-            order = Order.asc(Task.IMPORTANCE + "*" + (2*DateUtilities.now()) + //$NON-NLS-1$
-                    "+" + Functions.caseStatement(Task.DUE_DATE.eq(0), //$NON-NLS-1$
-                            2 * DateUtilities.now(),
-                            Task.DUE_DATE) + "+8*" + Task.COMPLETION_DATE);
+            order = Order.asc(Task.COMPLETION_DATE);
+            order.addSecondaryExpression(Order.asc(Task.IMPORTANCE));
+            order.addSecondaryExpression(Order.asc(Task.DUE_DATE.eq(0)));
+            order.addSecondaryExpression(Order.asc(Task.DUE_DATE));
             break;
         case SORT_MODIFIED:
             order = Order.desc(Task.MODIFICATION_DATE);
@@ -121,21 +139,52 @@ public class SortHelper {
      * Returns SQL task ordering that is astrid's default algorithm
      */
     public static Order defaultTaskOrder() {
-        return Order.asc(Functions.caseStatement(Task.DUE_DATE.eq(0),
-                Functions.now() + "*2",
-                adjustedDueDateFunction()) + " + " + (2 * DateUtilities.ONE_DAY) + " * " +
-                Task.IMPORTANCE + " + 2*" + Task.COMPLETION_DATE);
+        Order order = Order.asc(Task.COMPLETION_DATE);
+        order.addSecondaryExpression(defaultWidgetTaskOrder());
+        return order;
     }
 
     public static Order defaultWidgetTaskOrder() {
-        return Order.asc(Functions.caseStatement(Task.DUE_DATE.eq(0),
-                Functions.now() + "*2",
-                adjustedDueDateFunction()) + " + " + (2 * DateUtilities.ONE_DAY) + " * " +
-                Task.IMPORTANCE);
+        return Order.asc(Task.SORT_KEY);
+    }
+
+    /**
+     * @return value of {@link Task#SORT_KEY}: the due date, adjusted to the
+     * end of the day for tasks without a due time, plus two days for each
+     * level of importance. Tasks without a due date come after every due
+     * date, which is all the current time was used for, so the key never
+     * needs to be recomputed as time passes.
+     */
+    public static long sortKey(long dueDate, int importance) {
+        long due;
+        if (dueDate == 0) {
+            due = NO_DUE_DATE_SORT_KEY;
+        } else if ((dueDate / 1000) % 60 > 0) {
+            due = dueDate;
+        } else {
+            due = dueDate + END_OF_DAY_OFFSET;
+        }
+        return due + 2 * DateUtilities.ONE_DAY * importance;
+    }
+
+    /**
+     * @return SQL computing {@link Task#SORT_KEY} from the columns of a task,
+     * same as {@link #sortKey(long, int)}
+     */
+    public static String sortKeySql() {
+        return dueDateOrNever() + " + " + (2 * DateUtilities.ONE_DAY) + " * " + Task.IMPORTANCE.name;
+    }
+
+    /**
+     * @return due date, or a time after every due date for tasks without one
+     */
+    private static String dueDateOrNever() {
+        return Functions.caseStatement(Task.DUE_DATE.eq(0),
+                NO_DUE_DATE_SORT_KEY, adjustedDueDateFunction());
     }
 
     private static String adjustedDueDateFunction() {
-        return "(CASE WHEN (" + Task.DUE_DATE.name + " / 1000) % 60 > 0" + " THEN " + Task.DUE_DATE.name + " ELSE " + "(" + Task.DUE_DATE.name + " + " + (DateUtilities.ONE_HOUR * 11 + DateUtilities.ONE_MINUTE * 59) + ") END)";
+        return "(CASE WHEN (" + Task.DUE_DATE.name + " / 1000) % 60 > 0" + " THEN " + Task.DUE_DATE.name + " ELSE " + "(" + Task.DUE_DATE.name + " + " + END_OF_DAY_OFFSET + ") END)";
     }
 
 }
@@ -74,6 +74,10 @@ public class Metadata extends AbstractModel {
     public static final StringProperty VALUE7 = new StringProperty(
             TABLE, "value7");
 
+    /** Metadata Integer Value Column, for values sorted numerically */
+    public static final LongProperty ORDINAL = new LongProperty(
+            TABLE, "ordinal");
+
     /** Unixtime Metadata was created */
     public static final LongProperty CREATION_DATE = new LongProperty(
             TABLE, "created");
@@ -131,6 +131,10 @@ public class Task extends RemoteModel {
     public static final StringProperty CALENDAR_URI = new StringProperty(
             TABLE, "calendarUri");
 
+    /** Position in the default order, see {@link com.todoroo.astrid.core.SortHelper#sortKey} */
+    public static final LongProperty SORT_KEY = new LongProperty(
+            TABLE, "sortKey");
+
     // --- for astrid.com
 
     /** Remote id */
@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2012 Todoroo Inc
+ *
+ * See the file "LICENSE" for the full license governing this code.
+ */
+package com.todoroo.astrid.data;
+
+
+import android.content.ContentValues;
+
+import com.todoroo.andlib.data.AbstractModel;
+import com.todoroo.andlib.data.Property;
+import com.todoroo.andlib.data.Property.IntegerProperty;
+import com.todoroo.andlib.data.Property.LongProperty;
+import com.todoroo.andlib.data.Property.StringProperty;
+import com.todoroo.andlib.data.Table;
+import com.todoroo.andlib.data.TodorooCursor;
+
+/**
+ * Data Model which stores the position of a task in a manually ordered list.
+ * Rows are derived from {@link TaskListMetadata#TASK_IDS} so that list
+ * queries can sort on an integer instead of walking the serialized tree.
+ */
+public class TaskListPosition extends AbstractModel {
+
+    // --- table
+
+    /** table for this model */
+    public static final Table TABLE = new Table("task_list_positions", TaskListPosition.class);
+
+    // --- properties
+
+    /** ID */
+    public static final LongProperty ID = new LongProperty(
+            TABLE, ID_PROPERTY_NAME);
+
+    /** Local id of the {@link TaskListMetadata} this position belongs to */
+    public static final LongProperty LIST = new LongProperty(
+            TABLE, "list");
+
+    /** Task UUID */
+    public static final StringProperty TASK = new StringProperty(
+            TABLE, "task");
+
+    /** Position of the task in a pre-order walk of the list tree */
+    public static final IntegerProperty POSITION = new IntegerProperty(
+            TABLE, "position");
+
+    /** Depth of the task in the list tree */
+    public static final IntegerProperty INDENT = new IntegerProperty(
+            TABLE, "indent");
+
+    /** List of all properties for this model */
+    public static final Property<?>[] PROPERTIES = generateProperties(TaskListPosition.class);
+
+    // --- defaults
+
+    /** Default values container */
+    private static final ContentValues defaultValues = new ContentValues();
+
+    static {
+        defaultValues.put(POSITION.name, 0);
+        defaultValues.put(INDENT.name, 0);
+    }
+
+    @Override
+    public ContentValues getDefaultValues() {
+        return defaultValues;
+    }
+
+    // --- data access boilerplate
+
+    public TaskListPosition() {
+        super();
+    }
+
+    public TaskListPosition(TodorooCursor<TaskListPosition> cursor) {
+        this();
+        readPropertiesFromCursor(cursor);
+    }
+
+    @Override
+    public long getId() {
+        return getIdHelper(ID);
+    }
+
+    // --- parcelable helpers
+
+    private static final Creator<TaskListPosition> CREATOR = new ModelCreator<>(TaskListPosition.class);
+
+    public void setList(Long list) {
+        setValue(LIST, list);
+    }
+
+    public void setTask(String task) {
+        setValue(TASK, task);
+    }
+
+    public Integer getPosition() {
+        return getValue(POSITION);
+    }
+
+    public void setPosition(Integer position) {
+        setValue(POSITION, position);
+    }
+
+    public Integer getIndent() {
+        return getValue(INDENT);
+    }
+
+    public void setIndent(Integer indent) {
+        setValue(INDENT, indent);
+    }
+}
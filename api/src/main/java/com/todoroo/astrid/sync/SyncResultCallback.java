@@ -11,6 +11,15 @@ public interface SyncResultCallback {
      */
     public void started();
 
+    /**
+     * Provider finished downloading and merging one list
+     *
+     * @param list name of the list
+     * @param millis time spent on the list
+     * @param tasks number of remote tasks merged
+     */
+    public void listSynchronized(String list, long millis, int tasks);
+
     /**
      * Provider finished sync
      */
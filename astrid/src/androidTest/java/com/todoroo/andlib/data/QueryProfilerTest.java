@@ -0,0 +1,63 @@
+package com.todoroo.andlib.data;
+
+import android.test.AndroidTestCase;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class QueryProfilerTest extends AndroidTestCase {
+
+    public void testShapeIgnoresLiterals() {
+        assertEquals(
+                QueryProfiler.shapeOf("SELECT * FROM tasks WHERE tasks.title = 'a ''b''' AND tasks.importance < 2"),
+                QueryProfiler.shapeOf("SELECT * FROM tasks WHERE tasks.title = 'c' AND tasks.importance < 31"));
+    }
+
+    public void testShapeCollapsesInLists() {
+        assertEquals("SELECT * FROM tasks WHERE tasks._id IN (?)",
+                QueryProfiler.shapeOf("SELECT * FROM tasks WHERE tasks._id IN (1, 2, 3)"));
+    }
+
+    public void testShapeKeepsColumnDigits() {
+        assertEquals("SELECT metadata.value2 FROM metadata WHERE metadata.value3 = ?",
+                QueryProfiler.shapeOf("SELECT metadata.value2 FROM metadata WHERE metadata.value3 = 'x'"));
+    }
+
+    public void testRecordGroupsByShape() {
+        QueryProfiler profiler = new QueryProfiler();
+
+        profiler.record("SELECT * FROM tasks WHERE tasks._id = 1", 1000, 1);
+        profiler.record("SELECT * FROM tasks WHERE tasks._id = 2", 1000, 1);
+
+        assertEquals(1, profiler.getShapeCount());
+    }
+
+    public void testExplainSlowQueryOnce() {
+        QueryProfiler profiler = new QueryProfiler();
+        String sql = "SELECT * FROM tasks WHERE tasks.title = 'a'";
+        long slow = (QueryProfiler.SLOW_QUERY_MILLIS + 1) * 1000000;
+
+        assertFalse(profiler.record(sql, 1000, 1));
+        assertTrue(profiler.record(sql, slow, 1));
+
+        profiler.setPlan(sql, Arrays.asList("SCAN TABLE tasks"));
+
+        assertFalse(profiler.record(sql, slow, 1));
+    }
+
+    public void testSuggestIndexForScan() {
+        List<String> suggestions = QueryProfiler.suggestIndexes(
+                "SELECT * FROM metadata WHERE metadata.key = ? AND metadata.value4 > ?",
+                Arrays.asList("SCAN TABLE metadata"));
+
+        assertEquals(Arrays.asList("CREATE INDEX ON metadata(key,value4)"), suggestions);
+    }
+
+    public void testNoSuggestionForIndexedSearch() {
+        List<String> suggestions = QueryProfiler.suggestIndexes(
+                "SELECT * FROM metadata WHERE metadata.task = ?",
+                Arrays.asList("SEARCH TABLE metadata USING INDEX md_tid (task=?)", "SCAN SUBQUERY 1"));
+
+        assertTrue(suggestions.isEmpty());
+    }
+}
@@ -0,0 +1,139 @@
+package com.todoroo.andlib.data;
+
+import android.content.ContentValues;
+import android.database.MatrixCursor;
+import android.test.AndroidTestCase;
+
+import com.todoroo.andlib.data.AbstractModel.ContentValuesSavingVisitor;
+import com.todoroo.andlib.data.Property.StringProperty;
+import com.todoroo.astrid.data.Task;
+
+public class TodorooCursorTest extends AndroidTestCase {
+
+    public void testReadRowMatchesPropertyReads() {
+        TodorooCursor<Task> cursor = createCursor(10);
+        cursor.moveToPosition(7);
+
+        Task task = new Task();
+        task.readFromCursor(cursor);
+
+        assertEquals(readWithVisitor(cursor, new ContentValuesSavingVisitor()), task.getDatabaseValues());
+    }
+
+    public void testPrimitiveReads() {
+        TodorooCursor<Task> cursor = createCursor(10);
+        cursor.moveToPosition(3);
+
+        assertEquals(3L, cursor.getLong(Task.ID));
+        assertEquals(3, cursor.getInt(Task.IMPORTANCE));
+    }
+
+    public void testReadRowSkipsNullsOfNullableColumns() {
+        Task task = new Task();
+        task.readFromCursor(createCursor(Task.PROPERTIES, Task.UUID, null));
+
+        assertFalse(task.containsValue(Task.UUID));
+        assertEquals("row 0", task.getTitle());
+    }
+
+    public void testReadRowReadsNullNumbersAsZero() {
+        Task task = new Task();
+        task.readFromCursor(createCursor(Task.PROPERTIES, Task.DUE_DATE, null));
+        assertEquals(0L, (long) task.getDueDate());
+
+        task.readFromCursor(createCursor(Task.PROPERTIES, Task.IMPORTANCE, null));
+        assertEquals(0, (int) task.getImportance());
+    }
+
+    public void testReadRowSkipsNullStrings() {
+        TodorooCursor<Task> cursor = createCursor(Task.PROPERTIES, Task.TITLE, null);
+        Task task = new Task();
+        task.readFromCursor(cursor);
+
+        assertFalse(task.getDatabaseValues().containsKey(Task.TITLE.name));
+        assertEquals(readWithVisitor(cursor, new ContentValuesSavingVisitor()), task.getDatabaseValues());
+    }
+
+    public void testReadRowSkipsMissingColumns() {
+        Property<?>[] columns = new Property<?>[] { Task.ID, Task.IMPORTANCE };
+        Task task = new Task();
+        task.readFromCursor(createCursor(columns, Task.PROPERTIES, null, null));
+
+        assertEquals(2, task.getDatabaseValues().size());
+        assertEquals(0L, task.getId());
+        assertFalse(task.getDatabaseValues().containsKey(Task.TITLE.name));
+    }
+
+    public void testPrimitiveReadsOfNulls() {
+        TodorooCursor<Task> cursor = createCursor(Task.PROPERTIES, Task.DUE_DATE, null);
+        assertEquals(0L, cursor.getLong(Task.DUE_DATE));
+
+        cursor = createCursor(Task.PROPERTIES, Task.IMPORTANCE, null);
+        assertEquals(0, cursor.getInt(Task.IMPORTANCE));
+    }
+
+    public void testPrimitiveReadsOfMissingColumns() {
+        TodorooCursor<Task> cursor = createCursor(new Property<?>[] { Task.ID }, Task.PROPERTIES, null, null);
+        try {
+            cursor.getLong(Task.DUE_DATE);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static ContentValues readWithVisitor(TodorooCursor<Task> cursor, ContentValuesSavingVisitor saver) {
+        ContentValues values = new ContentValues();
+        for (Property<?> property : cursor.getProperties()) {
+            saver.save(property, values, cursor.get(property));
+        }
+        return values;
+    }
+
+    private static TodorooCursor<Task> createCursor(int rows) {
+        Property<?>[] properties = Task.PROPERTIES;
+        MatrixCursor cursor = new MatrixCursor(columnNames(properties), rows);
+        for (int row = 0; row < rows; row++) {
+            cursor.addRow(rowValues(properties, row, null, null));
+        }
+        return new TodorooCursor<>(cursor, properties);
+    }
+
+    private static TodorooCursor<Task> createCursor(Property<?>[] properties, Property<?> property, Object value) {
+        return createCursor(properties, properties, property, value);
+    }
+
+    /**
+     * @return cursor reading <code>properties</code> from one row of
+     * <code>columns</code>, with <code>property</code> set to <code>value</code>
+     */
+    private static TodorooCursor<Task> createCursor(Property<?>[] columns, Property<?>[] properties,
+                                                    Property<?> property, Object value) {
+        MatrixCursor cursor = new MatrixCursor(columnNames(columns), 1);
+        cursor.addRow(rowValues(columns, 0, property, value));
+        TodorooCursor<Task> result = new TodorooCursor<>(cursor, properties);
+        result.moveToFirst();
+        return result;
+    }
+
+    private static String[] columnNames(Property<?>[] properties) {
+        String[] columns = new String[properties.length];
+        for (int i = 0; i < properties.length; i++) {
+            columns[i] = properties[i].getColumnName();
+        }
+        return columns;
+    }
+
+    private static Object[] rowValues(Property<?>[] properties, int row, Property<?> property, Object value) {
+        Object[] values = new Object[properties.length];
+        for (int i = 0; i < properties.length; i++) {
+            if (properties[i] == property) {
+                values[i] = value;
+            } else {
+                values[i] = properties[i] instanceof StringProperty
+                        ? "row " + row
+                        : Long.valueOf(row);
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2012 Todoroo Inc
+ *
+ * See the file "LICENSE" for the full license governing this code.
+ */
+package com.todoroo.andlib.sql;
+
+import android.test.AndroidTestCase;
+
+import com.todoroo.astrid.dao.MetadataDao.MetadataCriteria;
+import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+
+public class QueryTest extends AndroidTestCase {
+
+    public void testLiteralsBecomePlaceholders() {
+        List<Object> args = new ArrayList<>();
+        String sql = Query.select(Task.ID).from(Task.TABLE).where(Task.ID.eq(4L)).toSql(args);
+
+        assertEquals("SELECT tasks._id AS _id FROM tasks WHERE (tasks._id=?) ", sql);
+        assertEquals(asList((Object) 4L), args);
+    }
+
+    public void testSameShapeProducesSameStatement() {
+        List<Object> first = new ArrayList<>();
+        List<Object> second = new ArrayList<>();
+
+        String a = Query.select(Metadata.ID).where(MetadataCriteria.byTaskAndwithKey(1, "tags-tag")).toSql(first);
+        String b = Query.select(Metadata.ID).where(MetadataCriteria.byTaskAndwithKey(2, "gtasks")).toSql(second);
+
+        assertEquals(a, b);
+        assertEquals(asList((Object) "tags-tag", 1L), first);
+        assertEquals(asList((Object) "gtasks", 2L), second);
+    }
+
+    public void testFieldComparisonsAreNotBound() {
+        List<Object> args = new ArrayList<>();
+        String sql = Query.select(Task.ID)
+                .join(Join.left(Metadata.TABLE, Metadata.TASK.eq(Task.ID)))
+                .where(Task.TITLE.eq("O'Brien"))
+                .toSql(args);
+
+        assertTrue(sql.contains("(metadata.task=tasks._id)"));
+        assertTrue(sql.contains("(tasks.title=?)"));
+        assertEquals(asList((Object) "O'Brien"), args);
+    }
+
+    public void testToStringStillInlinesValues() {
+        Query query = Query.select(Task.ID).where(Criterion.and(Task.TITLE.eq("O'Brien"), Task.IMPORTANCE.lt(2)));
+
+        assertEquals("SELECT tasks._id AS _id WHERE ((tasks.title='O''Brien') AND (tasks.importance<2)) ",
+                query.toString());
+    }
+}
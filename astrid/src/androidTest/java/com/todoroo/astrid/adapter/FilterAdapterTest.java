@@ -0,0 +1,67 @@
+package com.todoroo.astrid.adapter;
+
+import android.test.AndroidTestCase;
+import android.widget.ArrayAdapter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.todoroo.astrid.adapter.FilterAdapter.updateRows;
+
+public class FilterAdapterTest extends AndroidTestCase {
+
+    public void testInsertsMovesAndRemovesRows() {
+        ArrayAdapter<String> adapter = newAdapter("a", "b", "c", "d");
+        List<String> added = new ArrayList<>();
+
+        assertTrue(updateRows(adapter, Arrays.asList("d", "a", "e", "c"), added));
+
+        assertEquals(Arrays.asList("d", "a", "e", "c"), getRows(adapter));
+        assertEquals(Collections.singletonList("e"), added);
+    }
+
+    public void testKeepsExistingInstances() {
+        String existing = new String("a");
+        ArrayAdapter<String> adapter = newAdapter(existing, "b");
+
+        updateRows(adapter, Arrays.asList("b", new String("a")), new ArrayList<String>());
+
+        assertSame(existing, adapter.getItem(1));
+    }
+
+    public void testUnchangedRows() {
+        ArrayAdapter<String> adapter = newAdapter("a", "b");
+        List<String> added = new ArrayList<>();
+
+        assertFalse(updateRows(adapter, Arrays.asList("a", "b"), added));
+
+        assertEquals(Arrays.asList("a", "b"), getRows(adapter));
+        assertTrue(added.isEmpty());
+    }
+
+    public void testEmptyList() {
+        ArrayAdapter<String> adapter = newAdapter("a", "b");
+
+        assertTrue(updateRows(adapter, Collections.<String>emptyList(), new ArrayList<String>()));
+
+        assertEquals(0, adapter.getCount());
+    }
+
+    private ArrayAdapter<String> newAdapter(String... rows) {
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(getContext(), 0);
+        for (String row : rows) {
+            adapter.add(row);
+        }
+        return adapter;
+    }
+
+    private static List<String> getRows(ArrayAdapter<String> adapter) {
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < adapter.getCount(); i++) {
+            rows.add(adapter.getItem(i));
+        }
+        return rows;
+    }
+}
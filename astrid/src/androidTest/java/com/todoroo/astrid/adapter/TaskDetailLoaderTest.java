@@ -0,0 +1,156 @@
+package com.todoroo.astrid.adapter;
+
+import android.content.Context;
+
+import com.todoroo.astrid.api.AstridDetailExposer;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.service.TaskService;
+import com.todoroo.astrid.test.DatabaseTestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import javax.inject.Inject;
+
+public class TaskDetailLoaderTest extends DatabaseTestCase {
+
+    @Inject TaskDao taskDao;
+    @Inject TaskService taskService;
+
+    /** Tasks whose details were computed, in order */
+    private final List<Long> loadedIds = new ArrayList<>();
+
+    /** Loader runs queued on this thread when {@link #runLoader()} is called */
+    private final List<Runnable> queued = new ArrayList<>();
+
+    private TaskDetailLoader loader;
+    private long clearOnTask = Task.NO_ID;
+    private int batches;
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+
+        AstridDetailExposer exposer = new AstridDetailExposer() {
+            @Override
+            public String getTaskDetails(Context context, long id) {
+                loadedIds.add(id);
+                if (id == clearOnTask) {
+                    loader.clear();
+                }
+                return "details " + id;
+            }
+        };
+        loader = new TaskDetailLoader(getContext(), database, taskService,
+                Collections.singletonList(exposer), new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                queued.add(command);
+            }
+        });
+        loader.setListener(new TaskDetailLoader.DetailListener() {
+            @Override
+            public void onDetailsLoaded() {
+                batches++;
+            }
+        });
+    }
+
+    public void testLoadsMostRecentRequestsFirstInBatches() {
+        List<Long> ids = createTasks(TaskDetailLoader.BATCH_SIZE + 5);
+        for (long id : ids) {
+            loader.request(id, null);
+        }
+
+        runLoader();
+
+        assertEquals(2, batches);
+        assertEquals(ids.size(), loadedIds.size());
+        assertEquals(ids.get(ids.size() - 1), loadedIds.get(0));
+        assertEquals(ids.get(0), loadedIds.get(loadedIds.size() - 1));
+        for (long id : ids) {
+            assertEquals("details " + id, loader.getDetails(id));
+            assertEquals("details " + id, taskDao.fetch(id, Task.DETAILS).getDetails());
+        }
+    }
+
+    public void testOnlySavesChangedDetails() {
+        long id = createTasks(1).get(0);
+        loader.request(id, "details " + id);
+
+        runLoader();
+
+        assertEquals("details " + id, loader.getDetails(id));
+        assertNull(taskDao.fetch(id, Task.DETAILS).getDetails());
+    }
+
+    public void testDropsOldestPendingRequests() {
+        for (long id = 1; id <= TaskDetailLoader.MAX_PENDING + 1; id++) {
+            loader.request(id, "details " + id);
+        }
+
+        runLoader();
+
+        assertNull(loader.getDetails(1));
+        assertEquals("details 2", loader.getDetails(2));
+        assertEquals(TaskDetailLoader.MAX_PENDING, loadedIds.size());
+    }
+
+    public void testEvictsLeastRecentlyLoaded() {
+        for (long id = 1; id <= TaskDetailLoader.CACHE_SIZE + 1; id++) {
+            loader.request(id, "details " + id);
+            runLoader();
+        }
+
+        assertNull(loader.getDetails(1));
+        assertEquals("details 2", loader.getDetails(2));
+
+        loader.request(1, "details 1");
+        runLoader();
+
+        assertEquals("details 1", loader.getDetails(1));
+        assertEquals(TaskDetailLoader.CACHE_SIZE + 2, loadedIds.size());
+    }
+
+    public void testClearDuringBatchDropsBatch() {
+        List<Long> ids = createTasks(3);
+        for (long id : ids) {
+            loader.request(id, null);
+        }
+        clearOnTask = ids.get(1);
+
+        runLoader();
+
+        for (long id : ids) {
+            assertNull(loader.getDetails(id));
+            assertNull(taskDao.fetch(id, Task.DETAILS).getDetails());
+        }
+        assertEquals(0, batches);
+
+        clearOnTask = Task.NO_ID;
+        loader.request(ids.get(0), null);
+        runLoader();
+
+        assertEquals("details " + ids.get(0), loader.getDetails(ids.get(0)));
+    }
+
+    private void runLoader() {
+        while (!queued.isEmpty()) {
+            queued.remove(0).run();
+        }
+    }
+
+    private List<Long> createTasks(int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Task task = new Task();
+            task.setTitle("task " + i);
+            taskDao.createNew(task);
+            ids.add(task.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,140 @@
+package com.todoroo.astrid.adapter;
+
+import com.todoroo.andlib.data.TodorooCursor;
+import com.todoroo.andlib.sql.Join;
+import com.todoroo.andlib.sql.Order;
+import com.todoroo.andlib.sql.Query;
+import com.todoroo.andlib.utility.DateUtilities;
+import com.todoroo.astrid.core.SortHelper;
+import com.todoroo.astrid.dao.MetadataDao;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.service.TaskService;
+import com.todoroo.astrid.test.DatabaseTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import javax.inject.Inject;
+
+public class TaskListPagerTest extends DatabaseTestCase {
+
+    /** Joins a metadata row per task twice, so the filter returns each task twice */
+    private static final String FILTER = Join.left(Metadata.TABLE, Task.ID.eq(Metadata.TASK)) +
+            " WHERE " + Task.COMPLETION_DATE.eq(0);
+
+    @Inject TaskService taskService;
+    @Inject TaskDao taskDao;
+    @Inject MetadataDao metadataDao;
+
+    public void testCantPageGroupedOrLimitedQueries() {
+        assertTrue(TaskListPager.canPage("WHERE tasks.completed = 0", 0, SortHelper.SORT_AUTO));
+        assertFalse(TaskListPager.canPage("WHERE tasks.completed = 0 ORDER BY tasks.title", 0, SortHelper.SORT_AUTO));
+        assertFalse(TaskListPager.canPage("WHERE tasks.completed = 0 GROUP BY tasks._id", 0, SortHelper.SORT_AUTO));
+        assertFalse(TaskListPager.canPage("WHERE tasks.completed = 0 limit 10", 0, SortHelper.SORT_AUTO));
+    }
+
+    public void testIgnoresKeywordsInLiteralsAndSubqueries() {
+        assertTrue(TaskListPager.canPage("WHERE tasks.title = 'it''s group by limit'", 0, SortHelper.SORT_AUTO));
+        assertTrue(TaskListPager.canPage("WHERE tasks._id IN (SELECT task FROM metadata ORDER BY value LIMIT 5)",
+                0, SortHelper.SORT_AUTO));
+    }
+
+    public void testOnlyPagesDefaultOrder() {
+        assertFalse(TaskListPager.canPage("WHERE tasks.completed = 0", 0, SortHelper.SORT_ALPHA));
+        assertFalse(TaskListPager.canPage("WHERE tasks.completed = 0", SortHelper.FLAG_REVERSE_SORT, SortHelper.SORT_AUTO));
+        assertFalse(TaskListPager.canPage("WHERE tasks.completed = 0", SortHelper.FLAG_DRAG_DROP, SortHelper.SORT_AUTO));
+    }
+
+    public void testPageKeepsIdOrder() {
+        assertEquals(" WHERE tasks._id IN (7,3) GROUP BY tasks._id ORDER BY CASE tasks._id WHEN 7 THEN 0 WHEN 3 THEN 1 END",
+                TaskListPager.pageQuery("", Arrays.asList(7L, 3L)));
+    }
+
+    public void testEmptyPage() {
+        assertEquals(" WHERE tasks._id IN () GROUP BY tasks._id",
+                TaskListPager.pageQuery("", Collections.<Long>emptyList()));
+    }
+
+    public void testPagesThroughFilter() {
+        createTasks(2 * TaskListPager.PAGE_SIZE + 7);
+        List<Long> expected = getOrderedIds();
+
+        TaskListPager pager = new TaskListPager(taskService, "", FILTER, Task.ID, Task.TITLE);
+        try {
+            TodorooCursor<Task> cursor = pager.load();
+            while (pager.hasMore()) {
+                cursor = pager.loadNextPage();
+            }
+            assertEquals(expected, readIds(cursor));
+            assertEquals(expected.size(), pager.getLoadedRows());
+        } finally {
+            pager.close();
+        }
+    }
+
+    public void testNewTaskDoesNotShiftNextPage() {
+        createTasks(2 * TaskListPager.PAGE_SIZE);
+        List<Long> expected = getOrderedIds();
+
+        TaskListPager pager = new TaskListPager(taskService, "", FILTER, Task.ID, Task.TITLE);
+        try {
+            pager.load();
+            Task first = new Task();
+            first.setTitle("first");
+            first.setImportance(Task.IMPORTANCE_DO_OR_DIE);
+            first.setDueDate(DateUtilities.now() - DateUtilities.ONE_WEEK);
+            taskDao.createNew(first);
+
+            List<Long> ids = readIds(pager.loadNextPage());
+
+            assertEquals(expected.subList(0, 2 * TaskListPager.PAGE_SIZE), ids);
+            assertEquals(ids.size(), new HashSet<>(ids).size());
+        } finally {
+            pager.close();
+        }
+    }
+
+    /**
+     * Create tasks sharing sort keys and titles, each with two metadata rows
+     */
+    private void createTasks(int count) {
+        long now = DateUtilities.now();
+        for (int i = 0; i < count; i++) {
+            Task task = new Task();
+            task.setTitle("task " + i % 7);
+            task.setImportance(i % 4);
+            task.setDueDate(i % 3 == 0 ? 0 : now + (i % 5) * DateUtilities.ONE_DAY);
+            taskDao.createNew(task);
+            for (int j = 0; j < 2; j++) {
+                Metadata metadata = new Metadata();
+                metadata.setKey("test");
+                metadata.setTask(task.getId());
+                metadataDao.createNew(metadata);
+            }
+        }
+    }
+
+    private List<Long> getOrderedIds() {
+        TodorooCursor<Task> cursor = taskDao.query(Query.select(Task.ID).
+                where(Task.COMPLETION_DATE.eq(0)).
+                orderBy(Order.asc(Task.SORT_KEY), Order.asc(Task.TITLE), Order.asc(Task.ID)));
+        try {
+            return readIds(cursor);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static List<Long> readIds(TodorooCursor<Task> cursor) {
+        List<Long> ids = new ArrayList<>();
+        for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+            ids.add(cursor.get(Task.ID));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,65 @@
+package com.todoroo.astrid.api;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class PermaSqlTest extends AndroidTestCase {
+
+    public void testBindPlaceholderBetweenArguments() {
+        List<Object> args = new ArrayList<Object>(Arrays.asList(1L, "title"));
+
+        String sql = PermaSql.bindPlaceholders(
+                "WHERE a = ? AND b < NOW() AND c = ?", args);
+
+        assertEquals("WHERE a = ? AND b < ? AND c = ?", sql);
+        assertEquals(3, args.size());
+        assertEquals(1L, args.get(0));
+        assertTrue(args.get(1) instanceof Long);
+        assertEquals("title", args.get(2));
+    }
+
+    public void testBindQuotedPlaceholder() {
+        List<Object> args = new ArrayList<>();
+
+        String sql = PermaSql.bindPlaceholders("WHERE dueDate <= 'EOD()'", args);
+
+        assertEquals("WHERE dueDate <= ?", sql);
+        assertEquals(1, args.size());
+    }
+
+    public void testIgnorePlaceholdersInsideText() {
+        List<Object> args = new ArrayList<>();
+        String original = "WHERE title = 'call NOW() ?' AND x = MYNOW()";
+
+        assertEquals(original, PermaSql.bindPlaceholders(original, args));
+        assertTrue(args.isEmpty());
+    }
+
+    public void testBindCurrentTimeExpression() {
+        List<Object> args = new ArrayList<>();
+
+        String sql = PermaSql.bindPlaceholders("WHERE hideUntil < " + PermaSql.SQL_NOW + " AND title = 'now'", args);
+
+        assertEquals("WHERE hideUntil < ? AND title = 'now'", sql);
+        assertEquals(1, args.size());
+        assertTrue(args.get(0) instanceof Long);
+    }
+
+    public void testSameTextEveryCall() {
+        String first = PermaSql.bindPlaceholders("WHERE hideUntil < NOW()", new ArrayList<Object>());
+        String second = PermaSql.bindPlaceholders("WHERE hideUntil < NOW()", new ArrayList<Object>());
+
+        assertEquals(first, second);
+    }
+
+    public void testReplaceUsesSameValues() {
+        long now = 1400000000000L;
+
+        assertEquals(now, (long) PermaSql.placeholderValues(now).get(PermaSql.VALUE_NOW));
+        assertEquals(PermaSql.placeholderValues(now).get(PermaSql.VALUE_EOD) + 7 * 86400000L,
+                (long) PermaSql.placeholderValues(now).get(PermaSql.VALUE_EOD_NEXT_WEEK));
+    }
+}
@@ -138,6 +138,13 @@ public class BackupServiceTests extends DatabaseTestCase {
         }
     }
 
+    public void testCompressedBackupsMatchBackupPattern() {
+        String name = String.format(BackupConstants.BACKUP_FILE_NAME, "140101-1200");
+        assertTrue(name.matches(BackupService.BACKUP_FILE_NAME_REGEX));
+        assertTrue((name + BackupConstants.COMPRESSED_SUFFIX).matches(BackupService.BACKUP_FILE_NAME_REGEX));
+        assertFalse((name + ".zip").matches(BackupService.BACKUP_FILE_NAME_REGEX));
+    }
+
     public void testDeletion() throws IOException {
         // create a bunch of backups
         assertEquals(0, temporaryDirectory.list().length);
@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2012 Todoroo Inc
+ *
+ * See the file "LICENSE" for the full license governing this code.
+ */
+package com.todoroo.astrid.core;
+
+import com.todoroo.andlib.sql.Criterion;
+import com.todoroo.andlib.sql.Query;
+import com.todoroo.astrid.api.MultipleSelectCriterion;
+import com.todoroo.astrid.api.TextInputCriterion;
+import com.todoroo.astrid.core.CustomFilterActivity.CriterionInstance;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.dao.TaskDao.TaskCriteria;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.test.DatabaseTestCase;
+
+import org.tasks.bitmap.TaskBitmapIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+
+public class CriteriaEvaluatorTest extends DatabaseTestCase {
+
+    @Inject TaskDao taskDao;
+    @Inject TaskBitmapIndex taskBitmapIndex;
+
+    private CriteriaEvaluator criteriaEvaluator;
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+
+        criteriaEvaluator = new CriteriaEvaluator(database, taskBitmapIndex);
+        createTask("apple", Task.IMPORTANCE_DO_OR_DIE, 0);
+        createTask("banana", Task.IMPORTANCE_MUST_DO, 0);
+        createTask("cherry", Task.IMPORTANCE_NONE, 0);
+        createTask("date", Task.IMPORTANCE_DO_OR_DIE, 1);
+    }
+
+    public void testCountsEachPrefix() {
+        List<CriterionInstance> instances = new ArrayList<>();
+        instances.add(universe());
+        instances.add(importance(CriterionInstance.TYPE_INTERSECT, Task.IMPORTANCE_MUST_DO));
+        instances.add(title(CriterionInstance.TYPE_SUBTRACT, "apple"));
+
+        assertCounts(criteriaEvaluator.count(instances), 3, 2, 1);
+    }
+
+    public void testAndBindsTighterThanOr() {
+        List<CriterionInstance> instances = new ArrayList<>();
+        instances.add(universe());
+        instances.add(importance(CriterionInstance.TYPE_ADD, Task.IMPORTANCE_MUST_DO));
+        instances.add(title(CriterionInstance.TYPE_SUBTRACT, "apple"));
+
+        assertCounts(criteriaEvaluator.count(instances), 3, 3, 3);
+    }
+
+    public void testOnlyReadsChangedCriteria() {
+        List<CriterionInstance> instances = new ArrayList<>();
+        instances.add(universe());
+        instances.add(importance(CriterionInstance.TYPE_INTERSECT, Task.IMPORTANCE_MUST_DO));
+        criteriaEvaluator.count(instances);
+        assertEquals(1, criteriaEvaluator.getQueryCount());
+
+        instances.add(title(CriterionInstance.TYPE_INTERSECT, "banana"));
+        assertCounts(criteriaEvaluator.count(instances), 3, 2, 1);
+        assertEquals(2, criteriaEvaluator.getQueryCount());
+
+        instances.get(2).type = CriterionInstance.TYPE_SUBTRACT;
+        assertCounts(criteriaEvaluator.count(instances), 3, 2, 1);
+        assertEquals(2, criteriaEvaluator.getQueryCount());
+    }
+
+    public void testRereadsAfterWrite() {
+        List<CriterionInstance> instances = new ArrayList<>();
+        instances.add(universe());
+        criteriaEvaluator.count(instances);
+
+        createTask("elderberry", Task.IMPORTANCE_NONE, 0);
+
+        assertCounts(criteriaEvaluator.count(instances), 4);
+    }
+
+    private void assertCounts(int[] counts, int... expected) {
+        assertEquals(expected.length, counts.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], counts[i]);
+        }
+    }
+
+    private CriterionInstance universe() {
+        CriterionInstance instance = new CriterionInstance();
+        instance.criterion = new MultipleSelectCriterion("active", "active", null, null, null, null, null, null);
+        instance.type = CriterionInstance.TYPE_UNIVERSE;
+        return instance;
+    }
+
+    private CriterionInstance importance(int type, int importance) {
+        CriterionInstance instance = new CriterionInstance();
+        instance.criterion = new TextInputCriterion("importance", "importance",
+                Query.select(Task.ID).from(Task.TABLE).where(
+                        Criterion.and(TaskCriteria.activeVisibleMine(),
+                                Task.IMPORTANCE.lte("?"))).toString(),
+                null, null, null, null);
+        instance.selectedText = Integer.toString(importance);
+        instance.type = type;
+        return instance;
+    }
+
+    private CriterionInstance title(int type, String text) {
+        CriterionInstance instance = new CriterionInstance();
+        instance.criterion = new TextInputCriterion("title", "title",
+                Query.select(Task.ID).from(Task.TABLE).where(
+                        Criterion.and(TaskCriteria.activeVisibleMine(),
+                                Task.TITLE.like("%?%"))).toString(),
+                null, null, null, null);
+        instance.selectedText = text;
+        instance.type = type;
+        return instance;
+    }
+
+    private void createTask(String title, int importance, long deletionDate) {
+        Task task = new Task();
+        task.setTitle(title);
+        task.setImportance(importance);
+        task.setDeletionDate(deletionDate);
+        taskDao.createNew(task);
+    }
+}
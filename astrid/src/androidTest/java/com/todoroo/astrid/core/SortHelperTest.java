@@ -0,0 +1,58 @@
+package com.todoroo.astrid.core;
+
+import android.test.AndroidTestCase;
+
+import com.todoroo.andlib.utility.DateUtilities;
+import com.todoroo.astrid.data.Task;
+
+import static org.tasks.date.DateTimeUtils.currentTimeMillis;
+
+public class SortHelperTest extends AndroidTestCase {
+
+    private final long now = currentTimeMillis();
+    private final long noon = (now / DateUtilities.ONE_DAY) * DateUtilities.ONE_DAY + 12 * DateUtilities.ONE_HOUR;
+
+    public void testNoDueDateAfterDueDates() {
+        assertTrue(SortHelper.sortKey(now + 30 * DateUtilities.ONE_DAY, Task.IMPORTANCE_NONE) <
+                SortHelper.sortKey(0, Task.IMPORTANCE_DO_OR_DIE));
+    }
+
+    public void testImportanceWorthTwoDays() {
+        assertTrue(SortHelper.sortKey(noon + DateUtilities.ONE_DAY, Task.IMPORTANCE_DO_OR_DIE) <
+                SortHelper.sortKey(noon, Task.IMPORTANCE_MUST_DO));
+        assertTrue(SortHelper.sortKey(noon + 3 * DateUtilities.ONE_DAY, Task.IMPORTANCE_DO_OR_DIE) >
+                SortHelper.sortKey(noon, Task.IMPORTANCE_MUST_DO));
+    }
+
+    public void testDueTimeBeforeDueDay() {
+        long dueAtTime = noon + 3 * DateUtilities.ONE_HOUR + 1000;
+
+        assertTrue(SortHelper.sortKey(dueAtTime, Task.IMPORTANCE_NONE) <
+                SortHelper.sortKey(noon, Task.IMPORTANCE_NONE));
+    }
+
+    public void testMatchesLegacyOrder() {
+        long[] dueDates = new long[] { 0, noon, noon + 1000, noon - DateUtilities.ONE_DAY,
+                noon + 5 * DateUtilities.ONE_DAY, noon + 2 * DateUtilities.ONE_DAY + 5000 };
+        for (long first : dueDates) {
+            for (long second : dueDates) {
+                for (int firstImportance = 0; firstImportance <= 3; firstImportance++) {
+                    for (int secondImportance = 0; secondImportance <= 3; secondImportance++) {
+                        assertEquals(
+                                Long.signum(legacyKey(first, firstImportance) - legacyKey(second, secondImportance)),
+                                Long.signum(SortHelper.sortKey(first, firstImportance) -
+                                        SortHelper.sortKey(second, secondImportance)));
+                    }
+                }
+            }
+        }
+    }
+
+    /** Default order expression computed with the current time */
+    private long legacyKey(long dueDate, int importance) {
+        long due = dueDate == 0 ? now * 2 : (dueDate / 1000) % 60 > 0
+                ? dueDate
+                : dueDate + DateUtilities.ONE_HOUR * 11 + DateUtilities.ONE_MINUTE * 59;
+        return due + 2 * DateUtilities.ONE_DAY * importance;
+    }
+}
@@ -5,14 +5,23 @@
  */
 package com.todoroo.astrid.dao;
 
+import android.content.ContentValues;
+
+import com.todoroo.andlib.data.AbstractDatabase.DatabaseUpdateListener;
+import com.todoroo.andlib.data.DatabaseDao.ModelUpdateListener;
 import com.todoroo.andlib.data.Property;
 import com.todoroo.andlib.data.TodorooCursor;
 import com.todoroo.andlib.sql.Query;
 import com.todoroo.astrid.dao.MetadataDao.MetadataCriteria;
 import com.todoroo.astrid.data.Metadata;
 import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.gtasks.GtasksMetadata;
 import com.todoroo.astrid.test.DatabaseTestCase;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import javax.inject.Inject;
 
 public class MetadataDaoTests extends DatabaseTestCase {
@@ -190,4 +199,93 @@ public class MetadataDaoTests extends DatabaseTestCase {
         cursor.close();
     }
 
+    /**
+     * Test that writes in a transaction notify listeners once per row
+     */
+    public void testTransactionCoalescesNotifications() throws Exception {
+        final List<Metadata> updates = new ArrayList<>();
+        final AtomicInteger databaseUpdates = new AtomicInteger();
+        metadataDao.addListener(new ModelUpdateListener<Metadata>() {
+            @Override
+            public void onModelUpdated(Metadata model) {
+                updates.add(model);
+            }
+        });
+        database.addListener(new DatabaseUpdateListener() {
+            @Override
+            public void onDatabaseUpdated() {
+                databaseUpdates.incrementAndGet();
+            }
+        });
+
+        final Metadata metadata = new Metadata();
+        database.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                metadata.setKey("happy");
+                metadata.setTask(1L);
+                metadataDao.persist(metadata);
+                metadata.setValue(Metadata.VALUE1, "sad");
+                metadataDao.persist(metadata);
+                assertTrue(updates.isEmpty());
+            }
+        });
+
+        assertEquals(1, updates.size());
+        assertEquals(1, databaseUpdates.get());
+        ContentValues setValues = updates.get(0).getSetValues();
+        assertEquals("happy", setValues.getAsString(Metadata.KEY.name));
+        assertEquals("sad", setValues.getAsString(Metadata.VALUE1.name));
+    }
+
+    public void testRolledBackTransactionDoesNotNotify() throws Exception {
+        final List<Metadata> updates = new ArrayList<>();
+        metadataDao.addListener(new ModelUpdateListener<Metadata>() {
+            @Override
+            public void onModelUpdated(Metadata model) {
+                updates.add(model);
+            }
+        });
+
+        try {
+            database.runInTransaction(new Runnable() {
+                @Override
+                public void run() {
+                    Metadata metadata = new Metadata();
+                    metadata.setKey("happy");
+                    metadataDao.persist(metadata);
+                    throw new IllegalStateException();
+                }
+            });
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        assertTrue(updates.isEmpty());
+        TodorooCursor<Metadata> cursor = metadataDao.query(Query.select(Metadata.ID));
+        assertEquals(0, cursor.getCount());
+        cursor.close();
+    }
+
+    public void testGtasksOrderWrittenToLegacyColumn() {
+        Metadata metadata = new Metadata();
+        metadata.setKey(GtasksMetadata.METADATA_KEY);
+        metadata.setTask(1L);
+        metadata.setValue(GtasksMetadata.ORDER, 5L);
+        metadataDao.createNew(metadata);
+        assertEquals(5L, getLegacyOrder(metadata.getId()));
+
+        metadata.setValue(GtasksMetadata.ORDER, 7L);
+        metadataDao.saveExisting(metadata);
+        assertEquals(7L, getLegacyOrder(metadata.getId()));
+
+        Metadata template = new Metadata();
+        template.setValue(GtasksMetadata.ORDER, 9L);
+        metadataDao.update(Metadata.ID.eq(metadata.getId()), template);
+        assertEquals(9L, getLegacyOrder(metadata.getId()));
+    }
+
+    private long getLegacyOrder(long id) {
+        return metadataDao.fetch(id, GtasksMetadata.LEGACY_ORDER).getValue(GtasksMetadata.LEGACY_ORDER);
+    }
 }
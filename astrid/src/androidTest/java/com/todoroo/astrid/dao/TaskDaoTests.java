@@ -7,8 +7,10 @@ package com.todoroo.astrid.dao;
 
 import com.todoroo.andlib.data.Property;
 import com.todoroo.andlib.data.TodorooCursor;
+import com.todoroo.andlib.sql.Criterion;
 import com.todoroo.andlib.sql.Query;
 import com.todoroo.andlib.utility.DateUtilities;
+import com.todoroo.astrid.core.SortHelper;
 import com.todoroo.astrid.dao.TaskDao.TaskCriteria;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.test.DatabaseTestCase;
@@ -198,6 +200,56 @@ public class TaskDaoTests extends DatabaseTestCase {
         cursor.close();
     }
 
+    /**
+     * Test that updates recompute the sort key of rows they move out of
+     * the update clause
+     */
+    public void testUpdateRecomputesSortKey() {
+        Task task = new Task();
+        task.setTitle("due");
+        task.setImportance(Task.IMPORTANCE_MUST_DO);
+        taskDao.save(task);
+        Task other = new Task();
+        other.setTitle("other");
+        other.setImportance(Task.IMPORTANCE_NONE);
+        taskDao.save(other);
+
+        long dueDate = DateUtilities.now() + DateUtilities.ONE_DAY;
+        Task template = new Task();
+        template.setDueDate(dueDate);
+        assertEquals(1, taskDao.update(Criterion.and(Task.DUE_DATE.eq(0),
+                Task.IMPORTANCE.eq(Task.IMPORTANCE_MUST_DO)), template));
+
+        assertEquals(SortHelper.sortKey(dueDate, Task.IMPORTANCE_MUST_DO),
+                taskDao.fetch(task.getId(), Task.SORT_KEY).getValue(Task.SORT_KEY).longValue());
+        assertEquals(SortHelper.sortKey(0, Task.IMPORTANCE_NONE),
+                taskDao.fetch(other.getId(), Task.SORT_KEY).getValue(Task.SORT_KEY).longValue());
+    }
+
+    /**
+     * Test that criteria comparing against the current time run through
+     * updates and deletes, which don't bind placeholders
+     */
+    public void testUpdateAndDeleteVisibleTasks() {
+        Task visible = new Task();
+        visible.setTitle("visible");
+        taskDao.save(visible);
+        Task hidden = new Task();
+        hidden.setTitle("hidden");
+        hidden.setHideUntil(DateUtilities.now() + DateUtilities.ONE_DAY);
+        taskDao.save(hidden);
+
+        Task template = new Task();
+        template.setTitle("updated");
+        assertEquals(1, taskDao.update(TaskCriteria.isVisible(), template));
+        assertEquals("updated", taskDao.fetch(visible.getId(), TITLES).getTitle());
+        assertEquals("hidden", taskDao.fetch(hidden.getId(), TITLES).getTitle());
+
+        assertEquals(1, taskDao.deleteWhere(TaskCriteria.isVisible()));
+        assertNull(taskDao.fetch(visible.getId(), IDS));
+        assertNotNull(taskDao.fetch(hidden.getId(), IDS));
+    }
+
     // TODO check eventing
 }
 
@@ -0,0 +1,92 @@
+package com.todoroo.astrid.dao;
+
+import com.todoroo.andlib.data.TodorooCursor;
+import com.todoroo.andlib.sql.Order;
+import com.todoroo.andlib.sql.Query;
+import com.todoroo.astrid.data.TaskListMetadata;
+import com.todoroo.astrid.data.TaskListPosition;
+import com.todoroo.astrid.subtasks.AstridOrderedListUpdater.Node;
+import com.todoroo.astrid.test.DatabaseTestCase;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+
+import javax.inject.Inject;
+
+public class TaskListMetadataDaoTests extends DatabaseTestCase {
+
+    @Inject TaskListMetadataDao taskListMetadataDao;
+    @Inject TaskListPositionDao taskListPositionDao;
+
+    public void testPositionsWrittenOnCreate() {
+        TaskListMetadata list = createList("[\"-1\", [\"a\", \"b\", [\"c\", \"d\"]], \"e\"]");
+
+        assertPositions(list, new String[] { "a", "b", "c", "d", "e" }, new int[] { 0, 1, 1, 2, 0 });
+    }
+
+    public void testPositionsReplacedOnSave() {
+        TaskListMetadata list = createList("[\"-1\", \"a\", \"b\"]");
+
+        list.setTaskIDs("[\"-1\", \"b\", [\"a\", \"c\"]]");
+        taskListMetadataDao.saveExisting(list);
+
+        assertPositions(list, new String[] { "b", "a", "c" }, new int[] { 0, 0, 1 });
+    }
+
+    public void testEnsurePositionsMaterializesMissingRows() {
+        TaskListMetadata list = createList("[\"-1\", \"a\", \"b\"]");
+        taskListPositionDao.deletePositions(list.getId());
+
+        taskListMetadataDao.ensurePositions(list);
+
+        assertPositions(list, new String[] { "a", "b" }, new int[] { 0, 0 });
+    }
+
+    public void testUpdatePositionsLeavesSerializedTree() {
+        String taskIds = "[\"-1\", \"a\", \"b\", \"c\"]";
+        TaskListMetadata list = createList(taskIds);
+        LinkedHashMap<Node, Integer> moved = new LinkedHashMap<>();
+        moved.put(new Node("c", null, 0), -TaskListPositionDao.POSITION_SPACING);
+
+        taskListMetadataDao.updatePositions(list.getId(), moved, Collections.singleton("b"));
+
+        assertEquals(taskIds, taskListMetadataDao.fetch(list.getId(), TaskListMetadata.TASK_IDS).getTaskIDs());
+        TodorooCursor<TaskListPosition> cursor = taskListPositionDao.getPositions(list.getId());
+        try {
+            assertEquals(2, cursor.getCount());
+            cursor.moveToFirst();
+            assertEquals("c", cursor.get(TaskListPosition.TASK));
+            cursor.moveToNext();
+            assertEquals("a", cursor.get(TaskListPosition.TASK));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private TaskListMetadata createList(String taskIds) {
+        TaskListMetadata list = new TaskListMetadata();
+        list.setFilter(TaskListMetadata.FILTER_ID_ALL);
+        list.setTaskIDs(taskIds);
+        taskListMetadataDao.createNew(list);
+        return list;
+    }
+
+    private void assertPositions(TaskListMetadata list, String[] uuids, int[] indents) {
+        TodorooCursor<TaskListPosition> cursor = taskListPositionDao.query(Query.select(TaskListPosition.PROPERTIES)
+                .where(TaskListPosition.LIST.eq(list.getId()))
+                .orderBy(Order.asc(TaskListPosition.POSITION)));
+        try {
+            assertEquals(uuids.length, cursor.getCount());
+            TaskListPosition position = new TaskListPosition();
+            for (int i = 0; i < uuids.length; i++) {
+                cursor.moveToNext();
+                position.readPropertiesFromCursor(cursor);
+                assertEquals(uuids[i], position.getValue(TaskListPosition.TASK));
+                assertEquals(i * TaskListPositionDao.POSITION_SPACING, position.getPosition().intValue());
+                assertEquals(indents[i], position.getIndent().intValue());
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.todoroo.astrid.dao;
+
+import android.database.Cursor;
+
+import com.todoroo.andlib.data.TodorooCursor;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.data.UserActivity;
+import com.todoroo.astrid.service.TaskService;
+import com.todoroo.astrid.test.DatabaseTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+
+public class TaskSearchIndexTests extends DatabaseTestCase {
+
+    @Inject TaskDao taskDao;
+    @Inject TaskService taskService;
+    @Inject UserActivityDao userActivityDao;
+
+    public void testMatchTitlePrefix() {
+        createTask("Buy groceries", null);
+
+        assertEquals(1, search("groc").size());
+        assertEquals(0, search("cheese").size());
+    }
+
+    public void testMatchRenamedTask() {
+        Task task = createTask("Buy groceries", null);
+        task.setTitle("Call plumber");
+        taskDao.save(task);
+
+        assertEquals(0, search("groceries").size());
+        assertEquals(1, search("plumb").size());
+    }
+
+    public void testOnlyMatchWordPrefix() {
+        createTask("Quarterly report", null);
+
+        assertEquals(1, search("rep").size());
+        assertEquals(0, search("port").size());
+    }
+
+    public void testMatchBulkRenamedTasks() {
+        Task task = createTask("Buy groceries", null);
+        Task template = new Task();
+        template.setTitle("Call plumber");
+        taskDao.update(Task.ID.eq(task.getId()), template);
+
+        assertEquals(0, search("groceries").size());
+        assertEquals(1, search("plumb").size());
+    }
+
+    public void testRemoveBulkDeletedTasks() {
+        Task deleted = createTask("Buy groceries", null);
+        createTask("Buy cheese", null);
+        taskDao.deleteWhere(Task.ID.eq(deleted.getId()));
+
+        assertEquals(0, search("groceries").size());
+        assertEquals(1, search("buy").size());
+        assertEquals(1, count("SELECT COUNT(*) FROM " + TaskSearchIndex.TABLE));
+    }
+
+    public void testTitleMatchesRankFirst() {
+        Task inNotes = createTask("Draft", "quarterly report for finance");
+        Task inTitle = createTask("Quarterly report", null);
+
+        List<Long> results = search("quarterly rep");
+
+        assertEquals(2, results.size());
+        assertEquals(inTitle.getId(), (long) results.get(0));
+        assertEquals(inNotes.getId(), (long) results.get(1));
+    }
+
+    public void testMatchComments() {
+        Task task = createTask("Plan trip", null);
+        UserActivity comment = new UserActivity();
+        comment.setAction(UserActivity.ACTION_TASK_COMMENT);
+        comment.setMessage("remember the passport");
+        comment.setTargetId(task.getUuid());
+        userActivityDao.createNew(comment);
+
+        assertEquals(1, search("passport").size());
+    }
+
+    public void testMatchExpression() {
+        assertEquals("hello* w\u00f6rld* or*", TaskSearchIndex.toMatchExpression("Hello, w\u00f6rld OR"));
+        assertNull(TaskSearchIndex.toMatchExpression(" -- "));
+    }
+
+    private Task createTask(String title, String notes) {
+        Task task = new Task();
+        task.setTitle(title);
+        if (notes != null) {
+            task.setNotes(notes);
+        }
+        taskDao.createNew(task);
+        return task;
+    }
+
+    private long count(String sql) {
+        Cursor cursor = database.rawQuery(sql);
+        try {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private List<Long> search(String query) {
+        List<Long> ids = new ArrayList<>();
+        TodorooCursor<Task> cursor = taskService.search(query, Task.ID);
+        try {
+            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                ids.add(cursor.get(Task.ID));
+            }
+        } finally {
+            cursor.close();
+        }
+        return ids;
+    }
+}
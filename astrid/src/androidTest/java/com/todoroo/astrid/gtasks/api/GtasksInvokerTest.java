@@ -0,0 +1,105 @@
+package com.todoroo.astrid.gtasks.api;
+
+import android.test.AndroidTestCase;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.json.Json;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.api.services.tasks.model.Task;
+import com.google.api.services.tasks.model.Tasks;
+import com.todoroo.andlib.service.ContextManager;
+import com.todoroo.andlib.utility.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class GtasksInvokerTest extends AndroidTestCase {
+
+    private static final String FIRST_PAGE = "{\"kind\":\"tasks#tasks\",\"nextPageToken\":\"second\"," +
+            "\"items\":[{\"id\":\"a\",\"title\":\"first\",\"position\":\"00001\"}]}";
+    private static final String LAST_PAGE = "{\"kind\":\"tasks#tasks\"," +
+            "\"items\":[{\"id\":\"b\",\"title\":\"second\",\"position\":\"00002\"}]}";
+
+    private static final String BOUNDARY = "batch_boundary";
+
+    private final List<String> urls = new ArrayList<>();
+    private GtasksInvoker invoker;
+
+    @Override
+    public void setUp() {
+        ContextManager.setContext(getContext());
+        invoker = new GtasksInvoker(null, "token", new MockHttpTransport() {
+            @Override
+            public LowLevelHttpRequest buildRequest(String method, String url) {
+                urls.add(url);
+                MockLowLevelHttpResponse response;
+                if (url.endsWith("/batch")) {
+                    response = new MockLowLevelHttpResponse()
+                            .setContentType("multipart/mixed; boundary=" + BOUNDARY)
+                            .setContent(batchResponse(200, 404, 200));
+                } else {
+                    response = new MockLowLevelHttpResponse()
+                            .setContentType(Json.MEDIA_TYPE)
+                            .setContent(url.contains("pageToken=second") ? LAST_PAGE : FIRST_PAGE);
+                }
+                return new MockLowLevelHttpRequest(url).setResponse(response);
+            }
+        });
+    }
+
+    public void testFollowPageTokens() throws Exception {
+        Tasks first = invoker.getGtasksPage("list", false, false, 0, null);
+
+        assertEquals("second", first.getNextPageToken());
+        assertEquals("a", first.getItems().get(0).getId());
+
+        Tasks last = invoker.getGtasksPage("list", false, false, 0, first.getNextPageToken());
+
+        assertNull(last.getNextPageToken());
+        assertEquals("b", last.getItems().get(0).getId());
+        assertTrue(urls.get(1).contains("pageToken=second"));
+    }
+
+    public void testRequestPageSize() throws Exception {
+        invoker.getGtasksPage("list", false, false, 0, null);
+
+        assertTrue(urls.get(0).contains("maxResults=" + GtasksInvoker.PAGE_SIZE));
+        assertFalse(urls.get(0).contains("pageToken"));
+    }
+
+    public void testBatchUpdatesInOneRequest() throws Exception {
+        List<Pair<String, Task>> updates = new ArrayList<>();
+        for (String id : new String[] { "a", "b", "c" }) {
+            Task task = new Task();
+            task.setId(id);
+            task.setTitle(id);
+            updates.add(new Pair<>("list", task));
+        }
+
+        int[] statusCodes = invoker.updateGtasks(updates);
+
+        assertEquals(1, urls.size());
+        assertEquals(200, statusCodes[0]);
+        assertEquals(404, statusCodes[1]);
+        assertEquals(200, statusCodes[2]);
+    }
+
+    private static String batchResponse(int... statusCodes) {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < statusCodes.length; i++) {
+            String content = statusCodes[i] == 200
+                    ? "{\"kind\":\"tasks#task\"}"
+                    : "{\"error\":{\"code\":" + statusCodes[i] + ",\"message\":\"Not Found\"}}";
+            body.append("--").append(BOUNDARY).append("\r\n")
+                    .append("Content-Type: application/http\r\n")
+                    .append("Content-ID: <response-").append(i + 1).append(">\r\n\r\n")
+                    .append("HTTP/1.1 ").append(statusCodes[i]).append(statusCodes[i] == 200 ? " OK" : " Not Found").append("\r\n")
+                    .append("Content-Type: application/json; charset=UTF-8\r\n")
+                    .append("Content-Length: ").append(content.length()).append("\r\n\r\n")
+                    .append(content).append("\r\n");
+        }
+        return body.append("--").append(BOUNDARY).append("--\r\n").toString();
+    }
+}
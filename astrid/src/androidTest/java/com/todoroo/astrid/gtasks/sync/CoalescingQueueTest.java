@@ -0,0 +1,36 @@
+package com.todoroo.astrid.gtasks.sync;
+
+import android.test.AndroidTestCase;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+
+public class CoalescingQueueTest extends AndroidTestCase {
+
+    private final CoalescingQueue<String> queue = new CoalescingQueue<>(50, 1000);
+
+    public void testLatestItemWins() throws InterruptedException {
+        queue.offer(1L, "first");
+        queue.offer(2L, "other");
+        queue.offer(1L, "second");
+
+        assertEquals(asList("second", "other"), queue.take());
+        assertEquals(0, queue.size());
+    }
+
+    public void testImmediateItemWaitsForItemsAhead() throws InterruptedException {
+        queue.offer(1L, "push");
+        queue.offerNow("notify");
+
+        List<String> ready = queue.take();
+
+        assertEquals(asList("push", "notify"), ready);
+    }
+
+    public void testImmediateItemAlone() throws InterruptedException {
+        queue.offerNow("notify");
+
+        assertEquals(asList("notify"), queue.take());
+    }
+}
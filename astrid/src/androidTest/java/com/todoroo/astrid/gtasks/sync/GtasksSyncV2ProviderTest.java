@@ -0,0 +1,109 @@
+package com.todoroo.astrid.gtasks.sync;
+
+import android.test.AndroidTestCase;
+
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import com.todoroo.astrid.data.StoreObject;
+import com.todoroo.astrid.sync.SyncResultCallback;
+
+import org.tasks.sync.SyncExecutor;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.todoroo.astrid.gtasks.sync.GtasksSyncV2Provider.isInvalidPageToken;
+
+public class GtasksSyncV2ProviderTest extends AndroidTestCase {
+
+    public void testGoneIsInvalidPageToken() {
+        assertTrue(isInvalidPageToken(newException(410, "Gone")));
+    }
+
+    public void testBadRequestForPageTokenIsInvalidPageToken() {
+        assertTrue(isInvalidPageToken(newException(400, "400 Bad Request\nInvalid pageToken value")));
+    }
+
+    public void testOtherBadRequestKeepsPageToken() {
+        assertFalse(isInvalidPageToken(newException(400, "400 Bad Request\nInvalid Value")));
+    }
+
+    public void testServerErrorKeepsPageToken() {
+        assertFalse(isInvalidPageToken(newException(500, "500 Internal Server Error")));
+        assertFalse(isInvalidPageToken(newException(503, "503 Service Unavailable")));
+    }
+
+    public void testFailedListDoesNotStopOtherLists() throws InterruptedException {
+        SyncExecutor executor = new SyncExecutor();
+        final List<Long> synchronizedLists = new CopyOnWriteArrayList<>();
+        final CountDownLatch finished = new CountDownLatch(1);
+
+        GtasksSyncV2Provider.synchronizeLists(executor, callback, new StoreObject[]{newList(1), newList(2)}, 1,
+                new GtasksSyncV2Provider.ListSynchronizer() {
+                    @Override
+                    public void synchronize(StoreObject list) {
+                        if (list.getId() == 1) {
+                            throw new IllegalStateException("write failed");
+                        }
+                        synchronizedLists.add(list.getId());
+                    }
+                }, new Runnable() {
+                    @Override
+                    public void run() {
+                        finished.countDown();
+                    }
+                });
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(2L, (long) synchronizedLists.get(0));
+        assertEquals(1, synchronizedLists.size());
+    }
+
+    public void testExecutorRunsAfterFailedCommand() throws InterruptedException {
+        SyncExecutor executor = new SyncExecutor();
+        final CountDownLatch ran = new CountDownLatch(1);
+
+        executor.execute(callback, new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("sync failed");
+            }
+        });
+        executor.execute(callback, new Runnable() {
+            @Override
+            public void run() {
+                ran.countDown();
+            }
+        });
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+
+    private final SyncResultCallback callback = new SyncResultCallback() {
+        @Override
+        public void started() {
+        }
+
+        @Override
+        public void listSynchronized(String list, long millis, int tasks) {
+        }
+
+        @Override
+        public void finished() {
+        }
+    };
+
+    private static StoreObject newList(long id) {
+        StoreObject list = new StoreObject();
+        list.setId(id);
+        return list;
+    }
+
+    private static HttpResponseException newException(int statusCode, String message) {
+        return new HttpResponseException.Builder(statusCode, null, new HttpHeaders())
+                .setMessage(message)
+                .build();
+    }
+}
@@ -12,10 +12,12 @@ import android.net.Uri;
 
 import com.todoroo.andlib.data.Property.IntegerProperty;
 import com.todoroo.andlib.data.Property.StringProperty;
+import com.todoroo.andlib.utility.DateUtilities;
 import com.todoroo.astrid.api.AstridApiConstants;
 import com.todoroo.astrid.data.Metadata;
 import com.todoroo.astrid.data.StoreObject;
 import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.data.TaskApiDao.TaskCriteria;
 import com.todoroo.astrid.test.DatabaseTestCase;
 
 public class Astrid3ProviderTests extends DatabaseTestCase {
@@ -351,4 +353,26 @@ public class Astrid3ProviderTests extends DatabaseTestCase {
         assertEquals(20, cursor.getInt(0));
     }
 
+    /** Test selecting with the visibility criterion of the api */
+    public void testVisibleSelection() {
+        ContentResolver resolver = getContext().getContentResolver();
+        Uri uri = Task.CONTENT_URI;
+
+        ContentValues values = new ContentValues();
+        values.put(Task.TITLE.name, "visible");
+        resolver.insert(uri, values);
+        values.put(Task.TITLE.name, "hidden");
+        values.put(Task.HIDE_UNTIL.name, DateUtilities.now() + DateUtilities.ONE_DAY);
+        resolver.insert(uri, values);
+
+        Cursor cursor = resolver.query(uri, PROJECTION, TaskCriteria.isVisible().toString(), null, null);
+        try {
+            assertEquals(1, cursor.getCount());
+            cursor.moveToFirst();
+            assertEquals("visible", cursor.getString(1));
+        } finally {
+            cursor.close();
+        }
+    }
+
 }
@@ -0,0 +1,70 @@
+package com.todoroo.astrid.reminders;
+
+import android.test.AndroidTestCase;
+
+import com.todoroo.astrid.data.Task;
+
+import static org.tasks.date.DateTimeUtils.currentTimeMillis;
+
+public class NextReminderSchedulerTest extends AndroidTestCase {
+
+    private NextReminderScheduler scheduler;
+
+    @Override
+    public void setUp() {
+        scheduler = new NextReminderScheduler();
+    }
+
+    @Override
+    public void tearDown() {
+        scheduler.beginRebuild();
+        scheduler.endRebuild(getContext());
+    }
+
+    public void testKeepsOneReminderPerTask() {
+        long now = currentTimeMillis();
+        scheduler.createAlarm(getContext(), task(1), now + 1000, ReminderService.TYPE_DUE);
+        scheduler.createAlarm(getContext(), task(1), now + 2000, ReminderService.TYPE_RANDOM);
+        scheduler.createAlarm(getContext(), task(2), now + 3000, ReminderService.TYPE_DUE);
+
+        assertEquals(2, scheduler.size());
+    }
+
+    public void testClearingOtherTypeKeepsReminder() {
+        scheduler.createAlarm(getContext(), task(1), currentTimeMillis() + 1000, ReminderService.TYPE_DUE);
+        scheduler.createAlarm(getContext(), task(1), ReminderService.NO_ALARM, ReminderService.TYPE_SNOOZE);
+
+        assertEquals(1, scheduler.size());
+
+        scheduler.createAlarm(getContext(), task(1), ReminderService.NO_ALARM, ReminderService.TYPE_DUE);
+
+        assertEquals(0, scheduler.size());
+    }
+
+    public void testRemoveFiredReminder() {
+        long now = currentTimeMillis();
+        scheduler.createAlarm(getContext(), task(1), now + 1000, ReminderService.TYPE_DUE);
+        scheduler.createAlarm(getContext(), task(2), now + 2000, ReminderService.TYPE_DUE);
+
+        scheduler.remove(getContext(), 1, ReminderService.TYPE_DUE);
+
+        assertEquals(1, scheduler.size());
+    }
+
+    public void testRebuildDiscardsReminders() {
+        scheduler.createAlarm(getContext(), task(1), currentTimeMillis() + 1000, ReminderService.TYPE_DUE);
+
+        scheduler.beginRebuild();
+        scheduler.createAlarm(getContext(), task(2), currentTimeMillis() + 1000, ReminderService.TYPE_DUE);
+        scheduler.endRebuild(getContext());
+
+        assertEquals(1, scheduler.size());
+        assertTrue(scheduler.isPopulated());
+    }
+
+    private static Task task(long id) {
+        Task task = new Task();
+        task.setId(id);
+        return task;
+    }
+}
@@ -7,8 +7,12 @@ package com.todoroo.astrid.service;
 
 import com.google.ical.values.Frequency;
 import com.google.ical.values.RRule;
+import com.todoroo.astrid.dao.MetadataDao;
+import com.todoroo.astrid.dao.TagDataDao;
+import com.todoroo.astrid.data.TagData;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.tags.TagService;
+import com.todoroo.astrid.tags.TaskToTagMetadata;
 import com.todoroo.astrid.test.DatabaseTestCase;
 import com.todoroo.astrid.utility.TitleParser;
 
@@ -21,12 +25,16 @@ import java.util.Date;
 
 import javax.inject.Inject;
 
+import static org.tasks.Freeze.freezeClock;
+import static org.tasks.Freeze.thaw;
 import static org.tasks.date.DateTimeUtils.newDate;
 
 public class TitleParserTest extends DatabaseTestCase {
 
     @Inject TaskService taskService;
     @Inject TagService tagService;
+    @Inject TagDataDao tagDataDao;
+    @Inject MetadataDao metadataDao;
     @Inject Preferences preferences;
 
     @Override
@@ -571,4 +579,66 @@ public class TitleParserTest extends DatabaseTestCase {
     //----------------Priority end----------------//
 
 
+    public void testTagsUseCaseOfExistingTag() throws Exception {
+        TagData tagData = new TagData();
+        tagData.setName("Errands");
+        tagDataDao.createNew(tagData);
+
+        Task task = new Task();
+        task.setTitle("Jog #errands @ERRANDS");
+        ArrayList<String> tags = new ArrayList<>();
+        TitleParser.listHelper(tagService, task, tags);
+        assertEquals(1, tags.size());
+        assertEquals("Errands", tags.get(0));
+        assertEquals("Jog", task.getTitle());
+
+        tagService.rename(tagData.getUUID(), "Chores");
+        assertEquals("Chores", tagService.getTagWithCase("chores"));
+        assertEquals("errands", tagService.getTagWithCase("errands"));
+    }
+
+    public void testTagsUseCaseOfTaskLinksWithoutTagData() throws Exception {
+        Task task = new Task();
+        task.setTitle("Jog");
+        taskService.save(task);
+        metadataDao.createNew(TaskToTagMetadata.newTagMetadata(task.getId(), task.getUuid(), "Gym", "1"));
+
+        assertEquals("Gym", tagService.getTagWithCase("gym"));
+        assertEquals("pool", tagService.getTagWithCase("pool"));
+    }
+
+    /**
+     * Parsing reuses compiled patterns and cached tag names, so parsing a
+     * title again must give the same task
+     */
+    public void testParsingAgainGivesSameTask() throws Exception {
+        String[] titles = {
+                "Jog", "Jog on January 12.", "Jog on 8/12/13", "Jog 23:59", "Jog 8 pm", "Jog at 8",
+                "Jog 8 o'clock AM", "Jog 12:30 PM", "Jog tomorrow", "Jog (monday)", "Jog !!", "Jog bang bang",
+                "Jog priority 2", "Jog highest priority", "Jog every day", "Jog every other week",
+                "Jog monthly", "Jog #tag", "Jog @(a cool tag)", "Jog #work every day at 8 !"
+        };
+        freezeClock();
+        try {
+            for (String title : titles) {
+                Task first = new Task();
+                first.setTitle(title);
+                ArrayList<String> firstTags = new ArrayList<>();
+                TitleParser.parse(tagService, first, firstTags);
+
+                Task second = new Task();
+                second.setTitle(title);
+                ArrayList<String> secondTags = new ArrayList<>();
+                TitleParser.parse(tagService, second, secondTags);
+
+                assertEquals(title, first.getTitle(), second.getTitle());
+                assertEquals(title, first.getImportance(), second.getImportance());
+                assertEquals(title, first.getDueDate(), second.getDueDate());
+                assertEquals(title, first.getRecurrence(), second.getRecurrence());
+                assertEquals(title, firstTags, secondTags);
+            }
+        } finally {
+            thaw();
+        }
+    }
 }
@@ -3,6 +3,7 @@ package com.todoroo.astrid.subtasks;
 import com.todoroo.astrid.api.Filter;
 import com.todoroo.astrid.core.CoreFilterExposer;
 import com.todoroo.astrid.dao.TaskListMetadataDao;
+import com.todoroo.astrid.dao.TaskListPositionDao;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.data.TaskListMetadata;
 import com.todoroo.astrid.service.TaskService;
@@ -21,6 +22,7 @@ import javax.inject.Inject;
 public class SubtasksTestCase extends DatabaseTestCase {
 
     @Inject TaskListMetadataDao taskListMetadataDao;
+    @Inject TaskListPositionDao taskListPositionDao;
     @Inject TaskService taskService;
     @Inject Preferences preferences;
 
@@ -43,7 +45,7 @@ public class SubtasksTestCase extends DatabaseTestCase {
         super.setUp();
         filter = CoreFilterExposer.buildInboxFilter(getContext().getResources());
         preferences.clear(SubtasksUpdater.ACTIVE_TASKS_ORDER);
-        updater = new SubtasksFilterUpdater(taskListMetadataDao, taskService);
+        updater = new SubtasksFilterUpdater(taskListMetadataDao, taskListPositionDao, taskService, database);
     }
 
     protected void expectParentAndPosition(Task task, Task parent, int positionInParent) {
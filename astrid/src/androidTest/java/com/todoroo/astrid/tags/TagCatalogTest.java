@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2012 Todoroo Inc
+ *
+ * See the file "LICENSE" for the full license governing this code.
+ */
+package com.todoroo.astrid.tags;
+
+import com.todoroo.andlib.sql.Criterion;
+import com.todoroo.astrid.dao.MetadataDao;
+import com.todoroo.astrid.dao.TagDataDao;
+import com.todoroo.astrid.data.TagData;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.service.TaskService;
+import com.todoroo.astrid.test.DatabaseTestCase;
+
+import java.util.List;
+
+import javax.inject.Inject;
+
+public class TagCatalogTest extends DatabaseTestCase {
+
+    @Inject TagCatalog tagCatalog;
+    @Inject TagService tagService;
+    @Inject TagDataDao tagDataDao;
+    @Inject TaskService taskService;
+    @Inject MetadataDao metadataDao;
+
+    public void testFindsSavedTagsByNameAndUuid() {
+        TagData work = newTag("Work");
+        assertFalse(tagCatalog.getTags().isEmpty());
+
+        TagData home = newTag("home");
+
+        assertEquals(work.getUUID(), tagCatalog.getByName("WORK").getUUID());
+        assertEquals("home", tagCatalog.getByUuid(home.getUUID()).getName());
+        assertNull(tagCatalog.getByName("garden"));
+    }
+
+    public void testListsTagsByNameWithoutDeleted() {
+        newTag("beta");
+        newTag("Alpha");
+        TagData deleted = newTag("gamma");
+        tagCatalog.getTags();
+
+        deleted.setDeletionDate(1L);
+        tagDataDao.saveExisting(deleted);
+
+        List<TagData> tags = tagCatalog.getTags();
+        assertEquals(2, tags.size());
+        assertEquals("Alpha", tags.get(0).getName());
+        assertEquals("beta", tags.get(1).getName());
+    }
+
+    public void testRenameUpdatesNameIndex() {
+        TagData tag = newTag("Errands");
+        tagCatalog.getByName("errands");
+
+        tagService.rename(tag.getUUID(), "Chores");
+
+        assertNull(tagCatalog.getByName("errands"));
+        assertEquals(tag.getUUID(), tagCatalog.getByName("chores").getUUID());
+    }
+
+    public void testTagCreatedInTransactionIsReused() {
+        tagCatalog.getTags();
+        database.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 2; i++) {
+                    Task task = new Task();
+                    task.setTitle("task " + i);
+                    taskService.save(task);
+                    tagService.createLink(task, i == 0 ? "Shopping" : "shopping");
+                }
+            }
+        });
+
+        assertEquals(1, tagCatalog.getTags().size());
+        assertEquals(1, tagService.getGroupedTags(TagService.GROUPED_TAGS_BY_SIZE, Criterion.all).length);
+    }
+
+    public void testTagWithCasePrefersLinks() {
+        TagData tag = newTag("Garden");
+        newTag("Work");
+        Task task = new Task();
+        task.setTitle("task");
+        taskService.save(task);
+        metadataDao.createNew(TaskToTagMetadata.newTagMetadata(task.getId(), task.getUuid(), "garden", tag.getUUID()));
+
+        assertEquals("garden", tagService.getTagWithCase("GARDEN"));
+        assertEquals("Work", tagService.getTagWithCase("work"));
+        assertEquals("Home", tagService.getTagWithCase("Home"));
+    }
+
+    private TagData newTag(String name) {
+        TagData tagData = new TagData();
+        tagData.setName(name);
+        tagDataDao.createNew(tagData);
+        return tagData;
+    }
+}
@@ -0,0 +1,228 @@
+package org.tasks.bitmap;
+
+import com.todoroo.andlib.data.TodorooCursor;
+import com.todoroo.andlib.sql.Criterion;
+import com.todoroo.andlib.sql.Query;
+import com.todoroo.andlib.utility.DateUtilities;
+import com.todoroo.astrid.alarms.AlarmFields;
+import com.todoroo.astrid.api.Filter;
+import com.todoroo.astrid.core.CoreFilterExposer;
+import com.todoroo.astrid.dao.MetadataDao;
+import com.todoroo.astrid.dao.MetadataDao.MetadataCriteria;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.dao.TaskDao.TaskCriteria;
+import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.gtasks.GtasksMetadata;
+import com.todoroo.astrid.tags.TaskToTagMetadata;
+import com.todoroo.astrid.test.DatabaseTestCase;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+
+public class TaskBitmapIndexTest extends DatabaseTestCase {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskBitmapIndexTest.class);
+
+    /** Size of the synthetic database of the benchmark */
+    private static final int BENCHMARK_TASKS = 100000;
+    private static final int BENCHMARK_TAGS = 50;
+
+    @Inject TaskDao taskDao;
+    @Inject MetadataDao metadataDao;
+    @Inject TaskBitmapIndex taskBitmapIndex;
+
+    public void testTracksSavedTasks() {
+        Task active = createTask(0, 0);
+        Task completed = createTask(1, 0);
+        Task hidden = createTask(0, DateUtilities.now() + DateUtilities.ONE_DAY);
+        taskBitmapIndex.getAll();
+
+        Task deleted = createTask(0, 0);
+        deleted.setDeletionDate(1L);
+        taskDao.saveExisting(deleted);
+
+        assertEquals(TaskBitmap.of(active.getId(), hidden.getId()), taskBitmapIndex.getActive());
+        assertEquals(TaskBitmap.of(completed.getId()), taskBitmapIndex.getCompleted());
+        assertEquals(TaskBitmap.of(deleted.getId()), taskBitmapIndex.getDeleted());
+        assertEquals(TaskBitmap.of(active.getId()), taskBitmapIndex.getActiveVisible(DateUtilities.now()));
+    }
+
+    public void testHiddenUntil() {
+        long now = DateUtilities.now();
+        Task visible = createTask(0, 0);
+        Task hiddenHour = createTask(0, now + DateUtilities.ONE_HOUR);
+        Task hiddenDay = createTask(0, now + DateUtilities.ONE_DAY);
+
+        assertEquals(TaskBitmap.of(hiddenHour.getId(), hiddenDay.getId()), taskBitmapIndex.getHidden(now));
+        assertEquals(TaskBitmap.of(hiddenDay.getId()), taskBitmapIndex.getHidden(now + DateUtilities.ONE_HOUR + 1));
+        assertTrue(taskBitmapIndex.getHidden(now + DateUtilities.ONE_DAY + 1).isEmpty());
+
+        hiddenDay.setHideUntil(0L);
+        taskDao.saveExisting(hiddenDay);
+        visible.setHideUntil(now + DateUtilities.ONE_HOUR);
+        taskDao.saveExisting(visible);
+
+        assertEquals(TaskBitmap.of(visible.getId(), hiddenHour.getId()), taskBitmapIndex.getHidden(now));
+    }
+
+    public void testTracksMetadata() {
+        Task task = createTask(0, 0);
+        Task other = createTask(0, 0);
+        taskBitmapIndex.getAll();
+
+        Metadata link = TaskToTagMetadata.newTagMetadata(task.getId(), task.getUUID(), "work", "1");
+        metadataDao.createNew(link);
+        metadataDao.createNew(newGtasksMetadata(other.getId(), "list"));
+        metadataDao.createNew(newAlarmMetadata(task.getId()));
+
+        assertEquals(TaskBitmap.of(task.getId()), taskBitmapIndex.getTag("1"));
+        assertEquals(TaskBitmap.of(other.getId()), taskBitmapIndex.getGtasksList("list"));
+        assertEquals(TaskBitmap.of(task.getId()), taskBitmapIndex.getWithAlarms());
+
+        link.setDeletionDate(DateUtilities.now());
+        metadataDao.saveExisting(link);
+
+        assertTrue(taskBitmapIndex.getTag("1").isEmpty());
+        assertTrue(taskBitmapIndex.getTagged().isEmpty());
+    }
+
+    public void testReloadsAfterUntrackedWrite() {
+        Task task = createTask(0, 0);
+        metadataDao.createNew(newAlarmMetadata(task.getId()));
+        assertEquals(1, taskBitmapIndex.getWithAlarms().getCardinality());
+
+        metadataDao.deleteWhere(MetadataCriteria.withKey(AlarmFields.METADATA_KEY));
+
+        assertTrue(taskBitmapIndex.getWithAlarms().isEmpty());
+    }
+
+    /** Compares counting filters with the index to counting them with SQL */
+    public void testBenchmarkAgainstSql() {
+        createSyntheticDatabase();
+        Filter inbox = CoreFilterExposer.buildInboxFilter(getContext().getResources());
+        Query inboxQuery = Query.select(Task.ID).withQueryTemplate(inbox.getSqlQuery());
+
+        long start = System.nanoTime();
+        taskBitmapIndex.getAll();
+        long loadNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int sqlInbox = taskDao.count(inboxQuery);
+        long sqlInboxNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        TaskBitmap inboxIds = taskBitmapIndex.getInbox(DateUtilities.now());
+        long bitmapInboxNanos = System.nanoTime() - start;
+        assertEquals(sqlInbox, inboxIds.getCardinality());
+
+        int[] sqlTags = new int[BENCHMARK_TAGS];
+        start = System.nanoTime();
+        for (int i = 0; i < BENCHMARK_TAGS; i++) {
+            sqlTags[i] = taskDao.count(Query.select(Task.ID).where(Criterion.and(
+                    TaskCriteria.activeVisibleMine(),
+                    Task.ID.in(Query.select(Metadata.TASK).from(Metadata.TABLE).where(Criterion.and(
+                            MetadataCriteria.withKey(TaskToTagMetadata.KEY),
+                            TaskToTagMetadata.TAG_UUID.eq(tagUuid(i)),
+                            Metadata.DELETION_DATE.eq(0)))))));
+        }
+        long sqlTagNanos = System.nanoTime() - start;
+
+        int[] bitmapTags = new int[BENCHMARK_TAGS];
+        start = System.nanoTime();
+        TaskBitmap activeVisible = taskBitmapIndex.getActiveVisible(DateUtilities.now());
+        for (int i = 0; i < BENCHMARK_TAGS; i++) {
+            bitmapTags[i] = TaskBitmap.and(activeVisible, taskBitmapIndex.getTag(tagUuid(i))).getCardinality();
+        }
+        long bitmapTagNanos = System.nanoTime() - start;
+        for (int i = 0; i < BENCHMARK_TAGS; i++) {
+            assertEquals(sqlTags[i], bitmapTags[i]);
+        }
+
+        start = System.nanoTime();
+        TodorooCursor<Task> page = taskBitmapIndex.fetch(inboxIds, sqlInbox / 2, 20, Task.ID, Task.TITLE);
+        try {
+            assertEquals(20, page.getCount());
+        } finally {
+            page.close();
+        }
+        long pageNanos = System.nanoTime() - start;
+
+        log.info("{} tasks: index loaded in {}ms", BENCHMARK_TASKS, loadNanos / 1000000);
+        log.info("Inbox count: sql {}us, bitmap {}us", sqlInboxNanos / 1000, bitmapInboxNanos / 1000);
+        log.info("{} tag counts: sql {}us, bitmap {}us", BENCHMARK_TAGS, sqlTagNanos / 1000, bitmapTagNanos / 1000);
+        log.info("Inbox page from bitmap: {}us", pageNanos / 1000);
+    }
+
+    /**
+     * Insert tasks and metadata without the daos, so the index loads them
+     * all at once
+     */
+    private void createSyntheticDatabase() {
+        database.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                long now = DateUtilities.now();
+                for (int i = 0; i < BENCHMARK_TASKS; i++) {
+                    Task task = new Task();
+                    task.setValue(Task.UUID, "b" + i);
+                    task.setTitle("task " + i);
+                    task.setCompletionDate(i % 4 == 0 ? now : 0L);
+                    task.setDeletionDate(i % 10 == 0 ? now : 0L);
+                    task.setHideUntil(i % 7 == 0 ? now + DateUtilities.ONE_DAY : 0L);
+                    task.setTimerStart(i % 13 == 0 ? now : 0L);
+                    long id = database.insert(Task.TABLE.name, Task.ID.name, task.getMergedValues());
+
+                    if (i % 3 == 0) {
+                        insert(TaskToTagMetadata.newTagMetadata(id, "b" + i,
+                                "tag " + i % BENCHMARK_TAGS, tagUuid(i % BENCHMARK_TAGS)));
+                    }
+                    if (i % 97 == 0) {
+                        insert(TaskToTagMetadata.newTagMetadata(id, "b" + i, "_hidden", "hidden"));
+                    }
+                    if (i % 2 == 0) {
+                        insert(newGtasksMetadata(id, "list " + i % 5));
+                    }
+                    if (i % 11 == 0) {
+                        insert(newAlarmMetadata(id));
+                    }
+                }
+            }
+        });
+    }
+
+    private void insert(Metadata metadata) {
+        database.insert(Metadata.TABLE.name, Metadata.ID.name, metadata.getMergedValues());
+    }
+
+    private static String tagUuid(int tag) {
+        return Integer.toString(tag + 1);
+    }
+
+    private static Metadata newGtasksMetadata(long taskId, String listId) {
+        Metadata metadata = new Metadata();
+        metadata.setKey(GtasksMetadata.METADATA_KEY);
+        metadata.setTask(taskId);
+        metadata.setValue(GtasksMetadata.LIST_ID, listId);
+        return metadata;
+    }
+
+    private static Metadata newAlarmMetadata(long taskId) {
+        Metadata metadata = new Metadata();
+        metadata.setKey(AlarmFields.METADATA_KEY);
+        metadata.setTask(taskId);
+        metadata.setValue(AlarmFields.TIME, DateUtilities.now());
+        return metadata;
+    }
+
+    private Task createTask(long completionDate, long hideUntil) {
+        Task task = new Task();
+        task.setTitle("task");
+        task.setCompletionDate(completionDate);
+        task.setHideUntil(hideUntil);
+        taskDao.createNew(task);
+        return task;
+    }
+}
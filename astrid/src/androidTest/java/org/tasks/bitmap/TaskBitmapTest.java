@@ -0,0 +1,197 @@
+package org.tasks.bitmap;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.tasks.bitmap.TaskBitmap.MAX_ARRAY_SIZE;
+
+public class TaskBitmapTest extends AndroidTestCase {
+
+    /** First id of the second and third groups of ids sharing their high bits */
+    private static final long GROUP_1 = 1L << 16;
+    private static final long GROUP_2 = 2L << 16;
+
+    public void testConvertsToBitmapAboveMaxArraySize() {
+        TaskBitmap bitmap = new TaskBitmap();
+        TreeSet<Long> expected = new TreeSet<>();
+        addRange(bitmap, expected, 0, 3L * MAX_ARRAY_SIZE, 3);
+        assertEquals(0, bitmap.getBitmapContainerCount());
+        assertMatches(expected, bitmap);
+
+        add(bitmap, expected, 3L * MAX_ARRAY_SIZE);
+        assertEquals(1, bitmap.getBitmapContainerCount());
+        assertMatches(expected, bitmap);
+    }
+
+    public void testShrinksOnRemove() {
+        TaskBitmap bitmap = new TaskBitmap();
+        TreeSet<Long> expected = new TreeSet<>();
+        addRange(bitmap, expected, 0, 2L * (MAX_ARRAY_SIZE + 1), 2);
+        assertEquals(1, bitmap.getBitmapContainerCount());
+
+        bitmap.remove(2);
+        expected.remove(2L);
+        assertEquals(0, bitmap.getBitmapContainerCount());
+        assertMatches(expected, bitmap);
+
+        for (long id : expected) {
+            bitmap.remove(id);
+        }
+        assertTrue(bitmap.isEmpty());
+        assertEquals(0, bitmap.getCardinality());
+    }
+
+    public void testShrinksOnAnd() {
+        TaskBitmap a = new TaskBitmap();
+        TaskBitmap b = new TaskBitmap();
+        TreeSet<Long> expectedA = new TreeSet<>();
+        TreeSet<Long> expectedB = new TreeSet<>();
+        addRange(a, expectedA, 0, 5 * MAX_ARRAY_SIZE, 2);
+        addRange(b, expectedB, 0, 5 * MAX_ARRAY_SIZE, 3);
+        assertEquals(1, a.getBitmapContainerCount());
+        assertEquals(1, b.getBitmapContainerCount());
+
+        TaskBitmap result = TaskBitmap.and(a, b);
+        expectedA.retainAll(expectedB);
+        assertEquals(0, result.getBitmapContainerCount());
+        assertMatches(expectedA, result);
+    }
+
+    public void testShrinksOnAndNot() {
+        TaskBitmap a = new TaskBitmap();
+        TaskBitmap b = new TaskBitmap();
+        TreeSet<Long> expectedA = new TreeSet<>();
+        TreeSet<Long> expectedB = new TreeSet<>();
+        addRange(a, expectedA, 0, 2 * MAX_ARRAY_SIZE, 1);
+        addRange(b, expectedB, 10, 2 * MAX_ARRAY_SIZE, 1);
+
+        TaskBitmap result = TaskBitmap.andNot(a, b);
+        expectedA.removeAll(expectedB);
+        assertEquals(0, result.getBitmapContainerCount());
+        assertMatches(expectedA, result);
+        assertTrue(TaskBitmap.andNot(a, a).isEmpty());
+    }
+
+    public void testOrAcrossContainerTypes() {
+        TaskBitmap array = new TaskBitmap();
+        TaskBitmap bitmap = new TaskBitmap();
+        TaskBitmap otherArray = new TaskBitmap();
+        TreeSet<Long> expectedArray = new TreeSet<>();
+        TreeSet<Long> expectedBitmap = new TreeSet<>();
+        TreeSet<Long> expectedOtherArray = new TreeSet<>();
+        addRange(array, expectedArray, 1, MAX_ARRAY_SIZE, 5);
+        addRange(array, expectedArray, GROUP_1, GROUP_1 + 100, 1);
+        addRange(bitmap, expectedBitmap, 0, MAX_ARRAY_SIZE * 3, 2);
+        addRange(otherArray, expectedOtherArray, MAX_ARRAY_SIZE, MAX_ARRAY_SIZE * 4, 3);
+        assertEquals(1, bitmap.getBitmapContainerCount());
+
+        assertMatches(union(expectedArray, expectedBitmap), TaskBitmap.or(array, bitmap));
+        assertMatches(union(expectedBitmap, expectedArray), TaskBitmap.or(bitmap, array));
+        assertMatches(union(expectedBitmap, expectedBitmap), TaskBitmap.or(bitmap, bitmap));
+
+        TaskBitmap arrays = TaskBitmap.or(array, otherArray);
+        assertEquals(1, arrays.getBitmapContainerCount());
+        assertMatches(union(expectedArray, expectedOtherArray), arrays);
+    }
+
+    public void testToArrayPagesAcrossContainers() {
+        TaskBitmap bitmap = new TaskBitmap();
+        TreeSet<Long> expected = new TreeSet<>();
+        addRange(bitmap, expected, 0, 50, 1);
+        addRange(bitmap, expected, GROUP_1, GROUP_1 + MAX_ARRAY_SIZE * 2, 1);
+        addRange(bitmap, expected, GROUP_2 + 7, GROUP_2 + 30, 1);
+        assertEquals(1, bitmap.getBitmapContainerCount());
+
+        List<Long> ids = new ArrayList<>(expected);
+        int[] offsets = {0, 1, 49, 50, 51, 50 + MAX_ARRAY_SIZE * 2 - 1, 50 + MAX_ARRAY_SIZE * 2, ids.size() - 1, ids.size(), ids.size() + 1};
+        int[] limits = {0, 1, 20, MAX_ARRAY_SIZE, Integer.MAX_VALUE};
+        for (int offset : offsets) {
+            for (int limit : limits) {
+                int end = (int) Math.min(ids.size(), Math.max(offset, (long) offset + limit));
+                List<Long> page = offset >= ids.size() ? new ArrayList<Long>() : ids.subList(offset, end);
+                assertEquals("offset " + offset + " limit " + limit, page, toList(bitmap.toArray(offset, limit)));
+            }
+        }
+    }
+
+    public void testRandomOperationsMatchTreeSet() {
+        Random random = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            TaskBitmap a = new TaskBitmap();
+            TaskBitmap b = new TaskBitmap();
+            TreeSet<Long> expectedA = new TreeSet<>();
+            TreeSet<Long> expectedB = new TreeSet<>();
+            int range = 1 << (12 + random.nextInt(8));
+            int count = random.nextInt(range / 2);
+            for (int i = 0; i < count; i++) {
+                add(a, expectedA, random.nextInt(range));
+                add(b, expectedB, random.nextInt(range));
+            }
+            for (int i = 0; i < count / 4; i++) {
+                long id = random.nextInt(range);
+                a.remove(id);
+                expectedA.remove(id);
+            }
+            assertMatches(expectedA, a);
+            assertMatches(expectedB, b);
+
+            assertMatches(union(expectedA, expectedB), TaskBitmap.or(a, b));
+            TreeSet<Long> intersection = new TreeSet<>(expectedA);
+            intersection.retainAll(expectedB);
+            assertMatches(intersection, TaskBitmap.and(a, b));
+            TreeSet<Long> difference = new TreeSet<>(expectedA);
+            difference.removeAll(expectedB);
+            assertMatches(difference, TaskBitmap.andNot(a, b));
+        }
+    }
+
+    public void testRejectsIdsOutOfRange() {
+        TaskBitmap bitmap = TaskBitmap.of(TaskBitmap.MAX_ID);
+        assertTrue(bitmap.contains(TaskBitmap.MAX_ID));
+        assertFalse(bitmap.contains(-1));
+        try {
+            bitmap.add(TaskBitmap.MAX_ID + 1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // ids are stored in 32 bits
+        }
+    }
+
+    private static void assertMatches(TreeSet<Long> expected, TaskBitmap actual) {
+        assertEquals(expected.size(), actual.getCardinality());
+        assertEquals(new ArrayList<>(expected), toList(actual.toArray()));
+        for (long id : expected) {
+            assertTrue(actual.contains(id));
+        }
+        assertEquals(expected.isEmpty(), actual.isEmpty());
+    }
+
+    private static void addRange(TaskBitmap bitmap, TreeSet<Long> expected, long from, long to, int step) {
+        for (long id = from; id < to; id += step) {
+            add(bitmap, expected, id);
+        }
+    }
+
+    private static void add(TaskBitmap bitmap, TreeSet<Long> expected, long id) {
+        bitmap.add(id);
+        expected.add(id);
+    }
+
+    private static TreeSet<Long> union(TreeSet<Long> a, TreeSet<Long> b) {
+        TreeSet<Long> union = new TreeSet<>(a);
+        union.addAll(b);
+        return union;
+    }
+
+    private static List<Long> toList(long[] ids) {
+        List<Long> list = new ArrayList<>();
+        for (long id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,165 @@
+package org.tasks.filters;
+
+import com.todoroo.andlib.sql.Query;
+import com.todoroo.andlib.sql.QueryTemplate;
+import com.todoroo.andlib.utility.DateUtilities;
+import com.todoroo.astrid.api.PermaSql;
+import com.todoroo.astrid.api.Filter;
+import com.todoroo.astrid.core.CoreFilterExposer;
+import com.todoroo.astrid.dao.MetadataDao;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.dao.TaskDao.TaskCriteria;
+import com.todoroo.astrid.data.TagData;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.tags.TagFilterExposer;
+import com.todoroo.astrid.tags.TagService.Tag;
+import com.todoroo.astrid.tags.TaskToTagMetadata;
+import com.todoroo.astrid.test.DatabaseTestCase;
+
+import org.tasks.bitmap.TaskBitmapIndex;
+
+import javax.inject.Inject;
+
+import static com.todoroo.andlib.sql.Field.field;
+import static org.tasks.Freeze.freezeAt;
+import static org.tasks.Freeze.thaw;
+
+public class FilterCounterTest extends DatabaseTestCase {
+
+    @Inject TaskDao taskDao;
+    @Inject MetadataDao metadataDao;
+    @Inject TaskBitmapIndex taskBitmapIndex;
+
+    private FilterCounter filterCounter;
+
+    private final Filter active = new Filter("active", "active",
+            new QueryTemplate().where(TaskCriteria.isActive()), null);
+
+    private final Filter deleted = new Filter("deleted", "deleted",
+            new QueryTemplate().where(Task.DELETION_DATE.gt(0)), null);
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+
+        filterCounter = new FilterCounter(database, taskBitmapIndex);
+        filterCounter.registerFilter(active);
+        filterCounter.registerFilter(deleted);
+    }
+
+    public void testCountsAllFilters() {
+        createTask("a", 0);
+        createTask("b", 0);
+        createTask("c", 1);
+
+        filterCounter.refreshStaleCounts();
+
+        assertEquals(2, filterCounter.get(active).intValue());
+        assertEquals(1, filterCounter.get(deleted).intValue());
+    }
+
+    public void testSkipsUnchangedFilters() {
+        createTask("a", 0);
+        filterCounter.refreshStaleCounts();
+        int misses = database.getStatementCacheMisses();
+        int hits = database.getStatementCacheHits();
+
+        filterCounter.refreshStaleCounts();
+
+        assertEquals(misses, database.getStatementCacheMisses());
+        assertEquals(hits, database.getStatementCacheHits());
+        assertEquals(1, filterCounter.get(active).intValue());
+    }
+
+    public void testRecountsAfterWrite() {
+        createTask("a", 0);
+        filterCounter.refreshStaleCounts();
+
+        createTask("b", 0);
+        filterCounter.refreshStaleCounts();
+
+        assertEquals(2, filterCounter.get(active).intValue());
+        assertEquals(0, filterCounter.get(deleted).intValue());
+    }
+
+    public void testRecountsTimeDependentFilters() {
+        Filter visible = new Filter("visible", "visible",
+                new QueryTemplate().where(Task.HIDE_UNTIL.lt(field(PermaSql.VALUE_NOW))), null);
+        filterCounter.registerFilter(visible);
+        long now = DateUtilities.now();
+        freezeAt(now);
+        try {
+            createTask("a", 0, now + DateUtilities.ONE_MINUTE * 2);
+            filterCounter.refreshStaleCounts();
+            assertEquals(0, filterCounter.get(visible).intValue());
+
+            freezeAt(now + DateUtilities.ONE_MINUTE * 3);
+            filterCounter.refreshStaleCounts();
+            assertEquals(1, filterCounter.get(visible).intValue());
+        } finally {
+            thaw();
+        }
+    }
+
+    public void testCountsInboxAndTagsFromIndex() {
+        Filter inbox = CoreFilterExposer.buildInboxFilter(getContext().getResources());
+        TagData work = new TagData();
+        work.setName("work");
+        work.setUuid("1");
+        Filter tag = TagFilterExposer.filterFromTag(getContext(), new Tag(work), TaskCriteria.activeAndVisible());
+        filterCounter.registerFilter(inbox);
+        filterCounter.registerFilter(tag);
+
+        Task untagged = createTask("a", 0);
+        Task tagged = createTask("b", 0);
+        Task hidden = createTask("c", 0);
+        createTask("d", 1);
+        metadataDao.createNew(TaskToTagMetadata.newTagMetadata(tagged.getId(), tagged.getUuid(), "work", "1"));
+        metadataDao.createNew(TaskToTagMetadata.newTagMetadata(hidden.getId(), hidden.getUuid(), "_hidden", "2"));
+        filterCounter.refreshStaleCounts();
+
+        assertEquals(taskDao.count(Query.select(Task.ID).withQueryTemplate(inbox.getSqlQuery())),
+                filterCounter.get(inbox).intValue());
+        assertEquals(2, filterCounter.get(inbox).intValue());
+        assertEquals(1, filterCounter.get(tag).intValue());
+
+        metadataDao.createNew(TaskToTagMetadata.newTagMetadata(untagged.getId(), untagged.getUuid(), "work", "1"));
+        filterCounter.refreshStaleCounts();
+
+        assertEquals(2, filterCounter.get(tag).intValue());
+    }
+
+    public void testCountsIrregularTagLinksWithSql() {
+        TagData work = new TagData();
+        work.setName("work");
+        work.setUuid("1");
+        Filter tag = TagFilterExposer.filterFromTag(getContext(), new Tag(work), TaskCriteria.activeAndVisible());
+        filterCounter.registerFilter(tag);
+
+        Task duplicated = createTask("a", 0);
+        Task linked = createTask("b", 0);
+        Task named = createTask("c", 0);
+        metadataDao.createNew(TaskToTagMetadata.newTagMetadata(duplicated.getId(), duplicated.getUuid(), "work", "1"));
+        metadataDao.createNew(TaskToTagMetadata.newTagMetadata(duplicated.getId(), duplicated.getUuid(), "work", "1"));
+        metadataDao.createNew(TaskToTagMetadata.newTagMetadata(linked.getId(), named.getUuid(), "work", "1"));
+        filterCounter.refreshStaleCounts();
+
+        assertFalse(taskBitmapIndex.isTagCountExact());
+        assertEquals(taskDao.count(Query.select(Task.ID).withQueryTemplate(tag.getSqlQuery())),
+                filterCounter.get(tag).intValue());
+        assertEquals(3, filterCounter.get(tag).intValue());
+    }
+
+    private Task createTask(String title, long deletionDate) {
+        return createTask(title, deletionDate, 0);
+    }
+
+    private Task createTask(String title, long deletionDate, long hideUntil) {
+        Task task = new Task();
+        task.setTitle(title);
+        task.setDeletionDate(deletionDate);
+        task.setHideUntil(hideUntil);
+        taskDao.createNew(task);
+        return task;
+    }
+}
@@ -0,0 +1,151 @@
+package org.tasks.filters;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.todoroo.andlib.data.Table;
+import com.todoroo.astrid.api.AstridFilterExposer;
+import com.todoroo.astrid.api.Filter;
+import com.todoroo.astrid.api.FilterListItem;
+import com.todoroo.astrid.dao.StoreObjectDao;
+import com.todoroo.astrid.dao.TagDataDao;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.data.StoreObject;
+import com.todoroo.astrid.data.TagData;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.test.DatabaseTestCase;
+
+import org.tasks.injection.Injector;
+import org.tasks.preferences.Preferences;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+public class FilterRegistryTest extends DatabaseTestCase {
+
+    @Inject Preferences preferences;
+    @Inject TaskDao taskDao;
+    @Inject TagDataDao tagDataDao;
+    @Inject StoreObjectDao storeObjectDao;
+
+    /** Exposer counting how often it was asked for filters */
+    private static class CountingExposer implements AstridFilterExposer {
+        final String name;
+        int requests;
+
+        CountingExposer(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public FilterListItem[] getFilters(Injector injector) {
+            requests++;
+            return new FilterListItem[] { new Filter(name, name, (String) null, null) };
+        }
+    }
+
+    public void testReturnsSameFiltersUntilTableWritten() {
+        CountingExposer tags = new CountingExposer("tags");
+        CountingExposer tasks = new CountingExposer("tasks");
+        FilterRegistry registry = newRegistry(
+                new FilterRegistry.Exposer(tags, new Table[] { TagData.TABLE }),
+                new FilterRegistry.Exposer(tasks, new Table[] { Task.TABLE }));
+
+        List<FilterListItem> first = registry.getFilters(null);
+        List<FilterListItem> second = registry.getFilters(null);
+
+        assertEquals(2, first.size());
+        assertSame(first.get(0), second.get(0));
+        assertSame(first.get(1), second.get(1));
+
+        write(Task.TABLE);
+        List<FilterListItem> third = registry.getFilters(null);
+
+        assertSame(first.get(0), third.get(0));
+        assertNotSame(first.get(1), third.get(1));
+        assertEquals(1, tags.requests);
+        assertEquals(2, tasks.requests);
+    }
+
+    public void testWriteToEachDependentTableInvalidates() {
+        for (Map.Entry<String, Table[]> entry : FilterRegistry.TABLES.entrySet()) {
+            for (Table table : entry.getValue()) {
+                CountingExposer exposer = new CountingExposer(entry.getKey());
+                FilterRegistry registry = newRegistry(new FilterRegistry.Exposer(exposer, entry.getValue()));
+                registry.getFilters(null);
+
+                write(table);
+                registry.getFilters(null);
+
+                assertEquals(entry.getKey() + " " + table.name, 2, exposer.requests);
+            }
+        }
+    }
+
+    public void testUnlistedExposerIsAlwaysAsked() {
+        CountingExposer exposer = new CountingExposer("unlisted");
+        FilterRegistry registry = newRegistry(new FilterRegistry.Exposer(exposer, null));
+
+        registry.getFilters(null);
+        registry.getFilters(null);
+
+        assertEquals(2, exposer.requests);
+    }
+
+    public void testPreferenceChangeInvalidates() throws InterruptedException {
+        CountingExposer exposer = new CountingExposer("core");
+        FilterRegistry registry = newRegistry(new FilterRegistry.Exposer(exposer, new Table[0]));
+        registry.getFilters(null);
+
+        preferences.setString("filter_registry_test", Long.toString(System.nanoTime()));
+        awaitMainThread();
+        registry.getFilters(null);
+        registry.getFilters(null);
+
+        assertEquals(2, exposer.requests);
+    }
+
+    private FilterRegistry newRegistry(FilterRegistry.Exposer... exposers) {
+        return new FilterRegistry(getContext(), database, preferences,
+                new ArrayList<>(Arrays.asList(exposers)));
+    }
+
+    private void write(Table table) {
+        if (table == Task.TABLE) {
+            Task task = new Task();
+            task.setTitle("task");
+            taskDao.createNew(task);
+        } else if (table == TagData.TABLE) {
+            TagData tagData = new TagData();
+            tagData.setName("tag");
+            tagDataDao.createNew(tagData);
+        } else if (table == StoreObject.TABLE) {
+            StoreObject storeObject = new StoreObject();
+            storeObject.setType("test");
+            storeObjectDao.createNew(storeObject);
+        } else {
+            fail("No write for " + table.name);
+        }
+    }
+
+    /**
+     * Preference listeners are notified on the main thread when the change
+     * was made on another one
+     */
+    private static void awaitMainThread() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        new Handler(Looper.getMainLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+}
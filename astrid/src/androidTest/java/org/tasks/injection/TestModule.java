@@ -2,10 +2,15 @@ package org.tasks.injection;
 
 import android.content.Context;
 
+import com.todoroo.astrid.adapter.TaskDetailLoaderTest;
+import com.todoroo.astrid.adapter.TaskListPagerTest;
 import com.todoroo.astrid.backup.BackupServiceTests;
+import com.todoroo.astrid.core.CriteriaEvaluatorTest;
 import com.todoroo.astrid.dao.Database;
 import com.todoroo.astrid.dao.MetadataDaoTests;
 import com.todoroo.astrid.dao.TaskDaoTests;
+import com.todoroo.astrid.dao.TaskListMetadataDaoTests;
+import com.todoroo.astrid.dao.TaskSearchIndexTests;
 import com.todoroo.astrid.gtasks.GtasksIndentActionTest;
 import com.todoroo.astrid.gtasks.GtasksTaskListUpdaterTest;
 import com.todoroo.astrid.gtasks.GtasksTaskMovingTest;
@@ -20,6 +25,12 @@ import com.todoroo.astrid.subtasks.SubtasksMovingTest;
 import com.todoroo.astrid.subtasks.SubtasksTestCase;
 import com.todoroo.astrid.sync.NewSyncTestCase;
 import com.todoroo.astrid.sync.SyncModelTest;
+import com.todoroo.astrid.tags.TagCatalogTest;
+
+import org.tasks.bitmap.TaskBitmapIndexTest;
+import org.tasks.filters.FilterCounterTest;
+import org.tasks.filters.FilterRegistryTest;
+import org.tasks.scheduling.RefreshSchedulerTest;
 
 import javax.inject.Singleton;
 
@@ -30,6 +41,8 @@ import dagger.Provides;
         BackupServiceTests.class,
         MetadataDaoTests.class,
         TaskDaoTests.class,
+        TaskListMetadataDaoTests.class,
+        TaskSearchIndexTests.class,
         GtasksIndentActionTest.class,
         GtasksTaskListUpdaterTest.class,
         GtasksTaskMovingTest.class,
@@ -43,7 +56,15 @@ import dagger.Provides;
         ReminderServiceTest.class,
         SubtasksHelperTest.class,
         SubtasksMovingTest.class,
-        SyncModelTest.class
+        SyncModelTest.class,
+        TagCatalogTest.class,
+        CriteriaEvaluatorTest.class,
+        FilterCounterTest.class,
+        TaskBitmapIndexTest.class,
+        TaskListPagerTest.class,
+        RefreshSchedulerTest.class,
+        TaskDetailLoaderTest.class,
+        FilterRegistryTest.class
 })
 public class TestModule {
     private Context context;
@@ -0,0 +1,54 @@
+package org.tasks.scheduling;
+
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.test.DatabaseTestCase;
+
+import javax.inject.Inject;
+
+import static com.todoroo.andlib.utility.DateUtilities.ONE_HOUR;
+import static com.todoroo.andlib.utility.DateUtilities.ONE_MINUTE;
+import static org.tasks.date.DateTimeUtils.currentTimeMillis;
+
+public class RefreshSchedulerTest extends DatabaseTestCase {
+
+    @Inject TaskDao taskDao;
+    @Inject RefreshScheduler refreshScheduler;
+
+    private final long now = currentTimeMillis();
+
+    public void testNoRefresh() {
+        createTask(0, 0, now - ONE_HOUR);
+
+        assertEquals(0, refreshScheduler.getNextRefresh(now));
+    }
+
+    public void testEarliestOfDueAndHideUntil() {
+        createTask(now + 2 * ONE_HOUR, now + ONE_HOUR, 0);
+        createTask(now - ONE_HOUR, 0, 0);
+
+        assertEquals(now + ONE_HOUR, refreshScheduler.getNextRefresh(now));
+    }
+
+    public void testMinuteAfterCompletionBeforeDueDate() {
+        createTask(now + ONE_HOUR, 0, 0);
+        createTask(0, 0, now - 30000);
+
+        assertEquals(now - 30000 + ONE_MINUTE, refreshScheduler.getNextRefresh(now));
+    }
+
+    public void testIgnoresDueDatesOfCompletedTasks() {
+        createTask(now + ONE_MINUTE, 0, now - ONE_HOUR);
+
+        assertEquals(0, refreshScheduler.getNextRefresh(now));
+    }
+
+    private void createTask(long dueDate, long hideUntil, long completionDate) {
+        Task task = new Task();
+        task.setTitle("task");
+        task.setDueDate(dueDate);
+        task.setHideUntil(hideUntil);
+        task.setCompletionDate(completionDate);
+        taskDao.createNew(task);
+    }
+}
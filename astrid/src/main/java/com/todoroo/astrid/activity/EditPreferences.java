@@ -27,6 +27,7 @@ import com.todoroo.andlib.sql.Criterion;
 import com.todoroo.andlib.utility.AndroidUtilities;
 import com.todoroo.andlib.utility.DialogUtilities;
 import com.todoroo.astrid.api.AstridApiConstants;
+import com.todoroo.astrid.dao.Database;
 import com.todoroo.astrid.data.TaskAttachment;
 import com.todoroo.astrid.files.FileExplore;
 import com.todoroo.astrid.gcal.CalendarAlarmScheduler;
@@ -78,6 +79,7 @@ public class EditPreferences extends TodorooPreferenceActivity {
     @Inject StartupService startupService;
     @Inject TaskService taskService;
     @Inject Preferences preferences;
+    @Inject Database database;
     @Inject CalendarAlarmScheduler calendarAlarmScheduler;
     @Inject VoiceOutputAssistant voiceOutputAssistant;
 
@@ -424,6 +426,9 @@ public class EditPreferences extends TodorooPreferenceActivity {
         findPreference(getString(R.string.p_debug_logging)).setOnPreferenceChangeListener(new OnPreferenceChangeListener() {
             @Override
             public boolean onPreferenceChange(Preference preference, Object newValue) {
+                if (!(boolean) newValue) {
+                    database.logQueryReport();
+                }
                 preferences.setupLogger((boolean) newValue);
                 return true;
             }
@@ -45,6 +45,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tasks.R;
 import org.tasks.filters.FilterCounter;
+import org.tasks.filters.FilterRegistry;
 import org.tasks.injection.InjectingListFragment;
 import org.tasks.injection.Injector;
 
@@ -85,6 +86,7 @@ public class FilterListFragment extends InjectingListFragment {
     private OnFilterItemClickedListener mListener;
 
     @Inject FilterCounter filterCounter;
+    @Inject FilterRegistry filterRegistry;
     @Inject Injector injector;
 
     /* ======================================================================
@@ -104,7 +106,7 @@ public class FilterListFragment extends InjectingListFragment {
         // Check that the container activity has implemented the callback interface
         try {
             mListener = (OnFilterItemClickedListener) activity;
-            adapter = new FilterAdapter(injector, filterCounter, getActivity(), null, R.layout.filter_adapter_row, false, false);
+            adapter = new FilterAdapter(injector, filterCounter, filterRegistry, getActivity(), null, R.layout.filter_adapter_row, false, false);
         } catch (ClassCastException e) {
             throw new ClassCastException(activity.toString()
                     + " must implement OnFilterItemClickedListener"); //$NON-NLS-1$
@@ -373,7 +375,6 @@ public class FilterListFragment extends InjectingListFragment {
     }
 
     public void refresh() {
-        adapter.clear();
         adapter.getLists();
     }
 
@@ -18,6 +18,7 @@ import com.todoroo.astrid.api.Filter;
 
 import org.tasks.R;
 import org.tasks.filters.FilterCounter;
+import org.tasks.filters.FilterRegistry;
 import org.tasks.injection.InjectingListActivity;
 import org.tasks.injection.Injector;
 import org.tasks.preferences.ActivityPreferences;
@@ -27,6 +28,7 @@ import javax.inject.Inject;
 public class FilterShortcutActivity extends InjectingListActivity {
 
     @Inject FilterCounter filterCounter;
+    @Inject FilterRegistry filterRegistry;
     @Inject Injector injector;
     @Inject ActivityPreferences preferences;
 
@@ -44,7 +46,7 @@ public class FilterShortcutActivity extends InjectingListActivity {
         setContentView(R.layout.widget_config_activity);
 
         // set up ui
-        adapter = new FilterAdapter(injector, filterCounter, this, getListView(),
+        adapter = new FilterAdapter(injector, filterCounter, filterRegistry, this, getListView(),
                 R.layout.filter_adapter_row, true, true);
         adapter.filterStyle = R.style.TextAppearance_FLA_Filter_Widget;
         setListAdapter(adapter);
@@ -35,12 +35,14 @@ import com.todoroo.astrid.api.FilterListItem;
 import com.todoroo.astrid.core.CoreFilterExposer;
 import com.todoroo.astrid.core.CustomFilterActivity;
 import com.todoroo.astrid.dao.TagDataDao;
+import com.todoroo.astrid.dao.TaskSearchIndex;
 import com.todoroo.astrid.data.RemoteModel;
 import com.todoroo.astrid.data.TagData;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.gtasks.GtasksListFragment;
 import com.todoroo.astrid.gtasks.GtasksPreferenceService;
 import com.todoroo.astrid.gtasks.GtasksPreferences;
+import com.todoroo.astrid.service.TaskService;
 import com.todoroo.astrid.tags.DeleteTagActivity;
 import com.todoroo.astrid.tags.RenameTagActivity;
 import com.todoroo.astrid.tags.TagFilterExposer;
@@ -126,9 +128,9 @@ public class TaskListActivity extends AstridActivity implements OnPageChangeList
             String query = getIntent().getStringExtra(SearchManager.QUERY).trim();
             String title = getString(R.string.FLA_search_filter, query);
             savedFilter = new Filter(title, title,
-                    new QueryTemplate().where(Task.TITLE.like(
-                            "%" + //$NON-NLS-1$
-                                    query + "%")), //$NON-NLS-1$
+                    new QueryTemplate()
+                            .where(TaskService.searchCriterion(query))
+                            .orderBy(TaskSearchIndex.rank(query)),
                     null);
         }
 
@@ -30,6 +30,8 @@ import android.view.View.OnClickListener;
 import android.view.View.OnKeyListener;
 import android.view.View.OnTouchListener;
 import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.AbsListView.OnScrollListener;
 import android.widget.AdapterView;
 import android.widget.AdapterView.AdapterContextMenuInfo;
 import android.widget.AdapterView.OnItemClickListener;
@@ -45,6 +47,8 @@ import com.todoroo.astrid.activity.SortSelectionActivity.OnSortSelectedListener;
 import com.todoroo.astrid.adapter.TaskAdapter;
 import com.todoroo.astrid.adapter.TaskAdapter.OnCompletedTaskListener;
 import com.todoroo.astrid.adapter.TaskAdapter.ViewHolder;
+import com.todoroo.astrid.adapter.TaskDetailLoader;
+import com.todoroo.astrid.adapter.TaskListPager;
 import com.todoroo.astrid.api.AstridApiConstants;
 import com.todoroo.astrid.api.Filter;
 import com.todoroo.astrid.api.FilterWithCustomIntent;
@@ -139,10 +143,10 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
     @Inject TaskAttachmentDao taskAttachmentDao;
     @Inject Injector injector;
     @Inject GtasksPreferenceService gtasksPreferenceService;
+    @Inject TaskDetailLoader taskDetailLoader;
 
     protected Resources resources;
     protected TaskAdapter taskAdapter = null;
-    protected DetailReceiver detailReceiver = new DetailReceiver();
     protected RefreshReceiver refreshReceiver = new RefreshReceiver();
     protected final AtomicReference<String> sqlQueryTemplate = new AtomicReference<>();
     protected SyncActionHelper syncActionHelper;
@@ -156,6 +160,7 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
     protected boolean isInbox;
     protected boolean isTodayFilter;
     protected TaskListMetadata taskListMetadata;
+    private TaskListPager taskListPager;
 
     // --- fragment handling variables
     protected OnTaskListItemClickedListener mListener;
@@ -499,8 +504,6 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
     public void onResume() {
         super.onResume();
 
-        getActivity().registerReceiver(detailReceiver,
-                new IntentFilter(AstridApiConstants.BROADCAST_SEND_DETAILS));
         getActivity().registerReceiver(refreshReceiver,
                 new IntentFilter(AstridApiConstants.BROADCAST_EVENT_REFRESH));
         syncActionHelper.register();
@@ -563,7 +566,6 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
     public void onPause() {
         super.onPause();
 
-        AndroidUtilities.tryUnregisterReceiver(getActivity(), detailReceiver);
         AndroidUtilities.tryUnregisterReceiver(getActivity(), refreshReceiver);
         syncActionHelper.unregister();
 
@@ -608,28 +610,6 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
         loadTaskListContent();
     }
 
-    /**
-     * Receiver which receives detail or decoration intents
-     *
-     * @author Tim Su <tim@todoroo.com>
-     *
-     */
-    protected class DetailReceiver extends BroadcastReceiver {
-        @Override
-        public void onReceive(Context context, Intent intent) {
-            try {
-                Bundle receivedExtras = intent.getExtras();
-                long taskId = receivedExtras.getLong(AstridApiConstants.EXTRAS_TASK_ID);
-                if (AstridApiConstants.BROADCAST_SEND_DETAILS.equals(intent.getAction())) {
-                    String detail = receivedExtras.getString(AstridApiConstants.EXTRAS_RESPONSE);
-                    taskAdapter.addDetails(taskId, detail);
-                }
-            } catch (Exception e) {
-                log.error("receive-detail-{}", intent.getStringExtra(AstridApiConstants.EXTRAS_ADDON), e);
-            }
-        }
-    }
-
     @Override
     public void onActivityResult(int requestCode, int resultCode, Intent data) {
         if(quickAddBar.onActivityResult(requestCode, resultCode, data)) {
@@ -665,9 +645,14 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
             return;
         }
 
-        Cursor taskCursor = taskAdapter.getCursor();
-
-        taskCursor.requery();
+        Cursor taskCursor;
+        if (taskListPager != null) {
+            taskCursor = taskListPager.reload();
+            taskAdapter.changeCursor(taskCursor);
+        } else {
+            taskCursor = taskAdapter.getCursor();
+            taskCursor.requery();
+        }
         taskAdapter.flushCaches();
         taskAdapter.notifyDataSetChanged();
 
@@ -729,6 +714,19 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
 
         setListAdapter(taskAdapter);
         registerForContextMenu(getListView());
+        getListView().setOnScrollListener(new OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(AbsListView view, int scrollState) {
+            }
+
+            @Override
+            public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+                if (taskListPager != null && taskListPager.hasMore()
+                        && firstVisibleItem + visibleItemCount >= totalItemCount - visibleItemCount) {
+                    taskAdapter.changeCursor(taskListPager.loadNextPage());
+                }
+            }
+        });
 
         loadTaskListContent();
     }
@@ -740,6 +738,10 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
         return TaskAdapter.PROPERTIES;
     }
 
+    public TaskDetailLoader getTaskDetailLoader() {
+        return taskDetailLoader;
+    }
+
     public Filter getFilter() {
         return filter;
     }
@@ -760,11 +762,11 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
 
         // TODO: For now, we'll modify the query to join and include the things like tag data here.
         // Eventually, we might consider restructuring things so that this query is constructed elsewhere.
-        String joinedQuery =
+        String joins =
                 Join.left(Metadata.TABLE.as(TAGS_METADATA_JOIN),
                         tagsJoinCriterion).toString() //$NON-NLS-1$
-                + Join.left(TaskAttachment.TABLE.as(FILE_METADATA_JOIN), Task.UUID.eq(Field.field(FILE_METADATA_JOIN + "." + TaskAttachment.TASK_UUID.name)))
-                + filter.getSqlQuery();
+                + Join.left(TaskAttachment.TABLE.as(FILE_METADATA_JOIN), Task.UUID.eq(Field.field(FILE_METADATA_JOIN + "." + TaskAttachment.TASK_UUID.name)));
+        String joinedQuery = joins + filter.getSqlQuery();
 
         sqlQueryTemplate.set(SortHelper.adjustQueryForFlagsAndSort(
                 joinedQuery, sortFlags, sortSort));
@@ -780,8 +782,18 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
         }
         sqlQueryTemplate.set(groupedQuery);
 
+        if (taskListPager != null) {
+            taskListPager.close();
+            taskListPager = null;
+        }
+
         // Peform query
         try {
+            if (!isDraggable() && TaskListPager.canPage(filter.getSqlQuery(), sortFlags, sortSort)) {
+                taskListPager = new TaskListPager(taskService, joins,
+                        SortHelper.adjustQueryForFlags(filter.getSqlQuery(), sortFlags), taskProperties());
+                return taskListPager.load();
+            }
             return taskService.fetchFiltered(
                 sqlQueryTemplate.get(), null, taskProperties());
         } catch (SQLiteException e) {
@@ -10,10 +10,7 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
-import android.content.pm.PackageManager;
-import android.content.pm.ResolveInfo;
 import android.graphics.Color;
-import android.os.Parcelable;
 import android.text.TextUtils;
 import android.util.DisplayMetrics;
 import android.view.LayoutInflater;
@@ -24,30 +21,29 @@ import android.widget.ImageView;
 import android.widget.ListView;
 import android.widget.TextView;
 
-import com.todoroo.andlib.service.ContextManager;
 import com.todoroo.astrid.activity.AstridActivity;
 import com.todoroo.astrid.activity.TaskListFragment;
 import com.todoroo.astrid.api.AstridApiConstants;
-import com.todoroo.astrid.api.AstridFilterExposer;
 import com.todoroo.astrid.api.Filter;
 import com.todoroo.astrid.api.FilterListItem;
 import com.todoroo.astrid.api.FilterWithCustomIntent;
 import com.todoroo.astrid.api.FilterWithUpdate;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.tasks.R;
 import org.tasks.filters.FilterCounter;
+import org.tasks.filters.FilterRegistry;
 import org.tasks.injection.Injector;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class FilterAdapter extends ArrayAdapter<Filter> {
 
-    private static final Logger log = LoggerFactory.getLogger(FilterAdapter.class);
-
     // --- style constants
 
     public int filterStyle = R.style.TextAppearance_FLA_Filter;
@@ -56,6 +52,7 @@ public class FilterAdapter extends ArrayAdapter<Filter> {
 
     private Injector injector;
     private final FilterCounter filterCounter;
+    private final FilterRegistry filterRegistry;
 
     /** parent activity */
     protected final Activity activity;
@@ -83,11 +80,12 @@ public class FilterAdapter extends ArrayAdapter<Filter> {
     /** whether rows are selectable */
     private final boolean selectable;
 
-    public FilterAdapter(Injector injector, FilterCounter filterCounter, Activity activity, ListView listView,
-            int rowLayout, boolean skipIntentFilters, boolean selectable) {
+    public FilterAdapter(Injector injector, FilterCounter filterCounter, FilterRegistry filterRegistry,
+            Activity activity, ListView listView, int rowLayout, boolean skipIntentFilters, boolean selectable) {
         super(activity, 0);
         this.injector = injector;
         this.filterCounter = filterCounter;
+        this.filterRegistry = filterRegistry;
         this.activity = activity;
         this.listView = listView;
         this.layout = rowLayout;
@@ -140,6 +138,67 @@ public class FilterAdapter extends ArrayAdapter<Filter> {
         add(filter);
     }
 
+    /**
+     * Make the rows match the given filters, inserting, moving and removing
+     * only the rows that differ
+     */
+    private void updateFilters(List<Filter> filters) {
+        setNotifyOnChange(false);
+        List<Filter> added = new ArrayList<>();
+        boolean changed = updateRows(this, filters, added);
+
+        for (int i = 0; i < filters.size(); i++) {
+            transferImageReferences(filters.get(i), getItem(i));
+        }
+        for (Filter filter : added) {
+            filterCounter.registerFilter(filter);
+            offerFilter(filter);
+        }
+
+        if (changed) {
+            notifyDataSetChanged();
+        } else {
+            setNotifyOnChange(true);
+        }
+    }
+
+    /**
+     * Make the rows of an adapter match the given items. Rows equal to an
+     * item are kept, so existing rows keep their instances.
+     *
+     * @param added receives the items that had no row
+     * @return true if a row was inserted, moved or removed
+     */
+    static <T> boolean updateRows(ArrayAdapter<T> adapter, List<T> items, List<T> added) {
+        boolean changed = false;
+
+        Set<T> keep = new HashSet<>(items);
+        for (int i = adapter.getCount() - 1; i >= 0; i--) {
+            T existing = adapter.getItem(i);
+            if (!keep.contains(existing)) {
+                adapter.remove(existing);
+                changed = true;
+            }
+        }
+
+        for (int i = 0; i < items.size(); i++) {
+            T item = items.get(i);
+            int index = adapter.getPosition(item);
+            if (index == i) {
+                continue;
+            }
+            if (index >= 0) {
+                item = adapter.getItem(index);
+                adapter.remove(item);
+            } else {
+                added.add(item);
+            }
+            adapter.insert(item, i);
+            changed = true;
+        }
+        return changed;
+    }
+
     // Helper function: if a filter was created from serialized extras, it may not
     // have the same image data we can get from the in-app broadcast
     private void transferImageReferences(Filter from, Filter to) {
@@ -259,48 +318,15 @@ public class FilterAdapter extends ArrayAdapter<Filter> {
      *
      */
     public class FilterReceiver extends BroadcastReceiver {
-        private final List<ResolveInfo> filterExposerList;
-
-        public FilterReceiver() {
-            // query astrids AndroidManifest.xml for all registered default-receivers to expose filters
-            PackageManager pm = ContextManager.getContext().getPackageManager();
-            filterExposerList = pm.queryBroadcastReceivers(
-                    new Intent(AstridApiConstants.BROADCAST_REQUEST_FILTERS),
-                    PackageManager.MATCH_DEFAULT_ONLY);
-        }
-
         @Override
         public void onReceive(Context context, Intent intent) {
-            try {
-                for (ResolveInfo filterExposerInfo : filterExposerList) {
-                    String className = filterExposerInfo.activityInfo.name;
-                    AstridFilterExposer filterExposer;
-                    filterExposer = (AstridFilterExposer) Class.forName(className, true, FilterAdapter.class.getClassLoader()).newInstance();
-
-                    if (filterExposer != null) {
-                        populateFiltersToAdapter(filterExposer.getFilters(injector));
-                    }
-                }
-            } catch (Exception e) {
-                log.error(e.getMessage(), e);
-            }
-        }
-
-        protected void populateFiltersToAdapter(final Parcelable[] filters) {
-            if (filters == null) {
-                return;
-            }
-
-            for (Parcelable item : filters) {
-                FilterListItem filter = (FilterListItem) item;
-                if(skipIntentFilters && !(filter instanceof Filter)) {
-                    continue;
-                }
-
-                if (filter instanceof Filter){
-                    addOrLookup((Filter) filter);
+            Set<Filter> filters = new LinkedHashSet<>();
+            for (FilterListItem item : filterRegistry.getFilters(injector)) {
+                if (item instanceof Filter) {
+                    filters.add((Filter) item);
                 }
             }
+            updateFilters(new ArrayList<>(filters));
 
             filterCounter.refreshFilterCounts(new Runnable() {
                 @Override
@@ -9,7 +9,6 @@ import android.app.Activity;
 import android.app.Dialog;
 import android.app.PendingIntent.CanceledException;
 import android.content.Context;
-import android.content.Intent;
 import android.content.res.Configuration;
 import android.content.res.Resources;
 import android.database.Cursor;
@@ -50,7 +49,6 @@ import com.todoroo.andlib.utility.AndroidUtilities;
 import com.todoroo.andlib.utility.DateUtilities;
 import com.todoroo.andlib.utility.Pair;
 import com.todoroo.astrid.activity.TaskListFragment;
-import com.todoroo.astrid.api.AstridApiConstants;
 import com.todoroo.astrid.api.TaskAction;
 import com.todoroo.astrid.core.LinkActionExposer;
 import com.todoroo.astrid.dao.TaskAttachmentDao;
@@ -73,7 +71,6 @@ import org.tasks.preferences.ActivityPreferences;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Random;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.tasks.date.DateTimeUtils.newDate;
@@ -199,6 +196,8 @@ public class TaskAdapter extends CursorAdapter implements Filterable {
     private final boolean titleOnlyLayout;
     protected final int minRowHeight;
 
+    private final TaskDetailLoader detailLoader;
+
     private final Map<Long, TaskAction> taskActionLoader = Collections.synchronizedMap(new HashMap<Long, TaskAction>());
 
     /**
@@ -235,7 +234,25 @@ public class TaskAdapter extends CursorAdapter implements Filterable {
         this.simpleLayout = (resource == R.layout.task_adapter_row_simple);
         this.minRowHeight = computeMinRowHeight();
 
-        startDetailThread();
+        if (preferences.getBoolean(R.string.p_showNotes, false) && !simpleLayout && !titleOnlyLayout) {
+            detailLoader = fragment.getTaskDetailLoader();
+            detailLoader.setListener(new TaskDetailLoader.DetailListener() {
+                @Override
+                public void onDetailsLoaded() {
+                    Activity activity = fragment.getActivity();
+                    if (activity != null) {
+                        activity.runOnUiThread(new Runnable() {
+                            @Override
+                            public void run() {
+                                notifyDataSetChanged();
+                            }
+                        });
+                    }
+                }
+            });
+        } else {
+            detailLoader = null;
+        }
 
         scaleAnimation = new ScaleAnimation(1.4f, 1.0f, 1.4f, 1.0f,
                 Animation.RELATIVE_TO_SELF, 0.5f, Animation.RELATIVE_TO_SELF, 0.5f);
@@ -272,13 +289,6 @@ public class TaskAdapter extends CursorAdapter implements Filterable {
         }
     }
 
-    private void startDetailThread() {
-        if (preferences.getBoolean(R.string.p_showNotes, false) && !simpleLayout && !titleOnlyLayout) {
-            DetailLoaderThread detailLoader = new DetailLoaderThread();
-            detailLoader.start();
-        }
-    }
-
     /* ======================================================================
      * =========================================================== filterable
      * ====================================================================== */
@@ -356,8 +366,8 @@ public class TaskAdapter extends CursorAdapter implements Filterable {
 
         if (!titleOnlyLayout) {
             viewHolder.tagsString = cursor.get(TAGS);
-            viewHolder.hasFiles = cursor.get(FILE_ID_PROPERTY) > 0;
-            viewHolder.hasNotes = cursor.get(HAS_NOTES_PROPERTY) > 0;
+            viewHolder.hasFiles = cursor.getLong(FILE_ID_PROPERTY) > 0;
+            viewHolder.hasNotes = cursor.getInt(HAS_NOTES_PROPERTY) > 0;
         }
 
         Task task = viewHolder.task;
@@ -440,10 +450,12 @@ public class TaskAdapter extends CursorAdapter implements Filterable {
 
         String details;
         if(viewHolder.details1 != null) {
-            if(taskDetailLoader.containsKey(task.getId())) {
-                details = taskDetailLoader.get(task.getId()).toString();
-            } else {
+            details = detailLoader == null ? null : detailLoader.getDetails(task.getId());
+            if(details == null) {
                 details = task.getDetails();
+                if(detailLoader != null && !task.isCompleted()) {
+                    detailLoader.request(task.getId(), details);
+                }
             }
             if(TextUtils.isEmpty(details) || DETAIL_SEPARATOR.equals(details) || task.isCompleted()) {
                 viewHolder.details1.setVisibility(View.GONE);
@@ -670,120 +682,6 @@ public class TaskAdapter extends CursorAdapter implements Filterable {
         return string;
     }
 
-    // implementation note: this map is really costly if users have
-    // a large number of tasks to load, since it all goes into memory.
-    // it's best to do this, though, in order to append details to each other
-    private final Map<Long, StringBuilder> taskDetailLoader = Collections.synchronizedMap(new HashMap<Long, StringBuilder>(0));
-
-    public class DetailLoaderThread extends Thread {
-        @Override
-        public void run() {
-            // for all of the tasks returned by our cursor, verify details
-            AndroidUtilities.sleepDeep(500L);
-            TodorooCursor<Task> fetchCursor = taskService.fetchFiltered(
-                    query.get(), null, Task.ID, Task.TITLE, Task.DETAILS, Task.DETAILS_DATE,
-                    Task.MODIFICATION_DATE, Task.COMPLETION_DATE);
-            try {
-                Random random = new Random();
-
-                Task task = new Task();
-
-                for(fetchCursor.moveToFirst(); !fetchCursor.isAfterLast(); fetchCursor.moveToNext()) {
-                    task.clear();
-                    task.readFromCursor(fetchCursor);
-                    if(task.isCompleted()) {
-                        continue;
-                    }
-
-                    if(detailsAreRecentAndUpToDate(task)) {
-                        // even if we are up to date, randomly load a fraction
-                        if(random.nextFloat() < 0.1) {
-                            taskDetailLoader.put(task.getId(),
-                                    new StringBuilder(task.getDetails()));
-                            requestNewDetails(task);
-                        }
-                        continue;
-                    }
-                    addTaskToLoadingArray(task);
-
-                    task.setDetails(DETAIL_SEPARATOR);
-                    task.setDetailsDate(DateUtilities.now());
-                    taskService.save(task);
-
-                    requestNewDetails(task);
-                }
-                if(taskDetailLoader.size() > 0) {
-                    Activity activity = fragment.getActivity();
-                    if (activity != null) {
-                        activity.runOnUiThread(new Runnable() {
-                            @Override
-                            public void run() {
-                                notifyDataSetChanged();
-                            }
-                        });
-                    }
-                }
-            } catch (Exception e) {
-                // suppress silently
-                log.error(e.getMessage(), e);
-            } finally {
-                fetchCursor.close();
-            }
-        }
-
-        private boolean detailsAreRecentAndUpToDate(Task task) {
-            return task.getDetailsDate() >= task.getModificationDate() &&
-            !TextUtils.isEmpty(task.getDetails());
-        }
-
-        private void addTaskToLoadingArray(Task task) {
-            StringBuilder detailStringBuilder = new StringBuilder();
-            taskDetailLoader.put(task.getId(), detailStringBuilder);
-        }
-
-        private void requestNewDetails(Task task) {
-            Intent broadcastIntent = new Intent(AstridApiConstants.BROADCAST_REQUEST_DETAILS);
-            broadcastIntent.putExtra(AstridApiConstants.EXTRAS_TASK_ID, task.getId());
-            Activity activity = fragment.getActivity();
-            if (activity != null) {
-                activity.sendOrderedBroadcast(broadcastIntent, AstridApiConstants.PERMISSION_READ);
-            }
-        }
-    }
-
-    /**
-     * Add detail to a task
-     */
-    public void addDetails(long id, String detail) {
-        final StringBuilder details = taskDetailLoader.get(id);
-        if(details == null) {
-            return;
-        }
-        synchronized(details) {
-            if(details.toString().contains(detail)) {
-                return;
-            }
-            if(details.length() > 0) {
-                details.append(DETAIL_SEPARATOR);
-            }
-            details.append(detail);
-            Task task = new Task();
-            task.setId(id);
-            task.setDetails(details.toString());
-            task.setDetailsDate(DateUtilities.now());
-            taskService.save(task);
-        }
-
-        Activity activity = fragment.getActivity();
-        if (activity != null) {
-            activity.runOnUiThread(new Runnable() {
-                @Override
-                public void run() {
-                    notifyDataSetChanged();
-                }
-            });
-        }
-    }
 
     private final ImageGetter detailImageGetter = new ImageGetter() {
         private final HashMap<Integer, Drawable> cache =
@@ -833,8 +731,9 @@ public class TaskAdapter extends CursorAdapter implements Filterable {
      */
     public void flushCaches() {
         completedItems.clear();
-        taskDetailLoader.clear();
-        startDetailThread();
+        if (detailLoader != null) {
+            detailLoader.clear();
+        }
     }
 
     public HashMap<Object, Boolean> getCompletedItems() {
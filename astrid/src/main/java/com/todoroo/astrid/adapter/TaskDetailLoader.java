@@ -0,0 +1,258 @@
+/**
+ * Copyright (c) 2012 Todoroo Inc
+ *
+ * See the file "LICENSE" for the full license governing this code.
+ */
+package com.todoroo.astrid.adapter;
+
+import android.content.Context;
+
+import com.todoroo.andlib.utility.DateUtilities;
+import com.todoroo.astrid.alarms.AlarmDetailExposer;
+import com.todoroo.astrid.api.AstridDetailExposer;
+import com.todoroo.astrid.dao.Database;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.gtasks.GtasksDetailExposer;
+import com.todoroo.astrid.notes.NotesDetailExposer;
+import com.todoroo.astrid.repeats.RepeatDetailExposer;
+import com.todoroo.astrid.service.TaskService;
+import com.todoroo.astrid.tags.TagDetailExposer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tasks.injection.ForApplication;
+import org.tasks.injection.Injector;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+/**
+ * Computes the detail lines of the rows a task list shows. Rows are queued
+ * as they are bound, most recently bound first, and loaded in batches on a
+ * single background thread. Results are kept for a bounded number of tasks.
+ */
+public class TaskDetailLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskDetailLoader.class);
+
+    /** Number of tasks whose details are kept in memory */
+    static final int CACHE_SIZE = 200;
+
+    /** Queued rows beyond this are dropped, least recently bound first */
+    static final int MAX_PENDING = 100;
+
+    /** Number of tasks loaded and saved together */
+    static final int BATCH_SIZE = 10;
+
+    public interface DetailListener {
+        /** Called on the loader thread after a batch of details was loaded */
+        public void onDetailsLoaded();
+    }
+
+    private final Context context;
+    private final Database database;
+    private final TaskService taskService;
+    private final List<AstridDetailExposer> exposers;
+    private final Executor executor;
+
+    private final Map<Long, String> cache = new LinkedHashMap<Long, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /** Task id to the details currently stored with the task */
+    private final LinkedHashMap<Long, String> pending = new LinkedHashMap<>();
+
+    private boolean loading = false;
+    private DetailListener listener;
+
+    /** Incremented by {@link #clear()}, so batches loaded before it are dropped */
+    private int generation = 0;
+
+    /** Generation of the batch being loaded, only read on the loader thread */
+    private int batchGeneration;
+
+    @Inject
+    public TaskDetailLoader(Injector injector, @ForApplication Context context, Database database,
+                            TaskService taskService) {
+        this(context, database, taskService, injectExposers(injector),
+                new ThreadPoolExecutor(0, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>()));
+    }
+
+    TaskDetailLoader(Context context, Database database, TaskService taskService,
+                     List<AstridDetailExposer> exposers, Executor executor) {
+        this.context = context;
+        this.database = database;
+        this.taskService = taskService;
+        this.exposers = exposers;
+        this.executor = executor;
+    }
+
+    private static List<AstridDetailExposer> injectExposers(Injector injector) {
+        List<AstridDetailExposer> exposers = new ArrayList<>();
+        for (AstridDetailExposer exposer : new AstridDetailExposer[] {
+                new TagDetailExposer(),
+                new AlarmDetailExposer(),
+                new GtasksDetailExposer(),
+                new RepeatDetailExposer(),
+                new NotesDetailExposer() }) {
+            injector.inject(exposer);
+            exposers.add(exposer);
+        }
+        return exposers;
+    }
+
+    public synchronized void setListener(DetailListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return details loaded for the task, or null if they haven't been
+     * loaded yet
+     */
+    public synchronized String getDetails(long id) {
+        return cache.get(id);
+    }
+
+    /**
+     * Queue a task for loading, ahead of tasks queued before it
+     *
+     * @param storedDetails details currently stored with the task, saved
+     *                      over only if they changed
+     */
+    public synchronized void request(long id, String storedDetails) {
+        if (cache.containsKey(id)) {
+            return;
+        }
+        pending.remove(id);
+        pending.put(id, storedDetails == null ? "" : storedDetails);
+        if (pending.size() > MAX_PENDING) {
+            Iterator<Long> eldest = pending.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+        if (!loading) {
+            loading = true;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    loadPending();
+                }
+            });
+        }
+    }
+
+    /**
+     * Forget loaded and queued details, so rows are loaded again when they
+     * are next bound. A batch being loaded is neither saved nor cached.
+     */
+    public synchronized void clear() {
+        cache.clear();
+        pending.clear();
+        generation++;
+    }
+
+    private void loadPending() {
+        try {
+            Map<Long, String> batch;
+            while ((batch = nextBatch()) != null) {
+                loadBatch(batch);
+            }
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            synchronized (this) {
+                loading = false;
+            }
+        }
+    }
+
+    /**
+     * @return the most recently queued tasks, or null when the queue is
+     * empty
+     */
+    private synchronized Map<Long, String> nextBatch() {
+        if (pending.isEmpty()) {
+            loading = false;
+            return null;
+        }
+        List<Map.Entry<Long, String>> entries = new ArrayList<>(pending.entrySet());
+        Map<Long, String> batch = new LinkedHashMap<>();
+        for (int i = entries.size() - 1; i >= 0 && batch.size() < BATCH_SIZE; i--) {
+            batch.put(entries.get(i).getKey(), entries.get(i).getValue());
+        }
+        pending.keySet().removeAll(batch.keySet());
+        batchGeneration = generation;
+        return batch;
+    }
+
+    private void loadBatch(Map<Long, String> batch) {
+        final Map<Long, String> loaded = new LinkedHashMap<>();
+        final Map<Long, String> changed = new LinkedHashMap<>();
+        for (Map.Entry<Long, String> entry : batch.entrySet()) {
+            String details = getTaskDetails(entry.getKey());
+            loaded.put(entry.getKey(), details);
+            if (!details.equals(entry.getValue())) {
+                changed.put(entry.getKey(), details);
+            }
+        }
+
+        // saved under the lock of clear(), so details it discarded aren't written back
+        DetailListener listener;
+        synchronized (this) {
+            if (batchGeneration != generation) {
+                return;
+            }
+            if (!changed.isEmpty()) {
+                database.runInTransaction(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (Map.Entry<Long, String> entry : changed.entrySet()) {
+                            Task task = new Task();
+                            task.setId(entry.getKey());
+                            task.setDetails(entry.getValue());
+                            task.setDetailsDate(DateUtilities.now());
+                            taskService.save(task);
+                        }
+                    }
+                });
+            }
+            cache.putAll(loaded);
+            listener = this.listener;
+        }
+        if (listener != null) {
+            listener.onDetailsLoaded();
+        }
+    }
+
+    private String getTaskDetails(long id) {
+        StringBuilder details = new StringBuilder();
+        for (AstridDetailExposer exposer : exposers) {
+            String detail;
+            try {
+                detail = exposer.getTaskDetails(context, id);
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+                continue;
+            }
+            if (detail == null) {
+                continue;
+            }
+            if (details.length() > 0) {
+                details.append(TaskAdapter.DETAIL_SEPARATOR);
+            }
+            details.append(detail);
+        }
+        return details.toString();
+    }
+}
@@ -0,0 +1,302 @@
+/**
+ * Copyright (c) 2012 Todoroo Inc
+ *
+ * See the file "LICENSE" for the full license governing this code.
+ */
+package com.todoroo.astrid.adapter;
+
+import android.database.Cursor;
+import android.database.MergeCursor;
+
+import com.todoroo.andlib.data.Property;
+import com.todoroo.andlib.data.TodorooCursor;
+import com.todoroo.andlib.sql.Criterion;
+import com.todoroo.andlib.sql.Order;
+import com.todoroo.astrid.core.SortHelper;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.service.TaskService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads a task list a page at a time. Each page first selects the ids of
+ * its tasks from the filter query alone, then runs the tag and attachment
+ * joins for just those ids.
+ *
+ * Pages continue after the order key of the last loaded row rather than at
+ * an offset, so tasks changing between loads don't shift rows into or out
+ * of the pages already shown.
+ */
+public class TaskListPager {
+
+    public static final int PAGE_SIZE = 50;
+
+    /**
+     * Default task order of {@link SortHelper}, ending in the id so every
+     * row has a distinct key
+     */
+    private static final Property<?>[] ORDER = new Property<?>[] {
+            Task.COMPLETION_DATE, Task.SORT_KEY, Task.TITLE, Task.ID
+    };
+
+    private final TaskService taskService;
+    private final String joins;
+    private final String filterJoins;
+    private final String filterWhere;
+    private final Property<?>[] properties;
+
+    private List<Cursor> pages = new ArrayList<>();
+    private Object[] lastKey = null;
+    private int loadedRows = 0;
+    private boolean hasMore = true;
+
+    /**
+     * @param joins joins adding the columns of <code>properties</code> that
+     *              are not task columns
+     * @param filterSql filter query adjusted for the list flags, accepted
+     *                  by {@link #canPage(String, int, int)}
+     */
+    public TaskListPager(TaskService taskService, String joins, String filterSql, Property<?>... properties) {
+        this.taskService = taskService;
+        this.joins = joins;
+        int where = indexOfKeyword(filterSql, "WHERE");
+        if (where < 0) {
+            filterJoins = filterSql;
+            filterWhere = null;
+        } else {
+            filterJoins = filterSql.substring(0, where);
+            filterWhere = filterSql.substring(where + "WHERE".length()).trim();
+        }
+        this.properties = properties;
+    }
+
+    /**
+     * @return true if lists in the default order can be paged, which needs
+     * a filter query without an order, limit or grouping of its own
+     */
+    public static boolean canPage(String filterSql, int flags, int sort) {
+        return filterSql != null &&
+                sort == SortHelper.SORT_AUTO &&
+                (flags & SortHelper.FLAG_REVERSE_SORT) == 0 &&
+                !SortHelper.isManualSort(flags) &&
+                indexOfKeyword(filterSql, "ORDER") < 0 &&
+                indexOfKeyword(filterSql, "GROUP") < 0 &&
+                indexOfKeyword(filterSql, "LIMIT") < 0;
+    }
+
+    /**
+     * @return cursor over the first page
+     */
+    public TodorooCursor<Task> load() {
+        loadPage(PAGE_SIZE);
+        return cursor();
+    }
+
+    /**
+     * @return cursor over the loaded pages and the next one
+     */
+    public TodorooCursor<Task> loadNextPage() {
+        if (hasMore) {
+            loadPage(PAGE_SIZE);
+        }
+        return cursor();
+    }
+
+    /**
+     * Run the queries again for as many rows as are currently loaded, to
+     * pick up changes
+     *
+     * @return cursor over the reloaded rows
+     */
+    public TodorooCursor<Task> reload() {
+        List<Cursor> stale = pages;
+        int rows = Math.max(PAGE_SIZE, loadedRows);
+        pages = new ArrayList<>();
+        lastKey = null;
+        loadedRows = 0;
+        hasMore = true;
+        loadPage(rows);
+        TodorooCursor<Task> cursor = cursor();
+        close(stale);
+        return cursor;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    public int getLoadedRows() {
+        return loadedRows;
+    }
+
+    /**
+     * Close the pages. Cursors returned by this pager can't be used afterwards
+     */
+    public void close() {
+        close(pages);
+        pages = new ArrayList<>();
+    }
+
+    private void loadPage(int limit) {
+        List<Long> ids = new ArrayList<>();
+        TodorooCursor<Task> idCursor = taskService.fetchFiltered(idQuery(limit), null, ORDER);
+        try {
+            for (idCursor.moveToFirst(); !idCursor.isAfterLast(); idCursor.moveToNext()) {
+                ids.add(idCursor.getLong(ORDER.length - 1));
+                if (idCursor.isLast()) {
+                    lastKey = readKey(idCursor);
+                }
+            }
+        } finally {
+            idCursor.close();
+        }
+        hasMore = ids.size() == limit;
+        loadedRows += ids.size();
+        if (ids.isEmpty() && !pages.isEmpty()) {
+            return;
+        }
+        pages.add(taskService.fetchFiltered(pageQuery(joins, ids), null, properties));
+    }
+
+    /**
+     * @return query selecting the order key of the next rows of the filter,
+     * one row per task
+     */
+    String idQuery(int limit) {
+        Criterion after = lastKey == null ? null : after(0);
+        StringBuilder sql = new StringBuilder(filterJoins);
+        if (filterWhere != null || after != null) {
+            sql.append(" WHERE ");
+        }
+        if (filterWhere != null) {
+            sql.append('(').append(filterWhere).append(')');
+        }
+        if (filterWhere != null && after != null) {
+            sql.append(" AND ");
+        }
+        if (after != null) {
+            sql.append(after);
+        }
+        StringBuilder order = new StringBuilder();
+        for (Property<?> column : ORDER) {
+            if (order.length() > 0) {
+                order.append(", ");
+            }
+            order.append(Order.asc(column));
+        }
+        return sql.append(" GROUP BY ").append(Task.ID).
+                append(" ORDER BY ").append(order).
+                append(" LIMIT ").append(limit).toString();
+    }
+
+    /**
+     * @return criterion matching rows ordered after {@link #lastKey} on
+     * the columns of the order from <code>column</code> on
+     */
+    private Criterion after(int column) {
+        Property<?> property = ORDER[column];
+        Object value = lastKey[column];
+        Criterion greater = value == null ? property.isNotNull() : property.gt(value);
+        if (column == ORDER.length - 1) {
+            return greater;
+        }
+        Criterion equal = value == null ? property.isNull() : property.eq(value);
+        return Criterion.or(greater, Criterion.and(equal, after(column + 1)));
+    }
+
+    private static Object[] readKey(Cursor cursor) {
+        Object[] key = new Object[ORDER.length];
+        for (int i = 0; i < ORDER.length; i++) {
+            if (cursor.isNull(i)) {
+                key[i] = null;
+            } else if (ORDER[i] == Task.TITLE) {
+                key[i] = cursor.getString(i);
+            } else {
+                key[i] = cursor.getLong(i);
+            }
+        }
+        return key;
+    }
+
+    /**
+     * @return index of <code>keyword</code> in <code>sql</code>, outside
+     * of string literals, quoted names and parentheses, or -1
+     */
+    static int indexOfKeyword(String sql, String keyword) {
+        int depth = 0;
+        int length = sql.length();
+        for (int i = 0; i < length; i++) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                int end = sql.indexOf(c, i + 1);
+                if (end < 0) {
+                    return -1;
+                }
+                i = end;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (isWordPart(c)) {
+                int end = i;
+                while (end < length && isWordPart(sql.charAt(end))) {
+                    end++;
+                }
+                if (depth == 0 && end - i == keyword.length() &&
+                        sql.regionMatches(true, i, keyword, 0, keyword.length())) {
+                    return i;
+                }
+                i = end - 1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isWordPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.';
+    }
+
+    /**
+     * @return query joining the tasks with the given ids, in the same order
+     */
+    static String pageQuery(String joins, List<Long> ids) {
+        StringBuilder in = new StringBuilder();
+        StringBuilder order = new StringBuilder("CASE ").append(Task.ID);
+        for (int i = 0; i < ids.size(); i++) {
+            if (i > 0) {
+                in.append(',');
+            }
+            in.append(ids.get(i));
+            order.append(" WHEN ").append(ids.get(i)).append(" THEN ").append(i);
+        }
+        order.append(" END");
+        return joins + " WHERE " + Task.ID + " IN (" + in + ") GROUP BY " + Task.ID +
+                (ids.isEmpty() ? "" : " ORDER BY " + order);
+    }
+
+    private TodorooCursor<Task> cursor() {
+        return new TodorooCursor<>(new PageCursor(pages.toArray(new Cursor[pages.size()])), properties);
+    }
+
+    private static void close(List<Cursor> cursors) {
+        for (Cursor cursor : cursors) {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Each load hands out a new cursor over the same pages, so closing it
+     * must leave them open. The pager closes pages once they are replaced.
+     */
+    private static class PageCursor extends MergeCursor {
+
+        public PageCursor(Cursor[] cursors) {
+            super(cursors);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
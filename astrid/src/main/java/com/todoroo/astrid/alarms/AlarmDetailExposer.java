@@ -13,6 +13,7 @@ import com.todoroo.andlib.data.TodorooCursor;
 import com.todoroo.andlib.service.ContextManager;
 import com.todoroo.andlib.utility.DateUtilities;
 import com.todoroo.astrid.api.AstridApiConstants;
+import com.todoroo.astrid.api.AstridDetailExposer;
 import com.todoroo.astrid.data.Metadata;
 
 import org.tasks.injection.InjectingBroadcastReceiver;
@@ -29,7 +30,7 @@ import static org.tasks.date.DateTimeUtils.newDate;
  * @author Tim Su <tim@todoroo.com>
  *
  */
-public class AlarmDetailExposer extends InjectingBroadcastReceiver {
+public class AlarmDetailExposer extends InjectingBroadcastReceiver implements AstridDetailExposer {
 
     @Inject AlarmService alarmService;
 
@@ -57,6 +58,7 @@ public class AlarmDetailExposer extends InjectingBroadcastReceiver {
         context.sendBroadcast(broadcastIntent, AstridApiConstants.PERMISSION_READ);
     }
 
+    @Override
     public String getTaskDetails(Context context, long id) {
         TodorooCursor<Metadata> cursor = alarmService.getAlarms(id);
         long nextTime = -1;
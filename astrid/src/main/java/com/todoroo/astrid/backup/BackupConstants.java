@@ -61,6 +61,8 @@ public class BackupConstants {
 
     public static final String UPGRADE_FILE_NAME = "upgradefrom.%s.xml";
 
+    public static final String COMPRESSED_SUFFIX = ".gz";
+
     // --- methods
 
     /**
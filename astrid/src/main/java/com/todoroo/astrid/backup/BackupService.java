@@ -46,7 +46,7 @@ public class BackupService extends InjectingService {
      */
     private static final long BACKUP_INTERVAL = AlarmManager.INTERVAL_DAY;
     public static final String BACKUP_ACTION = "backup"; //$NON-NLS-1$
-    public static final String BACKUP_FILE_NAME_REGEX = "auto\\.[-\\d]+\\.xml"; //$NON-NLS-1$
+    public static final String BACKUP_FILE_NAME_REGEX = "auto\\.[-\\d]+\\.xml(\\.gz)?"; //$NON-NLS-1$
     private static final int DAYS_TO_KEEP_BACKUP = 7;
 
     @Inject TasksXmlExporter xmlExporter;
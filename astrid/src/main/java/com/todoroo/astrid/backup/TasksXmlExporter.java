@@ -20,7 +20,6 @@ import com.todoroo.andlib.sql.Order;
 import com.todoroo.andlib.sql.Query;
 import com.todoroo.andlib.utility.DateUtilities;
 import com.todoroo.andlib.utility.DialogUtilities;
-import com.todoroo.astrid.dao.MetadataDao.MetadataCriteria;
 import com.todoroo.astrid.data.Metadata;
 import com.todoroo.astrid.data.TagData;
 import com.todoroo.astrid.data.Task;
@@ -34,9 +33,12 @@ import org.tasks.R;
 import org.tasks.preferences.Preferences;
 import org.xmlpull.v1.XmlSerializer;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
 
 import javax.inject.Inject;
 
@@ -69,6 +71,7 @@ public class TasksXmlExporter {
     private Handler handler;
     private File backupDirectory;
     private String latestSetVersionName;
+    private boolean compress;
 
     private void setProgress(final int taskNumber, final int total) {
         handler.post(new Runnable() {
@@ -94,6 +97,8 @@ public class TasksXmlExporter {
         this.backupDirectory = backupDirectoryOverride == null ?
                 BackupConstants.defaultExportDirectory() : backupDirectoryOverride;
         this.latestSetVersionName = null;
+        this.compress = exportType == ExportType.EXPORT_TYPE_SERVICE &&
+                preferences.getBoolean(R.string.backup_BPr_compress_key, false);
 
         handler = new Handler();
         progressDialog = new ProgressDialog(context);
@@ -148,9 +153,12 @@ public class TasksXmlExporter {
     private void doTasksExport(String output) throws IOException {
         File xmlFile = new File(output);
         xmlFile.createNewFile();
-        FileOutputStream fos = new FileOutputStream(xmlFile);
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(xmlFile));
+        if(compress) {
+            os = new GZIPOutputStream(os);
+        }
         xml = Xml.newSerializer();
-        xml.setOutput(fos, BackupConstants.XML_ENCODING);
+        xml.setOutput(os, BackupConstants.XML_ENCODING);
 
         xml.startDocument(null, null);
         xml.setFeature("http://xmlpull.org/v1/doc/features.html#indent-output", true);
@@ -167,7 +175,7 @@ public class TasksXmlExporter {
         xml.endTag(null, BackupConstants.ASTRID_TAG);
         xml.endDocument();
         xml.flush();
-        fos.close();
+        os.close();
     }
 
     private void  serializeTagDatas() throws IOException {
@@ -194,12 +202,19 @@ public class TasksXmlExporter {
         }
     }
 
+    /**
+     * Writes tasks with their metadata in a single pass: both cursors are
+     * ordered by task id and merged, instead of querying metadata per task
+     */
     private void serializeTasks() throws IOException {
-        TodorooCursor<Task> cursor;
-        cursor = taskService.query(Query.select(
+        TodorooCursor<Task> cursor = taskService.query(Query.select(
                 Task.PROPERTIES).orderBy(Order.asc(Task.ID)));
+        TodorooCursor<Metadata> metadataCursor = metadataService.query(Query.select(
+                Metadata.PROPERTIES).orderBy(Order.asc(Metadata.TASK), Order.asc(Metadata.ID)));
         try {
             Task task = new Task();
+            Metadata metadata = new Metadata();
+            metadataCursor.moveToFirst();
             int length = cursor.getCount();
             for(int i = 0; i < length; i++) {
                 cursor.moveToNext();
@@ -209,29 +224,33 @@ public class TasksXmlExporter {
 
                 xml.startTag(null, BackupConstants.TASK_TAG);
                 serializeModel(task, Task.PROPERTIES, Task.ID);
-                serializeMetadata(task);
+                serializeMetadata(task.getId(), metadataCursor, metadata);
                 xml.endTag(null, BackupConstants.TASK_TAG);
                 this.exportCount++;
             }
         } finally {
+            metadataCursor.close();
             cursor.close();
         }
     }
 
-    private synchronized void serializeMetadata(Task task) throws IOException {
-        TodorooCursor<Metadata> cursor = metadataService.query(Query.select(
-                Metadata.PROPERTIES).where(MetadataCriteria.byTask(task.getId())));
-        try {
-            Metadata metadata = new Metadata();
-            for(cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
-                metadata.readFromCursor(cursor);
-
-                xml.startTag(null, BackupConstants.METADATA_TAG);
-                serializeModel(metadata, Metadata.PROPERTIES, Metadata.ID, Metadata.TASK);
-                xml.endTag(null, BackupConstants.METADATA_TAG);
+    /**
+     * Writes metadata rows for the given task, advancing the cursor past
+     * them. Rows belonging to tasks that no longer exist are skipped.
+     */
+    private void serializeMetadata(long taskId, TodorooCursor<Metadata> cursor, Metadata metadata) throws IOException {
+        for(; !cursor.isAfterLast(); cursor.moveToNext()) {
+            long metadataTask = cursor.get(Metadata.TASK);
+            if(metadataTask > taskId) {
+                break;
+            } else if(metadataTask < taskId) {
+                continue;
             }
-        } finally {
-            cursor.close();
+            metadata.readFromCursor(cursor);
+
+            xml.startTag(null, BackupConstants.METADATA_TAG);
+            serializeModel(metadata, Metadata.PROPERTIES, Metadata.ID, Metadata.TASK);
+            xml.endTag(null, BackupConstants.METADATA_TAG);
         }
     }
 
@@ -336,6 +355,9 @@ public class TasksXmlExporter {
                 switch(exportType) {
                 case EXPORT_TYPE_SERVICE:
                     fileName = String.format(BackupConstants.BACKUP_FILE_NAME, BackupDateUtilities.getDateForExport());
+                    if(compress) {
+                        fileName += BackupConstants.COMPRESSED_SUFFIX;
+                    }
                     break;
                 case EXPORT_TYPE_MANUAL:
                     fileName = String.format(BackupConstants.EXPORT_FILE_NAME, BackupDateUtilities.getDateForExport());
@@ -21,14 +21,17 @@ import com.todoroo.andlib.data.AbstractModel;
 import com.todoroo.andlib.data.Property;
 import com.todoroo.andlib.data.Property.PropertyVisitor;
 import com.todoroo.andlib.data.TodorooCursor;
-import com.todoroo.andlib.sql.Criterion;
 import com.todoroo.andlib.sql.Query;
 import com.todoroo.andlib.utility.DateUtilities;
 import com.todoroo.andlib.utility.DialogUtilities;
+import com.todoroo.andlib.utility.Pair;
 import com.todoroo.astrid.api.AstridApiConstants;
+import com.todoroo.astrid.dao.Database;
+import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.data.Metadata;
 import com.todoroo.astrid.data.TagData;
 import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.gtasks.GtasksMetadata;
 import com.todoroo.astrid.legacy.LegacyImportance;
 import com.todoroo.astrid.legacy.LegacyRepeatInfo;
 import com.todoroo.astrid.legacy.LegacyRepeatInfo.LegacyRepeatInterval;
@@ -42,15 +45,24 @@ import com.todoroo.astrid.tags.TaskToTagMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tasks.R;
+import org.tasks.scheduling.RefreshScheduler;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 import org.xmlpull.v1.XmlPullParserFactory;
 
-import java.io.FileReader;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.StringTokenizer;
+import java.util.zip.GZIPInputStream;
 
 import javax.inject.Inject;
 
@@ -62,6 +74,12 @@ public class TasksXmlImporter {
     private final TagService tagService;
     private final MetadataService metadataService;
     private final TaskService taskService;
+    private final TaskDao taskDao;
+    private final Database database;
+    private final RefreshScheduler refreshScheduler;
+
+    /** Number of records written per transaction */
+    static final int CHUNK_SIZE = 500;
 
     private Context context;
     private Handler handler;
@@ -72,6 +90,7 @@ public class TasksXmlImporter {
     private ProgressDialog progressDialog;
     private Runnable runAfterImport;
     private String input;
+    private final ImportIndex index = new ImportIndex();
 
     private void setProgressMessage(final String message) {
         handler.post(new Runnable() {
@@ -83,11 +102,16 @@ public class TasksXmlImporter {
     }
 
     @Inject
-    public TasksXmlImporter(TagDataService tagDataService, TagService tagService, MetadataService metadataService, TaskService taskService) {
+    public TasksXmlImporter(TagDataService tagDataService, TagService tagService, MetadataService metadataService,
+                            TaskService taskService, TaskDao taskDao, Database database,
+                            RefreshScheduler refreshScheduler) {
         this.tagDataService = tagDataService;
         this.tagService = tagService;
         this.metadataService = metadataService;
         this.taskService = taskService;
+        this.taskDao = taskDao;
+        this.database = database;
+        this.refreshScheduler = refreshScheduler;
     }
 
     /**
@@ -131,34 +155,44 @@ public class TasksXmlImporter {
     private void performImport() throws IOException, XmlPullParserException {
         XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
         XmlPullParser xpp = factory.newPullParser();
-        xpp.setInput(new FileReader(input));
+        InputStream stream = new BufferedInputStream(new FileInputStream(input));
+        if(input.endsWith(BackupConstants.COMPRESSED_SUFFIX)) {
+            stream = new GZIPInputStream(stream);
+        }
+        xpp.setInput(new InputStreamReader(stream, BackupConstants.XML_ENCODING));
 
         try {
-            while (xpp.next() != XmlPullParser.END_DOCUMENT) {
+            index.load();
+            TaskImporter importer = null;
+            while (importer == null && xpp.next() != XmlPullParser.END_DOCUMENT) {
                 String tag = xpp.getName();
                 if (xpp.getEventType() == XmlPullParser.END_TAG) {
                     // Ignore end tags
                     continue;
                 }
-                if (tag != null) {
-                    // Process <astrid ... >
-                    if (tag.equals(BackupConstants.ASTRID_TAG)) {
-                        String format = xpp.getAttributeValue(null, BackupConstants.ASTRID_ATTR_FORMAT);
-                        if(TextUtils.equals(format, FORMAT1)) {
-                            new Format1TaskImporter(xpp);
-                        } else if(TextUtils.equals(format, FORMAT2)) {
-                            new Format2TaskImporter(xpp);
-                        } else if(TextUtils.equals(format, FORMAT3)) {
-                            new Format3TaskImporter(xpp);
-                        } else {
-                            throw new UnsupportedOperationException(
-                                    "Did not know how to import tasks with xml format '" +
-                                            format + "'");
-                        }
+                // Process <astrid ... >
+                if (BackupConstants.ASTRID_TAG.equals(tag)) {
+                    String format = xpp.getAttributeValue(null, BackupConstants.ASTRID_ATTR_FORMAT);
+                    if(TextUtils.equals(format, FORMAT1)) {
+                        importer = new Format1TaskImporter(xpp);
+                    } else if(TextUtils.equals(format, FORMAT2)) {
+                        importer = new Format2TaskImporter(xpp);
+                    } else if(TextUtils.equals(format, FORMAT3)) {
+                        importer = new Format3TaskImporter(xpp);
+                    } else {
+                        throw new UnsupportedOperationException(
+                                "Did not know how to import tasks with xml format '" +
+                                        format + "'");
                     }
                 }
             }
+            if (importer != null) {
+                importInChunks(importer);
+                refreshScheduler.scheduleAllAlarms();
+            }
         } finally {
+            stream.close();
+            index.clear();
             Intent broadcastIntent = new Intent(AstridApiConstants.BROADCAST_EVENT_REFRESH);
             context.sendBroadcast(broadcastIntent, AstridApiConstants.PERMISSION_READ);
             handler.post(new Runnable() {
@@ -173,6 +207,75 @@ public class TasksXmlImporter {
         }
     }
 
+    /**
+     * Stream records from the parser, committing every {@link #CHUNK_SIZE}
+     * records so other threads can use the database between chunks
+     */
+    private void importInChunks(TaskImporter importer) {
+        boolean more = true;
+        long start = System.currentTimeMillis();
+        while (more) {
+            try {
+                more = importer.importRecords(CHUNK_SIZE);
+            } catch (IOException | XmlPullParserException e) {
+                // the record being read is lost
+                errorCount++;
+                log.error(e.getMessage(), e);
+                more = false;
+            }
+            commit(importer.takeRecords());
+            reportProgress(importer.getRecordCount(), start);
+        }
+    }
+
+    /**
+     * Write records in one transaction. If any of them fails the transaction
+     * is rolled back and each record is written in its own transaction, so
+     * a bad record is counted as an error without losing the rest of the
+     * chunk or leaving a task half imported.
+     */
+    private void commit(List<Record> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        try {
+            write(records);
+            for (Record record : records) {
+                importCount += record.tasks;
+            }
+        } catch (RuntimeException e) {
+            log.error(e.getMessage(), e);
+            for (Record record : records) {
+                try {
+                    write(Collections.singletonList(record));
+                    importCount += record.tasks;
+                } catch (RuntimeException failure) {
+                    errorCount++;
+                    log.error(failure.getMessage(), failure);
+                }
+            }
+        }
+    }
+
+    private void write(final List<Record> records) {
+        database.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                for (Record record : records) {
+                    for (Runnable write : record.writes) {
+                        write.run();
+                    }
+                }
+            }
+        });
+    }
+
+    private void reportProgress(int records, long start) {
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        log.debug("Imported {} records ({}/s)", records, records * 1000f / elapsed);
+        setProgressMessage(context.getString(R.string.import_progress_read, taskCount));
+    }
+
     private void showSummary() {
         final AlertDialog.Builder builder = new AlertDialog.Builder(context);
         builder.setTitle(R.string.import_summary_title);
@@ -200,46 +303,207 @@ public class TasksXmlImporter {
 
     // --- importers
 
+    /**
+     * Writes for one entry of the backup, a task with the rows that belong
+     * to it or a single list. They are run again if their chunk is rolled
+     * back, so they must reset the ids they assign.
+     */
+    private static class Record {
+        private final List<Runnable> writes = new ArrayList<>();
+        private final int tasks;
+
+        Record(int tasks) {
+            this.tasks = tasks;
+        }
+    }
+
+    /**
+     * Reads records from a backup format
+     */
+    private abstract static class TaskImporter {
+
+        private final List<Record> records = new ArrayList<>();
+        private Record record;
+        protected int recordCount = 0;
+
+        /**
+         * Read up to <code>count</code> elements
+         * @return false if the end of the document was reached
+         */
+        abstract boolean importRecords(int count) throws XmlPullParserException, IOException;
+
+        /**
+         * @return number of elements read so far
+         */
+        int getRecordCount() {
+            return recordCount;
+        }
+
+        /**
+         * @return records read completely since the last call. The record
+         * still being read is returned once it is complete.
+         */
+        List<Record> takeRecords() {
+            List<Record> result = new ArrayList<>(records);
+            records.clear();
+            return result;
+        }
+
+        /**
+         * Complete the current record and add following writes to the given
+         * one, or drop them if it is null
+         */
+        protected void startRecord(Record next) {
+            endRecord();
+            record = next;
+        }
+
+        protected void endRecord() {
+            if (record != null) {
+                records.add(record);
+                record = null;
+            }
+        }
+
+        protected void write(Runnable write) {
+            if (record != null) {
+                record.writes.add(write);
+            }
+        }
+    }
+
+    /**
+     * In-memory index of existing rows, loaded once per import so that
+     * duplicate detection doesn't need a query for every record
+     */
+    private class ImportIndex {
+
+        /** title and creation date of existing tasks */
+        private final HashSet<Pair<String, Long>> tasks = new HashSet<>();
+
+        /** title and creation date in seconds, used for legacy backups */
+        private final HashSet<Pair<String, Long>> legacyTasks = new HashSet<>();
+
+        /** uuids of existing tasks */
+        private final HashSet<String> uuids = new HashSet<>();
+
+        /** uuids of existing tag data */
+        private final HashSet<String> tagData = new HashSet<>();
+
+        void load() {
+            clear();
+            Task task = new Task();
+            TodorooCursor<Task> taskCursor = taskService.query(Query.select(
+                    Task.ID, Task.TITLE, Task.CREATION_DATE, Task.UUID));
+            try {
+                for (taskCursor.moveToFirst(); !taskCursor.isAfterLast(); taskCursor.moveToNext()) {
+                    task.readFromCursor(taskCursor);
+                    addTask(task);
+                }
+            } finally {
+                taskCursor.close();
+            }
+
+            TodorooCursor<TagData> tagCursor = tagDataService.query(Query.select(TagData.UUID));
+            try {
+                for (tagCursor.moveToFirst(); !tagCursor.isAfterLast(); tagCursor.moveToNext()) {
+                    tagData.add(tagCursor.get(TagData.UUID));
+                }
+            } finally {
+                tagCursor.close();
+            }
+        }
+
+        void clear() {
+            tasks.clear();
+            legacyTasks.clear();
+            uuids.clear();
+            tagData.clear();
+        }
+
+        void addTask(Task task) {
+            String title = task.getTitle();
+            long created = task.getCreationDate();
+            tasks.add(new Pair<>(title, created));
+            legacyTasks.add(new Pair<>(title, created / 1000L));
+            String uuid = task.getUUID();
+            if (!Task.isUuidEmpty(uuid)) {
+                uuids.add(uuid);
+            }
+        }
+
+        boolean containsTask(String title, long created) {
+            return tasks.contains(new Pair<>(title, created));
+        }
+
+        boolean containsLegacyTask(String title, long created) {
+            return legacyTasks.contains(new Pair<>(title, created / 1000L));
+        }
+
+        boolean containsUuid(String uuid) {
+            return !Task.isUuidEmpty(uuid) && uuids.contains(uuid);
+        }
+
+        void addTagData(String uuid) {
+            tagData.add(uuid);
+        }
+
+        boolean containsTagData(String uuid) {
+            return tagData.contains(uuid);
+        }
+    }
+
     // =============================================================== FORMAT2
 
     private static final String FORMAT2 = "2"; //$NON-NLS-1$
-    private class Format2TaskImporter {
+    private class Format2TaskImporter extends TaskImporter {
 
-        protected XmlPullParser xpp;
-        protected Task currentTask = new Task();
-        protected Metadata metadata = new Metadata();
-        protected TagData tagdata = new TagData();
+        protected final XmlPullParser xpp;
+        protected Task currentTask = null;
 
-        public Format2TaskImporter() { }
-        public Format2TaskImporter(XmlPullParser xpp) throws XmlPullParserException, IOException {
+        public Format2TaskImporter(XmlPullParser xpp) {
             this.xpp = xpp;
+        }
 
-            while (xpp.next() != XmlPullParser.END_DOCUMENT) {
+        @Override
+        public boolean importRecords(int count) throws XmlPullParserException, IOException {
+            int read = 0;
+            while (read < count) {
+                if (xpp.next() == XmlPullParser.END_DOCUMENT) {
+                    endRecord();
+                    return false;
+                }
                 String tag = xpp.getName();
                 if (tag == null || xpp.getEventType() == XmlPullParser.END_TAG) {
                     continue;
                 }
 
+                read++;
+                recordCount++;
                 try {
-                    if (tag.equals(BackupConstants.TASK_TAG)) {
-                        // Parse <task ... >
-                        parseTask();
-                    } else if (tag.equals(BackupConstants.METADATA_TAG)) {
-                        // Process <metadata ... >
-                        parseMetadata(2);
-                    }
+                    parseTag(tag);
                 } catch (Exception e) {
                     errorCount++;
                     log.error(e.getMessage(), e);
                 }
             }
+            return true;
+        }
+
+        protected void parseTag(String tag) {
+            if (tag.equals(BackupConstants.TASK_TAG)) {
+                // Parse <task ... >
+                parseTask();
+            } else if (tag.equals(BackupConstants.METADATA_TAG)) {
+                // Process <metadata ... >
+                parseMetadata(2);
+            }
         }
 
         protected void parseTask() {
             taskCount++;
-            setProgressMessage(context.getString(R.string.import_progress_read,
-                    taskCount));
-            currentTask.clear();
+            currentTask = null;
+            startRecord(null);
 
             String title = xpp.getAttributeValue(null, Task.TITLE.name);
             String created = xpp.getAttributeValue(null, Task.CREATION_DATE.name);
@@ -251,46 +515,55 @@ public class TasksXmlImporter {
             }
 
             // if the task's name and creation date match an existing task, skip
-            long existingTask = 0;
-            TodorooCursor<Task> cursor = taskService.query(Query.select(Task.ID,
-                        Task.COMPLETION_DATE, Task.DELETION_DATE).
-                    where(Criterion.and(Task.TITLE.eq(title), Task.CREATION_DATE.eq(created))));
-            try {
-                if(cursor.getCount() > 0) {
-                    cursor.moveToNext();
-
-                    if(existingTask == 0) {
-                        skipCount++;
-                        return;
-                    }
-                }
-            } finally {
-                cursor.close();
+            if (index.containsTask(title, Long.parseLong(created))) {
+                skipCount++;
+                return;
             }
 
             // else, make a new task model and add away.
-            deserializeModel(currentTask, Task.PROPERTIES);
+            final Task task = new Task();
+            deserializeModel(task, Task.PROPERTIES);
 
-            if(existingTask > 0) {
-                currentTask.setId(existingTask);
-            } else {
-                currentTask.setId(Task.NO_ID);
+            // don't overwrite a local task that has the same uuid
+            if (index.containsUuid(task.getUUID())) {
+                skipCount++;
+                return;
             }
 
             // Save the task to the database.
-            taskService.save(currentTask);
-            importCount++;
+            index.addTask(task);
+            currentTask = task;
+            startRecord(new Record(1));
+            write(new Runnable() {
+                @Override
+                public void run() {
+                    task.setId(Task.NO_ID);
+                    taskDao.save(task);
+                }
+            });
         }
 
         protected void parseMetadata(int format) {
-            if(!currentTask.isSaved()) {
+            final Task task = currentTask;
+            if(task == null) {
                 return;
             }
-            metadata.clear();
+            final Metadata metadata = new Metadata();
             deserializeModel(metadata, Metadata.PROPERTIES);
-            metadata.setId(Metadata.NO_ID);
-            metadata.setTask(currentTask.getId());
-            metadataService.save(metadata);
+            // backups before database version 42 keep google task order as text
+            if (GtasksMetadata.METADATA_KEY.equals(metadata.getKey()) &&
+                    !metadata.containsValue(GtasksMetadata.ORDER) &&
+                    metadata.containsNonNullValue(GtasksMetadata.LEGACY_ORDER)) {
+                metadata.setValue(GtasksMetadata.ORDER, metadata.getValue(GtasksMetadata.LEGACY_ORDER));
+            }
+            write(new Runnable() {
+                @Override
+                public void run() {
+                    metadata.setId(Metadata.NO_ID);
+                    metadata.setTask(task.getId());
+                    metadataService.save(metadata);
+                }
+            });
 
             // Construct the TagData from Metadata
             // Fix for failed backup, Version before 4.6.10
@@ -300,20 +573,20 @@ public class TasksXmlImporter {
                 String uuid = metadata.getValue(Metadata.VALUE2);
                 long deletionDate = metadata.getDeletionDate();
                 // UUID is uniquely for every TagData, so we don't need to test the name
-                TodorooCursor<TagData> cursor = tagDataService.query(Query.select(TagData.ID).
-                        where(TagData.UUID.eq(uuid)));
-                try {
-                    //If you sync with Google tasks it adds some Google task metadata.
-                    //For this metadata we don't create a list!
-                    if(key.equals(TaskToTagMetadata.KEY) && cursor.getCount() == 0 && deletionDate == 0) {
-                        tagdata.clear();
-                        tagdata.setId(TagData.NO_ID);
-                        tagdata.setUuid(uuid);
-                        tagdata.setName(name);
-                        tagDataService.save(tagdata);
-                    }
-                } finally {
-                    cursor.close();
+                //If you sync with Google tasks it adds some Google task metadata.
+                //For this metadata we don't create a list!
+                if(key.equals(TaskToTagMetadata.KEY) && !index.containsTagData(uuid) && deletionDate == 0) {
+                    final TagData tagdata = new TagData();
+                    tagdata.setUuid(uuid);
+                    tagdata.setName(name);
+                    write(new Runnable() {
+                        @Override
+                        public void run() {
+                            tagdata.setId(TagData.NO_ID);
+                            tagDataService.save(tagdata);
+                        }
+                    });
+                    index.addTagData(uuid);
                 }
             }
         }
@@ -374,44 +647,46 @@ public class TasksXmlImporter {
     private static final String FORMAT3 = "3"; //$NON-NLS-1$
     private class Format3TaskImporter extends Format2TaskImporter {
 
-        public Format3TaskImporter(XmlPullParser xpp) throws XmlPullParserException, IOException {
-            this.xpp = xpp;
-            while (xpp.next() != XmlPullParser.END_DOCUMENT) {
-                String tag = xpp.getName();
-                if (tag == null || xpp.getEventType() == XmlPullParser.END_TAG) {
-                    continue;
-                }
+        public Format3TaskImporter(XmlPullParser xpp) {
+            super(xpp);
+        }
 
-                try {
-                    switch (tag) {
-                        case BackupConstants.TASK_TAG:
-                            parseTask();
-                            break;
-                        case BackupConstants.METADATA_TAG:
-                            parseMetadata(3);
-                            break;
-                        case BackupConstants.TAGDATA_TAG:
-                            parseTagdata();
-                            break;
-                    }
-                } catch (Exception e) {
-                    errorCount++;
-                    log.error(e.getMessage(), e);
-                }
+        @Override
+        protected void parseTag(String tag) {
+            switch (tag) {
+                case BackupConstants.TASK_TAG:
+                    parseTask();
+                    break;
+                case BackupConstants.METADATA_TAG:
+                    parseMetadata(3);
+                    break;
+                case BackupConstants.TAGDATA_TAG:
+                    parseTagdata();
+                    break;
             }
         }
 
         private void parseTagdata() {
-            tagdata.clear();
+            currentTask = null;
+            final TagData tagdata = new TagData();
             deserializeModel(tagdata, TagData.PROPERTIES);
-            tagDataService.save(tagdata);
+            final long id = tagdata.getId();
+            startRecord(new Record(0));
+            write(new Runnable() {
+                @Override
+                public void run() {
+                    tagdata.setId(id);
+                    tagDataService.save(tagdata);
+                }
+            });
+            index.addTagData(tagdata.getUUID());
         }
     }
 
     // =============================================================== FORMAT1
 
     private static final String FORMAT1 = null;
-    private class Format1TaskImporter {
+    private class Format1TaskImporter extends TaskImporter {
 
         private final XmlPullParser xpp;
         private Task currentTask = null;
@@ -420,11 +695,23 @@ public class TasksXmlImporter {
 
         private final LinkedHashSet<String> tags = new LinkedHashSet<>();
 
-        public Format1TaskImporter(XmlPullParser xpp) throws XmlPullParserException, IOException {
+        public Format1TaskImporter(XmlPullParser xpp) {
             this.xpp = xpp;
+        }
 
-            while (xpp.next() != XmlPullParser.END_DOCUMENT) {
+        @Override
+        public boolean importRecords(int count) throws XmlPullParserException, IOException {
+            int read = 0;
+            while (read < count) {
+                if (xpp.next() == XmlPullParser.END_DOCUMENT) {
+                    endRecord();
+                    return false;
+                }
                 String tag = xpp.getName();
+                if (tag != null && xpp.getEventType() != XmlPullParser.END_TAG) {
+                    read++;
+                    recordCount++;
+                }
 
                 try {
                     if(BackupConstants.TASK_TAG.equals(tag) && xpp.getEventType() == XmlPullParser.END_TAG) {
@@ -449,6 +736,7 @@ public class TasksXmlImporter {
                     log.error(e.getMessage(), e);
                 }
             }
+            return true;
         }
 
         private void parseSync() {
@@ -460,13 +748,20 @@ public class TasksXmlImporter {
                 String taskSeriesId = strtok.nextToken();
                 String listId = strtok.nextToken();
 
-                Metadata metadata = new Metadata();
-                metadata.setTask(currentTask.getId());
+                final Task task = currentTask;
+                final Metadata metadata = new Metadata();
                 metadata.setValue1(listId);
                 metadata.setValue2(taskSeriesId);
                 metadata.setValue3(taskId);
                 metadata.setValue4(syncOnComplete ? "1" : "0"); //$NON-NLS-1$ //$NON-NLS-2$
-                metadataService.save(metadata);
+                write(new Runnable() {
+                    @Override
+                    public void run() {
+                        metadata.setId(Metadata.NO_ID);
+                        metadata.setTask(task.getId());
+                        metadataService.save(metadata);
+                    }
+                });
             }
         }
 
@@ -477,15 +772,21 @@ public class TasksXmlImporter {
 
         private void saveTags() {
             if(currentTask != null && tags.size() > 0) {
-                tagService.synchronizeTags(currentTask.getId(), currentTask.getUUID(), tags);
+                final Task task = currentTask;
+                final LinkedHashSet<String> taskTags = new LinkedHashSet<>(tags);
+                write(new Runnable() {
+                    @Override
+                    public void run() {
+                        tagService.synchronizeTags(task.getId(), task.getUUID(), taskTags);
+                    }
+                });
             }
             tags.clear();
         }
 
         private Task parseTask() {
             taskCount++;
-            setProgressMessage(context.getString(R.string.import_progress_read,
-                    taskCount));
+            startRecord(null);
 
             String taskName = xpp.getAttributeValue(null, LegacyTaskModel.NAME);
             Date creationDate = null;
@@ -502,20 +803,13 @@ public class TasksXmlImporter {
             }
 
             // if the task's name and creation date match an existing task, skip
-            TodorooCursor<Task> cursor = taskService.query(Query.select(Task.ID).
-                    where(Criterion.and(Task.TITLE.eq(taskName),
-                            Task.CREATION_DATE.like(creationDate.getTime()/1000L + "%"))));
-            try {
-                if(cursor.getCount() > 0) {
-                    skipCount++;
-                    return null;
-                }
-            } finally {
-                cursor.close();
+            if (index.containsLegacyTask(taskName, creationDate.getTime())) {
+                skipCount++;
+                return null;
             }
 
             // else, make a new task model and add away.
-            Task task = new Task();
+            final Task task = new Task();
             int numAttributes = xpp.getAttributeCount();
             for (int i = 0; i < numAttributes; i++) {
                 String fieldName = xpp.getAttributeName(i);
@@ -535,8 +829,15 @@ public class TasksXmlImporter {
             }
 
             // Save the task to the database.
-            taskService.save(task);
-            importCount++;
+            index.addTask(task);
+            startRecord(new Record(1));
+            write(new Runnable() {
+                @Override
+                public void run() {
+                    task.setId(Task.NO_ID);
+                    taskDao.save(task);
+                }
+            });
             return task;
         }
 
@@ -80,12 +80,18 @@ public final class CoreFilterExposer extends InjectingBroadcastReceiver implemen
      */
     public static Filter buildInboxFilter(Resources r) {
         return new Filter(r.getString(R.string.BFE_Active), r.getString(R.string.BFE_Active),
-                new QueryTemplate().where(
-                        Criterion.and(TaskCriteria.activeVisibleMine(),
-                                Criterion.not(Task.ID.in(Query.select(Metadata.TASK).from(Metadata.TABLE).where(
-                                        Criterion.and(MetadataCriteria.withKey(TaskToTagMetadata.KEY),
-                                                TaskToTagMetadata.TAG_NAME.like("x_%", "x"))))))), //$NON-NLS-1$ //$NON-NLS-2$
-                                                null);
+                buildInboxQuery(), null);
+    }
+
+    /**
+     * Build the query of the inbox filter
+     */
+    public static QueryTemplate buildInboxQuery() {
+        return new QueryTemplate().where(
+                Criterion.and(TaskCriteria.activeVisibleMine(),
+                        Criterion.not(Task.ID.in(Query.select(Metadata.TASK).from(Metadata.TABLE).where(
+                                Criterion.and(MetadataCriteria.withKey(TaskToTagMetadata.KEY),
+                                        TaskToTagMetadata.TAG_NAME.like("x_%", "x"))))))); //$NON-NLS-1$ //$NON-NLS-2$
     }
 
     private static Filter getTodayFilter(Resources r) {
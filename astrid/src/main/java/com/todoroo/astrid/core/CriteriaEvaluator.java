@@ -0,0 +1,183 @@
+/**
+ * Copyright (c) 2012 Todoroo Inc
+ *
+ * See the file "LICENSE" for the full license governing this code.
+ */
+package com.todoroo.astrid.core;
+
+import android.database.Cursor;
+
+import com.todoroo.andlib.sql.Query;
+import com.todoroo.andlib.sql.UnaryCriterion;
+import com.todoroo.andlib.utility.DateUtilities;
+import com.todoroo.astrid.core.CustomFilterActivity.CriterionInstance;
+import com.todoroo.astrid.dao.Database;
+import com.todoroo.astrid.dao.TaskDao.TaskCriteria;
+import com.todoroo.astrid.data.Task;
+
+import org.tasks.bitmap.TaskBitmap;
+import org.tasks.bitmap.TaskBitmapIndex;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the tasks matched by each prefix of a custom filter. The ids of
+ * the tasks matching each criterion are read once into a bitmap and
+ * combined in memory, and prefixes ahead of the first edited row are not
+ * combined again.
+ */
+class CriteriaEvaluator {
+
+    /** Sets are read again after this long, as criteria compare against the current time */
+    static final long MAX_AGE_MILLIS = DateUtilities.ONE_MINUTE;
+
+    private static final class TaskIds {
+        final TaskBitmap ids;
+        final long generation;
+        final long loaded;
+
+        TaskIds(TaskBitmap ids, long generation, long loaded) {
+            this.ids = ids;
+            this.generation = generation;
+            this.loaded = loaded;
+        }
+    }
+
+    /**
+     * Filters are a sequence of OR-ed terms of AND-ed criteria, since
+     * SQL binds AND tighter than OR. A prefix is the union of the terms
+     * completed before it and the term it ends in.
+     */
+    private static final class Prefix {
+        final int type;
+        final TaskIds input;
+        final TaskBitmap completed;
+        final TaskBitmap term;
+        final int count;
+
+        Prefix(int type, TaskIds input, TaskBitmap completed, TaskBitmap term) {
+            this.type = type;
+            this.input = input;
+            this.completed = completed;
+            this.term = term;
+            count = TaskBitmap.or(completed, term).getCardinality();
+        }
+    }
+
+    private final Database database;
+    private final TaskBitmapIndex taskBitmapIndex;
+    private final Map<String, TaskIds> taskIds = new HashMap<>();
+    private final List<Prefix> prefixes = new ArrayList<>();
+    private int queries = 0;
+
+    CriteriaEvaluator(Database database, TaskBitmapIndex taskBitmapIndex) {
+        this.database = database;
+        this.taskBitmapIndex = taskBitmapIndex;
+    }
+
+    /**
+     * @return number of tasks matching each prefix of the given criteria
+     */
+    int[] count(List<CriterionInstance> instances) {
+        int[] counts = new int[instances.size()];
+        boolean unchanged = true;
+        Prefix previous = null;
+        for (int i = 0; i < instances.size(); i++) {
+            CriterionInstance instance = instances.get(i);
+            TaskIds input = getTaskIds(instance);
+            Prefix prefix = i < prefixes.size() ? prefixes.get(i) : null;
+            if (!unchanged || prefix == null || prefix.type != instance.type || prefix.input != input) {
+                unchanged = false;
+                prefix = combine(previous, instance.type, input);
+                if (i < prefixes.size()) {
+                    prefixes.set(i, prefix);
+                } else {
+                    prefixes.add(prefix);
+                }
+            }
+            counts[i] = prefix.count;
+            previous = prefix;
+        }
+        while (prefixes.size() > instances.size()) {
+            prefixes.remove(prefixes.size() - 1);
+        }
+        return counts;
+    }
+
+    /**
+     * @return number of queries run to read criteria
+     */
+    int getQueryCount() {
+        return queries;
+    }
+
+    /**
+     * @return query selecting the ids of tasks matching the given criterion
+     */
+    static String getTaskIdQuery(CriterionInstance instance) {
+        StringBuilder sql = new StringBuilder(Query.select(Task.ID).from(Task.TABLE).toString()).
+            append(" WHERE ");
+        // special code for all tasks universe
+        if (instance.criterion.sql == null) {
+            sql.append(TaskCriteria.activeVisibleMine());
+        } else {
+            String value = instance.getValueFromCriterion();
+            if (value == null && instance.criterion.sql.contains("?")) {
+                value = "";
+            }
+            String subSql = instance.criterion.sql.replace("?", UnaryCriterion.sanitize(value));
+            sql.append(Task.ID).append(" IN (").append(subSql).append(")");
+        }
+        return sql.toString();
+    }
+
+    private static Prefix combine(Prefix previous, int type, TaskIds input) {
+        if (previous == null) {
+            return new Prefix(type, input, new TaskBitmap(), input.ids);
+        }
+        switch (type) {
+        case CriterionInstance.TYPE_ADD:
+            return new Prefix(type, input, TaskBitmap.or(previous.completed, previous.term), input.ids);
+        case CriterionInstance.TYPE_SUBTRACT:
+            return new Prefix(type, input, previous.completed, TaskBitmap.andNot(previous.term, input.ids));
+        case CriterionInstance.TYPE_INTERSECT:
+            return new Prefix(type, input, previous.completed, TaskBitmap.and(previous.term, input.ids));
+        default:
+            return new Prefix(type, input, previous.completed, input.ids);
+        }
+    }
+
+    private TaskIds getTaskIds(CriterionInstance instance) {
+        String sql = getTaskIdQuery(instance);
+        long generation = database.getGenerationForQuery(sql);
+        long now = DateUtilities.now();
+        TaskIds cached = taskIds.get(sql);
+        if (cached != null && cached.generation == generation && now - cached.loaded < MAX_AGE_MILLIS) {
+            return cached;
+        }
+        // the universe is read from the index instead of the database
+        TaskBitmap ids = instance.criterion.sql == null
+                ? taskBitmapIndex.getActiveVisible(now)
+                : readTaskIds(sql);
+        TaskIds result = new TaskIds(ids, generation, now);
+        taskIds.put(sql, result);
+        return result;
+    }
+
+    private TaskBitmap readTaskIds(String sql) {
+        queries++;
+        TaskBitmap ids = new TaskBitmap();
+        Cursor cursor = database.rawQuery(sql);
+        try {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getLong(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return ids;
+    }
+}
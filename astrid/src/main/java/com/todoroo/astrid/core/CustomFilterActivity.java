@@ -11,7 +11,6 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.res.Resources;
-import android.database.Cursor;
 import android.graphics.drawable.BitmapDrawable;
 import android.os.Bundle;
 import android.os.Parcelable;
@@ -27,7 +26,6 @@ import android.widget.Button;
 import android.widget.ListView;
 import android.widget.TextView;
 
-import com.todoroo.andlib.data.Property.CountProperty;
 import com.todoroo.andlib.service.ContextManager;
 import com.todoroo.andlib.sql.Criterion;
 import com.todoroo.andlib.sql.Field;
@@ -49,6 +47,7 @@ import com.todoroo.astrid.data.Task;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tasks.R;
+import org.tasks.bitmap.TaskBitmapIndex;
 import org.tasks.injection.InjectingActionBarActivity;
 import org.tasks.preferences.ActivityPreferences;
 
@@ -141,6 +140,7 @@ public class CustomFilterActivity extends InjectingActionBarActivity {
     private TextView filterName;
 
     private CustomFilterAdapter adapter;
+    private CriteriaEvaluator criteriaEvaluator;
     private final Map<String,CustomFilterCriterion> criteria = Collections.synchronizedMap(new LinkedHashMap<String,CustomFilterCriterion>());
 
     private final FilterCriteriaReceiver filterCriteriaReceiver = new FilterCriteriaReceiver();
@@ -150,6 +150,7 @@ public class CustomFilterActivity extends InjectingActionBarActivity {
     @Inject Database database;
     @Inject StoreObjectDao storeObjectDao;
     @Inject ActivityPreferences preferences;
+    @Inject TaskBitmapIndex taskBitmapIndex;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -168,6 +169,7 @@ public class CustomFilterActivity extends InjectingActionBarActivity {
         listView = (ListView) findViewById(android.R.id.list);
 
         database.openForReading();
+        criteriaEvaluator = new CriteriaEvaluator(database, taskBitmapIndex);
         populateCriteria();
 
         filterName = (TextView)findViewById(R.id.filterName);
@@ -448,48 +450,18 @@ public class CustomFilterActivity extends InjectingActionBarActivity {
     void updateList() {
         int max = 0, last = -1;
 
-        StringBuilder sql = new StringBuilder(Query.select(new CountProperty()).from(Task.TABLE).toString()).
-            append(" WHERE ");
-
+        List<CriterionInstance> instances = new ArrayList<>();
         for(int i = 0; i < adapter.getCount(); i++) {
-            CriterionInstance instance = adapter.getItem(i);
-            String value = instance.getValueFromCriterion();
-            if(value == null && instance.criterion.sql != null && instance.criterion.sql.contains("?")) {
-                value = "";
-            }
-
-            switch(instance.type) {
-            case CriterionInstance.TYPE_ADD:
-                sql.append("OR ");
-                break;
-            case CriterionInstance.TYPE_SUBTRACT:
-                sql.append("AND NOT ");
-                break;
-            case CriterionInstance.TYPE_INTERSECT:
-                sql.append("AND ");
-                break;
-            case CriterionInstance.TYPE_UNIVERSE:
-            }
-
-            // special code for all tasks universe
-            if(instance.criterion.sql == null) {
-                sql.append(TaskCriteria.activeVisibleMine()).append(' ');
-            } else {
-                String subSql = instance.criterion.sql.replace("?", UnaryCriterion.sanitize(value));
-                subSql = PermaSql.replacePlaceholders(subSql);
-                sql.append(Task.ID).append(" IN (").append(subSql).append(") ");
-            }
-
-            Cursor cursor = database.getDatabase().rawQuery(sql.toString(), null);
-            try {
-                cursor.moveToNext();
-                instance.start = last == -1 ? cursor.getInt(0) : last;
-                instance.end = cursor.getInt(0);
-                last = instance.end;
-                max = Math.max(max, last);
-            } finally {
-                cursor.close();
-            }
+            instances.add(adapter.getItem(i));
+        }
+        int[] counts = criteriaEvaluator.count(instances);
+
+        for(int i = 0; i < instances.size(); i++) {
+            CriterionInstance instance = instances.get(i);
+            instance.start = last == -1 ? counts[i] : last;
+            instance.end = counts[i];
+            last = instance.end;
+            max = Math.max(max, last);
         }
 
         for(int i = 0; i < adapter.getCount(); i++) {
@@ -12,17 +12,22 @@ import com.todoroo.andlib.data.AbstractDatabase;
 import com.todoroo.andlib.data.AbstractModel;
 import com.todoroo.andlib.data.Property;
 import com.todoroo.andlib.data.Table;
+import com.todoroo.astrid.api.PermaSql;
 import com.todoroo.astrid.data.Metadata;
 import com.todoroo.astrid.data.StoreObject;
 import com.todoroo.astrid.data.TagData;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.data.TaskAttachment;
 import com.todoroo.astrid.data.TaskListMetadata;
+import com.todoroo.astrid.data.TaskListPosition;
 import com.todoroo.astrid.data.UserActivity;
+import com.todoroo.astrid.gtasks.GtasksMetadata;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -43,7 +48,7 @@ public class Database extends AbstractDatabase {
      * Database version number. This variable must be updated when database
      * tables are updated, as it determines whether a database needs updating.
      */
-    public static final int VERSION = 35;
+    public static final int VERSION = 42;
 
     /**
      * Database name (must be unique)
@@ -62,6 +67,7 @@ public class Database extends AbstractDatabase {
         UserActivity.TABLE,
         TaskAttachment.TABLE,
         TaskListMetadata.TABLE,
+        TaskListPosition.TABLE,
     };
 
     // --- listeners
@@ -122,12 +128,114 @@ public class Database extends AbstractDatabase {
         append(')');
         database.execSQL(sql.toString());
         sql.setLength(0);
+
+        database.execSQL(createTaskListPositionIndexSql());
+        database.execSQL(createTaskIndexSql("t_due", Task.DUE_DATE));
+        database.execSQL(createTaskIndexSql("t_hide", Task.HIDE_UNTIL));
+        database.execSQL(createUserActivityTargetIndexSql());
+        database.execSQL(TaskSearchIndex.createTableSql());
+        database.execSQL(createMetadataIndexSql("md_kv1", Metadata.VALUE1));
+        database.execSQL(createMetadataIndexSql("md_kv2", Metadata.VALUE2));
+        database.execSQL(createMetadataIndexSql("md_kv3", Metadata.VALUE3));
+        database.execSQL(createTaskCompletionIndexSql());
+        database.execSQL(createSortKeyIndexSql());
+        database.execSQL(createGtasksOrderIndexSql());
+    }
+
+    private static String createTaskListPositionIndexSql() {
+        return "CREATE UNIQUE INDEX IF NOT EXISTS tlp_list_task ON " +
+                TaskListPosition.TABLE + "(" +
+                TaskListPosition.LIST.name + "," +
+                TaskListPosition.TASK.name + ")";
+    }
+
+    private static String createUserActivityTargetIndexSql() {
+        return "CREATE INDEX IF NOT EXISTS ua_tid ON " +
+                UserActivity.TABLE + "(" + UserActivity.TARGET_ID.name + ")";
+    }
+
+    /**
+     * Metadata lookups filter on key plus one value column, e.g. tag uuid,
+     * google task id or list id
+     */
+    private static String createMetadataIndexSql(String name, Property<?> property) {
+        return "CREATE INDEX IF NOT EXISTS " + name + " ON " +
+                Metadata.TABLE + "(" + Metadata.KEY.name + "," + property.name + ")";
+    }
+
+    /**
+     * Lists filter on completion and often on a due date range, and
+     * sorted lists lead with completion date
+     */
+    private static String createTaskCompletionIndexSql() {
+        return "CREATE INDEX IF NOT EXISTS t_comp_due_imp ON " + Task.TABLE + "(" +
+                Task.COMPLETION_DATE.name + "," +
+                Task.DUE_DATE.name + "," +
+                Task.IMPORTANCE.name + ")";
+    }
+
+    private static String createSortKeyIndexSql() {
+        return "CREATE INDEX IF NOT EXISTS t_sort ON " + Task.TABLE + "(" +
+                Task.COMPLETION_DATE.name + "," +
+                Task.SORT_KEY.name + ")";
+    }
+
+    /**
+     * Google Tasks lists filter on list id and sort by order, which is kept
+     * in an integer column as the value columns have text affinity
+     */
+    private static String createGtasksOrderIndexSql() {
+        return "CREATE INDEX IF NOT EXISTS md_gtasks_order ON " + Metadata.TABLE + "(" +
+                Metadata.KEY.name + "," +
+                GtasksMetadata.LIST_ID.name + "," +
+                GtasksMetadata.ORDER.name + ")";
+    }
+
+    private static String createTaskIndexSql(String name, Property<?> property) {
+        return "CREATE INDEX IF NOT EXISTS " + name + " ON " +
+                Task.TABLE + "(" + property.name + ")";
+    }
+
+    /**
+     * Bind the current time in place of {@link PermaSql} placeholders
+     */
+    @Override
+    protected String bindQueryParameters(String sql, List<Object> args) {
+        return PermaSql.bindPlaceholders(sql, args);
     }
 
     @Override
     protected synchronized boolean onUpgrade(int oldVersion, int newVersion) {
         SqlConstructorVisitor visitor = new SqlConstructorVisitor();
         switch(oldVersion) {
+        case 35:
+            tryExecSQL(createTableSql(visitor, TaskListPosition.TABLE.name, TaskListPosition.PROPERTIES));
+            tryExecSQL(createTaskListPositionIndexSql());
+        case 36:
+            tryExecSQL(createTaskIndexSql("t_due", Task.DUE_DATE));
+            tryExecSQL(createTaskIndexSql("t_hide", Task.HIDE_UNTIL));
+        case 37:
+            tryExecSQL(createUserActivityTargetIndexSql());
+            tryExecSQL(TaskSearchIndex.createTableSql());
+            tryExecSQL(TaskSearchIndex.indexSql("1"));
+        case 38:
+            tryExecSQL(createMetadataIndexSql("md_kv1", Metadata.VALUE1));
+            tryExecSQL(createMetadataIndexSql("md_kv2", Metadata.VALUE2));
+            tryExecSQL(createMetadataIndexSql("md_kv3", Metadata.VALUE3));
+        case 39:
+            tryExecSQL(createTaskCompletionIndexSql());
+        case 40:
+            tryExecSQL(addColumnSql(Task.TABLE, Task.SORT_KEY, visitor, null));
+            tryExecSQL(TaskDao.UPDATE_SORT_KEY_SQL);
+            tryExecSQL(createSortKeyIndexSql());
+        case 41:
+            tryExecSQL(addColumnSql(Metadata.TABLE, Metadata.ORDINAL, visitor, null));
+            tryExecSQL("UPDATE " + Metadata.TABLE + " SET " + GtasksMetadata.ORDER.name + " = CAST(" +
+                    GtasksMetadata.LEGACY_ORDER.name + " AS INTEGER) WHERE " +
+                    Metadata.KEY.eq(GtasksMetadata.METADATA_KEY));
+            tryExecSQL(createGtasksOrderIndexSql());
+
+            return true;
         }
 
         return false;
@@ -17,6 +17,8 @@ import com.todoroo.andlib.sql.Query;
 import com.todoroo.andlib.utility.DateUtilities;
 import com.todoroo.astrid.data.Metadata;
 import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.gtasks.GtasksMetadata;
+import com.todoroo.astrid.notes.NoteMetadata;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -34,11 +36,13 @@ import javax.inject.Singleton;
 public class MetadataDao extends DatabaseDao<Metadata> {
 
     private final Database database;
+    private final TaskSearchIndex taskSearchIndex;
 
     @Inject
-	public MetadataDao(Database database) {
+	public MetadataDao(Database database, TaskSearchIndex taskSearchIndex) {
         super(Metadata.class);
         this.database = database;
+        this.taskSearchIndex = taskSearchIndex;
         setDatabase(database);
     }
 
@@ -116,13 +120,51 @@ public class MetadataDao extends DatabaseDao<Metadata> {
         }
     }
 
+    @Override
+    public boolean createNew(Metadata item) {
+        setLegacyOrder(item);
+        return super.createNew(item);
+    }
+
+    @Override
+    public boolean saveExisting(Metadata item) {
+        setLegacyOrder(item);
+        return super.saveExisting(item);
+    }
+
+    @Override
+    public int update(Criterion where, Metadata template) {
+        setLegacyOrder(template);
+        return super.update(where, template);
+    }
+
+    /**
+     * Copy a list order being written to the column it was kept in before,
+     * which content provider readers still query
+     */
+    private static void setLegacyOrder(Metadata item) {
+        ContentValues values = item.getSetValues();
+        if (values == null || !values.containsKey(GtasksMetadata.ORDER.name)) {
+            return;
+        }
+        Long order = values.getAsLong(GtasksMetadata.ORDER.name);
+        if (order != null) {
+            item.setValue(GtasksMetadata.LEGACY_ORDER, order);
+        }
+    }
+
     @Override
     public boolean persist(Metadata item) {
         if(!item.containsValue(Metadata.CREATION_DATE)) {
             item.setCreationDate(DateUtilities.now());
         }
 
-        return super.persist(item);
+        boolean result = super.persist(item);
+        if(result && item.containsNonNullValue(Metadata.TASK) && item.containsNonNullValue(Metadata.KEY) &&
+                NoteMetadata.METADATA_KEY.equals(item.getKey())) {
+            taskSearchIndex.indexTask(item.getTask());
+        }
+        return result;
     }
 
     /**
@@ -14,6 +14,7 @@ import com.todoroo.andlib.sql.Criterion;
 import com.todoroo.andlib.sql.Functions;
 import com.todoroo.andlib.sql.Query;
 import com.todoroo.andlib.utility.DateUtilities;
+import com.todoroo.astrid.core.SortHelper;
 import com.todoroo.astrid.dao.MetadataDao.MetadataCriteria;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.data.TaskApiDao;
@@ -26,6 +27,10 @@ import org.tasks.R;
 import org.tasks.notifications.NotificationManager;
 import org.tasks.preferences.Preferences;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -40,23 +45,34 @@ public class TaskDao extends RemoteModelDao<Task> {
 
     private static final Logger log = LoggerFactory.getLogger(TaskDao.class);
 
+    /** Recompute the sort key of tasks from their columns */
+    static final String UPDATE_SORT_KEY_SQL = "UPDATE " + Task.TABLE.name + " SET " +
+            Task.SORT_KEY.name + " = " + SortHelper.sortKeySql(); //$NON-NLS-1$
+
+    /** Number of ids per statement when recomputing sort keys after an update */
+    private static final int SORT_KEY_BATCH_SIZE = 500;
+
     private final MetadataDao metadataDao;
     private final Broadcaster broadcaster;
     private final ReminderService reminderService;
     private final NotificationManager notificationManager;
     private final Preferences preferences;
+    private final TaskSearchIndex taskSearchIndex;
+    private final Database database;
 
     @Inject
 	public TaskDao(Database database, MetadataDao metadataDao, Broadcaster broadcaster,
                    ReminderService reminderService, NotificationManager notificationManager,
-                   Preferences preferences) {
+                   Preferences preferences, TaskSearchIndex taskSearchIndex) {
         super(Task.class);
         setDatabase(database);
+        this.database = database;
         this.preferences = preferences;
         this.metadataDao = metadataDao;
         this.broadcaster = broadcaster;
         this.reminderService = reminderService;
         this.notificationManager = notificationManager;
+        this.taskSearchIndex = taskSearchIndex;
     }
 
     // --- SQL clause generators
@@ -123,6 +139,7 @@ public class TaskDao extends RemoteModelDao<Task> {
 
         // delete all metadata
         metadataDao.deleteWhere(MetadataCriteria.byTask(id));
+        taskSearchIndex.removeTask(id);
 
         broadcastTaskChanged();
 
@@ -182,9 +199,13 @@ public class TaskDao extends RemoteModelDao<Task> {
 
         setDefaultReminders(preferences, item);
 
+        boolean updateSortKey = setSortKey(item);
         ContentValues values = item.getSetValues();
         boolean result = super.createNew(item);
         if(result) {
+            if(updateSortKey) {
+                updateSortKey(item.getId());
+            }
             afterSave(item, values);
         }
 
@@ -228,13 +249,111 @@ public class TaskDao extends RemoteModelDao<Task> {
                 item.setModificationDate(DateUtilities.now());
             }
         }
+        boolean updateSortKey = setSortKey(item);
         boolean result = super.saveExisting(item);
         if(result) {
+            if(updateSortKey) {
+                updateSortKey(item.getId());
+            }
             afterSave(item, values);
         }
         return result;
     }
 
+    /**
+     * Delete all matching a clause, along with their search index rows
+     */
+    @Override
+    public int deleteWhere(final Criterion where) {
+        final AtomicInteger result = new AtomicInteger();
+        database.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                result.set(TaskDao.super.deleteWhere(where));
+                if(result.get() > 0) {
+                    taskSearchIndex.removeDeletedTasks();
+                }
+            }
+        });
+        return result.get();
+    }
+
+    /**
+     * Update all matching a clause, recomputing their sort keys if the due
+     * date or importance changed and their search index rows if the title
+     * or notes changed
+     */
+    @Override
+    public int update(final Criterion where, final Task template) {
+        final boolean updateSortKey = setSortKey(template);
+        ContentValues values = template.getSetValues();
+        final boolean updateIndex = values != null &&
+                (values.containsKey(Task.TITLE.name) || values.containsKey(Task.NOTES.name));
+        if(!updateSortKey && !updateIndex) {
+            return super.update(where, template);
+        }
+        // the template may change a column the clause filters on, so the
+        // rows are updated by id for the ones that matched before
+        final AtomicInteger result = new AtomicInteger();
+        database.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                List<Long> ids = getIds(where);
+                result.set(TaskDao.super.update(where, template));
+                for(int i = 0; i < ids.size(); i += SORT_KEY_BATCH_SIZE) {
+                    List<Long> batch = ids.subList(i, Math.min(ids.size(), i + SORT_KEY_BATCH_SIZE));
+                    if(updateSortKey) {
+                        database.executeUpdate(Task.TABLE.name, UPDATE_SORT_KEY_SQL + " WHERE " + Task.ID.in(batch), null);
+                    }
+                    if(updateIndex) {
+                        taskSearchIndex.indexTasks(batch);
+                    }
+                }
+            }
+        });
+        return result.get();
+    }
+
+    private List<Long> getIds(Criterion where) {
+        List<Long> ids = new ArrayList<>();
+        TodorooCursor<Task> cursor = query(Query.select(Task.ID).where(where));
+        try {
+            for(cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                ids.add(cursor.getLong(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return ids;
+    }
+
+    /**
+     * Set the sort key of a task whose due date or importance changed
+     *
+     * @return true if the model lacks one of them, so the key has to be
+     * recomputed from the row once it is saved
+     */
+    private static boolean setSortKey(Task item) {
+        if(!affectsSortKey(item.getSetValues())) {
+            return false;
+        }
+        if(!item.containsNonNullValue(Task.DUE_DATE) || !item.containsNonNullValue(Task.IMPORTANCE)) {
+            return true;
+        }
+        item.setValue(Task.SORT_KEY, SortHelper.sortKey(item.getDueDate(), item.getImportance()));
+        return false;
+    }
+
+    private static boolean affectsSortKey(ContentValues values) {
+        return values != null &&
+                (values.containsKey(Task.DUE_DATE.name) || values.containsKey(Task.IMPORTANCE.name));
+    }
+
+    private void updateSortKey(long id) {
+        database.executeUpdate(Task.TABLE.name, UPDATE_SORT_KEY_SQL + " WHERE " + Task.ID.name + " = ?",
+                new Object[] { id });
+    }
+
     private static final Property<?>[] SQL_CONSTRAINT_MERGE_PROPERTIES = new Property<?>[] {
         Task.ID,
         Task.UUID,
@@ -318,6 +437,9 @@ public class TaskDao extends RemoteModelDao<Task> {
         }
 
         task.markSaved();
+        if(values.containsKey(Task.TITLE.name) || values.containsKey(Task.NOTES.name)) {
+            taskSearchIndex.indexTask(task.getId());
+        }
         if(values.containsKey(Task.COMPLETION_DATE.name) && task.isCompleted()) {
             afterComplete(task);
         } else {
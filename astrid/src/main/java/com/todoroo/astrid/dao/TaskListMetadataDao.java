@@ -5,12 +5,24 @@
  */
 package com.todoroo.astrid.dao;
 
+import android.content.ContentValues;
+
+import com.todoroo.andlib.data.AbstractModel;
 import com.todoroo.andlib.data.Property;
 import com.todoroo.andlib.data.TodorooCursor;
 import com.todoroo.andlib.sql.Criterion;
 import com.todoroo.andlib.sql.Query;
+import com.todoroo.astrid.dao.TaskListPositionDao.TaskListPositionCriteria;
 import com.todoroo.astrid.data.TagData;
 import com.todoroo.astrid.data.TaskListMetadata;
+import com.todoroo.astrid.data.TaskListPosition;
+import com.todoroo.astrid.subtasks.AstridOrderedListUpdater;
+import com.todoroo.astrid.subtasks.AstridOrderedListUpdater.Node;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -23,10 +35,15 @@ import javax.inject.Singleton;
 @Singleton
 public class TaskListMetadataDao extends RemoteModelDao<TaskListMetadata> {
 
+    private final Database database;
+    private final TaskListPositionDao taskListPositionDao;
+
     @Inject
-    public TaskListMetadataDao(Database database) {
+    public TaskListMetadataDao(Database database, TaskListPositionDao taskListPositionDao) {
         super(TaskListMetadata.class);
         setDatabase(database);
+        this.database = database;
+        this.taskListPositionDao = taskListPositionDao;
     }
 
     public TaskListMetadata fetchByTagId(String tagUuid, Property<?>... properties) {
@@ -35,5 +52,116 @@ public class TaskListMetadataDao extends RemoteModelDao<TaskListMetadata> {
         taskListMetadata.moveToFirst();
         return returnFetchResult(taskListMetadata);
     }
-}
 
+    @Override
+    public boolean createNew(final TaskListMetadata item) {
+        if (!taskIdsChanged(item)) {
+            return super.createNew(item);
+        }
+        final String taskIds = item.getTaskIDs();
+        final AtomicBoolean result = new AtomicBoolean(false);
+        database.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                result.set(TaskListMetadataDao.super.createNew(item));
+                if (result.get()) {
+                    writePositions(item.getId(), taskIds);
+                }
+            }
+        });
+        return result.get();
+    }
+
+    @Override
+    public boolean saveExisting(final TaskListMetadata item) {
+        if (!taskIdsChanged(item)) {
+            return super.saveExisting(item);
+        }
+        final String taskIds = item.getTaskIDs();
+        final AtomicBoolean result = new AtomicBoolean(false);
+        database.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                result.set(TaskListMetadataDao.super.saveExisting(item));
+                if (result.get()) {
+                    writePositions(item.getId(), taskIds);
+                }
+            }
+        });
+        return result.get();
+    }
+
+    /**
+     * Materialize task positions for lists saved before positions were
+     * stored. The list must have been read with its id and task ids.
+     */
+    public void ensurePositions(final TaskListMetadata list) {
+        if (list == null || list.getId() == AbstractModel.NO_ID ||
+                taskListPositionDao.countPositions(list.getId()) > 0) {
+            return;
+        }
+        database.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                writePositions(list.getId(), list.getTaskIDs());
+            }
+        });
+    }
+
+    /**
+     * Store new positions for nodes that moved and drop positions of nodes
+     * that were removed, leaving the serialized tree untouched
+     */
+    public void updatePositions(final long listId, final Map<Node, Integer> positions, final Set<String> removed) {
+        database.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                for (Map.Entry<Node, Integer> entry : positions.entrySet()) {
+                    Node node = entry.getKey();
+                    TaskListPosition taskListPosition = new TaskListPosition();
+                    taskListPosition.setPosition(entry.getValue());
+                    taskListPosition.setIndent(node.indent);
+                    if (taskListPositionDao.update(Criterion.and(TaskListPositionCriteria.byList(listId),
+                            TaskListPosition.TASK.eq(node.uuid)), taskListPosition) == 0) {
+                        taskListPosition.setList(listId);
+                        taskListPosition.setTask(node.uuid);
+                        taskListPositionDao.createNew(taskListPosition);
+                    }
+                }
+                if (!removed.isEmpty()) {
+                    taskListPositionDao.deleteWhere(Criterion.and(TaskListPositionCriteria.byList(listId),
+                            TaskListPosition.TASK.in(removed.toArray(new String[removed.size()]))));
+                }
+            }
+        });
+    }
+
+    private static boolean taskIdsChanged(TaskListMetadata item) {
+        ContentValues setValues = item.getSetValues();
+        return setValues != null && setValues.containsKey(TaskListMetadata.TASK_IDS.name);
+    }
+
+    private void writePositions(long listId, String taskIds) {
+        taskListPositionDao.deletePositions(listId);
+        if (taskIds == null) {
+            return;
+        }
+        Node root = AstridOrderedListUpdater.buildTreeModel(taskIds, null);
+        writePositions(listId, root, 0, new HashSet<String>());
+    }
+
+    private int writePositions(long listId, Node node, int position, Set<String> written) {
+        for (Node child : node.children) {
+            if (written.add(child.uuid)) {
+                TaskListPosition taskListPosition = new TaskListPosition();
+                taskListPosition.setList(listId);
+                taskListPosition.setTask(child.uuid);
+                taskListPosition.setPosition(position++ * TaskListPositionDao.POSITION_SPACING);
+                taskListPosition.setIndent(child.indent);
+                taskListPositionDao.createNew(taskListPosition);
+            }
+            position = writePositions(listId, child, position, written);
+        }
+        return position;
+    }
+}
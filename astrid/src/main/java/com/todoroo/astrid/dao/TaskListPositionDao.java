@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2012 Todoroo Inc
+ *
+ * See the file "LICENSE" for the full license governing this code.
+ */
+package com.todoroo.astrid.dao;
+
+import com.todoroo.andlib.data.DatabaseDao;
+import com.todoroo.andlib.data.TodorooCursor;
+import com.todoroo.andlib.sql.Criterion;
+import com.todoroo.andlib.sql.Field;
+import com.todoroo.andlib.sql.Order;
+import com.todoroo.andlib.sql.Query;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.data.TaskListPosition;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Data Access layer for {@link TaskListPosition}-related operations.
+ */
+@Singleton
+public class TaskListPositionDao extends DatabaseDao<TaskListPosition> {
+
+    /** Distance between consecutive positions when a list is written in full */
+    public static final int POSITION_SPACING = 1024;
+
+    @Inject
+    public TaskListPositionDao(Database database) {
+        super(TaskListPosition.class);
+        setDatabase(database);
+    }
+
+    /**
+     * @return number of tasks with a stored position in the given list
+     */
+    public int countPositions(long listId) {
+        return count(Query.select(TaskListPosition.ID).where(TaskListPositionCriteria.byList(listId)));
+    }
+
+    /**
+     * @return positions in the given list, in list order
+     */
+    public TodorooCursor<TaskListPosition> getPositions(long listId) {
+        return query(Query.select(TaskListPosition.TASK, TaskListPosition.POSITION, TaskListPosition.INDENT)
+                .where(TaskListPositionCriteria.byList(listId))
+                .orderBy(Order.asc(TaskListPosition.POSITION)));
+    }
+
+    public int deletePositions(long listId) {
+        return deleteWhere(TaskListPositionCriteria.byList(listId));
+    }
+
+    /**
+     * @return expression evaluating to a task's position in the given list,
+     * or null if the task has no position there
+     */
+    public static Field positionInList(long listId) {
+        return Field.field("(" + Query.select(TaskListPosition.POSITION)
+                .from(TaskListPosition.TABLE)
+                .where(Criterion.and(TaskListPositionCriteria.byList(listId),
+                        TaskListPosition.TASK.eq(Task.UUID))) + ")");
+    }
+
+    // --- SQL clause generators
+
+    /**
+     * Generates SQL clauses
+     */
+    public static class TaskListPositionCriteria {
+
+        /** Returns all positions in the given list */
+        public static Criterion byList(long listId) {
+            return TaskListPosition.LIST.eq(listId);
+        }
+    }
+}
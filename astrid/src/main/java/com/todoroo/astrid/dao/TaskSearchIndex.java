@@ -0,0 +1,160 @@
+package com.todoroo.astrid.dao;
+
+import com.todoroo.andlib.sql.Criterion;
+import com.todoroo.andlib.sql.Field;
+import com.todoroo.andlib.sql.Operator;
+import com.todoroo.andlib.sql.Order;
+import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.data.UserActivity;
+import com.todoroo.astrid.notes.NoteMetadata;
+
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Full text index over task titles, notes and comments. Rows live in an
+ * FTS3 table whose docid is the task id and are rewritten from the source
+ * tables whenever one of them changes.
+ */
+@Singleton
+public class TaskSearchIndex {
+
+    public static final String TABLE = "tasks_fts"; //$NON-NLS-1$
+
+    private static final String TITLE = "title"; //$NON-NLS-1$
+
+    private final Database database;
+
+    @Inject
+    public TaskSearchIndex(Database database) {
+        this.database = database;
+    }
+
+    /**
+     * Rewrite the index row of a task
+     */
+    public void indexTask(long taskId) {
+        database.executeUpdate(TABLE, indexSql(Task.ID.name + " = ?"), new Object[] { taskId });
+    }
+
+    /**
+     * Rewrite the index row of a task, if the uuid belongs to one
+     */
+    public void indexTask(String uuid) {
+        database.executeUpdate(TABLE, indexSql(Task.UUID.name + " = ?"), new Object[] { uuid });
+    }
+
+    /**
+     * Rewrite the index rows of the given tasks
+     */
+    public void indexTasks(List<Long> taskIds) {
+        database.executeUpdate(TABLE, indexSql(Task.ID.in(taskIds).toString()), null);
+    }
+
+    public void removeTask(long taskId) {
+        database.executeUpdate(TABLE, "DELETE FROM " + TABLE + " WHERE docid = ?", new Object[] { taskId });
+    }
+
+    /**
+     * Drop the index rows of tasks that no longer exist
+     */
+    public void removeDeletedTasks() {
+        database.executeUpdate(TABLE, "DELETE FROM " + TABLE + " WHERE docid NOT IN (SELECT " +
+                Task.ID.name + " FROM " + Task.TABLE.name + ")", null);
+    }
+
+    /**
+     * @return criterion matching tasks with a word starting with each word
+     * of the query in their title, notes or comments, or null if the query
+     * has no words. Words are only matched from their start, so "port" finds
+     * "portal" but not "report"
+     */
+    public static Criterion matches(String query) {
+        final String match = toMatchExpression(query);
+        if (match == null) {
+            return null;
+        }
+        return new Criterion(Operator.in) {
+            @Override
+            protected void populate(StringBuilder sb) {
+                sb.append(Task.ID).append(" IN ").append(matchingIds(TABLE, match));
+            }
+        };
+    }
+
+    /**
+     * @return order putting tasks whose title matches the query ahead of
+     * tasks that only match in notes or comments
+     */
+    public static Order rank(String query) {
+        String match = toMatchExpression(query);
+        if (match == null) {
+            return Order.asc(Task.TITLE);
+        }
+        Order order = Order.asc(Field.field("(CASE WHEN " + Task.ID + " IN " +
+                matchingIds(TITLE, match) + " THEN 0 ELSE 1 END)"));
+        order.addSecondaryExpression(Order.asc(Task.TITLE));
+        return order;
+    }
+
+    private static String matchingIds(String column, String match) {
+        return "(SELECT docid FROM " + TABLE + " WHERE " + column + " MATCH '" + match + "')";
+    }
+
+    /**
+     * Turn free text into a prefix query, one term per word. Only ASCII is
+     * lowercased, like the index tokenizer, which also keeps words such as
+     * OR from being read as operators.
+     */
+    static String toMatchExpression(String query) {
+        if (query == null) {
+            return null;
+        }
+        char[] chars = query.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            if (chars[i] >= 'A' && chars[i] <= 'Z') {
+                chars[i] += 'a' - 'A';
+            }
+        }
+        StringBuilder match = new StringBuilder();
+        for (String word : new String(chars).split("[^\\p{L}\\p{N}]+")) {
+            if (word.length() == 0) {
+                continue;
+            }
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append(word).append('*');
+        }
+        return match.length() == 0 ? null : match.toString();
+    }
+
+    static String createTableSql() {
+        return "CREATE VIRTUAL TABLE IF NOT EXISTS " + TABLE +
+                " USING fts3(" + TITLE + ", notes, comments)";
+    }
+
+    /**
+     * @return statement rewriting the index rows of tasks matching the
+     * where clause
+     */
+    static String indexSql(String where) {
+        String taskId = Task.TABLE.name + "." + Task.ID.name;
+        return "INSERT OR REPLACE INTO " + TABLE + "(docid, " + TITLE + ", notes, comments) SELECT " +
+                taskId + ", " +
+                Task.TITLE.name + ", " +
+                "COALESCE(" + Task.NOTES.name + ", '') || ' ' || COALESCE((SELECT group_concat(" +
+                NoteMetadata.BODY.name + ", ' ') FROM " + Metadata.TABLE.name + " WHERE " +
+                Metadata.TASK.name + " = " + taskId + " AND " +
+                Metadata.KEY.name + " = '" + NoteMetadata.METADATA_KEY + "' AND " +
+                Metadata.DELETION_DATE.name + " = 0), ''), " +
+                "COALESCE((SELECT group_concat(" + UserActivity.MESSAGE.name + ", ' ') FROM " +
+                UserActivity.TABLE.name + " WHERE " +
+                UserActivity.TARGET_ID.name + " = " + Task.TABLE.name + "." + Task.UUID.name + " AND " +
+                UserActivity.DELETED_AT.name + " = 0), '')" +
+                " FROM " + Task.TABLE.name + " WHERE " + where;
+    }
+}
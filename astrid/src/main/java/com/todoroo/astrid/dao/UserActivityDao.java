@@ -11,10 +11,13 @@ import javax.inject.Singleton;
 @Singleton
 public class UserActivityDao extends RemoteModelDao<UserActivity> {
 
+    private final TaskSearchIndex taskSearchIndex;
+
     @Inject
-    public UserActivityDao(Database database) {
+    public UserActivityDao(Database database, TaskSearchIndex taskSearchIndex) {
         super(UserActivity.class);
         setDatabase(database);
+        this.taskSearchIndex = taskSearchIndex;
     }
 
     @Override
@@ -22,7 +25,11 @@ public class UserActivityDao extends RemoteModelDao<UserActivity> {
         if (!item.containsValue(UserActivity.CREATED_AT)) {
             item.setCreatedAt(DateUtilities.now());
         }
-        return super.createNew(item);
+        boolean result = super.createNew(item);
+        if (result) {
+            updateSearchIndex(item);
+        }
+        return result;
     }
 
     @Override
@@ -31,6 +38,16 @@ public class UserActivityDao extends RemoteModelDao<UserActivity> {
         if(values == null || values.size() == 0) {
             return false;
         }
-        return super.saveExisting(item);
+        boolean result = super.saveExisting(item);
+        if (result) {
+            updateSearchIndex(item);
+        }
+        return result;
+    }
+
+    private void updateSearchIndex(UserActivity item) {
+        if (item.containsNonNullValue(UserActivity.TARGET_ID)) {
+            taskSearchIndex.indexTask(item.getValue(UserActivity.TARGET_ID));
+        }
     }
 }
@@ -10,6 +10,7 @@ import android.content.Intent;
 
 import com.todoroo.andlib.service.ContextManager;
 import com.todoroo.astrid.api.AstridApiConstants;
+import com.todoroo.astrid.api.AstridDetailExposer;
 import com.todoroo.astrid.data.Metadata;
 
 import org.tasks.injection.InjectingBroadcastReceiver;
@@ -23,7 +24,7 @@ import javax.inject.Inject;
  * @author Tim Su <tim@todoroo.com>
  *
  */
-public class GtasksDetailExposer extends InjectingBroadcastReceiver {
+public class GtasksDetailExposer extends InjectingBroadcastReceiver implements AstridDetailExposer {
 
     @Inject GtasksMetadataService gtasksMetadataService;
     @Inject GtasksListService gtasksListService;
@@ -35,17 +36,12 @@ public class GtasksDetailExposer extends InjectingBroadcastReceiver {
 
         ContextManager.setContext(context);
 
-        // if we aren't logged in, don't expose features
-        if(!gtasksPreferenceService.isLoggedIn()) {
-            return;
-        }
-
         long taskId = intent.getLongExtra(AstridApiConstants.EXTRAS_TASK_ID, -1);
         if(taskId == -1) {
             return;
         }
 
-        String taskDetail = getTaskDetails(taskId);
+        String taskDetail = getTaskDetails(context, taskId);
         if(taskDetail == null) {
             return;
         }
@@ -57,7 +53,13 @@ public class GtasksDetailExposer extends InjectingBroadcastReceiver {
         context.sendBroadcast(broadcastIntent, AstridApiConstants.PERMISSION_READ);
     }
 
-    private String getTaskDetails(long id) {
+    @Override
+    public String getTaskDetails(Context context, long id) {
+        // if we aren't logged in, don't expose features
+        if(!gtasksPreferenceService.isLoggedIn()) {
+            return null;
+        }
+
         Metadata metadata = gtasksMetadataService.getTaskMetadata(id);
         if(metadata == null) {
             return null;
@@ -14,7 +14,6 @@ import android.os.Bundle;
 import com.todoroo.andlib.data.AbstractModel;
 import com.todoroo.andlib.service.ContextManager;
 import com.todoroo.andlib.sql.Criterion;
-import com.todoroo.andlib.sql.Functions;
 import com.todoroo.andlib.sql.Join;
 import com.todoroo.andlib.sql.Order;
 import com.todoroo.andlib.sql.QueryTemplate;
@@ -65,7 +64,7 @@ public class GtasksFilterExposer extends InjectingBroadcastReceiver implements A
                         MetadataCriteria.withKey(GtasksMetadata.METADATA_KEY),
                         TaskCriteria.notDeleted(),
                         GtasksMetadata.LIST_ID.eq(list.getValue(GtasksList.REMOTE_ID)))).orderBy(
-                                Order.asc(Functions.cast(GtasksMetadata.ORDER, "LONG"))), //$NON-NLS-1$
+                                Order.asc(GtasksMetadata.ORDER)),
                 values);
         filter.customTaskList = new ComponentName(context, GtasksListFragment.class);
         Bundle extras = new Bundle();
@@ -40,7 +40,16 @@ public class GtasksMetadata {
     public static final IntegerProperty INDENT = new IntegerProperty(Metadata.TABLE,
             Metadata.VALUE4.name);
 
+    /** position in list, stored as an integer so lists sort from an index */
     public static final LongProperty ORDER = new LongProperty(Metadata.TABLE,
+            Metadata.ORDINAL.name);
+
+    /**
+     * column storing {@link #ORDER} before database version 42. Still
+     * written with it by {@link com.todoroo.astrid.dao.MetadataDao} for
+     * content provider readers
+     */
+    public static final LongProperty LEGACY_ORDER = new LongProperty(Metadata.TABLE,
             Metadata.VALUE5.name);
 
     public static final LongProperty GTASKS_ORDER = new LongProperty(Metadata.TABLE,
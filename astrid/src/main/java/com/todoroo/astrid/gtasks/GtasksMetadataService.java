@@ -10,8 +10,6 @@ import android.text.TextUtils;
 import com.todoroo.andlib.data.AbstractModel;
 import com.todoroo.andlib.data.TodorooCursor;
 import com.todoroo.andlib.sql.Criterion;
-import com.todoroo.andlib.sql.Field;
-import com.todoroo.andlib.sql.Functions;
 import com.todoroo.andlib.sql.Order;
 import com.todoroo.andlib.sql.Query;
 import com.todoroo.astrid.dao.MetadataDao;
@@ -106,10 +104,9 @@ public final class GtasksMetadataService extends SyncMetadataService<GtasksTaskC
     }
 
     public void iterateThroughList(String listId, OrderedListIterator iterator, long startAtOrder, boolean reverse) {
-        Field orderField = Functions.cast(GtasksMetadata.ORDER, "LONG");
-        Order order = reverse ? Order.desc(orderField) : Order.asc(orderField);
-        Criterion startAtCriterion = reverse ?  Functions.cast(GtasksMetadata.ORDER, "LONG").lt(startAtOrder) :
-            Functions.cast(GtasksMetadata.ORDER, "LONG").gt(startAtOrder - 1);
+        Order order = reverse ? Order.desc(GtasksMetadata.ORDER) : Order.asc(GtasksMetadata.ORDER);
+        Criterion startAtCriterion = reverse ?  GtasksMetadata.ORDER.lt(startAtOrder) :
+            GtasksMetadata.ORDER.gt(startAtOrder - 1);
 
         Query query = Query.select(Metadata.PROPERTIES).where(Criterion.and(
                         MetadataCriteria.withKey(GtasksMetadata.METADATA_KEY),
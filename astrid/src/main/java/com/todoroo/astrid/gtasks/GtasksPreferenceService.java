@@ -26,6 +26,11 @@ public class GtasksPreferenceService extends SyncProviderUtilities {
 
     private static final String PREF_DEFAULT_LIST = IDENTIFIER + "_defaultlist"; //$NON-NLS-1$
     private static final String PREF_USER_NAME = IDENTIFIER + "_user"; //$NON-NLS-1$
+    private static final String PREF_PAGE_TOKEN = IDENTIFIER + "_page_token_"; //$NON-NLS-1$
+    private static final String PREF_SYNC_PARALLELISM = IDENTIFIER + "_sync_parallelism"; //$NON-NLS-1$
+
+    /** Number of lists synchronized at once unless configured otherwise */
+    public static final int DEFAULT_SYNC_PARALLELISM = 4;
 
     @Inject
     public GtasksPreferenceService(Preferences preferences) {
@@ -57,4 +62,33 @@ public class GtasksPreferenceService extends SyncProviderUtilities {
     public void setUserName(String userName) {
         preferences.setString(PREF_USER_NAME, userName);
     }
+
+    /**
+     * @return number of lists to download and merge at once
+     */
+    public int getSyncParallelism() {
+        return Math.max(1, preferences.getInt(PREF_SYNC_PARALLELISM, DEFAULT_SYNC_PARALLELISM));
+    }
+
+    public void setSyncParallelism(int lists) {
+        preferences.setInt(PREF_SYNC_PARALLELISM, lists);
+    }
+
+    /**
+     * @return token of the next page to download for a list, or null if the
+     * last download finished or was started from a different sync date
+     */
+    public String getPageToken(String listId, long lastSyncDate) {
+        String value = preferences.getStringValue(PREF_PAGE_TOKEN + listId);
+        String prefix = lastSyncDate + ":"; //$NON-NLS-1$
+        return value != null && value.startsWith(prefix) ? value.substring(prefix.length()) : null;
+    }
+
+    public void setPageToken(String listId, long lastSyncDate, String pageToken) {
+        if (pageToken == null) {
+            preferences.clear(PREF_PAGE_TOKEN + listId);
+        } else {
+            preferences.setString(PREF_PAGE_TOKEN + listId, lastSyncDate + ":" + pageToken); //$NON-NLS-1$
+        }
+    }
 }
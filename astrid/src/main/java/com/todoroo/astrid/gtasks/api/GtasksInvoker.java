@@ -4,9 +4,15 @@ import android.content.Context;
 
 import com.google.api.client.extensions.android.http.AndroidHttp;
 import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.http.HttpHeaders;
 import com.google.api.client.http.HttpRequest;
 import com.google.api.client.http.HttpRequestInitializer;
 import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.HttpStatusCodes;
+import com.google.api.client.http.HttpTransport;
 import com.google.api.client.json.GenericJson;
 import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.services.tasks.Tasks;
@@ -15,6 +21,7 @@ import com.google.api.services.tasks.model.Task;
 import com.google.api.services.tasks.model.TaskList;
 import com.google.api.services.tasks.model.TaskLists;
 import com.todoroo.andlib.service.ContextManager;
+import com.todoroo.andlib.utility.Pair;
 import com.todoroo.astrid.gtasks.auth.GtasksTokenValidator;
 
 import org.slf4j.Logger;
@@ -22,6 +29,7 @@ import org.slf4j.LoggerFactory;
 import org.tasks.R;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Wrapper around the official Google Tasks API to simplify common operations. In the case
@@ -42,7 +50,17 @@ public class GtasksInvoker {
 
     public static final String AUTH_TOKEN_TYPE = "Manage your tasks"; //"oauth2:https://www.googleapis.com/auth/tasks";
 
+    /** Maximum number of tasks in a page, the most the API will return */
+    public static final long PAGE_SIZE = 100L;
+
+    /** Maximum number of requests sent in one batch */
+    public static final int MAX_BATCH_SIZE = 50;
+
     public GtasksInvoker(GtasksTokenValidator gtasksTokenValidator, String authToken) {
+        this(gtasksTokenValidator, authToken, AndroidHttp.newCompatibleTransport());
+    }
+
+    GtasksInvoker(GtasksTokenValidator gtasksTokenValidator, String authToken, HttpTransport transport) {
         this.gtasksTokenValidator = gtasksTokenValidator;
         this.token = authToken;
 
@@ -56,7 +74,7 @@ public class GtasksInvoker {
                 request.setReadTimeout(0); // infinite
             }
         };
-        service = new Tasks.Builder(AndroidHttp.newCompatibleTransport(), new GsonFactory(), httpRequestInitializer)
+        service = new Tasks.Builder(transport, new GsonFactory(), httpRequestInitializer)
                 .setApplicationName("Tasks")
                 .build();
     }
@@ -110,13 +128,19 @@ public class GtasksInvoker {
                 .get(id));
     }
 
-    public com.google.api.services.tasks.model.Tasks getAllGtasksFromListId(String listId, boolean includeDeleted, boolean includeHidden, long lastSyncDate) throws IOException {
+    /**
+     * Fetch one page of tasks updated since the given date. Pass the next
+     * page token of the previous page, or null for the first page.
+     */
+    public com.google.api.services.tasks.model.Tasks getGtasksPage(String listId, boolean includeDeleted, boolean includeHidden, long lastSyncDate, String pageToken) throws IOException {
         return execute(service
                 .tasks()
                 .list(listId)
                 .setShowDeleted(includeDeleted)
                 .setShowHidden(includeHidden)
-                .setUpdatedMin(GtasksApiUtilities.unixTimeToGtasksCompletionTime(lastSyncDate).toStringRfc3339()));
+                .setUpdatedMin(GtasksApiUtilities.unixTimeToGtasksCompletionTime(lastSyncDate).toStringRfc3339())
+                .setMaxResults(PAGE_SIZE)
+                .setPageToken(pageToken));
     }
 
     public Task createGtask(String listId, Task task, String parent, String priorSiblingId) throws IOException {
@@ -133,6 +157,39 @@ public class GtasksInvoker {
                 .update(listId, task.getId(), task));
     }
 
+    /**
+     * Update several tasks in one batch request
+     *
+     * @param updates list id and task of each update
+     * @return HTTP status code of each update, in the order given
+     */
+    public int[] updateGtasks(List<Pair<String, Task>> updates) throws IOException {
+        final int[] statusCodes = new int[updates.size()];
+        BatchRequest batch = service.batch();
+        for (int i = 0; i < updates.size(); i++) {
+            final int index = i;
+            Pair<String, Task> update = updates.get(i);
+            service.tasks()
+                    .update(update.getLeft(), update.getRight().getId(), update.getRight())
+                    .setKey(key)
+                    .queue(batch, new JsonBatchCallback<Task>() {
+                        @Override
+                        public void onSuccess(Task task, HttpHeaders responseHeaders) {
+                            statusCodes[index] = HttpStatusCodes.STATUS_CODE_OK;
+                        }
+
+                        @Override
+                        public void onFailure(GoogleJsonError error, HttpHeaders responseHeaders) {
+                            log.error("Batched update failed: {}", error.getMessage());
+                            statusCodes[index] = error.getCode();
+                        }
+                    });
+        }
+        log.debug("updateGtasks batch of {}", updates.size());
+        batch.execute();
+        return statusCodes;
+    }
+
     public Task moveGtask(String listId, String taskId, String parentId, String previousId) throws IOException {
         return execute(service
                 .tasks()
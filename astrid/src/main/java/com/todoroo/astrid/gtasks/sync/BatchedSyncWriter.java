@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2012 Todoroo Inc
+ *
+ * See the file "LICENSE" for the full license governing this code.
+ */
+package com.todoroo.astrid.gtasks.sync;
+
+import com.todoroo.astrid.dao.Database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Runs the database writes of concurrently synchronized lists on a single
+ * thread. Writes queued while a transaction is running are committed
+ * together in the next one. If any of them fails, the batch is rolled back
+ * and its writes are run again in a transaction each, so only the failed
+ * write is lost.
+ */
+@Singleton
+public class BatchedSyncWriter {
+
+    private static final class Write<T> {
+        final Callable<T> callable;
+        final CountDownLatch done = new CountDownLatch(1);
+        T result;
+        RuntimeException failure;
+        boolean committed = false;
+
+        Write(Callable<T> callable) {
+            this.callable = callable;
+        }
+
+        void call() {
+            try {
+                result = callable.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private final Database database;
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(0, 1, 30L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>());
+    private final List<Write<?>> queue = new ArrayList<>();
+    private boolean writing = false;
+
+    @Inject
+    public BatchedSyncWriter(Database database) {
+        this.database = database;
+    }
+
+    /**
+     * Queue a write and wait until its transaction has been committed
+     *
+     * @return result of the write
+     */
+    public <T> T write(Callable<T> callable) throws InterruptedException {
+        Write<T> write = new Write<>(callable);
+        synchronized (this) {
+            queue.add(write);
+            if (!writing) {
+                writing = true;
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        writeQueued();
+                    }
+                });
+            }
+        }
+        write.done.await();
+        if (write.failure != null) {
+            throw write.failure;
+        }
+        return write.result;
+    }
+
+    private void writeQueued() {
+        try {
+            while (true) {
+                List<Write<?>> batch;
+                synchronized (this) {
+                    if (queue.isEmpty()) {
+                        return;
+                    }
+                    batch = new ArrayList<>(queue);
+                    queue.clear();
+                }
+                try {
+                    commit(batch);
+                } catch (RuntimeException e) {
+                    if (batch.size() == 1) {
+                        batch.get(0).failure = e;
+                    } else {
+                        for (Write<?> write : batch) {
+                            try {
+                                commit(Collections.<Write<?>>singletonList(write));
+                            } catch (RuntimeException failure) {
+                                write.failure = failure;
+                            }
+                        }
+                    }
+                } finally {
+                    for (Write<?> write : batch) {
+                        if (!write.committed && write.failure == null) {
+                            write.failure = new IllegalStateException("Write was not committed"); //$NON-NLS-1$
+                        }
+                        write.done.countDown();
+                    }
+                }
+            }
+        } finally {
+            synchronized (this) {
+                writing = false;
+                if (!queue.isEmpty()) {
+                    // only reached after an error, don't leave the queued writes waiting
+                    writing = true;
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            writeQueued();
+                        }
+                    });
+                }
+            }
+        }
+    }
+
+    /**
+     * Run writes in one transaction, rolling it back if any of them throws
+     */
+    private void commit(final List<Write<?>> batch) {
+        database.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                for (Write<?> write : batch) {
+                    write.call();
+                }
+            }
+        });
+        for (Write<?> write : batch) {
+            write.committed = true;
+        }
+    }
+}
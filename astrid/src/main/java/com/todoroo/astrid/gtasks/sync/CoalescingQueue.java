@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2012 Todoroo Inc
+ *
+ * See the file "LICENSE" for the full license governing this code.
+ */
+package com.todoroo.astrid.gtasks.sync;
+
+import com.todoroo.andlib.utility.DateUtilities;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Queue that holds items until they stop changing. An item offered with
+ * the key of a queued item replaces it in place, and is handed out once
+ * its key has been quiet for the debounce delay, or has waited the maximum
+ * delay. Items are handed out in queue order, so an item is never taken
+ * before one queued ahead of it.
+ */
+class CoalescingQueue<T> {
+
+    private static class Entry<T> {
+        final long queued;
+        final boolean immediate;
+        long updated;
+        T item;
+
+        Entry(long queued, boolean immediate) {
+            this.queued = queued;
+            this.immediate = immediate;
+        }
+    }
+
+    private final LinkedHashMap<Object, Entry<T>> entries = new LinkedHashMap<>();
+    private final long debounceMillis;
+    private final long maxDelayMillis;
+
+    CoalescingQueue(long debounceMillis, long maxDelayMillis) {
+        this.debounceMillis = debounceMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * Queue an item, replacing the queued item with the same key
+     */
+    synchronized void offer(Object key, T item) {
+        long now = DateUtilities.now();
+        Entry<T> entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry<>(now, false);
+            entries.put(key, entry);
+        }
+        entry.item = item;
+        entry.updated = now;
+        notifyAll();
+    }
+
+    /**
+     * Queue an item that is handed out as soon as the items ahead of it are
+     */
+    synchronized void offerNow(T item) {
+        Entry<T> entry = new Entry<>(DateUtilities.now(), true);
+        entry.item = item;
+        entries.put(new Object(), entry);
+        notifyAll();
+    }
+
+    /**
+     * Wait for items to become ready
+     *
+     * @return the ready items at the front of the queue, in order
+     */
+    synchronized List<T> take() throws InterruptedException {
+        while (true) {
+            long now = DateUtilities.now();
+            long wait = 0;
+            List<T> ready = new ArrayList<>();
+            Iterator<Entry<T>> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                Entry<T> entry = iterator.next();
+                long readyAt = readyAt(entry);
+                if (readyAt > now) {
+                    wait = readyAt - now;
+                    break;
+                }
+                ready.add(entry.item);
+                iterator.remove();
+            }
+            if (!ready.isEmpty()) {
+                return ready;
+            }
+            wait(wait);
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private long readyAt(Entry<T> entry) {
+        if (entry.immediate) {
+            return entry.queued;
+        }
+        return Math.min(entry.updated + debounceMillis, entry.queued + maxDelayMillis);
+    }
+}
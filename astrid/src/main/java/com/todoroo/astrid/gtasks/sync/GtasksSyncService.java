@@ -8,10 +8,11 @@ package com.todoroo.astrid.gtasks.sync;
 import android.content.ContentValues;
 import android.text.TextUtils;
 
+import com.google.api.client.http.HttpStatusCodes;
 import com.todoroo.andlib.data.DatabaseDao.ModelUpdateListener;
 import com.todoroo.andlib.data.Property;
-import com.todoroo.andlib.utility.AndroidUtilities;
 import com.todoroo.andlib.utility.DateUtilities;
+import com.todoroo.andlib.utility.Pair;
 import com.todoroo.astrid.dao.MetadataDao;
 import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.data.Metadata;
@@ -32,7 +33,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Semaphore;
 
 import javax.inject.Inject;
@@ -67,7 +69,17 @@ public class GtasksSyncService {
         this.gtasksMetadataFactory = gtasksMetadataFactory;
     }
 
-    private final LinkedBlockingQueue<SyncOnSaveOperation> operationQueue = new LinkedBlockingQueue<>();
+    /** Changes are pushed once a task has gone this long without another change */
+    static final long PUSH_DEBOUNCE_MILLIS = 1000L;
+
+    /** Longest a change waits while a task keeps changing */
+    static final long PUSH_MAX_DELAY_MILLIS = 5000L;
+
+    private final CoalescingQueue<SyncOnSaveOperation> operationQueue =
+            new CoalescingQueue<>(PUSH_DEBOUNCE_MILLIS, PUSH_MAX_DELAY_MILLIS);
+
+    private GtasksInvoker invoker;
+    private String invokerToken;
 
     private abstract class SyncOnSaveOperation {
         abstract public void op(GtasksInvoker invoker) throws IOException;
@@ -75,7 +87,6 @@ public class GtasksSyncService {
 
     private class TaskPushOp extends SyncOnSaveOperation {
         protected Task model;
-        protected long creationDate = DateUtilities.now();
 
         public TaskPushOp(Task model) {
             this.model = model;
@@ -83,9 +94,6 @@ public class GtasksSyncService {
 
         @Override
         public void op(GtasksInvoker invoker) throws IOException {
-            if(DateUtilities.now() - creationDate < 1000) {
-                AndroidUtilities.sleepDeep(1000 - (DateUtilities.now() - creationDate));
-            }
             pushTaskOnSave(model, model.getMergedValues(), invoker);
         }
     }
@@ -117,7 +125,7 @@ public class GtasksSyncService {
     }
 
     public void initialize() {
-        new OperationPushThread(operationQueue).start();
+        new OperationPushThread().start();
 
         taskDao.addListener(new ModelUpdateListener<Task>() {
             @Override
@@ -139,41 +147,69 @@ public class GtasksSyncService {
                 }
 
                 Task toPush = taskDao.fetch(model.getId(), TASK_PROPERTIES);
-                operationQueue.offer(new TaskPushOp(toPush));
+                operationQueue.offer("push:" + model.getId(), new TaskPushOp(toPush)); //$NON-NLS-1$
             }
         });
     }
 
     private class OperationPushThread extends Thread {
-        private final LinkedBlockingQueue<SyncOnSaveOperation> queue;
-
-        public OperationPushThread(LinkedBlockingQueue<SyncOnSaveOperation> queue) {
-            this.queue = queue;
-        }
-
         @Override
         public void run() {
             while (true) {
-                SyncOnSaveOperation op;
+                List<SyncOnSaveOperation> ops;
                 try {
-                    op = queue.take();
+                    ops = operationQueue.take();
                 } catch (InterruptedException e) {
                     log.error(e.getMessage(), e);
                     continue;
                 }
-                try {
-                    GtasksInvoker invoker = new GtasksInvoker(gtasksTokenValidator, gtasksPreferenceService.getToken());
-                    op.op(invoker);
-                } catch (IOException e) {
-                    log.error(e.getMessage(), e);
+                GtasksInvoker invoker = getInvoker();
+                // consecutive task pushes are sent together, other operations in order
+                List<Task> pushes = new ArrayList<>();
+                for (SyncOnSaveOperation op : ops) {
+                    if (op instanceof TaskPushOp) {
+                        pushes.add(((TaskPushOp) op).model);
+                        continue;
+                    }
+                    pushAll(pushes, invoker);
+                    try {
+                        op.op(invoker);
+                    } catch (IOException e) {
+                        log.error(e.getMessage(), e);
+                    }
                 }
+                pushAll(pushes, invoker);
+            }
+        }
+
+        private void pushAll(List<Task> pushes, GtasksInvoker invoker) {
+            if (pushes.isEmpty()) {
+                return;
+            }
+            try {
+                pushTasksOnSave(pushes, invoker);
+            } catch (IOException e) {
+                log.error(e.getMessage(), e);
             }
+            pushes.clear();
+        }
+    }
+
+    /**
+     * @return invoker for the current token, reused until the token changes
+     */
+    private synchronized GtasksInvoker getInvoker() {
+        String token = gtasksPreferenceService.getToken();
+        if (invoker == null || !TextUtils.equals(token, invokerToken)) {
+            invoker = new GtasksInvoker(gtasksTokenValidator, token);
+            invokerToken = token;
         }
+        return invoker;
     }
 
     public void waitUntilEmpty() {
         Semaphore sema = new Semaphore(0);
-        operationQueue.offer(new NotifyOp(sema));
+        operationQueue.offerNow(new NotifyOp(sema));
         try {
             sema.acquire();
         } catch (InterruptedException e) {
@@ -218,13 +254,85 @@ public class GtasksSyncService {
             return;
         }
 
-        operationQueue.offer(new MoveOp(metadata));
+        operationQueue.offer("move:" + metadata.getTask(), new MoveOp(metadata)); //$NON-NLS-1$
+    }
+
+    /** A change to send for a task, and the local state to save once it was sent */
+    private static class PushRequest {
+        final Task task;
+        final Metadata gtasksMetadata;
+        final String listId;
+        final com.google.api.services.tasks.model.Task remoteModel;
+        final boolean newlyCreated;
+
+        PushRequest(Task task, Metadata gtasksMetadata, String listId,
+                    com.google.api.services.tasks.model.Task remoteModel, boolean newlyCreated) {
+            this.task = task;
+            this.gtasksMetadata = gtasksMetadata;
+            this.listId = listId;
+            this.remoteModel = remoteModel;
+            this.newlyCreated = newlyCreated;
+        }
     }
 
     /**
      * Synchronize with server when data changes
      */
     public void pushTaskOnSave(Task task, ContentValues values, GtasksInvoker invoker) throws IOException {
+        PushRequest request = preparePush(task, values, invoker);
+        if (request != null) {
+            sendPush(request, invoker);
+        }
+    }
+
+    /**
+     * Push all changed values of several tasks. Tasks that were pushed
+     * before are updated in batches, new tasks are created one at a time
+     */
+    public void pushTasksOnSave(List<Task> tasks, GtasksInvoker invoker) throws IOException {
+        List<PushRequest> updates = new ArrayList<>();
+        for (Task task : tasks) {
+            PushRequest request = preparePush(task, task.getMergedValues(), invoker);
+            if (request == null) {
+                continue;
+            }
+            if (request.newlyCreated) {
+                sendPush(request, invoker);
+            } else {
+                updates.add(request);
+            }
+        }
+        for (int start = 0; start < updates.size(); start += GtasksInvoker.MAX_BATCH_SIZE) {
+            List<PushRequest> batch = updates.subList(start,
+                    Math.min(updates.size(), start + GtasksInvoker.MAX_BATCH_SIZE));
+            if (batch.size() == 1) {
+                sendPush(batch.get(0), invoker);
+                continue;
+            }
+            List<Pair<String, com.google.api.services.tasks.model.Task>> remoteModels = new ArrayList<>();
+            for (PushRequest request : batch) {
+                remoteModels.add(new Pair<>(request.listId, request.remoteModel));
+            }
+            int[] statusCodes = invoker.updateGtasks(remoteModels);
+            for (int i = 0; i < batch.size(); i++) {
+                PushRequest request = batch.get(i);
+                if (statusCodes[i] == HttpStatusCodes.STATUS_CODE_OK) {
+                    pushed(request);
+                } else if (statusCodes[i] == HttpStatusCodes.STATUS_CODE_NOT_FOUND) {
+                    log.error("Received 404 response, deleting {}", request.gtasksMetadata);
+                    metadataDao.delete(request.gtasksMetadata.getId());
+                } else {
+                    // retry on its own, which revalidates the token if needed
+                    sendPush(request, invoker);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the change to send, or null if there is nothing to send
+     */
+    private PushRequest preparePush(Task task, ContentValues values, GtasksInvoker invoker) throws IOException {
         Metadata gtasksMetadata = gtasksMetadataService.getTaskMetadata(task.getId());
         com.google.api.services.tasks.model.Task remoteModel;
         boolean newlyCreated = false;
@@ -264,7 +372,7 @@ public class GtasksSyncService {
         //deleted tasks
         if (newlyCreated &&
                 (!values.containsKey(Task.TITLE.name) || TextUtils.isEmpty(task.getTitle()) || task.getDeletionDate() > 0)) {
-            return;
+            return null;
         }
 
         //Update the remote model's changed properties
@@ -291,9 +399,15 @@ public class GtasksSyncService {
             }
         }
 
-        if (!newlyCreated) {
+        return new PushRequest(task, gtasksMetadata, listId, remoteModel, newlyCreated);
+    }
+
+    private void sendPush(PushRequest request, GtasksInvoker invoker) throws IOException {
+        Metadata gtasksMetadata = request.gtasksMetadata;
+        String listId = request.listId;
+        if (!request.newlyCreated) {
             try {
-                invoker.updateGtask(listId, remoteModel);
+                invoker.updateGtask(listId, request.remoteModel);
             } catch(HttpNotFoundException e) {
                 log.error("Received 404 response, deleting {}", gtasksMetadata);
                 metadataDao.delete(gtasksMetadata.getId());
@@ -303,7 +417,7 @@ public class GtasksSyncService {
             String parent = gtasksMetadataService.getRemoteParentId(gtasksMetadata);
             String priorSibling = gtasksMetadataService.getRemoteSiblingId(listId, gtasksMetadata);
 
-            com.google.api.services.tasks.model.Task created = invoker.createGtask(listId, remoteModel, parent, priorSibling);
+            com.google.api.services.tasks.model.Task created = invoker.createGtask(listId, request.remoteModel, parent, priorSibling);
 
             if (created != null) {
                 //Update the metadata for the newly created task
@@ -313,7 +427,15 @@ public class GtasksSyncService {
                 return;
             }
         }
+        pushed(request);
+    }
 
+    /**
+     * Record that a change was sent
+     */
+    private void pushed(PushRequest request) {
+        Task task = request.task;
+        Metadata gtasksMetadata = request.gtasksMetadata;
         task.setModificationDate(DateUtilities.now());
         gtasksMetadata.setValue(GtasksMetadata.LAST_SYNC, DateUtilities.now() + 1000L);
         metadataService.save(gtasksMetadata);
@@ -322,8 +444,6 @@ public class GtasksSyncService {
     }
 
     public void pushMetadataOnSave(Metadata model, GtasksInvoker invoker) throws IOException {
-        AndroidUtilities.sleepDeep(1000L);
-
         String taskId = model.getValue(GtasksMetadata.ID);
         String listId = model.getValue(GtasksMetadata.LIST_ID);
         String parent = gtasksMetadataService.getRemoteParentId(model);
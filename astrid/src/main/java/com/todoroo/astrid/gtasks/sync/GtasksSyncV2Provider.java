@@ -8,6 +8,7 @@ package com.todoroo.astrid.gtasks.sync;
 import android.content.Context;
 import android.text.TextUtils;
 
+import com.google.api.client.http.HttpResponseException;
 import com.google.api.services.tasks.model.Tasks;
 import com.todoroo.andlib.data.AbstractModel;
 import com.todoroo.andlib.data.TodorooCursor;
@@ -43,8 +44,14 @@ import org.tasks.preferences.Preferences;
 import org.tasks.sync.SyncExecutor;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
@@ -69,12 +76,14 @@ public class GtasksSyncV2Provider extends SyncV2Provider {
     private final GtasksTokenValidator gtasksTokenValidator;
     private final GtasksMetadata gtasksMetadataFactory;
     private final SyncExecutor executor;
+    private final BatchedSyncWriter writer;
 
     @Inject
     public GtasksSyncV2Provider(TaskService taskService, StoreObjectDao storeObjectDao, GtasksPreferenceService gtasksPreferenceService,
                                 GtasksSyncService gtasksSyncService, GtasksListService gtasksListService, GtasksMetadataService gtasksMetadataService,
                                 GtasksTaskListUpdater gtasksTaskListUpdater, @ForApplication Context context, Preferences preferences,
-                                GtasksTokenValidator gtasksTokenValidator, GtasksMetadata gtasksMetadata, SyncExecutor executor) {
+                                GtasksTokenValidator gtasksTokenValidator, GtasksMetadata gtasksMetadata, SyncExecutor executor,
+                                BatchedSyncWriter writer) {
         this.taskService = taskService;
         this.storeObjectDao = storeObjectDao;
         this.gtasksPreferenceService = gtasksPreferenceService;
@@ -87,6 +96,7 @@ public class GtasksSyncV2Provider extends SyncV2Provider {
         this.gtasksTokenValidator = gtasksTokenValidator;
         this.gtasksMetadataFactory = gtasksMetadata;
         this.executor = executor;
+        this.writer = writer;
     }
 
     @Override
@@ -132,42 +142,85 @@ public class GtasksSyncV2Provider extends SyncV2Provider {
                     return;
                 }
 
-                final AtomicInteger finisher = new AtomicInteger(lists.length);
-
                 // TODO: Check timestamps from invoker.allGtaskLists and pare down lists to sync
 
-                for (final StoreObject list : lists) {
-                    executor.execute(callback, new Runnable() {
-                        @Override
-                        public void run() {
-                            synchronizeListHelper(list, invoker, handler);
-                            if (finisher.decrementAndGet() == 0) {
-                                pushUpdated(invoker);
-                                finishSync(callback);
+                int workers = Math.min(lists.length, Math.min(SyncExecutor.MAX_THREADS,
+                        gtasksPreferenceService.getSyncParallelism()));
+                synchronizeLists(executor, callback, lists, workers, new ListSynchronizer() {
+                    @Override
+                    public void synchronize(StoreObject list) {
+                        synchronizeListHelper(list, invoker, handler, callback);
+                    }
+                }, new Runnable() {
+                    @Override
+                    public void run() {
+                        pushUpdated(invoker);
+                        finishSync(callback);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Synchronizes one list
+     */
+    interface ListSynchronizer {
+        void synchronize(StoreObject list);
+    }
+
+    /**
+     * Synchronize lists on several workers of the executor, each taking lists
+     * off a shared queue until it is empty, and run <code>onFinished</code>
+     * after the last one. A list that fails is skipped, so it stops neither
+     * the other lists nor the finishing step.
+     */
+    static void synchronizeLists(SyncExecutor executor, SyncResultCallback callback, StoreObject[] lists,
+                                 int workers, final ListSynchronizer synchronizer, final Runnable onFinished) {
+        final Queue<StoreObject> queue = new ConcurrentLinkedQueue<>(Arrays.asList(lists));
+        final AtomicInteger finisher = new AtomicInteger(workers);
+        for (int i = 0; i < workers; i++) {
+            executor.execute(callback, new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        StoreObject list;
+                        while ((list = queue.poll()) != null) {
+                            try {
+                                synchronizer.synchronize(list);
+                            } catch (RuntimeException e) {
+                                log.error(e.getMessage(), e);
                             }
                         }
-                    });
+                    } finally {
+                        if (finisher.decrementAndGet() == 0) {
+                            onFinished.run();
+                        }
+                    }
                 }
-            }
-        });
+            });
+        }
     }
 
-    private synchronized void pushUpdated(GtasksInvoker invoker) {
+    private void pushUpdated(GtasksInvoker invoker) {
         TodorooCursor<Task> queued = taskService.query(Query.select(Task.PROPERTIES).
                 join(Join.left(Metadata.TABLE, Criterion.and(MetadataCriteria.withKey(GtasksMetadata.METADATA_KEY), Task.ID.eq(Metadata.TASK)))).where(
                         Criterion.or(Task.MODIFICATION_DATE.gt(GtasksMetadata.LAST_SYNC), Metadata.KEY.isNull())));
         pushTasks(queued, invoker);
     }
 
-    private synchronized void pushTasks(TodorooCursor<Task> queued, GtasksInvoker invoker) {
+    private void pushTasks(TodorooCursor<Task> queued, GtasksInvoker invoker) {
         try {
-            Task task = new Task();
+            List<Task> tasks = new ArrayList<>();
             for (queued.moveToFirst(); !queued.isAfterLast(); queued.moveToNext()) {
-                task.readFromCursor(queued);
-                try {
-                    gtasksSyncService.pushTaskOnSave(task, task.getMergedValues(), invoker);
-                } catch (IOException e) {
-                    handler.handleException("gtasks-sync-io", e); //$NON-NLS-1$
+                tasks.add(new Task(queued));
+                if (tasks.size() == GtasksInvoker.MAX_BATCH_SIZE || queued.isLast()) {
+                    try {
+                        gtasksSyncService.pushTasksOnSave(tasks, invoker);
+                    } catch (IOException e) {
+                        handler.handleException("gtasks-sync-io", e); //$NON-NLS-1$
+                    }
+                    tasks.clear();
                 }
             }
         } finally {
@@ -194,7 +247,7 @@ public class GtasksSyncV2Provider extends SyncV2Provider {
                     String authToken = getValidatedAuthToken();
                     gtasksSyncService.waitUntilEmpty();
                     final GtasksInvoker service = new GtasksInvoker(gtasksTokenValidator, authToken);
-                    synchronizeListHelper(gtasksList, service, null);
+                    synchronizeListHelper(gtasksList, service, null, callback);
                 } finally {
                     callback.finished();
                 }
@@ -216,9 +269,15 @@ public class GtasksSyncV2Provider extends SyncV2Provider {
         return authToken;
     }
 
-    private synchronized void synchronizeListHelper(StoreObject list, GtasksInvoker invoker,
-            SyncExceptionHandler errorHandler) {
-        String listId = list.getValue(GtasksList.REMOTE_ID);
+    /**
+     * Download and merge one list. Lists are synchronized concurrently, so
+     * database writes go through the {@link BatchedSyncWriter}
+     */
+    private void synchronizeListHelper(final StoreObject list, GtasksInvoker invoker,
+            SyncExceptionHandler errorHandler, SyncResultCallback callback) {
+        long start = DateUtilities.now();
+        int merged = 0;
+        final String listId = list.getValue(GtasksList.REMOTE_ID);
         long lastSyncDate = 0;
         if (list.containsNonNullValue(GtasksList.LAST_SYNC)) {
             lastSyncDate = list.getValue(GtasksList.LAST_SYNC);
@@ -239,11 +298,93 @@ public class GtasksSyncV2Provider extends SyncV2Provider {
         pushTasks(qs, invoker);
 
         boolean includeDeletedAndHidden = lastSyncDate != 0;
+        // resume an interrupted download where it left off
+        String pageToken = gtasksPreferenceService.getPageToken(listId, lastSyncDate);
+        long newSyncDate = lastSyncDate;
+        boolean updated = false;
         try {
-            Tasks taskList = invoker.getAllGtasksFromListId(listId, includeDeletedAndHidden,
-                    includeDeletedAndHidden, lastSyncDate + 1000L);
-            List<com.google.api.services.tasks.model.Task> tasks = taskList.getItems();
-            if (tasks != null) {
+            do {
+                Tasks page;
+                try {
+                    page = invoker.getGtasksPage(listId, includeDeletedAndHidden,
+                            includeDeletedAndHidden, lastSyncDate + 1000L, pageToken);
+                } catch (HttpResponseException e) {
+                    if (pageToken != null && isInvalidPageToken(e)) {
+                        // a rejected page token would fail every later sync too
+                        gtasksPreferenceService.setPageToken(listId, lastSyncDate, null);
+                    }
+                    throw e;
+                }
+                List<com.google.api.services.tasks.model.Task> tasks = page.getItems();
+                if (tasks != null && !tasks.isEmpty()) {
+                    newSyncDate = Math.max(newSyncDate, writePage(listId, tasks));
+                    merged += tasks.size();
+                    updated = true;
+                }
+                pageToken = page.getNextPageToken();
+                gtasksPreferenceService.setPageToken(listId, lastSyncDate, pageToken);
+            } while (pageToken != null);
+
+            if (updated) {
+                list.setValue(GtasksList.LAST_SYNC, newSyncDate);
+                writer.write(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        storeObjectDao.persist(list);
+                        gtasksTaskListUpdater.correctOrderAndIndentForList(listId);
+                        return null;
+                    }
+                });
+            }
+        } catch (IOException e) {
+            handleListException(errorHandler, "gtasks-sync-io", e); //$NON-NLS-1$
+        } catch (RuntimeException e) {
+            // failed writes are rethrown by the writer, report them with this list
+            handleListException(errorHandler, "gtasks-sync-write", e); //$NON-NLS-1$
+        } catch (InterruptedException e) {
+            log.error(e.getMessage(), e);
+            Thread.currentThread().interrupt();
+        }
+        callback.listSynchronized(list.getValue(GtasksList.NAME), DateUtilities.now() - start, merged);
+    }
+
+    private static void handleListException(SyncExceptionHandler errorHandler, String tag, Exception e) {
+        if (errorHandler != null) {
+            errorHandler.handleException(tag, e);
+        } else {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return true if the server rejected a page token because it is invalid
+     * or expired, rather than failing the request for another reason
+     */
+    static boolean isInvalidPageToken(HttpResponseException e) {
+        int statusCode = e.getStatusCode();
+        if (statusCode == 410) {
+            return true;
+        }
+        String message = e.getMessage();
+        if (statusCode != 400 || message == null) {
+            return false;
+        }
+        message = message.toLowerCase(Locale.US);
+        return message.contains("pagetoken") || message.contains("page token"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /**
+     * Write one page of remote tasks, in a transaction shared with the pages
+     * of other lists written at the same time
+     *
+     * @return latest update time of the tasks in the page
+     */
+    private long writePage(final String listId, final List<com.google.api.services.tasks.model.Task> tasks)
+            throws InterruptedException {
+        return writer.write(new Callable<Long>() {
+            @Override
+            public Long call() {
+                long newSyncDate = 0;
                 for (com.google.api.services.tasks.model.Task t : tasks) {
                     GtasksTaskContainer container = new GtasksTaskContainer(t, listId, gtasksMetadataFactory.createEmptyMetadata(AbstractModel.NO_ID));
                     gtasksMetadataService.findLocalMatch(container);
@@ -251,19 +392,11 @@ public class GtasksSyncV2Provider extends SyncV2Provider {
                     container.gtaskMetadata.setValue(GtasksMetadata.PARENT_TASK, gtasksMetadataService.localIdForGtasksId(t.getParent()));
                     container.gtaskMetadata.setValue(GtasksMetadata.LAST_SYNC, DateUtilities.now() + 1000L);
                     write(container);
-                    lastSyncDate = Math.max(lastSyncDate, container.getUpdateTime());
+                    newSyncDate = Math.max(newSyncDate, container.getUpdateTime());
                 }
-                list.setValue(GtasksList.LAST_SYNC, lastSyncDate);
-                storeObjectDao.persist(list);
-                gtasksTaskListUpdater.correctOrderAndIndentForList(listId);
+                return newSyncDate;
             }
-        } catch (IOException e) {
-            if (errorHandler != null) {
-                errorHandler.handleException("gtasks-sync-io", e); //$NON-NLS-1$
-            } else {
-                log.error(e.getMessage(), e);
-            }
-        }
+        });
     }
 
     private void write(GtasksTaskContainer task) {
@@ -14,6 +14,7 @@ import com.todoroo.andlib.data.TodorooCursor;
 import com.todoroo.andlib.sql.Order;
 import com.todoroo.andlib.sql.Query;
 import com.todoroo.astrid.api.AstridApiConstants;
+import com.todoroo.astrid.api.AstridDetailExposer;
 import com.todoroo.astrid.dao.MetadataDao.MetadataCriteria;
 import com.todoroo.astrid.data.Metadata;
 import com.todoroo.astrid.data.Task;
@@ -32,7 +33,7 @@ import javax.inject.Inject;
  * @author Tim Su <tim@todoroo.com>
  *
  */
-public class NotesDetailExposer extends InjectingBroadcastReceiver {
+public class NotesDetailExposer extends InjectingBroadcastReceiver implements AstridDetailExposer {
 
     private static final int NOTE_MAX = 200;
 
@@ -50,7 +51,7 @@ public class NotesDetailExposer extends InjectingBroadcastReceiver {
             return;
         }
 
-        String taskDetail = getTaskDetails(taskId);
+        String taskDetail = getTaskDetails(context, taskId);
         if(taskDetail == null) {
             return;
         }
@@ -63,7 +64,8 @@ public class NotesDetailExposer extends InjectingBroadcastReceiver {
         context.sendBroadcast(broadcastIntent, AstridApiConstants.PERMISSION_READ);
     }
 
-    private String getTaskDetails(long id) {
+    @Override
+    public String getTaskDetails(Context context, long id) {
         if(!preferences.getBoolean(R.string.p_showNotes, false)) {
             return null;
         }
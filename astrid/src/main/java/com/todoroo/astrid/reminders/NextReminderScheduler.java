@@ -0,0 +1,202 @@
+/**
+ * Copyright (c) 2012 Todoroo Inc
+ *
+ * See the file "LICENSE" for the full license governing this code.
+ */
+package com.todoroo.astrid.reminders;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+
+import com.todoroo.andlib.utility.DateUtilities;
+import com.todoroo.astrid.data.Task;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Keeps the next reminder of every task in memory, ordered by time, and
+ * registers only the earliest one with the {@link AlarmManager}. When that
+ * alarm fires it is removed with {@link #remove} and the next one is armed.
+ */
+class NextReminderScheduler implements ReminderService.AlarmScheduler {
+
+    /** Action of the single pending intent registered with the alarm manager */
+    static final String ACTION = "com.todoroo.astrid.reminders.NEXT_REMINDER"; //$NON-NLS-1$
+
+    /** Reminder types that had their own pending intent per task */
+    private static final int[] LEGACY_TYPES = new int[] {
+        ReminderService.TYPE_DUE,
+        ReminderService.TYPE_OVERDUE,
+        ReminderService.TYPE_RANDOM,
+        ReminderService.TYPE_SNOOZE
+    };
+
+    private final TreeSet<Reminder> queue = new TreeSet<>();
+    private final Map<Long, Reminder> reminders = new HashMap<>();
+
+    private Reminder armed;
+    private boolean rebuilding;
+    private boolean populated;
+
+    @Override
+    public synchronized void createAlarm(Context context, Task task, long time, int type) {
+        long taskId = task.getId();
+        if (taskId == Task.NO_ID) {
+            return;
+        }
+        Reminder existing = reminders.get(taskId);
+        if (time == 0 || time == ReminderService.NO_ALARM) {
+            if (existing == null || existing.type != type) {
+                return;
+            }
+            queue.remove(existing);
+            reminders.remove(taskId);
+        } else {
+            if (existing != null) {
+                queue.remove(existing);
+            }
+            Reminder reminder = new Reminder(taskId, time, type);
+            queue.add(reminder);
+            reminders.put(taskId, reminder);
+        }
+        if (!rebuilding) {
+            arm(context);
+        }
+    }
+
+    /**
+     * Drop a reminder that has fired and arm the next one
+     */
+    synchronized void remove(Context context, long taskId, int type) {
+        Reminder existing = reminders.get(taskId);
+        if (existing != null && existing.type == type) {
+            queue.remove(existing);
+            reminders.remove(taskId);
+        }
+        arm(context);
+    }
+
+    /**
+     * Discard all reminders and hold off on arming until {@link #endRebuild}
+     */
+    synchronized void beginRebuild() {
+        queue.clear();
+        reminders.clear();
+        rebuilding = true;
+    }
+
+    synchronized void endRebuild(Context context) {
+        rebuilding = false;
+        populated = true;
+        arm(context);
+    }
+
+    /**
+     * @return false until the queue has been filled from the database in
+     * this process
+     */
+    synchronized boolean isPopulated() {
+        return populated;
+    }
+
+    synchronized int size() {
+        return queue.size();
+    }
+
+    /**
+     * Register the earliest reminder with the alarm manager if it changed
+     */
+    private void arm(Context context) {
+        Reminder next = queue.isEmpty() ? null : queue.first();
+        if (next == null ? armed == null : next.equals(armed)) {
+            return;
+        }
+        AlarmManager am = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (next == null) {
+            am.cancel(createPendingIntent(context, armed));
+        } else {
+            long time = next.time;
+            if (time < DateUtilities.now()) {
+                time = DateUtilities.now() + 5000L;
+            }
+            am.set(AlarmManager.RTC_WAKEUP, time, createPendingIntent(context, next));
+        }
+        armed = next;
+    }
+
+    /**
+     * Cancel the alarms registered for a task before reminders were queued,
+     * when each reminder type of each task had its own pending intent
+     */
+    static void cancelLegacyAlarms(Context context, long taskId) {
+        AlarmManager am = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        for (int type : LEGACY_TYPES) {
+            Intent intent = new Intent(context, Notifications.class);
+            intent.setType(Long.toString(taskId));
+            intent.setAction(Integer.toString(type));
+            int requestCode;
+            try {
+                requestCode = Integer.parseInt(String.format("%d%d", taskId, type)); //$NON-NLS-1$
+            } catch (NumberFormatException e) {
+                requestCode = type;
+            }
+            PendingIntent pendingIntent = PendingIntent.getBroadcast(context, requestCode,
+                    intent, PendingIntent.FLAG_NO_CREATE);
+            if (pendingIntent != null) {
+                am.cancel(pendingIntent);
+                pendingIntent.cancel();
+            }
+        }
+    }
+
+    private static PendingIntent createPendingIntent(Context context, Reminder reminder) {
+        Intent intent = new Intent(context, Notifications.class);
+        intent.setAction(ACTION);
+        intent.putExtra(Notifications.ID_KEY, reminder.taskId);
+        intent.putExtra(Notifications.EXTRAS_TYPE, reminder.type);
+        return PendingIntent.getBroadcast(context, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+
+    private static class Reminder implements Comparable<Reminder> {
+        private final long taskId;
+        private final long time;
+        private final int type;
+
+        Reminder(long taskId, long time, int type) {
+            this.taskId = taskId;
+            this.time = time;
+            this.type = type;
+        }
+
+        @Override
+        public int compareTo(Reminder other) {
+            if (time != other.time) {
+                return time < other.time ? -1 : 1;
+            }
+            return taskId < other.taskId ? -1 : (taskId == other.taskId ? 0 : 1);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Reminder)) {
+                return false;
+            }
+            Reminder other = (Reminder) o;
+            return taskId == other.taskId && time == other.time && type == other.type;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = (int) (taskId ^ (taskId >>> 32));
+            result = 31 * result + (int) (time ^ (time >>> 32));
+            return 31 * result + type;
+        }
+    }
+}
@@ -62,6 +62,7 @@ public class Notifications extends InjectingBroadcastReceiver {
     @Inject NotificationManager notificationManager;
     @Inject Preferences preferences;
     @Inject Broadcaster broadcaster;
+    @Inject ReminderService reminderService;
 
     @Override
     public void onReceive(Context context, Intent intent) {
@@ -76,6 +77,10 @@ public class Notifications extends InjectingBroadcastReceiver {
         long id = intent.getLongExtra(ID_KEY, 0);
         int type = intent.getIntExtra(EXTRAS_TYPE, (byte) 0);
 
+        if (NextReminderScheduler.ACTION.equals(intent.getAction())) {
+            reminderService.onAlarmFired(taskDao, id, type);
+        }
+
         Resources r = context.getResources();
         String reminder;
 
@@ -5,10 +5,7 @@
  */
 package com.todoroo.astrid.reminders;
 
-import android.app.AlarmManager;
-import android.app.PendingIntent;
 import android.content.Context;
-import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.SharedPreferences.Editor;
 import android.content.res.Resources;
@@ -77,9 +74,13 @@ public final class ReminderService  {
 
     static final Random random = new Random();
 
+    /** Set once the per-task alarms of earlier versions have been cancelled */
+    static final String PREF_LEGACY_ALARMS_CANCELLED = "legacy_reminder_alarms_cancelled"; //$NON-NLS-1$
+
     // --- instance variables
 
-    private AlarmScheduler scheduler = new ReminderAlarmScheduler();
+    private final NextReminderScheduler nextReminderScheduler = new NextReminderScheduler();
+    private AlarmScheduler scheduler = nextReminderScheduler;
 
     private long now = -1; // For tracking when reminders might be scheduled all at once
     private Context context;
@@ -122,22 +123,43 @@ public final class ReminderService  {
      */
     public void scheduleAllAlarms(TaskDao taskDao) {
         TodorooCursor<Task> cursor = getTasksWithReminders(taskDao, NOTIFICATION_PROPERTIES);
+        nextReminderScheduler.beginRebuild();
+        boolean cancelLegacyAlarms = !preferences.getBoolean(PREF_LEGACY_ALARMS_CANCELLED, false);
         try {
             Task task = new Task();
             now = DateUtilities.now(); // Before mass scheduling, initialize now variable
             for(cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
                 task.readFromCursor(cursor);
+                if (cancelLegacyAlarms) {
+                    NextReminderScheduler.cancelLegacyAlarms(context, task.getId());
+                }
                 scheduleAlarm(task, null);
             }
+            if (cancelLegacyAlarms) {
+                preferences.setBoolean(PREF_LEGACY_ALARMS_CANCELLED, true);
+            }
         } catch (Exception e) {
             // suppress
             log.error(e.getMessage(), e);
         } finally {
             cursor.close();
             now = -1; // Signal done with now variable
+            nextReminderScheduler.endRebuild(context);
         }
     }
 
+    /**
+     * Called when the queued reminder alarm fires. Drops the reminder that
+     * fired and arms the next one, rebuilding the queue if this process has
+     * not seen it yet
+     */
+    public void onAlarmFired(TaskDao taskDao, long taskId, int type) {
+        if (!nextReminderScheduler.isPopulated()) {
+            scheduleAllAlarms(taskDao);
+        }
+        nextReminderScheduler.remove(context, taskId, type);
+    }
+
     private long getNowValue() {
         // If we're in the midst of mass scheduling, use the prestored now var
         return (now == -1 ? DateUtilities.now() : now);
@@ -149,6 +171,11 @@ public final class ReminderService  {
      * Schedules alarms for a single task
      */
     public void scheduleAlarm(TaskDao taskDao, Task task) {
+        if (scheduler == nextReminderScheduler && !nextReminderScheduler.isPopulated()) {
+            // only the earliest reminder is registered, so the rest must be known first
+            scheduleAllAlarms(taskDao);
+            return;
+        }
         scheduleAlarm(task, taskDao);
     }
 
@@ -421,47 +448,6 @@ public final class ReminderService  {
         return scheduler;
     }
 
-    private static class ReminderAlarmScheduler implements AlarmScheduler {
-        /**
-         * Create an alarm for the given task at the given type
-         */
-        @Override
-        public void createAlarm(Context context, Task task, long time, int type) {
-            if(task.getId() == Task.NO_ID) {
-                return;
-            }
-            Intent intent = new Intent(context, Notifications.class);
-            intent.setType(Long.toString(task.getId()));
-            intent.setAction(Integer.toString(type));
-            intent.putExtra(Notifications.ID_KEY, task.getId());
-            intent.putExtra(Notifications.EXTRAS_TYPE, type);
-
-            // calculate the unique requestCode as a combination of the task-id and alarm-type:
-            // concatenate id+type to keep the combo unique
-            String rc = String.format("%d%d", task.getId(), type);
-            int requestCode;
-            try {
-                requestCode = Integer.parseInt(rc);
-            } catch (Exception e) {
-                log.error(e.getMessage(), e);
-                requestCode = type;
-            }
-            AlarmManager am = (AlarmManager)context.getSystemService(Context.ALARM_SERVICE);
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(context, requestCode,
-                    intent, 0);
-
-            if (time == 0 || time == NO_ALARM) {
-                am.cancel(pendingIntent);
-            } else {
-                if(time < DateUtilities.now()) {
-                    time = DateUtilities.now() + 5000L;
-                }
-
-                am.set(AlarmManager.RTC_WAKEUP, time, pendingIntent);
-            }
-        }
-    }
-
     // --- data fetching methods
 
     /**
@@ -13,6 +13,7 @@ import com.google.ical.values.Frequency;
 import com.google.ical.values.RRule;
 import com.google.ical.values.WeekdayNum;
 import com.todoroo.astrid.api.AstridApiConstants;
+import com.todoroo.astrid.api.AstridDetailExposer;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.service.TaskService;
 
@@ -33,7 +34,7 @@ import javax.inject.Inject;
  * @author Tim Su <tim@todoroo.com>
  *
  */
-public class RepeatDetailExposer extends InjectingBroadcastReceiver {
+public class RepeatDetailExposer extends InjectingBroadcastReceiver implements AstridDetailExposer {
 
     private static final Logger log = LoggerFactory.getLogger(RepeatDetailExposer.class);
 
@@ -62,6 +63,7 @@ public class RepeatDetailExposer extends InjectingBroadcastReceiver {
         context.sendBroadcast(broadcastIntent, AstridApiConstants.PERMISSION_READ);
     }
 
+    @Override
     public String getTaskDetails(Context context, long id) {
         Task task = taskService.fetchById(id, Task.RECURRENCE);
         if(task == null) {
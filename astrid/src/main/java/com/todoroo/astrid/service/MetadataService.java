@@ -11,6 +11,7 @@ import com.todoroo.andlib.data.TodorooCursor;
 import com.todoroo.andlib.sql.Criterion;
 import com.todoroo.andlib.sql.Query;
 import com.todoroo.andlib.utility.DateUtilities;
+import com.todoroo.astrid.dao.Database;
 import com.todoroo.astrid.dao.MetadataDao;
 import com.todoroo.astrid.dao.MetadataDao.MetadataCriteria;
 import com.todoroo.astrid.data.Metadata;
@@ -18,6 +19,7 @@ import com.todoroo.astrid.data.Metadata;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -35,10 +37,12 @@ public class MetadataService {
         public void beforeDeleteMetadata(Metadata m);
     }
 
+    private final Database database;
     private final MetadataDao metadataDao;
 
     @Inject
-    public MetadataService(MetadataDao metadataDao) {
+    public MetadataService(Database database, MetadataDao metadataDao) {
+        this.database = database;
         this.metadataDao = metadataDao;
     }
 
@@ -94,7 +98,19 @@ public class MetadataService {
      * Synchronize metadata for given task id
      * @return true if there were changes
      */
-    public boolean synchronizeMetadata(long taskId, ArrayList<Metadata> metadata,
+    public boolean synchronizeMetadata(final long taskId, final ArrayList<Metadata> metadata,
+            final Criterion metadataCriterion, final SynchronizeMetadataCallback callback) {
+        final AtomicBoolean dirty = new AtomicBoolean(false);
+        database.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                dirty.set(synchronizeMetadataInTransaction(taskId, metadata, metadataCriterion, callback));
+            }
+        });
+        return dirty.get();
+    }
+
+    private boolean synchronizeMetadataInTransaction(long taskId, ArrayList<Metadata> metadata,
             Criterion metadataCriterion, SynchronizeMetadataCallback callback) {
         boolean dirty = false;
         HashSet<ContentValues> newMetadataValues = new HashSet<>();
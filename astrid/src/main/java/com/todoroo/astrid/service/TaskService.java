@@ -16,6 +16,8 @@ import com.todoroo.andlib.utility.AndroidUtilities;
 import com.todoroo.andlib.utility.DateUtilities;
 import com.todoroo.astrid.api.PermaSql;
 import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.dao.TaskDao.TaskCriteria;
+import com.todoroo.astrid.dao.TaskSearchIndex;
 import com.todoroo.astrid.data.Metadata;
 import com.todoroo.astrid.data.RemoteModel;
 import com.todoroo.astrid.data.Task;
@@ -27,7 +29,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tasks.Broadcaster;
 import org.tasks.filters.FilterCounter;
-import org.tasks.scheduling.RefreshScheduler;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -61,17 +62,15 @@ public class TaskService {
     private final TaskDao taskDao;
     private final Broadcaster broadcaster;
     private final FilterCounter filterCounter;
-    private final RefreshScheduler refreshScheduler;
     private final TagService tagService;
     private final MetadataService metadataService;
 
     @Inject
     public TaskService(TaskDao taskDao, Broadcaster broadcaster, FilterCounter filterCounter,
-                       RefreshScheduler refreshScheduler, TagService tagService, MetadataService metadataService) {
+                       TagService tagService, MetadataService metadataService) {
         this.taskDao = taskDao;
         this.broadcaster = broadcaster;
         this.filterCounter = filterCounter;
-        this.refreshScheduler = refreshScheduler;
         this.tagService = tagService;
         this.metadataService = metadataService;
     }
@@ -111,7 +110,6 @@ public class TaskService {
     public void save(Task item) {
         taskDao.save(item);
         broadcastFilterListUpdated();
-        refreshScheduler.scheduleRefresh(item);
     }
 
     private void saveWithoutPublishingFilterUpdate(Task item) {
@@ -126,8 +124,7 @@ public class TaskService {
             Property<?>... properties) {
         Criterion whereConstraint = null;
         if(constraint != null) {
-            whereConstraint = Functions.upper(Task.TITLE).like("%" +
-                    constraint.toString().toUpperCase() + "%");
+            whereConstraint = searchCriterion(constraint.toString());
         }
 
         if(queryTemplate == null) {
@@ -149,11 +146,32 @@ public class TaskService {
             sql = queryTemplate;
         }
 
-        sql = PermaSql.replacePlaceholders(sql);
-
         return taskDao.query(Query.select(properties).withQueryTemplate(sql));
     }
 
+    /**
+     * Fetch active tasks matching a search, tasks matching on title first
+     */
+    public TodorooCursor<Task> search(String query, Property<?>... properties) {
+        return taskDao.query(Query.select(properties)
+                .where(Criterion.and(TaskCriteria.isActive(), searchCriterion(query)))
+                .orderBy(TaskSearchIndex.rank(query)));
+    }
+
+    /**
+     * @return criterion matching tasks by prefix of the words in their title,
+     * notes or comments. Matches inside a word are not found, as a substring
+     * search would scan every task. Queries without words fall back to a
+     * title substring
+     */
+    public static Criterion searchCriterion(String query) {
+        Criterion match = TaskSearchIndex.matches(query);
+        if(match == null) {
+            match = Functions.upper(Task.TITLE).like("%" + query.toUpperCase() + "%");
+        }
+        return match;
+    }
+
     /**
      * @return how many tasks are matched by this query
      */
@@ -22,6 +22,11 @@ public class WidgetUpdatingCallbackWrapper implements SyncResultCallback {
         TasksWidget.suppressUpdateFlag = DateUtilities.now();
     }
 
+    @Override
+    public void listSynchronized(String list, long millis, int tasks) {
+        wrap.listSynchronized(list, millis, tasks);
+    }
+
     @Override
     public void finished() {
         wrap.finished();
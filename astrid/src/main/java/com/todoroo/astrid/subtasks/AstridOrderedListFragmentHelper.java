@@ -259,7 +259,7 @@ public class AstridOrderedListFragmentHelper<LIST> implements OrderedListFragmen
                 }
 
                 if (madeChanges) {
-                    updater.writeSerialization(list, updater.serializeTree(), true);
+                    updater.persistChanges(list);
                 }
             } finally {
                 recurring.close();
@@ -2,8 +2,11 @@ package com.todoroo.astrid.subtasks;
 
 import com.todoroo.andlib.data.TodorooCursor;
 import com.todoroo.astrid.api.Filter;
+import com.todoroo.astrid.dao.Database;
+import com.todoroo.astrid.dao.TaskListPositionDao;
 import com.todoroo.astrid.data.RemoteModel;
 import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.data.TaskListPosition;
 import com.todoroo.astrid.service.TaskService;
 
 import org.json.JSONArray;
@@ -14,17 +17,24 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public abstract class AstridOrderedListUpdater<LIST> {
 
     private static final Logger log = LoggerFactory.getLogger(AstridOrderedListUpdater.class);
 
+    /** Number of changes stored as position updates before the whole tree is rewritten */
+    static final int COMPACTION_INTERVAL = 25;
+
     private final TaskService taskService;
+    private final Database database;
 
-    public AstridOrderedListUpdater(TaskService taskService) {
+    public AstridOrderedListUpdater(TaskService taskService, Database database) {
         this.taskService = taskService;
+        this.database = database;
         idToNode = new HashMap<>();
     }
 
@@ -45,13 +55,56 @@ public abstract class AstridOrderedListUpdater<LIST> {
         }
     }
 
+    public static class StoredPosition {
+        public final String uuid;
+        public final int position;
+        public final int indent;
+
+        public StoredPosition(String uuid, int position, int indent) {
+            this.uuid = uuid;
+            this.position = position;
+            this.indent = indent;
+        }
+    }
+
     private Node treeRoot;
 
     private final HashMap<String, Node> idToNode;
 
+    /** Position and indent of each node as last written */
+    private final HashMap<String, Integer> storedPositions = new HashMap<>();
+    private final HashMap<String, Integer> storedIndents = new HashMap<>();
+
+    private LIST currentList;
+    private int uncompactedChanges = 0;
+    private boolean queueSyncOnCompaction = false;
+
+    private Object verifiedListKey;
+    private String verifiedQuery;
+    private long verifiedGeneration;
+
     protected abstract String getSerializedTree(LIST list);
     protected abstract void writeSerialization(LIST list, String serialized, boolean shouldQueueSync);
-    protected abstract void applyToFilter(Filter filter);
+    protected abstract void applyToFilter(LIST list, Filter filter);
+
+    /**
+     * @return stored positions in list order, or an empty list if the list
+     * is only available as a serialized tree
+     */
+    protected abstract List<StoredPosition> readPositions(LIST list);
+
+    /**
+     * Store positions for nodes that moved and drop nodes that were removed
+     * without rewriting the serialized tree
+     */
+    protected abstract void writePositions(LIST list, Map<Node, Integer> positions, Set<String> removed);
+
+    /**
+     * @return key identifying the list across reloads
+     */
+    protected Object getListKey(LIST list) {
+        return list;
+    }
 
     public int getIndentForTask(String targetTaskId) {
         Node n = idToNode.get(targetTaskId);
@@ -61,8 +114,27 @@ public abstract class AstridOrderedListUpdater<LIST> {
         return n.indent;
     }
 
+    /**
+     * Load the tree for a list. Skipped if the tree was already verified
+     * against this list and filter and none of the tables they read from
+     * have changed since.
+     */
     public void initialize(LIST list, Filter filter) {
-        initializeFromSerializedTree(list, filter, getSerializedTree(list));
+        Object listKey = getListKey(list);
+        String query = getVerificationQuery(filter);
+        if (treeRoot != null && listKey != null && listKey.equals(verifiedListKey) &&
+                query.equals(verifiedQuery) && getGeneration(query) == verifiedGeneration) {
+            currentList = list;
+            return;
+        }
+
+        flush();
+        List<StoredPosition> positions = readPositions(list);
+        if (positions.isEmpty()) {
+            initializeFromSerializedTree(list, filter, getSerializedTree(list));
+        } else {
+            initializeFromPositions(list, filter, positions);
+        }
     }
 
     public void initializeFromSerializedTree(LIST list, Filter filter, String serializedTree) {
@@ -73,9 +145,54 @@ public abstract class AstridOrderedListUpdater<LIST> {
                 idToNode.put(node.uuid, node);
             }
         });
+        resetStoredPositions(list);
         verifyTreeModel(list, filter);
     }
 
+    /**
+     * Rebuild the tree from positions and indents in list order. These may
+     * be newer than the serialized tree if changes were not compacted.
+     */
+    private void initializeFromPositions(LIST list, Filter filter, List<StoredPosition> positions) {
+        idToNode.clear();
+        treeRoot = new Node("-1", null, -1); //$NON-NLS-1$
+        resetStoredPositions(list);
+        Node last = treeRoot;
+        for (StoredPosition position : positions) {
+            if (idToNode.containsKey(position.uuid)) {
+                continue;
+            }
+            Node parent = last;
+            while (parent != treeRoot && parent.indent >= position.indent) {
+                parent = parent.parent;
+            }
+            Node node = new Node(position.uuid, parent, parent.indent + 1);
+            parent.children.add(node);
+            idToNode.put(node.uuid, node);
+            storedPositions.put(node.uuid, position.position);
+            storedIndents.put(node.uuid, position.indent);
+            last = node;
+        }
+        verifyTreeModel(list, filter);
+    }
+
+    private void resetStoredPositions(LIST list) {
+        currentList = list;
+        storedPositions.clear();
+        storedIndents.clear();
+        uncompactedChanges = 0;
+        queueSyncOnCompaction = false;
+    }
+
+    private static String getVerificationQuery(Filter filter) {
+        return filter.getSqlQuery().replaceAll("ORDER BY .*", "");  //$NON-NLS-1$//$NON-NLS-2$
+    }
+
+    private long getGeneration(String query) {
+        return Math.max(database.getGenerationForQuery(query),
+                database.getGeneration(TaskListPosition.TABLE.name));
+    }
+
     private void verifyTreeModel(LIST list, Filter filter) {
         boolean changedThings = false;
         Set<String> keySet = idToNode.keySet();
@@ -84,7 +201,7 @@ public abstract class AstridOrderedListUpdater<LIST> {
             currentIds.add(id);
         }
         Set<String> idsInQuery = new HashSet<>();
-        String sql = filter.getSqlQuery().replaceAll("ORDER BY .*", "");  //$NON-NLS-1$//$NON-NLS-2$
+        String sql = getVerificationQuery(filter);
         sql = sql + String.format(" ORDER BY %s", Task.CREATION_DATE); //$NON-NLS-1$
         TodorooCursor<Task> tasks = taskService.fetchFiltered(sql, null, Task.UUID);
         try {
@@ -111,7 +228,12 @@ public abstract class AstridOrderedListUpdater<LIST> {
         }
         if (changedThings) {
             writeSerialization(list, serializeTree(), false);
+            snapshotStoredPositions();
         }
+
+        verifiedListKey = getListKey(list);
+        verifiedQuery = getVerificationQuery(filter);
+        verifiedGeneration = getGeneration(verifiedQuery);
     }
 
     private void removeNodes(Set<String> idsToRemove) {
@@ -237,8 +359,8 @@ public abstract class AstridOrderedListUpdater<LIST> {
             newSiblings.add(insertAfter + 1, node);
         }
 
-        writeSerialization(list, serializeTree(), true);
-        applyToFilter(filter);
+        persistChanges(list);
+        applyToFilter(list, filter);
     }
 
     private void setNodeIndent(Node node, int indent) {
@@ -322,8 +444,8 @@ public abstract class AstridOrderedListUpdater<LIST> {
             beforeIndex--;
         }
         newSiblings.add(beforeIndex, moveThis);
-        writeSerialization(list, serializeTree(), true);
-        applyToFilter(filter);
+        persistChanges(list);
+        applyToFilter(list, filter);
     }
 
     // Returns true if desc is a descendant of parent
@@ -344,8 +466,8 @@ public abstract class AstridOrderedListUpdater<LIST> {
         treeRoot.children.add(moveThis);
         moveThis.parent = treeRoot;
         setNodeIndent(moveThis, 0);
-        writeSerialization(list, serializeTree(), true);
-        applyToFilter(filter);
+        persistChanges(list);
+        applyToFilter(list, filter);
     }
 
     public void onCreateTask(LIST list, Filter filter, String uuid) {
@@ -356,8 +478,8 @@ public abstract class AstridOrderedListUpdater<LIST> {
         Node newNode = new Node(uuid, treeRoot, 0);
         treeRoot.children.add(0, newNode);
         idToNode.put(uuid, newNode);
-        writeSerialization(list, serializeTree(), true);
-        applyToFilter(filter);
+        persistChanges(list);
+        applyToFilter(list, filter);
     }
 
     public void onDeleteTask(LIST list, Filter filter, String taskId) {
@@ -381,8 +503,195 @@ public abstract class AstridOrderedListUpdater<LIST> {
         }
         idToNode.remove(taskId);
 
-        writeSerialization(list, serializeTree(), true);
-        applyToFilter(filter);
+        persistChanges(list);
+        applyToFilter(list, filter);
+    }
+
+    // --- persistence
+
+    /**
+     * Store the changes made to the tree. Only the nodes that moved are
+     * written; the serialized tree is rewritten every
+     * {@link #COMPACTION_INTERVAL} changes, or when the moved nodes no
+     * longer fit between their neighbours.
+     */
+    void persistChanges(LIST list) {
+        long generation = verifiedQuery == null ? -1 : getGeneration(verifiedQuery);
+        currentList = list;
+        queueSyncOnCompaction = true;
+        if (++uncompactedChanges >= COMPACTION_INTERVAL || !writePositionChanges(list)) {
+            compact(list);
+        }
+        acceptOwnWrites(generation);
+    }
+
+    /**
+     * Rewrite the serialized tree if there are changes that were only
+     * stored as positions
+     */
+    public void flush() {
+        if (uncompactedChanges == 0) {
+            return;
+        }
+        long generation = verifiedQuery == null ? -1 : getGeneration(verifiedQuery);
+        compact(currentList);
+        acceptOwnWrites(generation);
+    }
+
+    private void compact(LIST list) {
+        writeSerialization(list, serializeTree(), queueSyncOnCompaction);
+        snapshotStoredPositions();
+    }
+
+    /**
+     * Keep the tree verified after our own writes, unless something else
+     * changed since it was last verified
+     */
+    private void acceptOwnWrites(long generationBeforeWrite) {
+        if (verifiedQuery != null && generationBeforeWrite == verifiedGeneration) {
+            verifiedGeneration = getGeneration(verifiedQuery);
+        }
+    }
+
+    /**
+     * Record the positions written by a full rewrite of the tree
+     */
+    private void snapshotStoredPositions() {
+        storedPositions.clear();
+        storedIndents.clear();
+        List<Node> nodes = getOrderedNodes();
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            storedPositions.put(node.uuid, i * TaskListPositionDao.POSITION_SPACING);
+            storedIndents.put(node.uuid, node.indent);
+        }
+        uncompactedChanges = 0;
+        queueSyncOnCompaction = false;
+    }
+
+    /**
+     * Nodes that are still in order keep their position; the others are
+     * spread over the gap between their neighbours.
+     *
+     * @return false if there was not enough room and the tree must be
+     * rewritten
+     */
+    private boolean writePositionChanges(LIST list) {
+        List<Node> nodes = getOrderedNodes();
+        int size = nodes.size();
+        boolean[] unmoved = findUnmovedNodes(nodes);
+        LinkedHashMap<Node, Integer> changed = new LinkedHashMap<>();
+        long previous = 0;
+        boolean hasPrevious = false;
+        int i = 0;
+        while (i < size) {
+            Node node = nodes.get(i);
+            if (unmoved[i]) {
+                int position = storedPositions.get(node.uuid);
+                if (storedIndents.get(node.uuid) != node.indent) {
+                    changed.put(node, position);
+                }
+                previous = position;
+                hasPrevious = true;
+                i++;
+                continue;
+            }
+
+            int end = i;
+            while (end < size && !unmoved[end]) {
+                end++;
+            }
+            int count = end - i;
+            long low, high;
+            if (end < size) {
+                high = storedPositions.get(nodes.get(end).uuid);
+                low = hasPrevious ? previous : high - (long) TaskListPositionDao.POSITION_SPACING * (count + 1);
+            } else if (hasPrevious) {
+                low = previous;
+                high = low + (long) TaskListPositionDao.POSITION_SPACING * (count + 1);
+            } else {
+                return false;
+            }
+            if (high - low <= count || low < Integer.MIN_VALUE || high > Integer.MAX_VALUE) {
+                return false;
+            }
+            for (int j = 0; j < count; j++) {
+                changed.put(nodes.get(i + j), (int) (low + (high - low) * (j + 1) / (count + 1)));
+            }
+            i = end;
+        }
+
+        Set<String> removed = new HashSet<>(storedPositions.keySet());
+        for (Node node : nodes) {
+            removed.remove(node.uuid);
+        }
+        if (changed.isEmpty() && removed.isEmpty()) {
+            return true;
+        }
+
+        writePositions(list, changed, removed);
+        for (Map.Entry<Node, Integer> entry : changed.entrySet()) {
+            storedPositions.put(entry.getKey().uuid, entry.getValue());
+            storedIndents.put(entry.getKey().uuid, entry.getKey().indent);
+        }
+        for (String uuid : removed) {
+            storedPositions.remove(uuid);
+            storedIndents.remove(uuid);
+        }
+        return true;
+    }
+
+    /**
+     * @return flags for the longest run of nodes whose stored positions are
+     * still in increasing order
+     */
+    private boolean[] findUnmovedNodes(List<Node> nodes) {
+        int size = nodes.size();
+        int[] tails = new int[size];
+        int[] predecessors = new int[size];
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            Integer position = storedPositions.get(nodes.get(i).uuid);
+            if (position == null) {
+                continue;
+            }
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (storedPositions.get(nodes.get(tails[mid]).uuid) < position) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            predecessors[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+        boolean[] unmoved = new boolean[size];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = predecessors[i]) {
+            unmoved[i] = true;
+        }
+        return unmoved;
+    }
+
+    private List<Node> getOrderedNodes() {
+        ArrayList<Node> nodes = new ArrayList<>();
+        orderedNodeHelper(treeRoot, nodes, new HashSet<String>());
+        return nodes;
+    }
+
+    private void orderedNodeHelper(Node node, List<Node> nodes, Set<String> seen) {
+        if (node != treeRoot && seen.add(node.uuid)) {
+            nodes.add(node);
+        }
+
+        for (Node child : node.children) {
+            orderedNodeHelper(child, nodes, seen);
+        }
     }
 
     private interface JSONTreeModelBuilder {
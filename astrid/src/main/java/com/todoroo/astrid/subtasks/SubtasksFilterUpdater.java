@@ -2,22 +2,78 @@ package com.todoroo.astrid.subtasks;
 
 import android.text.TextUtils;
 
+import com.todoroo.andlib.data.AbstractModel;
+import com.todoroo.andlib.data.TodorooCursor;
+import com.todoroo.astrid.dao.Database;
 import com.todoroo.astrid.dao.TaskListMetadataDao;
+import com.todoroo.astrid.dao.TaskListPositionDao;
 import com.todoroo.astrid.data.SyncFlags;
 import com.todoroo.astrid.data.TaskListMetadata;
+import com.todoroo.astrid.data.TaskListPosition;
 import com.todoroo.astrid.service.TaskService;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import javax.inject.Inject;
 
 public class SubtasksFilterUpdater extends SubtasksUpdater<TaskListMetadata> {
 
     private TaskListMetadataDao taskListMetadataDao;
+    private TaskListPositionDao taskListPositionDao;
 
     @Inject
-    public SubtasksFilterUpdater(TaskListMetadataDao taskListMetadataDao, TaskService taskService) {
-        super(taskService);
+    public SubtasksFilterUpdater(TaskListMetadataDao taskListMetadataDao, TaskListPositionDao taskListPositionDao,
+                                 TaskService taskService, Database database) {
+        super(taskService, database);
 
         this.taskListMetadataDao = taskListMetadataDao;
+        this.taskListPositionDao = taskListPositionDao;
+    }
+
+    @Override
+    protected Object getListKey(TaskListMetadata list) {
+        return isSaved(list) ? list.getId() : null;
+    }
+
+    @Override
+    protected String getOrderExpression(TaskListMetadata list) {
+        if (!isSaved(list)) {
+            return super.getOrderExpression(list);
+        }
+        return TaskListPositionDao.positionInList(list.getId()).toString();
+    }
+
+    @Override
+    protected List<StoredPosition> readPositions(TaskListMetadata list) {
+        List<StoredPosition> positions = new ArrayList<>();
+        if (!isSaved(list)) {
+            return positions;
+        }
+        taskListMetadataDao.ensurePositions(list);
+        TodorooCursor<TaskListPosition> cursor = taskListPositionDao.getPositions(list.getId());
+        try {
+            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                positions.add(new StoredPosition(cursor.get(TaskListPosition.TASK),
+                        cursor.get(TaskListPosition.POSITION), cursor.get(TaskListPosition.INDENT)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return positions;
+    }
+
+    @Override
+    protected void writePositions(TaskListMetadata list, Map<Node, Integer> positions, Set<String> removed) {
+        if (isSaved(list)) {
+            taskListMetadataDao.updatePositions(list.getId(), positions, removed);
+        }
+    }
+
+    private static boolean isSaved(TaskListMetadata list) {
+        return list != null && list.getId() != AbstractModel.NO_ID;
     }
 
     @Override
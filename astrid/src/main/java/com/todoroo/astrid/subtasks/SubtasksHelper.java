@@ -13,6 +13,7 @@ import com.todoroo.astrid.core.CoreFilterExposer;
 import com.todoroo.astrid.core.SortHelper;
 import com.todoroo.astrid.dao.TaskDao.TaskCriteria;
 import com.todoroo.astrid.dao.TaskListMetadataDao;
+import com.todoroo.astrid.dao.TaskListPositionDao;
 import com.todoroo.astrid.data.RemoteModel;
 import com.todoroo.astrid.data.TagData;
 import com.todoroo.astrid.data.Task;
@@ -68,12 +69,13 @@ public class SubtasksHelper {
             TagData tagData = tagDataService.getTagByName(tagName, TagData.UUID, TagData.TAG_ORDERING);
             TaskListMetadata tlm = null;
             if (tagData != null) {
-                tlm = tlmd.fetchByTagId(tagData.getUuid(), TaskListMetadata.TASK_IDS);
+                tlm = tlmd.fetchByTagId(tagData.getUuid(), TaskListMetadata.ID, TaskListMetadata.TASK_IDS);
             } else if (CoreFilterExposer.isInbox(filter)) {
-                tlm = tlmd.fetchByTagId(TaskListMetadata.FILTER_ID_ALL, TaskListMetadata.TASK_IDS);
+                tlm = tlmd.fetchByTagId(TaskListMetadata.FILTER_ID_ALL, TaskListMetadata.ID, TaskListMetadata.TASK_IDS);
             } else if (CoreFilterExposer.isTodayFilter(filter)) {
-                tlm = tlmd.fetchByTagId(TaskListMetadata.FILTER_ID_TODAY, TaskListMetadata.TASK_IDS);
+                tlm = tlmd.fetchByTagId(TaskListMetadata.FILTER_ID_TODAY, TaskListMetadata.ID, TaskListMetadata.TASK_IDS);
             }
+            tlmd.ensurePositions(tlm);
 
             query = query.replaceAll("ORDER BY .*", "");
             query = query + String.format(" ORDER BY %s, %s, %s, %s",
@@ -91,10 +93,12 @@ public class SubtasksHelper {
     }
 
     private static String getOrderString(TaskService taskService, TagData tagData, TaskListMetadata tlm) {
-        String serialized;
         if (tlm != null) {
-            serialized = tlm.getTaskIDs();
-        } else if (tagData != null) {
+            return TaskListPositionDao.positionInList(tlm.getId()).toString();
+        }
+
+        String serialized;
+        if (tagData != null) {
             serialized = convertTreeToRemoteIds(taskService, tagData.getTagOrdering());
         } else {
             serialized = "[]"; //$NON-NLS-1$
@@ -78,6 +78,7 @@ public class SubtasksListFragment extends TaskListFragment {
     public void onPause() {
         super.onPause();
         lastVisibleIndex = getListView().getFirstVisiblePosition();
+        subtasksFilterUpdater.flush();
     }
 
     @Override
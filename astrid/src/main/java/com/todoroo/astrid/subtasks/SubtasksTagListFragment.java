@@ -77,6 +77,7 @@ public class SubtasksTagListFragment extends TagViewFragment {
     public void onPause() {
         super.onPause();
         lastVisibleIndex = getListView().getFirstVisiblePosition();
+        subtasksFilterUpdater.flush();
     }
 
     @Override
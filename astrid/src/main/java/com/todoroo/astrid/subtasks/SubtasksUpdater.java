@@ -7,6 +7,7 @@ package com.todoroo.astrid.subtasks;
 
 import com.todoroo.andlib.sql.Criterion;
 import com.todoroo.astrid.api.Filter;
+import com.todoroo.astrid.dao.Database;
 import com.todoroo.astrid.dao.TaskDao.TaskCriteria;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.service.TaskService;
@@ -16,30 +17,37 @@ public abstract class SubtasksUpdater<T> extends AstridOrderedListUpdater<T> {
     public static final String ACTIVE_TASKS_ORDER = "active_tasks_order"; //$NON-NLS-1$
     public static final String TODAY_TASKS_ORDER = "today_tasks_order"; //$NON-NLS-1$
 
-    public SubtasksUpdater(TaskService taskService) {
-        super(taskService);
+    public SubtasksUpdater(TaskService taskService, Database database) {
+        super(taskService, database);
     }
 
     @Override
     public void initialize(T list, Filter filter) {
         super.initialize(list, filter);
-        applyToFilter(filter);
+        applyToFilter(list, filter);
     }
 
     @Override
-    public void applyToFilter(Filter filter) {
+    public void applyToFilter(T list, Filter filter) {
         String query = filter.getSqlQuery();
 
         query = query.replaceAll("ORDER BY .*", "");
         query = query + String.format(" ORDER BY %s, %s, %s, %s",
                 Task.DELETION_DATE, Task.COMPLETION_DATE,
-                getOrderString(), Task.CREATION_DATE);
+                getOrderExpression(list), Task.CREATION_DATE);
         query = query.replace(TaskCriteria.isVisible().toString(),
                 Criterion.all.toString());
 
         filter.setFilterQueryOverride(query);
     }
 
+    /**
+     * @return ORDER BY expression placing tasks in list order
+     */
+    protected String getOrderExpression(T list) {
+        return getOrderString();
+    }
+
 }
 
 
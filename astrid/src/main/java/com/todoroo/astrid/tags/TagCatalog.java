@@ -0,0 +1,363 @@
+/**
+ * Copyright (c) 2012 Todoroo Inc
+ *
+ * See the file "LICENSE" for the full license governing this code.
+ */
+package com.todoroo.astrid.tags;
+
+import android.content.ContentValues;
+
+import com.todoroo.andlib.data.AbstractDatabase.TransactionListener;
+import com.todoroo.andlib.data.DatabaseDao.ModelUpdateListener;
+import com.todoroo.andlib.data.Property;
+import com.todoroo.andlib.data.TodorooCursor;
+import com.todoroo.andlib.sql.Order;
+import com.todoroo.andlib.sql.Query;
+import com.todoroo.andlib.utility.DateUtilities;
+import com.todoroo.astrid.dao.Database;
+import com.todoroo.astrid.dao.MetadataDao;
+import com.todoroo.astrid.dao.TagDataDao;
+import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.TagData;
+import com.todoroo.astrid.data.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * In-memory copy of the tag table, indexed by id, uuid and case-folded
+ * name. Loaded on first use and kept current by a {@link TagDataDao}
+ * listener. Also caches the task counts of tag queries until the task or
+ * metadata tables are written to.
+ */
+@Singleton
+public class TagCatalog {
+
+    /** Cached counts are run again after this long, as hidden tasks become visible */
+    static final long COUNTS_MAX_AGE_MILLIS = DateUtilities.ONE_MINUTE;
+
+    /** Columns kept in memory */
+    private static final List<Property<?>> PROPERTIES = Arrays.<Property<?>>asList(
+            TagData.ID, TagData.UUID, TagData.NAME, TagData.DELETION_DATE);
+
+    private static final class Entry {
+        final long id;
+        String uuid;
+        String name;
+        long deletionDate;
+
+        Entry(long id) {
+            this.id = id;
+        }
+    }
+
+    private static final class Counts {
+        final long generation;
+        final long loaded;
+        final Map<String, Integer> counts;
+
+        Counts(long generation, long loaded, Map<String, Integer> counts) {
+            this.generation = generation;
+            this.loaded = loaded;
+            this.counts = counts;
+        }
+    }
+
+    private final Database database;
+    private final TagDataDao tagDataDao;
+    private final MetadataDao metadataDao;
+
+    private Map<Long, Entry> byId;
+    private Map<String, Entry> byUuid;
+    private Map<String, Entry> byName;
+
+    /** Incremented on every change, to discard loads that raced with one */
+    private int changes = 0;
+
+    /** Tag uuids and task counts by the query that counted them */
+    private final Map<String, Counts> counts = new HashMap<>();
+
+    private final TransactionListener reloadOnRollback = new TransactionListener() {
+        @Override
+        public void onTransactionCommitted() {
+        }
+
+        @Override
+        public void onTransactionRolledBack() {
+            invalidate();
+        }
+    };
+
+    @Inject
+    public TagCatalog(Database database, TagDataDao tagDataDao, MetadataDao metadataDao) {
+        this.database = database;
+        this.tagDataDao = tagDataDao;
+        this.metadataDao = metadataDao;
+
+        tagDataDao.addListener(new ModelUpdateListener<TagData>() {
+            @Override
+            public void onModelUpdated(TagData model) {
+                ContentValues setValues = model.getSetValues();
+                if (setValues != null) {
+                    update(model.getId(), setValues);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the tag with the given uuid, with its id, uuid, name and
+     * deletion date set, or null if there is none
+     */
+    public TagData getByUuid(String uuid) {
+        while (true) {
+            load();
+            synchronized (this) {
+                if (byId != null) {
+                    return toTagData(byUuid.get(uuid));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the first tag whose name case insensitively matches the given
+     * name, deleted or not, or null if there is none
+     */
+    public TagData getByName(String name) {
+        while (true) {
+            load();
+            synchronized (this) {
+                if (byId != null) {
+                    return toTagData(byName.get(fold(name)));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return tags that are not deleted and have a name, ordered by name
+     */
+    public List<TagData> getTags() {
+        List<TagData> tags = new ArrayList<>();
+        while (true) {
+            load();
+            synchronized (this) {
+                if (byId == null) {
+                    continue;
+                }
+                for (Entry entry : byId.values()) {
+                    if (entry.deletionDate == 0 && entry.name != null && entry.name.length() > 0) {
+                        tags.add(toTagData(entry));
+                    }
+                }
+                break;
+            }
+        }
+        Collections.sort(tags, new Comparator<TagData>() {
+            @Override
+            public int compare(TagData lhs, TagData rhs) {
+                return lhs.getName().toUpperCase(Locale.US).compareTo(rhs.getName().toUpperCase(Locale.US));
+            }
+        });
+        return tags;
+    }
+
+    /**
+     * Run a query selecting tag uuids and task counts, or return its result
+     * from the last run if no tasks or metadata have been written since
+     *
+     * @return tag uuids to counts, in query order
+     */
+    public Map<String, Integer> getCounts(Query query) {
+        String sql = query.toString();
+        long generation = getCountsGeneration();
+        synchronized (this) {
+            Counts cached = counts.get(sql);
+            if (cached != null && cached.generation == generation &&
+                    DateUtilities.now() - cached.loaded < COUNTS_MAX_AGE_MILLIS) {
+                return cached.counts;
+            }
+        }
+
+        Map<String, Integer> result = new LinkedHashMap<>();
+        TodorooCursor<Metadata> cursor = metadataDao.query(query);
+        try {
+            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                result.put(cursor.getString(0), cursor.getInt(1));
+            }
+        } finally {
+            cursor.close();
+        }
+        result = Collections.unmodifiableMap(result);
+        synchronized (this) {
+            counts.put(sql, new Counts(generation, DateUtilities.now(), result));
+        }
+        return result;
+    }
+
+    /**
+     * Add a tag that was just saved. Listeners are only notified once the
+     * current transaction commits, so without this a tag created inside a
+     * transaction couldn't be found by name until then.
+     */
+    public void add(TagData tagData) {
+        if (database.inTransaction()) {
+            database.addTransactionListener(reloadOnRollback);
+        }
+        update(tagData.getId(), tagData.getMergedValues());
+    }
+
+    /**
+     * @return true if tags returned by the catalog have all the given
+     * properties set
+     */
+    static boolean holds(Property<?>... properties) {
+        return PROPERTIES.containsAll(Arrays.asList(properties));
+    }
+
+    /**
+     * Load the tag table again, for writes that don't notify listeners
+     */
+    public synchronized void invalidate() {
+        byId = null;
+        changes++;
+    }
+
+    private long getCountsGeneration() {
+        return Math.max(database.getGeneration(Task.TABLE.name),
+                database.getGeneration(Metadata.TABLE.name));
+    }
+
+    /**
+     * Read the tag table if it isn't loaded. The query runs without holding
+     * the catalog, since listeners update it while holding the database.
+     */
+    private void load() {
+        while (true) {
+            int expected;
+            synchronized (this) {
+                if (byId != null) {
+                    return;
+                }
+                expected = changes;
+            }
+            Map<Long, Entry> loadedById = new LinkedHashMap<>();
+            Map<String, Entry> loadedByUuid = new HashMap<>();
+            Map<String, Entry> loadedByName = new HashMap<>();
+            TodorooCursor<TagData> cursor = tagDataDao.query(Query.select(PROPERTIES.toArray(new Property<?>[PROPERTIES.size()]))
+                    .orderBy(Order.asc(TagData.ID)));
+            try {
+                for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                    Entry entry = new Entry(cursor.get(TagData.ID));
+                    entry.uuid = cursor.get(TagData.UUID);
+                    entry.name = cursor.get(TagData.NAME);
+                    entry.deletionDate = toLong(cursor.get(TagData.DELETION_DATE));
+                    loadedById.put(entry.id, entry);
+                    loadedByUuid.put(entry.uuid, entry);
+                    indexName(loadedByName, entry);
+                }
+            } finally {
+                cursor.close();
+            }
+            synchronized (this) {
+                if (changes == expected) {
+                    byId = loadedById;
+                    byUuid = loadedByUuid;
+                    byName = loadedByName;
+                    return;
+                }
+            }
+        }
+    }
+
+    private synchronized void update(long id, ContentValues values) {
+        changes++;
+        if (byId == null) {
+            return;
+        }
+        Entry entry = byId.get(id);
+        if (entry == null) {
+            if (!values.containsKey(TagData.UUID.name)) {
+                invalidate();
+                return;
+            }
+            entry = new Entry(id);
+            byId.put(id, entry);
+        }
+        if (values.containsKey(TagData.UUID.name)) {
+            byUuid.remove(entry.uuid);
+            entry.uuid = values.getAsString(TagData.UUID.name);
+            byUuid.put(entry.uuid, entry);
+        }
+        if (values.containsKey(TagData.NAME.name)) {
+            unindexName(entry);
+            entry.name = values.getAsString(TagData.NAME.name);
+            indexName(byName, entry);
+        }
+        if (values.containsKey(TagData.DELETION_DATE.name)) {
+            entry.deletionDate = toLong(values.getAsLong(TagData.DELETION_DATE.name));
+        }
+    }
+
+    /**
+     * Name lookups resolve to the oldest tag with the name, like the
+     * queries they replace
+     */
+    private static void indexName(Map<String, Entry> byName, Entry entry) {
+        if (entry.name == null) {
+            return;
+        }
+        String key = fold(entry.name);
+        Entry indexed = byName.get(key);
+        if (indexed == null || entry.id < indexed.id) {
+            byName.put(key, entry);
+        }
+    }
+
+    private void unindexName(Entry entry) {
+        if (entry.name == null) {
+            return;
+        }
+        String key = fold(entry.name);
+        if (byName.get(key) != entry) {
+            return;
+        }
+        byName.remove(key);
+        for (Entry other : byId.values()) {
+            if (other != entry && other.name != null && fold(other.name).equals(key)) {
+                indexName(byName, other);
+            }
+        }
+    }
+
+    private static long toLong(Long value) {
+        return value == null ? 0 : value;
+    }
+
+    private static String fold(String name) {
+        return name.toLowerCase(Locale.US);
+    }
+
+    private static TagData toTagData(Entry entry) {
+        if (entry == null) {
+            return null;
+        }
+        TagData tagData = new TagData();
+        tagData.setId(entry.id);
+        tagData.setUUID(entry.uuid);
+        tagData.setName(entry.name);
+        tagData.setDeletionDate(entry.deletionDate);
+        return tagData;
+    }
+}
@@ -9,6 +9,7 @@ import android.content.Context;
 import android.content.Intent;
 
 import com.todoroo.astrid.api.AstridApiConstants;
+import com.todoroo.astrid.api.AstridDetailExposer;
 
 import org.tasks.injection.InjectingBroadcastReceiver;
 
@@ -20,7 +21,7 @@ import javax.inject.Inject;
  * @author Tim Su <tim@todoroo.com>
  *
  */
-public class TagDetailExposer extends InjectingBroadcastReceiver {
+public class TagDetailExposer extends InjectingBroadcastReceiver implements AstridDetailExposer {
 
     @Inject TagService tagService;
 
@@ -33,7 +34,7 @@ public class TagDetailExposer extends InjectingBroadcastReceiver {
             return;
         }
 
-        String taskDetail = getTaskDetails(taskId);
+        String taskDetail = getTaskDetails(context, taskId);
         if(taskDetail == null) {
             return;
         }
@@ -46,7 +47,8 @@ public class TagDetailExposer extends InjectingBroadcastReceiver {
         context.sendBroadcast(broadcastIntent, AstridApiConstants.PERMISSION_READ);
     }
 
-    private String getTaskDetails(long id) {
+    @Override
+    public String getTaskDetails(Context context, long id) {
         String tagList = tagService.getTagsAsString(id);
         if(tagList.length() == 0) {
             return null;
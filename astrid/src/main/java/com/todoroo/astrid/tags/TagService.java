@@ -5,8 +5,6 @@
  */
 package com.todoroo.astrid.tags;
 
-import android.text.TextUtils;
-
 import com.todoroo.andlib.data.Property;
 import com.todoroo.andlib.data.Property.CountProperty;
 import com.todoroo.andlib.data.TodorooCursor;
@@ -26,13 +24,13 @@ import com.todoroo.astrid.data.Metadata;
 import com.todoroo.astrid.data.RemoteModel;
 import com.todoroo.astrid.data.TagData;
 import com.todoroo.astrid.data.Task;
-import com.todoroo.astrid.service.MetadataService;
 import com.todoroo.astrid.service.TagDataService;
 
 import org.tasks.R;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import javax.inject.Inject;
@@ -55,16 +53,17 @@ public final class TagService {
     };
 
     private final MetadataDao metadataDao;
-    private final MetadataService metadataService;
     private final TagDataService tagDataService;
     private final TagDataDao tagDataDao;
+    private final TagCatalog tagCatalog;
 
     @Inject
-    public TagService(MetadataDao metadataDao, MetadataService metadataService, TagDataService tagDataService, TagDataDao tagDataDao) {
+    public TagService(MetadataDao metadataDao, TagDataService tagDataService, TagDataDao tagDataDao,
+                      TagCatalog tagCatalog) {
         this.metadataDao = metadataDao;
-        this.metadataService = metadataService;
         this.tagDataService = tagDataService;
         this.tagDataDao = tagDataDao;
+        this.tagCatalog = tagCatalog;
     }
 
     /**
@@ -131,58 +130,30 @@ public final class TagService {
      */
     public Tag[] getGroupedTags(Order order, Criterion activeStatus) {
         Criterion criterion = Criterion.and(activeStatus, MetadataCriteria.withKey(TaskToTagMetadata.KEY));
-        Query query = Query.select(TaskToTagMetadata.TAG_NAME, TaskToTagMetadata.TAG_UUID, COUNT).
+        Query query = Query.select(TaskToTagMetadata.TAG_UUID, COUNT).
+            from(Metadata.TABLE).
             join(Join.inner(Task.TABLE, Metadata.TASK.eq(Task.ID))).
             where(criterion).
             orderBy(order).groupBy(TaskToTagMetadata.TAG_NAME);
-        TodorooCursor<Metadata> cursor = metadataDao.query(query);
-        try {
-            ArrayList<Tag> array = new ArrayList<>();
-            for (int i = 0; i < cursor.getCount(); i++) {
-                cursor.moveToNext();
-                Tag tag = tagFromUUID(cursor.get(TaskToTagMetadata.TAG_UUID));
-                if (tag != null) {
-                    array.add(tag);
-                }
-            }
-            return array.toArray(new Tag[array.size()]);
-        } finally {
-            cursor.close();
-        }
-    }
-
-    private Tag tagFromUUID(String uuid) {
-        TodorooCursor<TagData> tagData = tagDataService.query(Query.select(TagData.PROPERTIES).where(TagData.UUID.eq(uuid)));
-        try {
-            if (tagData.getCount() > 0) {
-                tagData.moveToFirst();
-                return new Tag(new TagData(tagData));
-            } else {
-                return null;
+        ArrayList<Tag> array = new ArrayList<>();
+        for (Map.Entry<String, Integer> count : tagCatalog.getCounts(query).entrySet()) {
+            TagData tagData = tagCatalog.getByUuid(count.getKey());
+            if (tagData != null) {
+                array.add(new Tag(tagData));
             }
-        } finally {
-            tagData.close();
         }
-
+        return array.toArray(new Tag[array.size()]);
     }
 
     public void createLink(Task task, String tagName) {
-        TodorooCursor<TagData> existingTag = tagDataService.query(Query.select(TagData.NAME, TagData.UUID)
-                .where(TagData.NAME.eqCaseInsensitive(tagName)));
-        try {
-            TagData tagData;
-            if (existingTag.getCount() == 0) {
-                tagData = new TagData();
-                tagData.setName(tagName);
-                tagDataService.save(tagData);
-            } else {
-                existingTag.moveToFirst();
-                tagData = new TagData(existingTag);
-            }
-            createLink(task, tagData.getName(), tagData.getUUID());
-        } finally {
-            existingTag.close();
+        TagData tagData = tagCatalog.getByName(tagName);
+        if (tagData == null) {
+            tagData = new TagData();
+            tagData.setName(tagName);
+            tagDataService.save(tagData);
+            tagCatalog.add(tagData);
         }
+        createLink(task, tagData.getName(), tagData.getUUID());
     }
 
     public void createLink(Task task, String tagName, String tagUuid) {
@@ -260,21 +231,8 @@ public final class TagService {
      */
     public ArrayList<Tag> getTagList() {
         ArrayList<Tag> tagList = new ArrayList<>();
-        TodorooCursor<TagData> cursor = tagDataService.query(Query.select(TagData.PROPERTIES).where(Criterion.and(
-                TagData.DELETION_DATE.eq(0),
-                TagData.NAME.isNotNull())).orderBy(Order.asc(Functions.upper(TagData.NAME))));
-        try {
-            TagData tagData = new TagData();
-            for(cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
-                tagData.readFromCursor(cursor);
-                Tag tag = new Tag(tagData);
-                if(TextUtils.isEmpty(tag.tag)) {
-                    continue;
-                }
-                tagList.add(tag);
-            }
-        } finally {
-            cursor.close();
+        for (TagData tagData : tagCatalog.getTags()) {
+            tagList.add(new Tag(tagData));
         }
         return tagList;
     }
@@ -301,6 +259,7 @@ public final class TagService {
                 tagData = new TagData();
                 tagData.setName(tag);
                 tagDataService.save(tagData);
+                tagCatalog.add(tagData);
             }
             if (existingLinks.contains(tagData.getUUID())) {
                 existingLinks.remove(tagData.getUUID());
@@ -319,47 +278,32 @@ public final class TagService {
      * given tag, return that. Otherwise, return the argument
      */
     public String getTagWithCase(String tag) {
-        String tagWithCase = tag;
-        TodorooCursor<Metadata> tagMetadata = metadataService.query(Query.select(TaskToTagMetadata.TAG_NAME).where(TagService.tagEqIgnoreCase(tag, Criterion.all)).limit(1));
+        TodorooCursor<Metadata> tagMetadata = metadataDao.query(Query.select(TaskToTagMetadata.TAG_NAME)
+                .where(tagEqIgnoreCase(tag, Criterion.all)).limit(1));
         try {
-            if (tagMetadata.getCount() > 0) {
-                tagMetadata.moveToFirst();
-                Metadata tagMatch = new Metadata(tagMetadata);
-                tagWithCase = tagMatch.getValue(TaskToTagMetadata.TAG_NAME);
-            } else {
-                TodorooCursor<TagData> tagData = tagDataService.query(Query.select(TagData.NAME).where(TagData.NAME.eqCaseInsensitive(tag)));
-                try {
-                    if (tagData.getCount() > 0) {
-                        tagData.moveToFirst();
-                        tagWithCase = new TagData(tagData).getName();
-                    }
-                } finally {
-                    tagData.close();
-                }
+            if (tagMetadata.moveToFirst()) {
+                return tagMetadata.get(TaskToTagMetadata.TAG_NAME);
             }
         } finally {
             tagMetadata.close();
         }
-        return tagWithCase;
+        TagData tagData = tagCatalog.getByName(tag);
+        return tagData == null ? tag : tagData.getName();
     }
 
     public TagData getTagDataWithCase(String tag, Property<?>... properties) {
-        TodorooCursor<TagData> tagData = tagDataService.query(Query.select(properties).where(TagData.NAME.eqCaseInsensitive(tag)));
-        try {
-            if (tagData.getCount() > 0) {
-                tagData.moveToFirst();
-                return new TagData(tagData);
-            }
-        } finally {
-            tagData.close();
+        TagData tagData = tagCatalog.getByName(tag);
+        if (tagData == null || TagCatalog.holds(properties)) {
+            return tagData;
         }
-        return null;
+        return tagDataDao.fetch(tagData.getUUID(), properties);
     }
 
     public int rename(String uuid, String newName) {
         TagData template = new TagData();
         template.setName(newName);
         tagDataDao.update(TagData.UUID.eq(uuid), template);
+        tagCatalog.invalidate();
 
         Metadata metadataTemplate = new Metadata();
         metadataTemplate.setValue(TaskToTagMetadata.TAG_NAME, newName);
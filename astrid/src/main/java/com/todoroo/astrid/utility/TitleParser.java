@@ -21,6 +21,9 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -29,6 +32,126 @@ public class TitleParser {
 
     private static final Logger log = LoggerFactory.getLogger(TitleParser.class);
 
+    // patterns are compiled once, parsing runs for every task created with a title
+
+    private static final Pattern TAG_PATTERN = Pattern.compile("(\\s|^)#(\\(.*\\)|[^\\s]+)");
+    private static final Pattern CONTEXT_PATTERN = Pattern.compile("(\\s|^)@(\\(.*\\)|[^\\s]+)");
+
+    private static final Pattern[] IMPORTANCE_PATTERNS = compile(
+            "()((^|[^\\w!])!+|(^|[^\\w!])!\\d)($|[^\\w!])",
+            "()(?i)((\\s?bang){1,})$",
+            "(?i)(\\spriority\\s?(\\d)$)",
+            "(?i)(\\sbang\\s?(\\d)$)",
+            "(?i)()(\\shigh(est)?|\\slow(est)?|\\stop|\\sleast) ?priority$"
+    );
+
+    private static final Pattern[] DAYS_OF_WEEK = compile(
+            "(?i)(\\(|\\b)today(\\)|\\b)",
+            "(?i)(\\(|\\b)tomorrow(\\)|\\b)",
+            "(?i)(\\(|\\b)mon(day(\\)|\\b)|(\\)|\\.))",
+            "(?i)(\\(|\\b)tue(sday(\\)|\\b)|(\\)|\\.))",
+            "(?i)(\\(|\\b)wed(nesday(\\)|\\b)|(\\)|\\.))",
+            "(?i)(\\(|\\b)thu(rsday(\\)|\\b)|(\\)|\\.))",
+            "(?i)(\\(|\\b)fri(day(\\)|\\b)|(\\)|\\.))",
+            "(?i)(\\(|\\b)sat(urday(\\)|\\b)|(\\)|\\.))",
+            "(?i)(\\(|\\b)sun(day(\\)|\\b)|(\\)|\\.))"
+    );
+
+    private static final Pattern[] DATES = compile(
+            "(?i)(\\(|\\b)(jan(\\.|uary))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
+            "(?i)(\\(|\\b)(feb(\\.|ruary))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
+            "(?i)(\\(|\\b)(mar(\\.|ch))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
+            "(?i)(\\(|\\b)(apr(\\.|il))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
+            "(?i)(\\(|\\b)(may())(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
+            "(?i)(\\(|\\b)(jun(\\.|e))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
+            "(?i)(\\(|\\b)(jul(\\.|y))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
+            "(?i)(\\(|\\b)(aug(\\.|ust))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
+            "(?i)(\\(|\\b)(sep(\\.|tember))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
+            "(?i)(\\(|\\b)(oct(\\.|ober))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
+            "(?i)(\\(|\\b)(nov(\\.|ember))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
+            "(?i)(\\(|\\b)(dec(\\.|ember))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)"
+    );
+
+    // for dates in the format MM/DD
+    private static final Pattern MONTH_SLASH_DAY = Pattern.compile(
+            "(?i)(\\(|\\b)(1[0-2]|0?[1-9])(\\/|-)(3[0-1]|[0-2]?[0-9])(\\/|-)?(\\d{4}|\\d{2})?(\\)|\\b)");
+
+    private static final Map<Pattern, Integer> DAY_TIMES = new LinkedHashMap<>();
+    static {
+        DAY_TIMES.put(Pattern.compile("(?i)\\bbreakfast\\b"), 8);
+        DAY_TIMES.put(Pattern.compile("(?i)\\blunch\\b"), 12);
+        DAY_TIMES.put(Pattern.compile("(?i)\\bsupper\\b"), 18);
+        DAY_TIMES.put(Pattern.compile("(?i)\\bdinner\\b"), 18);
+        DAY_TIMES.put(Pattern.compile("(?i)\\bbrunch\\b"), 10);
+        DAY_TIMES.put(Pattern.compile("(?i)\\bmorning\\b"), 8);
+        DAY_TIMES.put(Pattern.compile("(?i)\\bafternoon\\b"), 15);
+        DAY_TIMES.put(Pattern.compile("(?i)\\bevening\\b"), 19);
+        DAY_TIMES.put(Pattern.compile("(?i)\\bnight\\b"), 19);
+        DAY_TIMES.put(Pattern.compile("(?i)\\bmidnight\\b"), 0);
+        DAY_TIMES.put(Pattern.compile("(?i)\\bnoon\\b"), 12);
+    }
+
+    private static final Pattern[] TIMES = compile(
+            //[time] am/pm
+            "(?i)(\\b)([01]?\\d):?([0-5]\\d)? ?([ap]\\.?m?\\.?)\\b",
+            //army time
+            "(?i)\\b(([0-2]?[0-9]):([0-5][0-9]))(\\b)",
+            //[int] o'clock
+            "(?i)\\b(([01]?\\d)() ?o'? ?clock) ?([ap]\\.?m\\.?)?\\b",
+            //at [int]
+            "(?i)(\\bat) ([01]?\\d)()($|\\D($|\\D))"
+
+            //m.group(2) holds the hour
+            //m.group(3) holds the minutes
+            //m.group(4) holds am/pm
+    );
+
+    private static final Map<Pattern, Frequency> REPEAT_TIMES = new LinkedHashMap<>();
+    static {
+        REPEAT_TIMES.put(Pattern.compile("(?i)\\bevery ?\\w{0,6} days?\\b"), Frequency.DAILY);
+        REPEAT_TIMES.put(Pattern.compile("(?i)\\bevery ?\\w{0,6} ?nights?\\b"), Frequency.DAILY);
+        REPEAT_TIMES.put(Pattern.compile("(?i)\\bevery ?\\w{0,6} ?mornings?\\b"), Frequency.DAILY);
+        REPEAT_TIMES.put(Pattern.compile("(?i)\\bevery ?\\w{0,6} ?evenings?\\b"), Frequency.DAILY);
+        REPEAT_TIMES.put(Pattern.compile("(?i)\\bevery ?\\w{0,6} ?afternoons?\\b"), Frequency.DAILY);
+        REPEAT_TIMES.put(Pattern.compile("(?i)\\bevery \\w{0,6} ?weeks?\\b"), Frequency.WEEKLY);
+        REPEAT_TIMES.put(Pattern.compile("(?i)\\bevery \\w{0,6} ?(mon|tues|wednes|thurs|fri|satur|sun)days?\\b"), Frequency.WEEKLY);
+        REPEAT_TIMES.put(Pattern.compile("(?i)\\bevery \\w{0,6} ?months?\\b"), Frequency.MONTHLY);
+        REPEAT_TIMES.put(Pattern.compile("(?i)\\bevery \\w{0,6} ?years?\\b"), Frequency.YEARLY);
+    }
+
+    //pre-determined intervals of 1
+    private static final Map<Pattern, Frequency> REPEAT_TIMES_INTERVAL_ONE = new LinkedHashMap<>();
+    static {
+        REPEAT_TIMES_INTERVAL_ONE.put(Pattern.compile("(?i)\\bdaily\\b"), Frequency.DAILY);
+        REPEAT_TIMES_INTERVAL_ONE.put(Pattern.compile("(?i)\\beveryday\\b"), Frequency.DAILY);
+        REPEAT_TIMES_INTERVAL_ONE.put(Pattern.compile("(?i)\\bweekly\\b"), Frequency.WEEKLY);
+        REPEAT_TIMES_INTERVAL_ONE.put(Pattern.compile("(?i)\\bmonthly\\b"), Frequency.MONTHLY);
+        REPEAT_TIMES_INTERVAL_ONE.put(Pattern.compile("(?i)\\byearly\\b"), Frequency.YEARLY);
+    }
+
+    private static final Pattern INTERVAL = Pattern.compile("(?i)\\bevery (\\w*)\\b");
+
+    private static final Map<String, Integer> WORDS_TO_NUM = new HashMap<>();
+    static {
+        String[] words = new String[] {
+                "one", "two", "three", "four", "five", "six",
+                "seven", "eight", "nine", "ten", "eleven", "twelve"
+        };
+        for(int i = 0; i < words.length; i++) {
+            WORDS_TO_NUM.put(words[i], i+1);
+            WORDS_TO_NUM.put(Integer.toString(i + 1), i + 1);
+        }
+        WORDS_TO_NUM.put("other" , 2);
+    }
+
+    private static Pattern[] compile(String... regexes) {
+        Pattern[] patterns = new Pattern[regexes.length];
+        for (int i = 0; i < regexes.length; i++) {
+            patterns[i] = Pattern.compile(regexes[i]);
+        }
+        return patterns;
+    }
+
     public static boolean parse(TagService tagService, Task task, ArrayList<String> tags) {
         boolean markup;
         markup = repeatHelper(task);
@@ -48,37 +171,33 @@ public class TitleParser {
         return pattern;
     }
     public static void listHelper(TagService tagService, Task task, ArrayList<String> tags) {
-        String inputText = task.getTitle();
-        Pattern tagPattern = Pattern.compile("(\\s|^)#(\\(.*\\)|[^\\s]+)");
-        Pattern contextPattern = Pattern.compile("(\\s|^)@(\\(.*\\)|[^\\s]+)");
+        String title = task.getTitle();
+        if (title.indexOf('#') < 0 && title.indexOf('@') < 0) {
+            task.setTitle(title.trim());
+            return;
+        }
+        StringBuilder inputText = new StringBuilder(title);
+        Matcher tagMatcher = TAG_PATTERN.matcher(inputText);
+        Matcher contextMatcher = CONTEXT_PATTERN.matcher(inputText);
 
         Set<String> addedTags = new HashSet<>();
 
         while(true) {
-            Matcher m = tagPattern.matcher(inputText);
-            if(m.find()) {
-                String tag = TitleParser.trimParenthesis(m.group(2));
-                String tagWithCase = tagService.getTagWithCase(tag);
-                if (!addedTags.contains(tagWithCase)) {
-                    tags.add(tagWithCase);
-                }
-                addedTags.add(tagWithCase);
-            } else {
-                m = contextPattern.matcher(inputText);
-                if(m.find()) {
-                    String tag = TitleParser.trimParenthesis(m.group(2));
-                    String tagWithCase = tagService.getTagWithCase(tag);
-                    if (!addedTags.contains(tagWithCase)) {
-                        tags.add(tagWithCase);
-                    }
-                    addedTags.add(tagWithCase);
-                } else{
+            Matcher m = tagMatcher.reset(inputText);
+            if(!m.find()) {
+                m = contextMatcher.reset(inputText);
+                if(!m.find()) {
                     break;
                 }
             }
-            inputText = inputText.substring(0, m.start()) + inputText.substring(m.end());
+            String tag = TitleParser.trimParenthesis(m.group(2));
+            String tagWithCase = tagService.getTagWithCase(tag);
+            if (addedTags.add(tagWithCase)) {
+                tags.add(tagWithCase);
+            }
+            inputText.delete(m.start(), m.end());
         }
-        task.setTitle(inputText.trim());
+        task.setTitle(inputText.toString().trim());
     }
 
     //helper method for priorityHelper. converts the string to a Task Importance
@@ -101,31 +220,24 @@ public class TitleParser {
 
     //priorityHelper parses the string and sets the Task's importance
     private static boolean priorityHelper(Task task) {
-        String inputText = task.getTitle();
-        String[] importanceStrings = {
-                "()((^|[^\\w!])!+|(^|[^\\w!])!\\d)($|[^\\w!])",
-                "()(?i)((\\s?bang){1,})$",
-                "(?i)(\\spriority\\s?(\\d)$)",
-                "(?i)(\\sbang\\s?(\\d)$)",
-                "(?i)()(\\shigh(est)?|\\slow(est)?|\\stop|\\sleast) ?priority$"
-        };
+        String title = task.getTitle();
+        String lower = title.toLowerCase(Locale.US);
+        if (lower.indexOf('!') < 0 && !lower.contains("bang") && !lower.contains("priority")) {
+            task.setTitle(title.trim());
+            return false;
+        }
+        StringBuilder inputText = new StringBuilder(title);
         boolean result = false;
-        for (String importanceString:importanceStrings){
-            Pattern importancePattern = Pattern.compile(importanceString);
-            while (true){
-                Matcher m = importancePattern.matcher(inputText);
-                if(m.find()) {
-                    result = true;
-                    task.setImportance(strToPriority(m.group(2).trim()));
-                    int start = m.start() == 0 ? 0 : m.start() + 1;
-                    inputText = inputText.substring(0, start) + inputText.substring(m.end());
-
-                } else {
-                    break;
-                }
+        for (Pattern importancePattern : IMPORTANCE_PATTERNS){
+            Matcher m = importancePattern.matcher(inputText);
+            while (m.reset(inputText).find()) {
+                result = true;
+                task.setImportance(strToPriority(m.group(2).trim()));
+                int start = m.start() == 0 ? 0 : m.start() + 1;
+                inputText.delete(start, m.end());
             }
         }
-        task.setTitle(inputText.trim());
+        task.setTitle(inputText.toString().trim());
         return result;
     }
 
@@ -174,20 +286,7 @@ public class TitleParser {
         String inputText = task.getTitle();
         Calendar cal = null;
         Boolean containsSpecificTime = false;
-        String[] daysOfWeek = {
-                "(?i)(\\(|\\b)today(\\)|\\b)",
-                "(?i)(\\(|\\b)tomorrow(\\)|\\b)",
-                "(?i)(\\(|\\b)mon(day(\\)|\\b)|(\\)|\\.))",
-                "(?i)(\\(|\\b)tue(sday(\\)|\\b)|(\\)|\\.))",
-                "(?i)(\\(|\\b)wed(nesday(\\)|\\b)|(\\)|\\.))",
-                "(?i)(\\(|\\b)thu(rsday(\\)|\\b)|(\\)|\\.))",
-                "(?i)(\\(|\\b)fri(day(\\)|\\b)|(\\)|\\.))",
-                "(?i)(\\(|\\b)sat(urday(\\)|\\b)|(\\)|\\.))",
-                "(?i)(\\(|\\b)sun(day(\\)|\\b)|(\\)|\\.))"
-        };
-
-        for (String date : daysOfWeek){
-            Pattern pattern = Pattern.compile(date);
+        for (Pattern pattern : DAYS_OF_WEEK){
             Matcher m = pattern.matcher(inputText);
             if (m.find()) {
                 String toParse = stripParens(m.group(0));
@@ -197,25 +296,9 @@ public class TitleParser {
             }
         }
 
-        String[] dates = {
-                "(?i)(\\(|\\b)(jan(\\.|uary))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
-                "(?i)(\\(|\\b)(feb(\\.|ruary))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
-                "(?i)(\\(|\\b)(mar(\\.|ch))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
-                "(?i)(\\(|\\b)(apr(\\.|il))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
-                "(?i)(\\(|\\b)(may())(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
-                "(?i)(\\(|\\b)(jun(\\.|e))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
-                "(?i)(\\(|\\b)(jul(\\.|y))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
-                "(?i)(\\(|\\b)(aug(\\.|ust))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
-                "(?i)(\\(|\\b)(sep(\\.|tember))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
-                "(?i)(\\(|\\b)(oct(\\.|ober))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
-                "(?i)(\\(|\\b)(nov(\\.|ember))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)",
-                "(?i)(\\(|\\b)(dec(\\.|ember))(\\s(3[0-1]|[0-2]?[0-9])),?( (\\d{4}|\\d{2}))?(\\)|\\b)"
-        };
-
         // m.group(2) = "month"
         //m.group(5) = "day"
-        for (String date: dates) {
-            Pattern pattern = Pattern.compile(date);
+        for (Pattern pattern : DATES) {
             Matcher m = pattern.matcher(inputText);
 
             if (m.find()){
@@ -241,8 +324,7 @@ public class TitleParser {
         }
 
         // for dates in the format MM/DD
-        Pattern p = Pattern.compile("(?i)(\\(|\\b)(1[0-2]|0?[1-9])(\\/|-)(3[0-1]|[0-2]?[0-9])(\\/|-)?(\\d{4}|\\d{2})?(\\)|\\b)");
-        Matcher match = p.matcher(inputText);
+        Matcher match = MONTH_SLASH_DAY.matcher(inputText);
         if (match.find()){
             Calendar dCal = Calendar.getInstance();
             setCalendarToDefaultTime(dCal);
@@ -266,26 +348,11 @@ public class TitleParser {
             inputText = removeIfParenthetical(match, inputText);
         }
 
-        HashMap<String, Integer> dayTimes = new HashMap<>();
-        dayTimes.put("(?i)\\bbreakfast\\b", 8);
-        dayTimes.put("(?i)\\blunch\\b", 12);
-        dayTimes.put("(?i)\\bsupper\\b", 18);
-        dayTimes.put("(?i)\\bdinner\\b", 18);
-        dayTimes.put("(?i)\\bbrunch\\b", 10);
-        dayTimes.put("(?i)\\bmorning\\b", 8);
-        dayTimes.put("(?i)\\bafternoon\\b", 15);
-        dayTimes.put("(?i)\\bevening\\b", 19);
-        dayTimes.put("(?i)\\bnight\\b", 19);
-        dayTimes.put("(?i)\\bmidnight\\b", 0);
-        dayTimes.put("(?i)\\bnoon\\b", 12);
-
-        Set<String> keys = dayTimes.keySet();
-        for (String dayTime : keys) {
-            Pattern pattern = Pattern.compile(dayTime);
-            Matcher m = pattern.matcher(inputText);
+        for (Map.Entry<Pattern, Integer> dayTime : DAY_TIMES.entrySet()) {
+            Matcher m = dayTime.getKey().matcher(inputText);
             if (m.find()) {
                 containsSpecificTime = true;
-                int timeHour = dayTimes.get(dayTime);
+                int timeHour = dayTime.getValue();
                 Calendar dayTimesCal = Calendar.getInstance();
                 setCalendarToDefaultTime(dayTimesCal);
                 dayTimesCal.set(Calendar.HOUR, timeHour);
@@ -298,23 +365,7 @@ public class TitleParser {
             }
         }
 
-        String[] times = {
-                //[time] am/pm
-                "(?i)(\\b)([01]?\\d):?([0-5]\\d)? ?([ap]\\.?m?\\.?)\\b",
-                //army time
-                "(?i)\\b(([0-2]?[0-9]):([0-5][0-9]))(\\b)",
-                //[int] o'clock
-                "(?i)\\b(([01]?\\d)() ?o'? ?clock) ?([ap]\\.?m\\.?)?\\b",
-                //at [int]
-                "(?i)(\\bat) ([01]?\\d)()($|\\D($|\\D))"
-
-                //m.group(2) holds the hour
-                //m.group(3) holds the minutes
-                //m.group(4) holds am/pm
-        };
-
-        for (String time : times){
-            Pattern pattern = Pattern.compile(time);
+        for (Pattern pattern : TIMES){
             Matcher m = pattern.matcher(inputText);
             if (m.find()) {
                 containsSpecificTime = true;
@@ -379,31 +430,15 @@ public class TitleParser {
             return false;
         }
         String inputText = task.getTitle();
-        HashMap<String, Frequency> repeatTimes = new HashMap<>();
-        repeatTimes.put("(?i)\\bevery ?\\w{0,6} days?\\b" , Frequency.DAILY);
-        repeatTimes.put("(?i)\\bevery ?\\w{0,6} ?nights?\\b" , Frequency.DAILY);
-        repeatTimes.put("(?i)\\bevery ?\\w{0,6} ?mornings?\\b" , Frequency.DAILY);
-        repeatTimes.put("(?i)\\bevery ?\\w{0,6} ?evenings?\\b" , Frequency.DAILY);
-        repeatTimes.put("(?i)\\bevery ?\\w{0,6} ?afternoons?\\b" , Frequency.DAILY);
-        repeatTimes.put("(?i)\\bevery \\w{0,6} ?weeks?\\b", Frequency.WEEKLY);
-        repeatTimes.put("(?i)\\bevery \\w{0,6} ?(mon|tues|wednes|thurs|fri|satur|sun)days?\\b", Frequency.WEEKLY);
-        repeatTimes.put("(?i)\\bevery \\w{0,6} ?months?\\b", Frequency.MONTHLY);
-        repeatTimes.put("(?i)\\bevery \\w{0,6} ?years?\\b", Frequency.YEARLY);
-
-        HashMap<String, Frequency> repeatTimesIntervalOne = new HashMap<>();
-        //pre-determined intervals of 1
-        repeatTimesIntervalOne.put( "(?i)\\bdaily\\b" , Frequency.DAILY);
-        repeatTimesIntervalOne.put( "(?i)\\beveryday\\b" , Frequency.DAILY);
-        repeatTimesIntervalOne.put( "(?i)\\bweekly\\b" , Frequency.WEEKLY);
-        repeatTimesIntervalOne.put( "(?i)\\bmonthly\\b" ,Frequency.MONTHLY);
-        repeatTimesIntervalOne.put( "(?i)\\byearly\\b" , Frequency.YEARLY);
-
-        Set<String> keys = repeatTimes.keySet();
-        for (String repeatTime : keys){
-            Pattern pattern = Pattern.compile(repeatTime);
-            Matcher m = pattern.matcher(inputText);
+        String lower = inputText.toLowerCase(Locale.US);
+        if (!lower.contains("every") && !lower.contains("ly")) {
+            return false;
+        }
+
+        for (Map.Entry<Pattern, Frequency> repeatTime : REPEAT_TIMES.entrySet()){
+            Matcher m = repeatTime.getKey().matcher(inputText);
             if (m.find()){
-                Frequency rtime = repeatTimes.get(repeatTime);
+                Frequency rtime = repeatTime.getValue();
                 RRule rrule = new RRule();
                 rrule.setFreq(rtime);
                 rrule.setInterval(findInterval(inputText));
@@ -412,11 +447,10 @@ public class TitleParser {
             }
         }
 
-        for (String repeatTimeIntervalOne:repeatTimesIntervalOne.keySet()){
-            Pattern pattern = Pattern.compile(repeatTimeIntervalOne);
-            Matcher m = pattern.matcher(inputText);
+        for (Map.Entry<Pattern, Frequency> repeatTimeIntervalOne : REPEAT_TIMES_INTERVAL_ONE.entrySet()){
+            Matcher m = repeatTimeIntervalOne.getKey().matcher(inputText);
             if (m.find()) {
-                Frequency rtime = repeatTimesIntervalOne.get(repeatTimeIntervalOne);
+                Frequency rtime = repeatTimeIntervalOne.getValue();
                 RRule rrule = new RRule();
                 rrule.setFreq(rtime);
                 rrule.setInterval(1);
@@ -430,24 +464,12 @@ public class TitleParser {
 
     //helper method for repeatHelper.
     private static int findInterval(String inputText) {
-        HashMap<String,Integer> wordsToNum = new HashMap<>();
-        String[] words = new String[] {
-                "one", "two", "three", "four", "five", "six",
-                "seven", "eight", "nine", "ten", "eleven", "twelve"
-        };
-        for(int i = 0; i < words.length; i++) {
-            wordsToNum.put(words[i], i+1);
-            wordsToNum.put(Integer.toString(i + 1), i + 1);
-        }
-        wordsToNum.put("other" , 2);
-
-        Pattern pattern = Pattern.compile("(?i)\\bevery (\\w*)\\b");
         int interval = 1;
-        Matcher m = pattern.matcher(inputText);
+        Matcher m = INTERVAL.matcher(inputText);
         if (m.find() && m.group(1)!=null){
             String intervalStr = m.group(1);
-            if (wordsToNum.containsKey(intervalStr)) {
-                interval = wordsToNum.get(intervalStr);
+            if (WORDS_TO_NUM.containsKey(intervalStr)) {
+                interval = WORDS_TO_NUM.get(intervalStr);
             } else {
                 try {
                     interval = Integer.parseInt(intervalStr);
@@ -23,6 +23,7 @@ import com.todoroo.astrid.api.FilterWithCustomIntent;
 
 import org.tasks.R;
 import org.tasks.filters.FilterCounter;
+import org.tasks.filters.FilterRegistry;
 import org.tasks.injection.InjectingListActivity;
 import org.tasks.injection.Injector;
 import org.tasks.preferences.ActivityPreferences;
@@ -45,6 +46,7 @@ public class WidgetConfigActivity extends InjectingListActivity {
 
     @Inject WidgetHelper widgetHelper;
     @Inject FilterCounter filterCounter;
+    @Inject FilterRegistry filterRegistry;
     @Inject Injector injector;
     @Inject ActivityPreferences preferences;
 
@@ -88,7 +90,7 @@ public class WidgetConfigActivity extends InjectingListActivity {
              }
 
              // set up ui
-             adapter = new FilterAdapter(injector, filterCounter, this, getListView(),
+             adapter = new FilterAdapter(injector, filterCounter, filterRegistry, this, getListView(),
                      R.layout.filter_adapter_row, true, true);
              adapter.filterStyle = R.style.TextAppearance_FLA_Filter_Widget;
              setListAdapter(adapter);
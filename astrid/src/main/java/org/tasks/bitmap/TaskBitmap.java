@@ -0,0 +1,598 @@
+package org.tasks.bitmap;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of task ids. Ids are split at their low 16 bits, and the
+ * low bits of ids sharing the same high bits are kept in a sorted array
+ * while there are few of them, or in a 65536 bit bitmap once there are
+ * more, as in roaring bitmaps. Set operations return new bitmaps.
+ */
+public class TaskBitmap {
+
+    /** Largest id that can be stored */
+    public static final long MAX_ID = 0xFFFFFFFFL;
+
+    /** Sorted arrays are converted to bitmaps once they hold more values than this */
+    static final int MAX_ARRAY_SIZE = 4096;
+
+    private char[] keys;
+    private Container[] containers;
+    private int size = 0;
+
+    public TaskBitmap() {
+        this(4);
+    }
+
+    private TaskBitmap(int capacity) {
+        keys = new char[Math.max(capacity, 1)];
+        containers = new Container[keys.length];
+    }
+
+    public static TaskBitmap of(long... ids) {
+        TaskBitmap bitmap = new TaskBitmap();
+        for (long id : ids) {
+            bitmap.add(id);
+        }
+        return bitmap;
+    }
+
+    public void add(long id) {
+        if (id < 0 || id > MAX_ID) {
+            throw new IllegalArgumentException("Task id out of range: " + id); //$NON-NLS-1$
+        }
+        char key = high(id);
+        int index = indexOf(key);
+        if (index >= 0) {
+            containers[index] = containers[index].add(low(id));
+        } else {
+            insert(-index - 1, key, new ArrayContainer().add(low(id)));
+        }
+    }
+
+    public void remove(long id) {
+        if (id < 0 || id > MAX_ID) {
+            return;
+        }
+        int index = indexOf(high(id));
+        if (index < 0) {
+            return;
+        }
+        Container container = containers[index].remove(low(id));
+        if (container.cardinality() == 0) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+            containers[--size] = null;
+        } else {
+            containers[index] = container;
+        }
+    }
+
+    public boolean contains(long id) {
+        if (id < 0 || id > MAX_ID) {
+            return false;
+        }
+        int index = indexOf(high(id));
+        return index >= 0 && containers[index].contains(low(id));
+    }
+
+    public int getCardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public TaskBitmap copy() {
+        TaskBitmap copy = new TaskBitmap(size);
+        for (int i = 0; i < size; i++) {
+            copy.append(keys[i], containers[i].copy());
+        }
+        return copy;
+    }
+
+    /**
+     * @return ids in ascending order
+     */
+    public long[] toArray() {
+        return toArray(0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return up to limit ids in ascending order, after skipping the first
+     * offset ids
+     */
+    public long[] toArray(int offset, int limit) {
+        long[] result = new long[Math.max(0, Math.min(limit, getCardinality() - offset))];
+        int skip = offset, count = 0;
+        for (int i = 0; i < size && count < result.length; i++) {
+            int cardinality = containers[i].cardinality();
+            if (skip >= cardinality) {
+                skip -= cardinality;
+                continue;
+            }
+            count = containers[i].copyTo((long) keys[i] << 16, skip, result, count);
+            skip = 0;
+        }
+        return result;
+    }
+
+    /**
+     * @return ids in either bitmap
+     */
+    public static TaskBitmap or(TaskBitmap a, TaskBitmap b) {
+        TaskBitmap result = new TaskBitmap(a.size + b.size);
+        int i = 0, j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                result.append(a.keys[i], a.containers[i++].copy());
+            } else if (a.keys[i] > b.keys[j]) {
+                result.append(b.keys[j], b.containers[j++].copy());
+            } else {
+                result.append(a.keys[i], a.containers[i++].or(b.containers[j++]));
+            }
+        }
+        for (; i < a.size; i++) {
+            result.append(a.keys[i], a.containers[i].copy());
+        }
+        for (; j < b.size; j++) {
+            result.append(b.keys[j], b.containers[j].copy());
+        }
+        return result;
+    }
+
+    /**
+     * @return ids in both bitmaps
+     */
+    public static TaskBitmap and(TaskBitmap a, TaskBitmap b) {
+        TaskBitmap result = new TaskBitmap(Math.min(a.size, b.size));
+        int i = 0, j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                result.appendIfNotEmpty(a.keys[i], a.containers[i++].and(b.containers[j++]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return ids in the first bitmap but not in the second
+     */
+    public static TaskBitmap andNot(TaskBitmap a, TaskBitmap b) {
+        TaskBitmap result = new TaskBitmap(a.size);
+        int i = 0, j = 0;
+        while (i < a.size) {
+            if (j == b.size || a.keys[i] < b.keys[j]) {
+                result.append(a.keys[i], a.containers[i++].copy());
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                result.appendIfNotEmpty(a.keys[i], a.containers[i++].andNot(b.containers[j++]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return number of groups of ids kept in a bitmap rather than a sorted
+     * array
+     */
+    int getBitmapContainerCount() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (containers[i] instanceof BitmapContainer) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TaskBitmap && Arrays.equals(toArray(), ((TaskBitmap) o).toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    private static char high(long id) {
+        return (char) (id >>> 16);
+    }
+
+    private static char low(long id) {
+        return (char) id;
+    }
+
+    private int indexOf(char key) {
+        int low = 0, high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] < key) {
+                low = middle + 1;
+            } else if (keys[middle] > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void insert(int index, char key, Container container) {
+        ensureCapacity(size + 1);
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private void append(char key, Container container) {
+        ensureCapacity(size + 1);
+        keys[size] = key;
+        containers[size++] = container;
+    }
+
+    private void appendIfNotEmpty(char key, Container container) {
+        if (container.cardinality() > 0) {
+            append(key, container);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= keys.length) {
+            return;
+        }
+        int length = Math.max(capacity, keys.length * 2);
+        char[] newKeys = new char[length];
+        Container[] newContainers = new Container[length];
+        System.arraycopy(keys, 0, newKeys, 0, size);
+        System.arraycopy(containers, 0, newContainers, 0, size);
+        keys = newKeys;
+        containers = newContainers;
+    }
+
+    // --- containers of the low 16 bits of ids
+
+    private abstract static class Container {
+        abstract int cardinality();
+        abstract boolean contains(char value);
+
+        /** @return this container, or the container replacing it */
+        abstract Container add(char value);
+
+        /** @return this container, or the container replacing it */
+        abstract Container remove(char value);
+
+        abstract Container or(Container other);
+        abstract Container and(Container other);
+        abstract Container andNot(Container other);
+        abstract Container copy();
+
+        /**
+         * Copy values after the first skip ones until the destination is full
+         *
+         * @return offset after the last value copied
+         */
+        abstract int copyTo(long high, int skip, long[] destination, int offset);
+    }
+
+    private static final class ArrayContainer extends Container {
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return indexOf(value) >= 0;
+        }
+
+        @Override
+        Container add(char value) {
+            int index = indexOf(value);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == MAX_ARRAY_SIZE) {
+                return toBitmap().add(value);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                char[] grown = new char[Math.min(MAX_ARRAY_SIZE, Math.max(4, values.length * 2))];
+                System.arraycopy(values, 0, grown, 0, cardinality);
+                values = grown;
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int index = indexOf(value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            if (cardinality + array.cardinality > MAX_ARRAY_SIZE) {
+                return toBitmap().orWith(array);
+            }
+            char[] result = new char[cardinality + array.cardinality];
+            int i = 0, j = 0, n = 0;
+            while (i < cardinality && j < array.cardinality) {
+                if (values[i] < array.values[j]) {
+                    result[n++] = values[i++];
+                } else if (values[i] > array.values[j]) {
+                    result[n++] = array.values[j++];
+                } else {
+                    result[n++] = values[i++];
+                    j++;
+                }
+            }
+            while (i < cardinality) {
+                result[n++] = values[i++];
+            }
+            while (j < array.cardinality) {
+                result[n++] = array.values[j++];
+            }
+            return new ArrayContainer(result, n);
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[cardinality];
+            int n = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (other.contains(values[i])) {
+                    result[n++] = values[i];
+                }
+            }
+            return new ArrayContainer(result, n);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            char[] result = new char[cardinality];
+            int n = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (!other.contains(values[i])) {
+                    result[n++] = values[i];
+                }
+            }
+            return new ArrayContainer(result, n);
+        }
+
+        @Override
+        Container copy() {
+            char[] copy = new char[cardinality];
+            System.arraycopy(values, 0, copy, 0, cardinality);
+            return new ArrayContainer(copy, cardinality);
+        }
+
+        @Override
+        int copyTo(long high, int skip, long[] destination, int offset) {
+            for (int i = skip; i < cardinality && offset < destination.length; i++) {
+                destination[offset++] = high | values[i];
+            }
+            return offset;
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+
+        private int indexOf(char value) {
+            int low = 0, high = cardinality - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (values[middle] < value) {
+                    low = middle + 1;
+                } else if (values[middle] > value) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer() {
+            this(new long[1024], 0);
+        }
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        Container add(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) == 0) {
+                words[value >>> 6] |= bit;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) != 0) {
+                words[value >>> 6] &= ~bit;
+                cardinality--;
+            }
+            return shrink();
+        }
+
+        @Override
+        Container or(Container other) {
+            return ((BitmapContainer) copy()).orWith(other);
+        }
+
+        /** Add the values of another container to this one */
+        BitmapContainer orWith(Container other) {
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality(); i++) {
+                    add(array.values[i]);
+                }
+            } else {
+                long[] otherWords = ((BitmapContainer) other).words;
+                for (int i = 0; i < words.length; i++) {
+                    words[i] |= otherWords[i];
+                }
+                recount();
+            }
+            return this;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            long[] result = new long[words.length];
+            for (int i = 0; i < words.length; i++) {
+                result[i] = words[i] & otherWords[i];
+            }
+            BitmapContainer bitmap = new BitmapContainer(result, 0);
+            bitmap.recount();
+            return bitmap.shrink();
+        }
+
+        @Override
+        Container andNot(Container other) {
+            BitmapContainer result = (BitmapContainer) copy();
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality(); i++) {
+                    char value = array.values[i];
+                    long bit = 1L << value;
+                    if ((result.words[value >>> 6] & bit) != 0) {
+                        result.words[value >>> 6] &= ~bit;
+                        result.cardinality--;
+                    }
+                }
+            } else {
+                long[] otherWords = ((BitmapContainer) other).words;
+                for (int i = 0; i < words.length; i++) {
+                    result.words[i] &= ~otherWords[i];
+                }
+                result.recount();
+            }
+            return result.shrink();
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        int copyTo(long high, int skip, long[] destination, int offset) {
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                if (skip >= Long.bitCount(word)) {
+                    skip -= Long.bitCount(word);
+                    continue;
+                }
+                while (word != 0) {
+                    int bit = Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    if (skip > 0) {
+                        skip--;
+                    } else if (offset < destination.length) {
+                        destination[offset++] = high | (i << 6 | bit);
+                    } else {
+                        return offset;
+                    }
+                }
+            }
+            return offset;
+        }
+
+        private void recount() {
+            cardinality = 0;
+            for (long word : words) {
+                cardinality += Long.bitCount(word);
+            }
+        }
+
+        /** @return a sorted array of the values if there are few enough */
+        private Container shrink() {
+            if (cardinality > MAX_ARRAY_SIZE) {
+                return this;
+            }
+            char[] values = new char[cardinality];
+            int n = 0;
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[n++] = (char) (i << 6 | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, n);
+        }
+    }
+}
@@ -0,0 +1,514 @@
+package org.tasks.bitmap;
+
+import com.todoroo.andlib.data.AbstractDatabase.TransactionListener;
+import com.todoroo.andlib.data.DatabaseDao.ModelUpdateListener;
+import com.todoroo.andlib.data.Property;
+import com.todoroo.andlib.data.TodorooCursor;
+import com.todoroo.andlib.sql.Criterion;
+import com.todoroo.andlib.sql.Order;
+import com.todoroo.andlib.sql.Query;
+import com.todoroo.astrid.alarms.AlarmFields;
+import com.todoroo.astrid.dao.Database;
+import com.todoroo.astrid.dao.MetadataDao;
+import com.todoroo.astrid.dao.MetadataDao.MetadataCriteria;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.gtasks.GtasksMetadata;
+import com.todoroo.astrid.tags.TaskToTagMetadata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Compressed bitmaps of the ids of tasks matching the predicates filters
+ * are built from, so filters can be counted with set operations and only
+ * the page of tasks shown has to be read. Tasks and metadata saved through
+ * their daos are read again on next use; any other write to those tables
+ * reloads the whole index.
+ */
+@Singleton
+public class TaskBitmapIndex {
+
+    /** Tasks read again per query */
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    /** Metadata keys whose rows are indexed */
+    private static final List<String> KEYS = Arrays.asList(
+            TaskToTagMetadata.KEY, GtasksMetadata.METADATA_KEY, AlarmFields.METADATA_KEY);
+
+    private static final Property<?>[] TASK_PROPERTIES = new Property<?>[] {
+            Task.ID, Task.UUID, Task.COMPLETION_DATE, Task.DELETION_DATE, Task.HIDE_UNTIL, Task.TIMER_START
+    };
+
+    private static final Property<?>[] METADATA_PROPERTIES = new Property<?>[] {
+            Metadata.TASK, Metadata.KEY, Metadata.VALUE1, Metadata.VALUE2, Metadata.VALUE3, Metadata.DELETION_DATE
+    };
+
+    private static final class TaskRow {
+        final long id;
+        final String uuid;
+        final long completionDate;
+        final long deletionDate;
+        final long hideUntil;
+        final long timerStart;
+
+        TaskRow(TodorooCursor<Task> cursor) {
+            id = cursor.get(Task.ID);
+            uuid = cursor.get(Task.UUID);
+            completionDate = cursor.get(Task.COMPLETION_DATE);
+            deletionDate = cursor.get(Task.DELETION_DATE);
+            hideUntil = cursor.get(Task.HIDE_UNTIL);
+            timerStart = cursor.get(Task.TIMER_START);
+        }
+    }
+
+    private static final class MetadataRow {
+        final long task;
+        final String key;
+        final String value1;
+        final String value2;
+        final String value3;
+        final boolean deleted;
+
+        MetadataRow(TodorooCursor<Metadata> cursor) {
+            task = cursor.get(Metadata.TASK);
+            key = cursor.get(Metadata.KEY);
+            value1 = cursor.get(Metadata.VALUE1);
+            value2 = cursor.get(Metadata.VALUE2);
+            value3 = cursor.get(Metadata.VALUE3);
+            deleted = cursor.get(Metadata.DELETION_DATE) > 0;
+        }
+    }
+
+    private static final class Bitmaps {
+        final TaskBitmap all = new TaskBitmap();
+        final TaskBitmap completed = new TaskBitmap();
+        final TaskBitmap deleted = new TaskBitmap();
+        final TaskBitmap timers = new TaskBitmap();
+        final TaskBitmap alarms = new TaskBitmap();
+        final TaskBitmap hiddenTags = new TaskBitmap();
+        /** Tasks with a tag link the tag queries count differently, see {@link #addMetadata} */
+        final TaskBitmap irregularTags = new TaskBitmap();
+        /** Hide until time of each hidden task, and the tasks hidden until each time */
+        final Map<Long, Long> hideUntil = new HashMap<>();
+        final TreeMap<Long, TaskBitmap> hiddenUntil = new TreeMap<>();
+        final Map<String, TaskBitmap> tags = new HashMap<>();
+        final Map<String, TaskBitmap> gtasksLists = new HashMap<>();
+    }
+
+    private final Database database;
+    private final TaskDao taskDao;
+    private final MetadataDao metadataDao;
+
+    private Bitmaps bitmaps;
+    private int untrackedTaskWrites;
+    private int untrackedMetadataWrites;
+
+    /** Tasks saved since they were last read */
+    private final Set<Long> dirty = new HashSet<>();
+
+    /** Incremented on every change, to discard reads that raced with one */
+    private int changes = 0;
+
+    private final TransactionListener reloadOnRollback = new TransactionListener() {
+        @Override
+        public void onTransactionCommitted() {
+        }
+
+        @Override
+        public void onTransactionRolledBack() {
+            invalidate();
+        }
+    };
+
+    @Inject
+    public TaskBitmapIndex(Database database, TaskDao taskDao, MetadataDao metadataDao) {
+        this.database = database;
+        this.taskDao = taskDao;
+        this.metadataDao = metadataDao;
+
+        taskDao.addListener(new ModelUpdateListener<Task>() {
+            @Override
+            public void onModelUpdated(Task model) {
+                markDirty(model.getId());
+            }
+        });
+        metadataDao.addListener(new ModelUpdateListener<Metadata>() {
+            @Override
+            public void onModelUpdated(Metadata model) {
+                if (model.containsNonNullValue(Metadata.KEY) && !KEYS.contains(model.getKey())) {
+                    return;
+                }
+                if (model.containsNonNullValue(Metadata.TASK)) {
+                    markDirty(model.getTask());
+                } else {
+                    invalidate();
+                }
+            }
+        });
+    }
+
+    /**
+     * @return every task
+     */
+    public TaskBitmap getAll() {
+        Bitmaps bitmaps = refresh();
+        synchronized (this) {
+            return bitmaps.all.copy();
+        }
+    }
+
+    /**
+     * @return tasks that are neither completed nor deleted
+     */
+    public TaskBitmap getActive() {
+        Bitmaps bitmaps = refresh();
+        synchronized (this) {
+            return getActive(bitmaps);
+        }
+    }
+
+    public TaskBitmap getCompleted() {
+        Bitmaps bitmaps = refresh();
+        synchronized (this) {
+            return bitmaps.completed.copy();
+        }
+    }
+
+    public TaskBitmap getDeleted() {
+        Bitmaps bitmaps = refresh();
+        synchronized (this) {
+            return bitmaps.deleted.copy();
+        }
+    }
+
+    /**
+     * @return tasks hidden until the given time or later
+     */
+    public TaskBitmap getHidden(long now) {
+        Bitmaps bitmaps = refresh();
+        synchronized (this) {
+            return getHidden(bitmaps, now);
+        }
+    }
+
+    /**
+     * @return tasks matching {@link TaskDao.TaskCriteria#activeVisibleMine()}
+     */
+    public TaskBitmap getActiveVisible(long now) {
+        Bitmaps bitmaps = refresh();
+        synchronized (this) {
+            return getActiveVisible(bitmaps, now);
+        }
+    }
+
+    /**
+     * @return tasks linked to the tag with the given uuid
+     */
+    public TaskBitmap getTag(String tagUuid) {
+        Bitmaps bitmaps = refresh();
+        synchronized (this) {
+            return copyOf(bitmaps.tags.get(tagUuid));
+        }
+    }
+
+    /**
+     * @return false if a tag link is duplicated or names another task's
+     * uuid. Tag queries join links on the task uuid and count every link,
+     * so their counts can't be read from {@link #getTag} until it is fixed.
+     */
+    public boolean isTagCountExact() {
+        Bitmaps bitmaps = refresh();
+        synchronized (this) {
+            return bitmaps.irregularTags.isEmpty();
+        }
+    }
+
+    /**
+     * @return tasks linked to any tag
+     */
+    public TaskBitmap getTagged() {
+        Bitmaps bitmaps = refresh();
+        synchronized (this) {
+            TaskBitmap result = new TaskBitmap();
+            for (TaskBitmap tag : bitmaps.tags.values()) {
+                result = TaskBitmap.or(result, tag);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * @return tasks shown in the inbox, that are active, visible and not
+     * linked to a tag whose name starts with an underscore
+     */
+    public TaskBitmap getInbox(long now) {
+        Bitmaps bitmaps = refresh();
+        synchronized (this) {
+            return TaskBitmap.andNot(getActiveVisible(bitmaps, now), bitmaps.hiddenTags);
+        }
+    }
+
+    /**
+     * @return tasks in the Google Tasks list with the given id
+     */
+    public TaskBitmap getGtasksList(String listId) {
+        Bitmaps bitmaps = refresh();
+        synchronized (this) {
+            return copyOf(bitmaps.gtasksLists.get(listId));
+        }
+    }
+
+    public TaskBitmap getWithAlarms() {
+        Bitmaps bitmaps = refresh();
+        synchronized (this) {
+            return bitmaps.alarms.copy();
+        }
+    }
+
+    public TaskBitmap getWithTimers() {
+        Bitmaps bitmaps = refresh();
+        synchronized (this) {
+            return bitmaps.timers.copy();
+        }
+    }
+
+    /**
+     * Read a page of tasks, in id order
+     */
+    public TodorooCursor<Task> fetch(TaskBitmap ids, int offset, int limit, Property<?>... properties) {
+        List<Long> page = new ArrayList<>();
+        for (long id : ids.toArray(offset, limit)) {
+            page.add(id);
+        }
+        Criterion criterion = page.isEmpty() ? Task.ID.eq(Task.NO_ID) : Task.ID.in(page);
+        return taskDao.query(Query.select(properties).where(criterion).orderBy(Order.asc(Task.ID)));
+    }
+
+    /**
+     * Load the whole index again on next use
+     */
+    public synchronized void invalidate() {
+        bitmaps = null;
+        changes++;
+    }
+
+    private synchronized void markDirty(long taskId) {
+        dirty.add(taskId);
+        changes++;
+    }
+
+    /**
+     * Bring the index up to date. Queries run without holding the index,
+     * since listeners update it while holding the database.
+     */
+    private Bitmaps refresh() {
+        while (true) {
+            int taskWrites = taskDao.getUntrackedWrites();
+            int metadataWrites = metadataDao.getUntrackedWrites();
+            int expected;
+            boolean reload;
+            List<Long> ids;
+            synchronized (this) {
+                reload = bitmaps == null || taskWrites != untrackedTaskWrites ||
+                        metadataWrites != untrackedMetadataWrites;
+                if (!reload && dirty.isEmpty()) {
+                    return bitmaps;
+                }
+                expected = changes;
+                ids = new ArrayList<>(dirty);
+            }
+
+            if (database.inTransaction()) {
+                database.addTransactionListener(reloadOnRollback);
+            }
+            Bitmaps result = reload ? new Bitmaps() : null;
+            List<TaskRow> tasks = new ArrayList<>();
+            List<MetadataRow> metadata = new ArrayList<>();
+            if (reload) {
+                readTasks(Criterion.all, tasks);
+                readMetadata(Criterion.all, metadata);
+            } else {
+                for (int i = 0; i < ids.size(); i += MAX_IDS_PER_QUERY) {
+                    List<Long> chunk = ids.subList(i, Math.min(ids.size(), i + MAX_IDS_PER_QUERY));
+                    readTasks(Task.ID.in(chunk), tasks);
+                    readMetadata(Metadata.TASK.in(chunk), metadata);
+                }
+            }
+
+            synchronized (this) {
+                if (changes != expected) {
+                    continue;
+                }
+                if (reload) {
+                    bitmaps = result;
+                    untrackedTaskWrites = taskWrites;
+                    untrackedMetadataWrites = metadataWrites;
+                } else {
+                    for (long id : ids) {
+                        remove(bitmaps, id);
+                    }
+                }
+                Map<Long, String> uuids = new HashMap<>();
+                for (TaskRow task : tasks) {
+                    addTask(bitmaps, task);
+                    uuids.put(task.id, task.uuid);
+                }
+                for (MetadataRow row : metadata) {
+                    addMetadata(bitmaps, row, uuids);
+                }
+                dirty.clear();
+                return bitmaps;
+            }
+        }
+    }
+
+    private void readTasks(Criterion criterion, List<TaskRow> rows) {
+        TodorooCursor<Task> cursor = taskDao.query(Query.select(TASK_PROPERTIES).where(criterion));
+        try {
+            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                rows.add(new TaskRow(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void readMetadata(Criterion criterion, List<MetadataRow> rows) {
+        TodorooCursor<Metadata> cursor = metadataDao.query(Query.select(METADATA_PROPERTIES).where(
+                Criterion.and(criterion, Criterion.or(
+                        MetadataCriteria.withKey(TaskToTagMetadata.KEY),
+                        MetadataCriteria.withKey(GtasksMetadata.METADATA_KEY),
+                        MetadataCriteria.withKey(AlarmFields.METADATA_KEY)))));
+        try {
+            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                rows.add(new MetadataRow(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static void addTask(Bitmaps bitmaps, TaskRow row) {
+        bitmaps.all.add(row.id);
+        if (row.completionDate > 0) {
+            bitmaps.completed.add(row.id);
+        }
+        if (row.deletionDate > 0) {
+            bitmaps.deleted.add(row.id);
+        }
+        if (row.hideUntil > 0) {
+            bitmaps.hideUntil.put(row.id, row.hideUntil);
+            get(bitmaps.hiddenUntil, row.hideUntil).add(row.id);
+        }
+        if (row.timerStart > 0) {
+            bitmaps.timers.add(row.id);
+        }
+    }
+
+    /**
+     * Rows of tasks that don't exist are skipped. Deleted rows are only left
+     * out of tags, as in the queries of the other predicates. Tags are keyed
+     * by task id, a link that is duplicated or whose task uuid belongs to
+     * another task marks its task irregular.
+     *
+     * @param uuids uuid of each task read with the rows
+     */
+    private static void addMetadata(Bitmaps bitmaps, MetadataRow row, Map<Long, String> uuids) {
+        if (!bitmaps.all.contains(row.task)) {
+            return;
+        }
+        if (TaskToTagMetadata.KEY.equals(row.key)) {
+            if (!row.deleted) {
+                TaskBitmap tag = get(bitmaps.tags, row.value2);
+                if (tag.contains(row.task) || row.value3 == null || !row.value3.equals(uuids.get(row.task))) {
+                    bitmaps.irregularTags.add(row.task);
+                }
+                tag.add(row.task);
+            }
+            if (row.value1 != null && row.value1.startsWith("_")) {
+                bitmaps.hiddenTags.add(row.task);
+            }
+        } else if (GtasksMetadata.METADATA_KEY.equals(row.key)) {
+            get(bitmaps.gtasksLists, row.value2).add(row.task);
+        } else if (AlarmFields.METADATA_KEY.equals(row.key)) {
+            bitmaps.alarms.add(row.task);
+        }
+    }
+
+    private static void remove(Bitmaps bitmaps, long id) {
+        bitmaps.all.remove(id);
+        bitmaps.completed.remove(id);
+        bitmaps.deleted.remove(id);
+        bitmaps.timers.remove(id);
+        bitmaps.alarms.remove(id);
+        bitmaps.hiddenTags.remove(id);
+        bitmaps.irregularTags.remove(id);
+        Long hideUntil = bitmaps.hideUntil.remove(id);
+        if (hideUntil != null) {
+            TaskBitmap hidden = bitmaps.hiddenUntil.get(hideUntil);
+            hidden.remove(id);
+            if (hidden.isEmpty()) {
+                bitmaps.hiddenUntil.remove(hideUntil);
+            }
+        }
+        remove(bitmaps.tags, id);
+        remove(bitmaps.gtasksLists, id);
+    }
+
+    private static void remove(Map<String, TaskBitmap> map, long id) {
+        Iterator<TaskBitmap> iterator = map.values().iterator();
+        while (iterator.hasNext()) {
+            TaskBitmap bitmap = iterator.next();
+            bitmap.remove(id);
+            if (bitmap.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static <K> TaskBitmap get(Map<K, TaskBitmap> map, K key) {
+        TaskBitmap bitmap = map.get(key);
+        if (bitmap == null) {
+            bitmap = new TaskBitmap();
+            map.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    private static TaskBitmap getActive(Bitmaps bitmaps) {
+        return TaskBitmap.andNot(TaskBitmap.andNot(bitmaps.all, bitmaps.completed), bitmaps.deleted);
+    }
+
+    private static TaskBitmap getActiveVisible(Bitmaps bitmaps, long now) {
+        return TaskBitmap.andNot(getActive(bitmaps), getHidden(bitmaps, now));
+    }
+
+    /**
+     * Only the tasks hidden until <code>now</code> or later are visited
+     */
+    private static TaskBitmap getHidden(Bitmaps bitmaps, long now) {
+        TaskBitmap hidden = new TaskBitmap();
+        for (TaskBitmap ids : bitmaps.hiddenUntil.tailMap(now).values()) {
+            for (long id : ids.toArray()) {
+                hidden.add(id);
+            }
+        }
+        return hidden;
+    }
+
+    private static TaskBitmap copyOf(TaskBitmap bitmap) {
+        return bitmap == null ? new TaskBitmap() : bitmap.copy();
+    }
+}
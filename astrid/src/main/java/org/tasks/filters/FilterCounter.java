@@ -1,13 +1,30 @@
 package org.tasks.filters;
 
-import com.todoroo.andlib.data.TodorooCursor;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteException;
+
 import com.todoroo.andlib.sql.Query;
+import com.todoroo.andlib.sql.QueryTemplate;
+import com.todoroo.andlib.utility.DateUtilities;
 import com.todoroo.astrid.api.Filter;
 import com.todoroo.astrid.api.FilterListItem;
 import com.todoroo.astrid.api.PermaSql;
-import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.core.CoreFilterExposer;
+import com.todoroo.astrid.dao.Database;
+import com.todoroo.astrid.dao.TaskDao.TaskCriteria;
+import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.TagData;
 import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.tags.TagService;
+import com.todoroo.astrid.tags.TaskToTagMetadata;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tasks.bitmap.TaskBitmap;
+import org.tasks.bitmap.TaskBitmapIndex;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
@@ -18,8 +35,17 @@ import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import static com.todoroo.andlib.utility.DateUtilities.getStartOfDay;
+import static com.todoroo.andlib.utility.DateUtilities.now;
+
 @Singleton
 public class FilterCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(FilterCounter.class);
+
+    /** Maximum number of filters counted in a single compound query */
+    static final int MAX_FILTERS_PER_QUERY = 25;
+
     // Previous solution involved a queue of filters and a filterSizeLoadingThread. The filterSizeLoadingThread had
     // a few problems: how to make sure that the thread is resumed when the controlling activity is resumed, and
     // how to make sure that the the filterQueue does not accumulate filters without being processed. I am replacing
@@ -31,15 +57,24 @@ public class FilterCounter {
 
     private final Map<Filter, Integer> filterCounts = new ConcurrentHashMap<>();
 
-    private final TaskDao taskDao;
+    /** Query, table generation and time period each count was computed for */
+    private final Map<Filter, CountKey> countKeys = new ConcurrentHashMap<>();
+
+    private final Database database;
+    private final TaskBitmapIndex taskBitmapIndex;
+
+    /** Query of the inbox, which is counted from the task index */
+    private final String inboxSql = getTaskIdQuery(CoreFilterExposer.buildInboxQuery());
 
     @Inject
-    public FilterCounter(TaskDao taskDao) {
-        this(taskDao, new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>()));
+    public FilterCounter(Database database, TaskBitmapIndex taskBitmapIndex) {
+        this(database, taskBitmapIndex,
+                new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>()));
     }
 
-    FilterCounter(TaskDao taskDao, ExecutorService executorService) {
-        this.taskDao = taskDao;
+    FilterCounter(Database database, TaskBitmapIndex taskBitmapIndex, ExecutorService executorService) {
+        this.database = database;
+        this.taskBitmapIndex = taskBitmapIndex;
         this.executorService = executorService;
     }
 
@@ -47,10 +82,7 @@ public class FilterCounter {
         executorService.submit(new Runnable() {
             @Override
             public void run() {
-                for (Filter filter : filterCounts.keySet()) {
-                    int size = countTasks(filter);
-                    filterCounts.put(filter, size);
-                }
+                refreshStaleCounts();
                 if (onComplete != null) {
                     onComplete.run();
                 }
@@ -59,7 +91,9 @@ public class FilterCounter {
     }
 
     public void registerFilter(Filter filter) {
-        filterCounts.put(filter, 0);
+        if (!filterCounts.containsKey(filter)) {
+            filterCounts.put(filter, 0);
+        }
     }
 
     public boolean containsKey(FilterListItem filter) {
@@ -70,14 +104,163 @@ public class FilterCounter {
         return filterCounts.get(filter);
     }
 
-    private int countTasks(Filter filter) {
-        String queryTemplate = PermaSql.replacePlaceholders(filter.getSqlQuery());
-        TodorooCursor<Task> cursor = taskDao.query(
-                Query.select(Task.ID).withQueryTemplate(queryTemplate));
+    /**
+     * Recount filters whose query changed or whose tables were written to
+     * since they were last counted. The inbox and tags are counted from the
+     * task index, which is always current, unless a tag link would be counted
+     * differently by the tag query.
+     */
+    void refreshStaleCounts() {
+        List<Filter> filters = new ArrayList<>();
+        List<CountKey> keys = new ArrayList<>();
+        long now = now();
+        TaskBitmap activeVisible = null;
+        boolean exactTags = taskBitmapIndex.isTagCountExact();
+        for (Filter filter : filterCounts.keySet()) {
+            CountKey key = getCountKey(filter);
+            String tagUuid = exactTags ? getTagUuid(filter) : null;
+            if (key.sql.equals(inboxSql)) {
+                filterCounts.put(filter, taskBitmapIndex.getInbox(now).getCardinality());
+            } else if (tagUuid != null && key.sql.equals(getTaskIdQuery(getTagQuery(tagUuid)))) {
+                if (activeVisible == null) {
+                    activeVisible = taskBitmapIndex.getActiveVisible(now);
+                }
+                TaskBitmap tagged = TaskBitmap.and(activeVisible, taskBitmapIndex.getTag(tagUuid));
+                filterCounts.put(filter, tagged.getCardinality());
+            } else if (!key.equals(countKeys.get(filter))) {
+                filters.add(filter);
+                keys.add(key);
+            }
+        }
+        for (int i = 0; i < filters.size(); i += MAX_FILTERS_PER_QUERY) {
+            int end = Math.min(filters.size(), i + MAX_FILTERS_PER_QUERY);
+            countTasks(filters.subList(i, end), keys.subList(i, end));
+        }
+    }
+
+    private CountKey getCountKey(Filter filter) {
+        String sql = Query.select(Task.ID)
+                .withQueryTemplate(filter.getSqlQuery())
+                .toString();
+        return new CountKey(sql, database.getGenerationForQuery(sql), getPeriod(sql));
+    }
+
+    private static String getTaskIdQuery(QueryTemplate template) {
+        return Query.select(Task.ID).withQueryTemplate(template.toString()).toString();
+    }
+
+    /**
+     * @return uuid of the tag new tasks of the filter are added to, or null
+     */
+    private static String getTagUuid(Filter filter) {
+        if (filter.valuesForNewTasks == null ||
+                !TaskToTagMetadata.KEY.equals(filter.valuesForNewTasks.getAsString(Metadata.KEY.name))) {
+            return null;
+        }
+        return filter.valuesForNewTasks.getAsString(TaskToTagMetadata.TAG_UUID.name);
+    }
+
+    /**
+     * @return query of the filter listing the active tasks of a tag
+     */
+    private static QueryTemplate getTagQuery(String tagUuid) {
+        TagData tagData = new TagData();
+        tagData.setUuid(tagUuid);
+        return new TagService.Tag(tagData).queryTemplate(TaskCriteria.activeAndVisible());
+    }
+
+    /**
+     * Queries comparing against the current time are recounted every
+     * minute, other time placeholders only change once a day
+     */
+    private static long getPeriod(String sql) {
+        long now = now();
+        return PermaSql.dependsOnNow(sql)
+                ? now / DateUtilities.ONE_MINUTE
+                : getStartOfDay(now);
+    }
+
+    /**
+     * Count several filters with one compound query, falling back to one
+     * query per filter if any of them fails
+     */
+    private void countTasks(List<Filter> filters, List<CountKey> keys) {
+        if (filters.size() == 1) {
+            countTasks(filters.get(0), keys.get(0));
+            return;
+        }
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (int i = 0; i < keys.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append('(').append(countQuery(keys.get(i).sql)).append(')');
+        }
+        int[] counts = new int[keys.size()];
+        try {
+            Cursor cursor = database.rawQuery(sql.toString(), null);
+            try {
+                cursor.moveToFirst();
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] = cursor.getInt(i);
+                }
+            } finally {
+                cursor.close();
+            }
+        } catch (SQLiteException e) {
+            log.error(e.getMessage(), e);
+            for (int i = 0; i < filters.size(); i++) {
+                countTasks(filters.get(i), keys.get(i));
+            }
+            return;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            filterCounts.put(filters.get(i), counts[i]);
+            countKeys.put(filters.get(i), keys.get(i));
+        }
+    }
+
+    private void countTasks(Filter filter, CountKey key) {
         try {
-            return cursor.getCount();
-        } finally {
-            cursor.close();
+            int count = (int) database.simpleQueryForLong(countQuery(key.sql), null);
+            filterCounts.put(filter, count);
+            countKeys.put(filter, key);
+        } catch (SQLiteException e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    private static String countQuery(String sql) {
+        return "SELECT COUNT(*) FROM (" + sql + ")";
+    }
+
+    private static class CountKey {
+        private final String sql;
+        private final long generation;
+        private final long period;
+
+        CountKey(String sql, long generation, long period) {
+            this.sql = sql;
+            this.generation = generation;
+            this.period = period;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CountKey)) {
+                return false;
+            }
+            CountKey other = (CountKey) o;
+            return generation == other.generation && period == other.period && sql.equals(other.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = 31 * sql.hashCode() + (int) (generation ^ (generation >>> 32));
+            return 31 * result + (int) (period ^ (period >>> 32));
         }
     }
 }
@@ -0,0 +1,170 @@
+package org.tasks.filters;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+
+import com.todoroo.andlib.data.Table;
+import com.todoroo.astrid.api.AstridApiConstants;
+import com.todoroo.astrid.api.AstridFilterExposer;
+import com.todoroo.astrid.api.FilterListItem;
+import com.todoroo.astrid.core.CoreFilterExposer;
+import com.todoroo.astrid.core.CustomFilterExposer;
+import com.todoroo.astrid.dao.Database;
+import com.todoroo.astrid.data.StoreObject;
+import com.todoroo.astrid.data.TagData;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.gtasks.GtasksFilterExposer;
+import com.todoroo.astrid.tags.TagFilterExposer;
+import com.todoroo.astrid.timers.TimerFilterExposer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tasks.injection.ForApplication;
+import org.tasks.injection.Injector;
+import org.tasks.preferences.Preferences;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Instantiates the filter exposers registered in the manifest once and
+ * keeps the filters each of them built. An exposer is asked again only
+ * after a table it reads or a preference was written to.
+ */
+@Singleton
+public class FilterRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(FilterRegistry.class);
+
+    /** Tables each exposer reads. Exposers not listed are asked every time */
+    static final Map<String, Table[]> TABLES = new HashMap<>();
+    static {
+        TABLES.put(CoreFilterExposer.class.getName(), new Table[0]);
+        TABLES.put(CustomFilterExposer.class.getName(), new Table[] { StoreObject.TABLE });
+        TABLES.put(GtasksFilterExposer.class.getName(), new Table[] { StoreObject.TABLE });
+        TABLES.put(TagFilterExposer.class.getName(), new Table[] { TagData.TABLE });
+        TABLES.put(TimerFilterExposer.class.getName(), new Table[] { Task.TABLE });
+    }
+
+    static final class Exposer {
+        private final AstridFilterExposer exposer;
+        private final Table[] tables;
+        private List<FilterListItem> filters;
+        private long generation;
+        private int preferencesVersion;
+
+        Exposer(AstridFilterExposer exposer, Table[] tables) {
+            this.exposer = exposer;
+            this.tables = tables;
+        }
+    }
+
+    private final Context context;
+    private final Database database;
+    private final SharedPreferences preferences;
+    private List<Exposer> exposers;
+    private int preferencesVersion = 0;
+
+    /** Held here because shared preferences only keep weak references to listeners */
+    private final SharedPreferences.OnSharedPreferenceChangeListener preferenceListener =
+            new SharedPreferences.OnSharedPreferenceChangeListener() {
+        @Override
+        public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+            synchronized (FilterRegistry.this) {
+                preferencesVersion++;
+            }
+        }
+    };
+
+    @Inject
+    public FilterRegistry(@ForApplication Context context, Database database, Preferences preferences) {
+        this(context, database, preferences, null);
+    }
+
+    /**
+     * @param exposers exposers to ask, or null to load the ones registered
+     *                 in the manifest on first use
+     */
+    FilterRegistry(Context context, Database database, Preferences preferences, List<Exposer> exposers) {
+        this.context = context;
+        this.database = database;
+        this.exposers = exposers;
+        this.preferences = preferences.getPrefs();
+        this.preferences.registerOnSharedPreferenceChangeListener(preferenceListener);
+    }
+
+    /**
+     * @return filters of every exposer, in manifest order. Exposers whose
+     * tables and preferences are unchanged since they were last asked
+     * return the same filter instances as before
+     */
+    public synchronized List<FilterListItem> getFilters(Injector injector) {
+        if (exposers == null) {
+            exposers = loadExposers();
+        }
+        List<FilterListItem> result = new ArrayList<>();
+        for (Exposer exposer : exposers) {
+            long generation = getGeneration(exposer);
+            if (exposer.filters == null || exposer.tables == null || exposer.generation != generation ||
+                    exposer.preferencesVersion != preferencesVersion) {
+                exposer.filters = getFilters(injector, exposer.exposer);
+                exposer.generation = generation;
+                exposer.preferencesVersion = preferencesVersion;
+            }
+            result.addAll(exposer.filters);
+        }
+        return result;
+    }
+
+    private long getGeneration(Exposer exposer) {
+        long generation = 0;
+        if (exposer.tables == null) {
+            return generation;
+        }
+        for (Table table : exposer.tables) {
+            generation = Math.max(generation, database.getGeneration(table.name));
+        }
+        return generation;
+    }
+
+    private static List<FilterListItem> getFilters(Injector injector, AstridFilterExposer exposer) {
+        try {
+            FilterListItem[] filters = exposer.getFilters(injector);
+            return filters == null
+                    ? Collections.<FilterListItem>emptyList()
+                    : Arrays.asList(filters);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            return Collections.emptyList();
+        }
+    }
+
+    private List<Exposer> loadExposers() {
+        // query astrids AndroidManifest.xml for all registered default-receivers to expose filters
+        List<ResolveInfo> receivers = context.getPackageManager().queryBroadcastReceivers(
+                new Intent(AstridApiConstants.BROADCAST_REQUEST_FILTERS),
+                PackageManager.MATCH_DEFAULT_ONLY);
+        List<Exposer> result = new ArrayList<>();
+        for (ResolveInfo receiver : receivers) {
+            String className = receiver.activityInfo.name;
+            try {
+                AstridFilterExposer exposer = (AstridFilterExposer) Class.forName(className, true,
+                        FilterRegistry.class.getClassLoader()).newInstance();
+                result.add(new Exposer(exposer, TABLES.get(className)));
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+            }
+        }
+        return result;
+    }
+}
@@ -7,13 +7,18 @@ import com.todoroo.astrid.actfm.TagViewFragment;
 import com.todoroo.astrid.activity.FilterListFragment;
 import com.todoroo.astrid.activity.TaskEditFragment;
 import com.todoroo.astrid.activity.TaskListFragment;
+import com.todoroo.astrid.alarms.AlarmDetailExposer;
 import com.todoroo.astrid.core.CoreFilterExposer;
 import com.todoroo.astrid.core.CustomFilterExposer;
+import com.todoroo.astrid.gtasks.GtasksDetailExposer;
 import com.todoroo.astrid.gtasks.GtasksFilterExposer;
 import com.todoroo.astrid.gtasks.GtasksListFragment;
+import com.todoroo.astrid.notes.NotesDetailExposer;
 import com.todoroo.astrid.reminders.NotificationFragment;
+import com.todoroo.astrid.repeats.RepeatDetailExposer;
 import com.todoroo.astrid.subtasks.SubtasksListFragment;
 import com.todoroo.astrid.subtasks.SubtasksTagListFragment;
+import com.todoroo.astrid.tags.TagDetailExposer;
 import com.todoroo.astrid.tags.TagFilterExposer;
 import com.todoroo.astrid.timers.TimerFilterExposer;
 import com.todoroo.astrid.ui.QuickAddBar;
@@ -38,7 +43,12 @@ import dagger.Provides;
         TimerFilterExposer.class,
         CustomFilterExposer.class,
         GtasksFilterExposer.class,
-        TagFilterExposer.class
+        TagFilterExposer.class,
+        TagDetailExposer.class,
+        AlarmDetailExposer.class,
+        GtasksDetailExposer.class,
+        RepeatDetailExposer.class,
+        NotesDetailExposer.class
 })
 public class FragmentModule {
 
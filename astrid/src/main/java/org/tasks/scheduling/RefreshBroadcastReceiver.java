@@ -11,6 +11,7 @@ import javax.inject.Inject;
 public class RefreshBroadcastReceiver extends InjectingBroadcastReceiver {
 
     @Inject Broadcaster broadcaster;
+    @Inject RefreshScheduler refreshScheduler;
 
     @Override
     public void onReceive(Context context, Intent intent) {
@@ -18,5 +19,6 @@ public class RefreshBroadcastReceiver extends InjectingBroadcastReceiver {
 
         broadcaster.taskListUpdated();
         broadcaster.filterListUpdated();
+        refreshScheduler.scheduleAllAlarms();
     }
 }
@@ -2,13 +2,13 @@ package org.tasks.scheduling;
 
 import android.app.AlarmManager;
 import android.app.PendingIntent;
+import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
 
+import com.todoroo.andlib.data.DatabaseDao.ModelUpdateListener;
 import com.todoroo.andlib.data.Property;
-import com.todoroo.andlib.data.TodorooCursor;
-import com.todoroo.andlib.sql.Criterion;
-import com.todoroo.andlib.sql.Query;
+import com.todoroo.astrid.dao.Database;
 import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.data.Task;
 
@@ -21,65 +21,120 @@ import static android.app.PendingIntent.FLAG_UPDATE_CURRENT;
 import static com.todoroo.andlib.utility.DateUtilities.ONE_MINUTE;
 import static org.tasks.date.DateTimeUtils.currentTimeMillis;
 
+/**
+ * Keeps a single alarm set for the earliest future due date or hide until
+ * date of any active task, or the minute after a task was completed when
+ * recently completed tasks drop off lists, refreshing the task and filter
+ * lists when it fires.
+ */
 @Singleton
 public class RefreshScheduler {
 
-    private final TaskDao taskDao;
+    /**
+     * Earliest future due date or hide until date of an active task, or
+     * completion date plus a minute of a completed task, 0 if none
+     */
+    static final String NEXT_REFRESH_SQL = "SELECT COALESCE(MIN(t), 0) FROM (" +
+            nextDateSql(Task.DUE_DATE) + " UNION ALL " + nextDateSql(Task.HIDE_UNTIL) +
+            " UNION ALL " + nextCompletionSql() + ")";
+
+    private final Database database;
     private final Context context;
 
-    private static final Property<?>[] REFRESH_PROPERTIES = new Property<?>[]{
-            Task.DUE_DATE,
-            Task.HIDE_UNTIL
-    };
+    private long nextRefresh;
+    private boolean initialized;
 
     @Inject
-    public RefreshScheduler(TaskDao taskDao, @ForApplication Context context) {
-        this.taskDao = taskDao;
+    public RefreshScheduler(TaskDao taskDao, Database database, @ForApplication Context context) {
+        this.database = database;
         this.context = context;
+
+        taskDao.addListener(new ModelUpdateListener<Task>() {
+            @Override
+            public void onModelUpdated(Task model) {
+                ContentValues setValues = model.getSetValues();
+                if (setValues != null && (setValues.containsKey(Task.DUE_DATE.name) ||
+                        setValues.containsKey(Task.HIDE_UNTIL.name) ||
+                        setValues.containsKey(Task.COMPLETION_DATE.name))) {
+                    scheduleRefresh(model);
+                }
+            }
+        });
     }
 
+    /**
+     * Look up the next refresh time and set the alarm, replacing any
+     * alarm that was set before
+     */
     public void scheduleAllAlarms() {
-        TodorooCursor<Task> cursor = getTasks();
-        try {
-            Task task = new Task();
-            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
-                task.readFromCursor(cursor);
-                scheduleRefresh(task);
-            }
-        } finally {
-            cursor.close();
-        }
+        // query outside of the lock, as task saves call scheduleRefresh
+        // from their listeners while holding the database
+        setNextRefresh(getNextRefresh(currentTimeMillis()));
     }
 
+    /**
+     * @return earliest refresh time after <code>now</code>, 0 if none
+     */
+    long getNextRefresh(long now) {
+        return database.simpleQueryForLong(NEXT_REFRESH_SQL, new Object[] { now, now, now - ONE_MINUTE });
+    }
+
+    /**
+     * Move the alarm earlier if the task has a date before it
+     */
     public void scheduleRefresh(Task task) {
+        if (isStale()) {
+            scheduleAllAlarms();
+        }
         if (task.containsValue(Task.DUE_DATE)) {
             scheduleRefresh(task.getDueDate());
         }
         if (task.containsValue(Task.HIDE_UNTIL)) {
             scheduleRefresh(task.getHideUntil());
         }
-        if (task.containsValue(Task.COMPLETION_DATE)) {
+        if (task.containsValue(Task.COMPLETION_DATE) && task.getCompletionDate() > 0) {
             scheduleRefresh(task.getCompletionDate() + ONE_MINUTE);
         }
     }
 
-    private void scheduleRefresh(Long dueDate) {
-        if (currentTimeMillis() > dueDate) {
+    private synchronized boolean isStale() {
+        return !initialized || (nextRefresh > 0 && nextRefresh < currentTimeMillis());
+    }
+
+    private synchronized void setNextRefresh(long date) {
+        initialized = true;
+        nextRefresh = 0;
+        if (date > 0) {
+            setAlarm(date);
+        }
+    }
+
+    private synchronized void scheduleRefresh(long date) {
+        if (currentTimeMillis() > date) {
             return;
         }
+        if (nextRefresh == 0 || date < nextRefresh) {
+            setAlarm(date);
+        }
+    }
 
-        dueDate += 1000; // this is ghetto
+    private void setAlarm(long date) {
+        nextRefresh = date;
         Intent intent = new Intent(context, RefreshBroadcastReceiver.class);
-        intent.setAction(Long.toString(dueDate));
         AlarmManager am = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
         PendingIntent pendingIntent = PendingIntent.getBroadcast(context, 0, intent, FLAG_UPDATE_CURRENT);
-        am.set(AlarmManager.RTC, dueDate, pendingIntent);
+        am.set(AlarmManager.RTC, date + 1000, pendingIntent); // this is ghetto
+    }
+
+    private static String nextDateSql(Property<?> property) {
+        return "SELECT (SELECT " + property.name + " FROM " + Task.TABLE +
+                " WHERE " + Task.COMPLETION_DATE.name + " = 0 AND " + Task.DELETION_DATE.name + " = 0" +
+                " AND " + property.name + " > ? ORDER BY " + property.name + " LIMIT 1) AS t";
     }
 
-    private TodorooCursor<Task> getTasks() {
-        long now = currentTimeMillis();
-        return taskDao.query(Query.select(REFRESH_PROPERTIES).where(Criterion.and(
-                TaskDao.TaskCriteria.isActive(),
-                Criterion.or(Task.HIDE_UNTIL.gt(now), Task.DUE_DATE.gt(now)))));
+    private static String nextCompletionSql() {
+        return "SELECT (SELECT " + Task.COMPLETION_DATE.name + " + " + ONE_MINUTE + " FROM " + Task.TABLE +
+                " WHERE " + Task.DELETION_DATE.name + " = 0 AND " + Task.COMPLETION_DATE.name + " > ?" +
+                " ORDER BY " + Task.COMPLETION_DATE.name + " LIMIT 1) AS t";
     }
 }
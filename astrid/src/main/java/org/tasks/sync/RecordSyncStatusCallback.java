@@ -3,10 +3,14 @@ package org.tasks.sync;
 import com.todoroo.astrid.sync.SyncProviderUtilities;
 import com.todoroo.astrid.sync.SyncResultCallback;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.tasks.Broadcaster;
 
 public class RecordSyncStatusCallback implements SyncResultCallback {
 
+    private static final Logger log = LoggerFactory.getLogger(RecordSyncStatusCallback.class);
+
     private SyncProviderUtilities syncProviderUtilities;
     private Broadcaster broadcaster;
 
@@ -24,6 +28,11 @@ public class RecordSyncStatusCallback implements SyncResultCallback {
         syncProviderUtilities.recordSyncStart();
     }
 
+    @Override
+    public void listSynchronized(String list, long millis, int tasks) {
+        log.debug("Synchronized {}: {} tasks in {}ms", list, tasks, millis);
+    }
+
     @Override
     public void finished() {
         syncProviderUtilities.stopOngoing();
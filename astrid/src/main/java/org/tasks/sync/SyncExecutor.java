@@ -1,9 +1,12 @@
 package org.tasks.sync;
 
+import com.todoroo.andlib.utility.AndroidUtilities;
 import com.todoroo.astrid.sync.SyncResultCallback;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.SynchronousQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -13,14 +16,22 @@ import static java.util.concurrent.ThreadPoolExecutor.DiscardPolicy;
 
 public class SyncExecutor {
 
-    private final ExecutorService executor = new ThreadPoolExecutor(
-            0, Integer.MAX_VALUE,
+    private static final Logger log = LoggerFactory.getLogger(SyncExecutor.class);
+
+    /** Most sync operations running at once, further operations are queued */
+    public static final int MAX_THREADS = 8;
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            MAX_THREADS, MAX_THREADS,
             60L, TimeUnit.SECONDS,
-            new SynchronousQueue<Runnable>(),
+            new LinkedBlockingQueue<Runnable>(),
             new DiscardPolicy());
 
     @Inject
     public SyncExecutor() {
+        if (AndroidUtilities.getSdkVersion() >= 9) {
+            executor.allowCoreThreadTimeOut(true);
+        }
     }
 
     public void execute(final SyncResultCallback callback, final Runnable command) {
@@ -30,7 +41,8 @@ public class SyncExecutor {
                 try {
                     command.run();
                 } catch (Exception e) {
-                    executor.shutdownNow();
+                    // the pool is shared by every sync, so one failure must not shut it down
+                    log.error(e.getMessage(), e);
                     callback.finished();
                 }
             }